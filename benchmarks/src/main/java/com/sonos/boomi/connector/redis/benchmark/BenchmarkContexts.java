@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.connector.api.Connector;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTestContext;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.sonos.boomi.connector.redis.RedisConnector;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates connector testers used by the benchmarks to execute operations the way the atom does, and the
+ * in-process stand-in servers they run against when no Redis server is configured
+ */
+public class BenchmarkContexts {
+
+    /**
+     * System property holding the Redis hosts used by end-to-end benchmarks
+     */
+    public static final String HOSTS_PROPERTY = "redis.hosts";
+
+    /**
+     * System property holding the reply latency of stand-in servers in microseconds
+     */
+    public static final String STANDIN_LATENCY_PROPERTY = "redis.standin.latency";
+
+    /**
+     * @return Returns the Redis hosts given by the 'redis.hosts' system property, or null when end-to-end
+     * benchmarks run against an in-process stand-in server
+     */
+    public static String getExternalHosts() {
+        String hosts = System.getProperty(HOSTS_PROPERTY);
+        return hosts == null || hosts.trim().isEmpty() ? null : hosts;
+    }
+
+    /**
+     * @return Returns a new stand-in server delaying its replies by the 'redis.standin.latency' system property
+     * @throws InterruptedException Thrown when interrupted while the server starts
+     */
+    public static RespStandInServer startStandIn() throws InterruptedException {
+        RespStandInServer server = RespStandInServer.start();
+        server.setLatency(Long.getLong(STANDIN_LATENCY_PROPERTY, 0L), TimeUnit.MICROSECONDS);
+        return server;
+    }
+
+    /**
+     * @param operationType Type of the operation to execute
+     * @param objectTypeId Redis object type of the operation, e.g. "String" or "HashSet"
+     * @param customOperationType Custom operation type of EXECUTE operations, or null
+     * @param connectionProperties Connection properties of the operation, including the 'hosts' property
+     * @param operationProperties Operation properties of the operation
+     * @return Returns a tester executing the operation against the hosts of the connection properties
+     */
+    public static ConnectorTester createTester(OperationType operationType, String objectTypeId, String customOperationType,
+                                               Map<String, Object> connectionProperties, Map<String, Object> operationProperties) {
+        ConnectorTestContext context = new ConnectorTestContext() {
+            @Override
+            protected Class<? extends Connector> getConnectorClass() {
+                return RedisConnector.class;
+            }
+        };
+        context.setOperationType(operationType);
+        context.setOperationCustomType(customOperationType);
+        context.setObjectTypeId(objectTypeId);
+        for (Map.Entry<String, Object> property : connectionProperties.entrySet()) {
+            context.addConnectionProperty(property.getKey(), property.getValue());
+        }
+        for (Map.Entry<String, Object> property : operationProperties.entrySet()) {
+            context.addOperationProperty(property.getKey(), property.getValue());
+        }
+
+        // The test context is the only one that carries the custom type of EXECUTE operations
+        ConnectorTester tester = new ConnectorTester(new RedisConnector());
+        tester.setOperationContext(context);
+        return tester;
+    }
+
+    /**
+     * @param hosts Redis hosts of the connection
+     * @return Returns connection properties using the provided hosts and the defaults of every other property
+     */
+    public static Map<String, Object> connectionProperties(String hosts) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hosts", hosts);
+        return properties;
+    }
+
+    /**
+     * @param keyPrefix Key prefix of the operation
+     * @return Returns operation properties using the provided key prefix and the defaults of every other property
+     */
+    public static Map<String, Object> operationProperties(String keyPrefix) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("keyPrefix", keyPrefix);
+        properties.put("throwOnNotFound", false);
+        return properties;
+    }
+}
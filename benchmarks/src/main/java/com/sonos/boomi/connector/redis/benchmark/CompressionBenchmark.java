@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.sonos.boomi.connector.redis.compression.CompressionCodec;
+import com.sonos.boomi.connector.redis.compression.ValueCompression;
+import com.sonos.boomi.connector.redis.util.StreamUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compression of String values, with and without a preset dictionary, on JSON documents typical of
+ * cached API responses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final String DICTIONARY = "{\"id\":\"\",\"name\":\"\",\"email\":\"\",\"status\":\"ACTIVE\",\"createdAt\":\"2020-01-01T00:00:00Z\",\"tags\":[]}";
+
+    @Param({"GZIP", "DEFLATE"})
+    public CompressionCodec codec;
+
+    @Param({"false", "true"})
+    public boolean dictionary;
+
+    @Param({"512", "65536"})
+    public int size;
+
+    private ValueCompression _compression;
+    private byte[] _value;
+    private byte[] _compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        _compression = new ValueCompression(codec, 0, dictionary ? DICTIONARY.getBytes(StandardCharsets.UTF_8) : null);
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < size; i++) {
+            json.append(String.format("{\"id\":\"%08d\",\"name\":\"Customer %d\",\"email\":\"customer%d@example.com\",\"status\":\"ACTIVE\",\"createdAt\":\"2020-06-%02dT10:00:00Z\",\"tags\":[\"retail\"]},",
+                    i, i, i, 1 + i % 28));
+        }
+        _value = json.substring(0, size - 1).concat("]").getBytes(StandardCharsets.UTF_8);
+        _compressed = _compression.compress(_value);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return _compression.compress(_value);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        return StreamUtil.readBytes(_compression.decompress(_compressed), size);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete operation executions, including connection borrowing and result reporting, against the
+ * Redis hosts given by the 'redis.hosts' system property. Without the property, operations run against an
+ * in-process stand-in server whose reply latency is given by the 'redis.standin.latency' system property
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final String KEY_PREFIX = "benchmark:";
+    private static final int KEY_COUNT = 100;
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"String", "HashSet"})
+    public String objectType;
+
+    private RespStandInServer _standIn;
+    private String _hosts;
+    private ConnectorTester _get;
+    private ConnectorTester _upsert;
+    private ConnectorTester _delete;
+    private ConnectorTester _batchGet;
+    private byte[] _document;
+    private int _next = 0;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        _hosts = BenchmarkContexts.getExternalHosts();
+        if (_hosts == null) {
+            _standIn = BenchmarkContexts.startStandIn();
+            _hosts = _standIn.getUri();
+        }
+
+        Map<String, Object> connectionProperties = BenchmarkContexts.connectionProperties(_hosts);
+        _get = BenchmarkContexts.createTester(OperationType.GET, objectType, null, connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+        _upsert = BenchmarkContexts.createTester(OperationType.UPSERT, objectType, null, connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+        _delete = BenchmarkContexts.createTester(OperationType.DELETE, objectType, null, connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX + "deleted:"));
+        _batchGet = BenchmarkContexts.createTester(OperationType.EXECUTE, objectType, "BATCH_GET", connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+        _document = createDocument(objectType);
+
+        // Seed the keys read by the GET benchmarks
+        List<SimpleTrackedData> documents = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            documents.add(createTrackedData(i, String.valueOf(i)));
+        }
+        for (SimpleOperationResult result : _upsert.executeUpsertOperationWithTrackedData(documents)) {
+            if (result.getStatus() != OperationStatus.SUCCESS) {
+                throw new IllegalStateException("Unable to seed benchmark keys on " + _hosts + ": " + result.getMessage());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (_standIn != null) {
+            _standIn.close();
+        }
+    }
+
+    @Benchmark
+    public List<SimpleOperationResult> get() {
+        return _get.executeGetOperation(nextKey());
+    }
+
+    @Benchmark
+    public List<SimpleOperationResult> upsert() {
+        return _upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(createTrackedData(0, nextKey())));
+    }
+
+    /**
+     * Deletes keys that are never written, so the benchmark measures the operation and its round trips rather
+     * than the cost of freeing values on the server
+     */
+    @Benchmark
+    public List<SimpleOperationResult> delete() {
+        return _delete.executeDeleteOperation(Collections.singletonList(nextKey()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<SimpleOperationResult> batchGet() {
+        List<SimpleTrackedData> documents = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            documents.add(createTrackedData(i, nextKey()));
+        }
+        return _batchGet.executeExecuteOperationWithTrackedData(documents);
+    }
+
+    /**
+     * @return Returns the next key of the seeded key range
+     */
+    private String nextKey() {
+        _next = (_next + 1) % KEY_COUNT;
+        return String.valueOf(_next);
+    }
+
+    /**
+     * @param id Id of the document
+     * @param key Key of the document
+     * @return Returns an UPSERT or Batch Get document for the key
+     */
+    private SimpleTrackedData createTrackedData(int id, String key) {
+        return new SimpleTrackedData(id, new ByteArrayInputStream(_document), null, Collections.singletonMap("key", key));
+    }
+
+    /**
+     * @param objectType Redis object type of the document
+     * @return Returns a document of roughly 1KB for the object type
+     */
+    private static byte[] createDocument(String objectType) {
+        StringBuilder document = new StringBuilder();
+        if ("HashSet".equals(objectType)) {
+            document.append("<HashSet>");
+            for (int i = 0; i < 10; i++) {
+                document.append("<Item><ID>field-").append(i).append("</ID><Value>value of a typical cached attribute number ").append(i).append("</Value></Item>");
+            }
+            document.append("</HashSet>");
+        } else {
+            while (document.length() < 1024) {
+                document.append("{\"id\":\"00000042\",\"name\":\"Customer 42\",\"status\":\"ACTIVE\"}");
+            }
+        }
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of cluster redirects and reconnects on String GET operations, using a three node stand-in
+ * Redis Cluster. Every invocation of a redirect benchmark is answered with a redirect by the node owning the key
+ * before it is served, and every invocation of the connect benchmark opens a new cluster connection, including
+ * the topology discovery that follows a failover
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FailoverBenchmark {
+
+    private static final String KEY_PREFIX = "failover:";
+    private static final String KEY = "0";
+    private static final int NODE_COUNT = 3;
+
+    private List<RespStandInServer> _nodes;
+    private RespStandInServer _owner;
+    private RespStandInServer _other;
+    private ConnectorTester _get;
+    private ConnectorTester _getUnpooled;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        _nodes = RespStandInServer.startCluster(NODE_COUNT);
+        for (RespStandInServer node : _nodes) {
+            if (node.servesKey(KEY_PREFIX + KEY)) {
+                _owner = node;
+            } else {
+                _other = node;
+            }
+        }
+
+        Map<String, Object> connectionProperties = BenchmarkContexts.connectionProperties(_nodes.get(0).getUri());
+        connectionProperties.put("clusterMode", true);
+        _get = BenchmarkContexts.createTester(OperationType.GET, "String", null, connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+
+        // Connections returned to a pool without idle capacity are closed, so every execution reconnects
+        Map<String, Object> unpooledProperties = BenchmarkContexts.connectionProperties(_nodes.get(1).getUri());
+        unpooledProperties.put("clusterMode", true);
+        unpooledProperties.put("poolMaxIdle", 0L);
+        _getUnpooled = BenchmarkContexts.createTester(OperationType.GET, "String", null, unpooledProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+
+        ConnectorTester upsert = BenchmarkContexts.createTester(OperationType.UPSERT, "String", null, connectionProperties, BenchmarkContexts.operationProperties(KEY_PREFIX));
+        upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(new SimpleTrackedData(0,
+                new ByteArrayInputStream("cached value".getBytes(StandardCharsets.UTF_8)), null, Collections.singletonMap("key", KEY))));
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (RespStandInServer node : _nodes) {
+            node.close();
+        }
+    }
+
+    @Benchmark
+    public List<SimpleOperationResult> get() {
+        return _get.executeGetOperation(KEY);
+    }
+
+    /**
+     * The key owner replies with a MOVED redirect to another node, which redirects the command back to the owner
+     */
+    @Benchmark
+    public List<SimpleOperationResult> getMoved() {
+        _owner.redirectNext("GET", 1, RespStandInServer.Redirect.MOVED, _other);
+        return _get.executeGetOperation(KEY);
+    }
+
+    /**
+     * The key owner replies with an ASK redirect to another node, which serves the command as a miss
+     */
+    @Benchmark
+    public List<SimpleOperationResult> getAsk() {
+        _owner.redirectNext("GET", 1, RespStandInServer.Redirect.ASK, _other);
+        return _get.executeGetOperation(KEY);
+    }
+
+    @Benchmark
+    public List<SimpleOperationResult> getConnecting() {
+        return _getUnpooled.executeGetOperation(KEY);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.util.StringUtil;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compares eagerly formatted FINE messages with the {@link OperationLogger} facade while FINE logging is
+ * disabled, as it is in production processes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"10", "10000"})
+    public int keyCount;
+
+    private Logger _logger;
+    private OperationLogger _operationLogger;
+    private OperationLogger _sampledLogger;
+    private List<String> _keys;
+
+    @Setup
+    public void setup() {
+        _logger = Logger.getLogger(LoggingBenchmark.class.getName());
+        _logger.setLevel(Level.INFO);
+        _operationLogger = new OperationLogger(_logger);
+        _sampledLogger = _operationLogger.sampled(OperationLogger.DEFAULT_SAMPLE_RATE);
+
+        _keys = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            _keys.add("cache:orders:" + i);
+        }
+    }
+
+    @Benchmark
+    public void perDocumentEager() {
+        _logger.fine(String.format("'SET %s' command returned %s", _keys.get(0), "OK"));
+    }
+
+    @Benchmark
+    public void perDocumentFacade() {
+        _sampledLogger.fine("'SET %s' command returned %s", _keys.get(0), "OK");
+    }
+
+    @Benchmark
+    public void keyListEager() {
+        _logger.fine(String.format("'DEL %s' command returned %s", StringUtil.join(" ", _keys), (long) _keys.size()));
+    }
+
+    @Benchmark
+    public void keyListFacade() {
+        _operationLogger.fine("'DEL %s' command returned %s", OperationLogger.join(_keys), _keys.size());
+    }
+}
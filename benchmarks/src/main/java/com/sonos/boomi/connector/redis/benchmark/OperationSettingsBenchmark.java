@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.connector.api.OperationType;
+import com.sonos.boomi.connector.redis.operation.OperationSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures key prefixing, which runs once per document of every operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperationSettingsBenchmark {
+
+    @Param({"", "cache:orders:"})
+    public String keyPrefix;
+
+    private OperationSettings _settings;
+
+    @Setup
+    public void setup() {
+        _settings = OperationSettings.fromContext(BenchmarkContexts.createTester(OperationType.GET, "String", null, Collections.<String, Object>emptyMap(), BenchmarkContexts.operationProperties(keyPrefix)).getOperationContext());
+    }
+
+    @Benchmark
+    public String formatKey() {
+        return _settings.formatKey("4f6c2d1e-9b8a-4c3d-8e7f-0a1b2c3d4e5f");
+    }
+}
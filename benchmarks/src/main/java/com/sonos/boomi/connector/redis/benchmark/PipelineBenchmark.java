@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how well UPSERT pipelining and Batch Get batching hide network latency, using an in-process stand-in
+ * server with a fixed reply latency. The 'serverReads' and 'serverCommands' counters report the socket reads and
+ * commands received by the server, so batching regressions are visible even where throughput is unchanged
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String KEY_PREFIX = "pipeline:";
+    private static final int DOCUMENT_COUNT = 100;
+
+    @Param({"0", "200", "1000"})
+    public long latencyMicros;
+
+    @Param({"1", "16", "256"})
+    public long batchSize;
+
+    private RespStandInServer _server;
+    private ConnectorTester _upsert;
+    private ConnectorTester _batchGet;
+    private byte[] _document;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        _server = RespStandInServer.start();
+        _server.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+
+        Map<String, Object> operationProperties = BenchmarkContexts.operationProperties(KEY_PREFIX);
+        operationProperties.put("pipelineBatchSize", batchSize);
+        Map<String, Object> connectionProperties = BenchmarkContexts.connectionProperties(_server.getUri());
+        _upsert = BenchmarkContexts.createTester(OperationType.UPSERT, "String", null, connectionProperties, operationProperties);
+        _batchGet = BenchmarkContexts.createTester(OperationType.EXECUTE, "String", "BATCH_GET", connectionProperties, operationProperties);
+        _document = "{\"id\":\"00000042\",\"name\":\"Customer 42\",\"status\":\"ACTIVE\"}".getBytes(StandardCharsets.UTF_8);
+
+        // Seed the keys read by the Batch Get benchmark
+        _upsert.executeUpsertOperationWithTrackedData(createDocuments());
+    }
+
+    @TearDown
+    public void tearDown() {
+        _server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENT_COUNT)
+    public List<SimpleOperationResult> upsert(ServerCounters counters) {
+        long reads = _server.getReadBatchCount();
+        long commands = _server.getCommandCount();
+        List<SimpleOperationResult> results = _upsert.executeUpsertOperationWithTrackedData(createDocuments());
+        counters.record(_server, reads, commands);
+        return results;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENT_COUNT)
+    public List<SimpleOperationResult> batchGet(ServerCounters counters) {
+        long reads = _server.getReadBatchCount();
+        long commands = _server.getCommandCount();
+        List<SimpleOperationResult> results = _batchGet.executeExecuteOperationWithTrackedData(createDocuments());
+        counters.record(_server, reads, commands);
+        return results;
+    }
+
+    /**
+     * @return Returns a request of {@link #DOCUMENT_COUNT} documents with distinct keys
+     */
+    private List<SimpleTrackedData> createDocuments() {
+        List<SimpleTrackedData> documents = new ArrayList<>(DOCUMENT_COUNT);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            documents.add(new SimpleTrackedData(i, new ByteArrayInputStream(_document), null, Collections.singletonMap("key", String.valueOf(i))));
+        }
+        return documents;
+    }
+
+    /**
+     * Socket reads and commands received by the stand-in server, reported next to the benchmark throughput
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ServerCounters {
+
+        public long serverReads;
+        public long serverCommands;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            serverReads = 0;
+            serverCommands = 0;
+        }
+
+        /**
+         * @param server Server the invocation ran against
+         * @param reads Socket reads of the server before the invocation
+         * @param commands Commands received by the server before the invocation
+         */
+        void record(RespStandInServer server, long reads, long commands) {
+            serverReads += server.getReadBatchCount() - reads;
+            serverCommands += server.getCommandCount() - commands;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.benchmark;
+
+import com.sonos.boomi.connector.redis.util.StreamUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stream helpers used to read documents and build payloads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamUtilBenchmark {
+
+    @Param({"128", "16384", "1048576"})
+    public int size;
+
+    private byte[] _data;
+
+    @Setup
+    public void setup() {
+        _data = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            _data[i] = (byte) ('a' + random.nextInt(26));
+        }
+    }
+
+    @Benchmark
+    public int copy() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+        StreamUtil.copy(new ByteArrayInputStream(_data), output);
+        return output.size();
+    }
+
+    @Benchmark
+    public String readString() throws IOException {
+        return StreamUtil.readString(new ByteArrayInputStream(_data), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] readBytes() throws IOException {
+        return StreamUtil.readBytes(new ByteArrayInputStream(_data), size);
+    }
+}
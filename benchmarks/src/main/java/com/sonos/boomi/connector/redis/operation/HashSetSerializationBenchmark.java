@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationContext;
+import com.boomi.connector.api.OperationType;
+import com.sonos.boomi.connector.redis.benchmark.BenchmarkContexts;
+import com.sonos.boomi.connector.redis.util.HashSetXmlReader;
+import com.sonos.boomi.connector.redis.util.XmlStreamWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the HashSet document serializers: the XML writer building GET results and the pull parser reading
+ * UPSERT input documents. Lives in the operation package to reach the package-private GET result builder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashSetSerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int fields;
+
+    private OperationContext _context;
+    private Map<String, String> _values;
+    private byte[] _document;
+
+    @Setup
+    public void setup() throws IOException {
+        _context = BenchmarkContexts.createTester(OperationType.GET, "HashSet", null, Collections.<String, Object>emptyMap(), BenchmarkContexts.operationProperties("")).getOperationContext();
+
+        _values = new LinkedHashMap<>();
+        for (int i = 0; i < fields; i++) {
+            _values.put("field-" + i, "value <" + i + "> & \"quoted\" text of a typical cached attribute");
+        }
+
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        XmlStreamWriter writer = new XmlStreamWriter(document);
+        writer.writeStartElement("HashSet");
+        for (Map.Entry<String, String> item : _values.entrySet()) {
+            writer.writeStartElement("Item");
+            writer.writeElement("ID", item.getKey());
+            writer.writeElement("Value", item.getValue());
+            writer.writeEndElement("Item");
+        }
+        writer.writeEndElement("HashSet");
+        writer.flush();
+        _document = document.toByteArray();
+    }
+
+    @Benchmark
+    public void mapToGetResult() throws IOException {
+        try (OutputStream outputStream = RedisGetHashSetOperation.mapToGetResult(_context, _values)) {
+            outputStream.flush();
+        }
+    }
+
+    @Benchmark
+    public void readUpsertInput(Blackhole blackhole) throws XMLStreamException {
+        try (HashSetXmlReader reader = new HashSetXmlReader(new ByteArrayInputStream(_document))) {
+            while (reader.next()) {
+                blackhole.consume(reader.getId());
+                blackhole.consume(reader.getValue());
+            }
+        }
+    }
+}
@@ -73,7 +73,7 @@ public class RedisBrowser extends BaseBrowser implements ConnectionTester {
     public void testConnection() {
         RedisConnection connection = (RedisConnection) getConnection();
         try {
-            String pong = connection.getConnection().sync().ping();
+            String pong = connection.sync().ping();
             if (!"PONG".equals(pong)) {
                 throw new ConnectorException("Connection did not respond to PING with 'PONG'");
             }
@@ -16,28 +16,51 @@
 
 package com.sonos.boomi.connector.redis;
 
+import com.boomi.connector.api.BrowseContext;
 import com.boomi.connector.api.ConnectorContext;
+import com.boomi.connector.api.OperationContext;
 import com.boomi.connector.util.BaseConnection;
-import com.boomi.util.StringUtil;
+import com.sonos.boomi.connector.redis.cache.NearCache;
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPool;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindBuffer;
 import io.lettuce.core.ReadFrom;
-import io.lettuce.core.RedisURI;
-import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.codec.StringCodec;
-import io.lettuce.core.masterreplica.MasterReplica;
-import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
 
 /**
- * Implementation of BaseConnection that provides common connection logic to all operations
+ * Implementation of BaseConnection that provides common connection logic to all operations.
+ *
+ * Redis connections are borrowed from the connector-scoped {@link RedisConnectionPool} on first use and
+ * handed back to the pool when the connection is closed, so consecutive operation executions reuse
+ * established connections instead of reconnecting. Operations close the connection at the end of every
+ * execution; connections are never released by garbage collection.
+ *
+ * Borrowed connections are either standalone/master-replica or Redis Cluster connections depending on the
+ * connection component's cluster mode, so operations should issue commands through {@link #sync()} and
+ * {@link #async()}, which expose the command set common to both.
+ *
+ * Reads are routed using the connection component's 'Read From' policy, which GET operations may override.
+ * The policy is applied every time a connection is borrowed, so pooled connections never carry the policy of
+ * a previous borrower. Writes are always routed to the upstream node. Reads that must be served by a single
+ * node holding the latest writes, such as cursor scans, route to the upstream node with
+ * {@link #setUpstreamReads(boolean)}.
  */
 public class RedisConnection extends BaseConnection {
 
+    private static final ReadFrom DEFAULT_READ_FROM = ReadFrom.UPSTREAM_PREFERRED;
+    private static final String READ_FROM_CONNECTION = "CONNECTION";
+
     private final Object synch = new Object();
-    private StatefulRedisConnection<String, String> _connection;
-    private boolean _disposed = false;
+    private StatefulConnection<String, String> _connection;
+    private RedisConnectionPool<StatefulConnection<String, String>> _pool;
+    private boolean _upstreamReads = false;
 
     /**
      * @param context Context to load into the connection
@@ -47,56 +70,140 @@ public class RedisConnection extends BaseConnection {
     }
 
     /**
-     * Ensures proper cleanup of open Redis connections
+     * Logs a Redis connection that was never handed back to the pool. Operations release their connection
+     * explicitly once their request is processed, so a connection still borrowed here is a leak. It is not
+     * released from the finalizer thread, where it could be handed to another borrower while still in use
      * @throws Throwable
      */
     @Override
     protected void finalize() throws Throwable {
-        if (_disposed) {
-            return;
+        try {
+            if (_connection != null) {
+                ContainerLogger.getInstance().warning("Redis connection borrowed from the connection pool was never released");
+            }
+        } finally {
+            super.finalize();
         }
+    }
 
+    /**
+     * @return Returns the Redis connection borrowed by this instance, borrowing one from the connection
+     * pool if needed
+     */
+    public StatefulConnection<String, String> getConnection() {
+        if (_connection != null) {
+            return _connection;
+        }
         synchronized (synch) {
-            if (_disposed) {
-                return;
+            if (_connection != null) {
+                return _connection;
             }
 
-            super.finalize();
+            long start = System.nanoTime();
+            _pool = ((RedisConnector) getConnector()).getConnectionPool(getContext().getConnectionProperties());
+            _connection = _pool.borrow();
+            ConnectionUtil.setReadFrom(_connection, getReadFrom());
+            RedisScripts.getInstance().reloadIfRequired(ConnectionUtil.sync(_connection));
+            if (getContext() instanceof OperationContext) {
+                ConnectorMetrics.getInstance().getOperationMetrics((OperationContext) getContext()).recordConnectionAcquire(System.nanoTime() - start);
+            }
+        }
+        return _connection;
+    }
 
-            if (_connection != null) {
-                _connection.close();
+    /**
+     * @return Returns the read routing policy of the operation, falling back to the policy of the connection
+     * component when the operation doesn't override it. Returns {@link ReadFrom#UPSTREAM} while reads are
+     * routed to the upstream node
+     */
+    public ReadFrom getReadFrom() {
+        if (_upstreamReads) {
+            return ReadFrom.UPSTREAM;
+        }
+
+        ReadFrom readFrom = ConnectionUtil.parseReadFrom(getContext().getConnectionProperties().getProperty("readFrom"), DEFAULT_READ_FROM);
+        if (getContext() instanceof BrowseContext) {
+            String override = ((BrowseContext) getContext()).getOperationProperties().getProperty("readFrom");
+            if (!READ_FROM_CONNECTION.equals(override)) {
+                readFrom = ConnectionUtil.parseReadFrom(override, readFrom);
             }
+        }
+        return readFrom;
+    }
 
-            _disposed = true;
+    /**
+     * Routes reads to the upstream node regardless of the operation's 'Read From' policy, or restores the policy.
+     * Callers restore the policy in a finally block once the reads that need the upstream node are done
+     * @param upstream Whether reads are routed to the upstream node
+     */
+    public void setUpstreamReads(boolean upstream) {
+        synchronized (synch) {
+            _upstreamReads = upstream;
+            if (_connection != null) {
+                ConnectionUtil.setReadFrom(_connection, getReadFrom());
+            }
         }
     }
 
     /**
-     * @return Returns a singleton instance of a Redis connection
+     * @return Returns the connector-scoped near cache of the connection component's hosts, or null if the near
+     * cache is disabled
      */
-    public StatefulRedisConnection<String, String> getConnection() {
-        if (_connection != null) {
-            return _connection;
+    public NearCache getNearCache() {
+        return ((RedisConnector) getConnector()).getNearCache(getContext().getConnectionProperties());
+    }
+
+    /**
+     * @return Returns the connector-scoped write-behind buffer of the connection component's hosts
+     */
+    public WriteBehindBuffer getWriteBehindBuffer() {
+        return ((RedisConnector) getConnector()).getWriteBehindBuffer(getContext().getConnectionProperties());
+    }
+
+    /**
+     * @return Returns the connector-scoped executor used to prepare documents concurrently
+     */
+    public ExecutorService getDocumentExecutor() {
+        return ((RedisConnector) getConnector()).getDocumentExecutor();
+    }
+
+    /**
+     * @return Returns the synchronous command API of the borrowed Redis connection
+     */
+    public RedisClusterCommands<String, String> sync() {
+        return ConnectionUtil.sync(getConnection());
+    }
+
+    /**
+     * @return Returns the asynchronous command API of the borrowed Redis connection
+     */
+    public RedisClusterAsyncCommands<String, String> async() {
+        return ConnectionUtil.async(getConnection());
+    }
+
+    /**
+     * Closes the borrowed Redis connection instead of returning it to the connection pool. Call when a pipeline
+     * was aborted before its commands were flushed, so a later borrower never sends them. The next call to
+     * {@link #getConnection()} borrows a new connection
+     */
+    public void discardConnection() {
+        if (_connection == null) {
+            return;
         }
+
         synchronized (synch) {
-            if (_connection != null) {
-                return _connection;
+            if (_connection == null) {
+                return;
             }
 
-            String[] hosts = getContext().getConnectionProperties().getProperty("hosts").split(";");
-            List<RedisURI> nodes = Arrays.stream(hosts)
-                    .filter(host -> StringUtil.isNotBlank(host))
-                    .map(host -> RedisURI.create(host))
-                    .collect(Collectors.toList());
-            StatefulRedisMasterReplicaConnection<String, String> connection = MasterReplica.connect(((RedisConnector) getConnector()).getRedisClient(), StringCodec.UTF8, nodes);
-            connection.setReadFrom(ReadFrom.UPSTREAM_PREFERRED);
-            _connection = connection;
+            _pool.invalidate(_connection);
+            _connection = null;
+            _pool = null;
         }
-        return _connection;
     }
 
     /**
-     * Closes the Redis connection
+     * Returns the borrowed Redis connection to the connection pool
      */
     public void closeConnection() {
         if (_connection == null) {
@@ -108,8 +215,9 @@ public class RedisConnection extends BaseConnection {
                 return;
             }
 
-            _connection.close();
+            _pool.release(_connection);
             _connection = null;
+            _pool = null;
         }
     }
 
@@ -18,16 +18,47 @@ package com.sonos.boomi.connector.redis;
 
 import com.boomi.connector.api.*;
 import com.boomi.connector.util.BaseConnector;
+import com.sonos.boomi.connector.redis.cache.NearCache;
+import com.sonos.boomi.connector.redis.cache.NearCacheConfig;
+import com.sonos.boomi.connector.redis.cache.NearCacheTracker;
 import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
 import com.sonos.boomi.connector.redis.operation.*;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionFactory;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPool;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPoolConfig;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindBuffer;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindConfig;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.event.DefaultEventPublisherOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Implements BaseConnector and acts as an operation factory for the Boomi atom
  */
 public class RedisConnector extends BaseConnector {
 
+    private static final long DEFAULT_METRICS_LOG_INTERVAL_SECONDS = 300;
+
+    private ClientResources _clientResources;
     private RedisClient _redisClient;
+    private ScheduledExecutorService _poolScheduler;
+    private volatile ExecutorService _documentExecutor;
+    private final ConcurrentMap<String, RedisConnectionPool<StatefulConnection<String, String>>> _connectionPools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NearCache> _nearCaches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, WriteBehindBuffer> _writeBehindBuffers = new ConcurrentHashMap<>();
     private boolean _disposed = false;
 
     /**
@@ -57,10 +88,40 @@ public class RedisConnector extends BaseConnector {
 
             super.finalize();
 
+            // Buffers flush through the pools, so they are closed first
+            for (WriteBehindBuffer buffer : _writeBehindBuffers.values()) {
+                ConnectorMetrics.getInstance().unregister(buffer);
+                buffer.close();
+            }
+            _writeBehindBuffers.clear();
+
+            for (RedisConnectionPool<StatefulConnection<String, String>> pool : _connectionPools.values()) {
+                pool.close();
+            }
+            _connectionPools.clear();
+
+            for (NearCache nearCache : _nearCaches.values()) {
+                ConnectorMetrics.getInstance().unregister(nearCache);
+                nearCache.close();
+            }
+            _nearCaches.clear();
+
+            if (_poolScheduler != null) {
+                _poolScheduler.shutdownNow();
+            }
+
+            if (_documentExecutor != null) {
+                _documentExecutor.shutdownNow();
+            }
+
             if (_redisClient != null) {
                 _redisClient.shutdown();
             }
 
+            if (_clientResources != null) {
+                _clientResources.shutdown();
+            }
+
             _disposed = true;
         }
     }
@@ -79,7 +140,102 @@ public class RedisConnector extends BaseConnector {
             }
 
             ContainerLogger.getInstance().info("Creating shared lettuce.io RedisClient");
-            _redisClient = RedisClient.create();
+
+            // Command latencies and network traffic are recorded in the connector metrics
+            ConnectorMetrics metrics = ConnectorMetrics.getInstance();
+            _clientResources = DefaultClientResources.builder()
+                    .commandLatencyCollector(metrics.getCommandLatencyCollector())
+                    .commandLatencyPublisherOptions(DefaultEventPublisherOptions.disabled())
+                    .nettyCustomizer(metrics.getClientMetrics())
+                    .build();
+            _redisClient = RedisClient.create(_clientResources);
+            _poolScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "redis-connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @param connectionProperties Connection properties of the Boomi connection component
+     * @return Returns the connector-scoped connection pool for the hosts configured on the connection component.
+     * The pool is created on first use and shared by all operations targeting the same hosts
+     */
+    public RedisConnectionPool<StatefulConnection<String, String>> getConnectionPool(PropertyMap connectionProperties) {
+        String hosts = connectionProperties.getProperty("hosts");
+        boolean cluster = connectionProperties.getBooleanProperty("clusterMode", false);
+        return _connectionPools.computeIfAbsent((cluster ? "cluster:" : "") + hosts, key -> {
+            RedisConnectionFactory factory = RedisConnectionFactory.fromProperties(getRedisClient(), connectionProperties);
+            ContainerLogger.getInstance().info("Creating shared Redis " + (factory.isCluster() ? "cluster " : "") + "connection pool");
+            RedisConnectionPool<StatefulConnection<String, String>> pool = new RedisConnectionPool<>(
+                    factory.describeHosts(), factory, RedisConnectionPoolConfig.fromProperties(connectionProperties));
+            pool.startEviction(_poolScheduler);
+            ConnectorMetrics.getInstance().scheduleSummary(connectionProperties.getLongProperty("metricsLogInterval", DEFAULT_METRICS_LOG_INTERVAL_SECONDS));
+            return pool;
+        });
+    }
+
+    /**
+     * @param connectionProperties Connection properties of the Boomi connection component
+     * @return Returns the connector-scoped near cache for the hosts configured on the connection component, or
+     * null if the near cache is disabled. Near caches are not supported in cluster mode
+     */
+    public NearCache getNearCache(PropertyMap connectionProperties) {
+        NearCacheConfig config = NearCacheConfig.fromProperties(connectionProperties);
+        if (!config.isEnabled() || connectionProperties.getBooleanProperty("clusterMode", false)) {
+            return null;
+        }
+
+        String hosts = connectionProperties.getProperty("hosts");
+        return _nearCaches.computeIfAbsent(hosts, key -> {
+            List<RedisURI> nodes = ConnectionUtil.parseHosts(key);
+            ContainerLogger.getInstance().info("Creating shared Redis near cache");
+            NearCache nearCache = new NearCache(ConnectionUtil.describeHosts(nodes), config,
+                    cache -> new NearCacheTracker(getRedisClient(), nodes, cache));
+            ConnectorMetrics.getInstance().register(nearCache);
+            return nearCache;
+        });
+    }
+
+    /**
+     * @param connectionProperties Connection properties of the Boomi connection component
+     * @return Returns the connector-scoped write-behind buffer for the hosts configured on the connection
+     * component. The buffer is created on first use, replaying any writes left in its journal
+     */
+    public WriteBehindBuffer getWriteBehindBuffer(PropertyMap connectionProperties) {
+        String hosts = connectionProperties.getProperty("hosts");
+        boolean cluster = connectionProperties.getBooleanProperty("clusterMode", false);
+        return _writeBehindBuffers.computeIfAbsent((cluster ? "cluster:" : "") + hosts, key -> {
+            WriteBehindConfig config = WriteBehindConfig.fromProperties(connectionProperties);
+            String name = ConnectionUtil.describeHosts(ConnectionUtil.parseHosts(hosts));
+            File journalFile = new File(config.getJournalDirectory(), "redis-write-behind-" + key.replaceAll("[^A-Za-z0-9.-]", "_") + ".journal");
+            ContainerLogger.getInstance().info("Creating shared Redis write-behind buffer");
+            WriteBehindBuffer buffer = new WriteBehindBuffer(name, getConnectionPool(connectionProperties), config, journalFile);
+            buffer.start();
+            ConnectorMetrics.getInstance().register(buffer);
+            return buffer;
+        });
+    }
+
+    /**
+     * @return Returns the connector-scoped executor that operations use to prepare documents concurrently. The
+     * executor is created on first use with one thread per available processor
+     */
+    public ExecutorService getDocumentExecutor() {
+        if (_documentExecutor != null) {
+            return _documentExecutor;
+        }
+
+        synchronized (RedisConnector.class) {
+            if (_documentExecutor == null) {
+                _documentExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "redis-document-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return _documentExecutor;
         }
     }
 
@@ -111,6 +267,8 @@ public class RedisConnector extends BaseConnector {
                 return new RedisGetStringOperation(new RedisConnection(context));
             case "HashSet":
                 return new RedisGetHashSetOperation(new RedisConnection(context));
+            case "SortedSet":
+                return new RedisGetSortedSetOperation(new RedisConnection(context));
             default:
                 throw new ConnectorException("Get operation for " + objectType + " objects is not implemented");
         }
@@ -128,6 +286,8 @@ public class RedisConnector extends BaseConnector {
                 return new RedisUpsertStringOperation(new RedisConnection(context));
             case "HashSet":
                 return new RedisUpsertHashSetOperation(new RedisConnection(context));
+            case "SortedSet":
+                return new RedisUpsertSortedSetOperation(new RedisConnection(context));
             default:
                 throw new ConnectorException("Upsert operation for " + objectType + " objects is not implemented");
         }
@@ -145,8 +305,32 @@ public class RedisConnector extends BaseConnector {
                 return new RedisDeleteStringOperation(new RedisConnection(context));
             case "HashSet":
                 return new RedisDeleteHashSetOperation(new RedisConnection(context));
+            case "SortedSet":
+                return new RedisDeleteSortedSetOperation(new RedisConnection(context));
             default:
                 throw new ConnectorException("Delete operation for " + objectType + " objects is not implemented");
         }
     }
+
+    /**
+     * @param context Context of the execute operation provided by the Boomi atom
+     * @return Returns a new instance of Operation to be used by atom execute logic
+     */
+    @Override
+    protected Operation createExecuteOperation(OperationContext context) {
+        String objectType = context.getObjectTypeId();
+        String customType = context.getCustomOperationType();
+        switch (objectType + "/" + customType) {
+            case "String/BATCH_GET":
+                return new RedisBatchGetStringOperation(new RedisConnection(context));
+            case "HashSet/BATCH_GET":
+                return new RedisBatchGetHashSetOperation(new RedisConnection(context));
+            case "String/GET_OR_LEASE":
+                return new RedisGetOrLeaseStringOperation(new RedisConnection(context));
+            case "String/RELEASE_LEASE":
+                return new RedisReleaseLeaseStringOperation(new RedisConnection(context));
+            default:
+                throw new ConnectorException("Execute operation " + customType + " for " + objectType + " objects is not implemented");
+        }
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.cache;
+
+/**
+ * Value served by a {@link NearCache} together with the remaining TTL of its key
+ */
+public class CachedValue {
+
+    private final byte[] _value;
+    private final long _ttl;
+
+    /**
+     * @param value Cached raw value. Shared with the cache and must not be modified
+     * @param ttl Remaining time-to-live of the key in seconds, or -1 if the key has no expiration
+     */
+    CachedValue(byte[] value, long ttl) {
+        _value = value;
+        _ttl = ttl;
+    }
+
+    public byte[] getValue() {
+        return _value;
+    }
+
+    public long getTtl() {
+        return _ttl;
+    }
+}
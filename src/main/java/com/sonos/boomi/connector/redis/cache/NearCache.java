@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of Redis values shared by every GET operation that targets the same hosts.
+ *
+ * Entries are bounded by count and estimated heap size and evicted least-recently-used first. Cached keys are
+ * kept consistent with Redis by a {@link NearCacheTracker}, which enables server-assisted client side caching
+ * and drops entries as soon as Redis reports that another client modified them. Keys are only served from
+ * memory while their key prefix is tracked, so lost invalidations can never leave stale entries behind.
+ */
+public class NearCache implements AutoCloseable {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    private final Object synch = new Object();
+    private final String _name;
+    private final NearCacheConfig _config;
+    private final NearCacheTracker _tracker;
+    private final LinkedHashMap<String, Entry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _evictions = new AtomicLong();
+    private final AtomicLong _invalidations = new AtomicLong();
+    private long _bytes = 0;
+    private long _sequence = 0;
+
+    /**
+     * @param name Name of the cache used when logging cache activity
+     * @param config Settings used to bound the cache
+     * @param tracker Factory of the tracker that keeps the cache consistent with Redis
+     */
+    public NearCache(String name, NearCacheConfig config, Function<NearCache, NearCacheTracker> tracker) {
+        _name = name;
+        _config = config;
+        _tracker = tracker.apply(this);
+    }
+
+    /**
+     * @param key Prefixed key to look up
+     * @param keyPrefix Key prefix of the operation reading the key
+     * @return Returns the cached value of the key, or null if the key isn't cached or its prefix isn't tracked
+     */
+    public CachedValue get(String key, String keyPrefix) {
+        if (!_tracker.track(keyPrefix)) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (synch) {
+            Entry entry = _entries.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                remove(key);
+                entry = null;
+            }
+
+            if (entry == null) {
+                _misses.incrementAndGet();
+                return null;
+            }
+
+            _hits.incrementAndGet();
+            return new CachedValue(entry.getValue(), entry.getTtl(now));
+        }
+    }
+
+    /**
+     * @return Returns the current invalidation sequence. Capture the sequence before reading a value from Redis
+     * and pass it to {@link #put(String, String, byte[], long, long)}, so values read concurrently with an
+     * invalidation are never cached
+     */
+    public long getSequence() {
+        synchronized (synch) {
+            return _sequence;
+        }
+    }
+
+    /**
+     * Caches a value read from Redis
+     * @param key Prefixed key of the value
+     * @param keyPrefix Key prefix of the operation that read the key
+     * @param value Raw value read from Redis. The array is kept by the cache and must not be modified
+     * @param ttl Result of the TTL command for the key
+     * @param sequence Invalidation sequence captured before the value was read
+     */
+    public void put(String key, String keyPrefix, byte[] value, long ttl, long sequence) {
+        if (value == null || ttl == -2 || !_tracker.track(keyPrefix)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(value, ttl < 0 ? Long.MAX_VALUE : now + TimeUnit.SECONDS.toMillis(ttl), estimateBytes(key, value));
+        if (entry.getBytes() > _config.getMaxBytes()) {
+            return;
+        }
+
+        synchronized (synch) {
+            // Any invalidation since the read may concern this key
+            if (sequence != _sequence) {
+                return;
+            }
+
+            remove(key);
+            _entries.put(key, entry);
+            _bytes += entry.getBytes();
+
+            // Least recently used entries sit at the head of the map
+            Iterator<Map.Entry<String, Entry>> iterator = _entries.entrySet().iterator();
+            while ((_entries.size() > _config.getMaxEntries() || _bytes > _config.getMaxBytes()) && iterator.hasNext()) {
+                _bytes -= iterator.next().getValue().getBytes();
+                iterator.remove();
+                _evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops the provided keys from the cache
+     * @param keys Prefixed keys modified in Redis
+     */
+    void invalidate(List<String> keys) {
+        synchronized (synch) {
+            _sequence++;
+            for (String key : keys) {
+                if (remove(key)) {
+                    _invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every entry from the cache
+     */
+    void invalidateAll() {
+        synchronized (synch) {
+            _sequence++;
+            _invalidations.addAndGet(_entries.size());
+            _entries.clear();
+            _bytes = 0;
+        }
+    }
+
+    /**
+     * @return Returns the name of the cache
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return Returns the number of lookups served from memory
+     */
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    /**
+     * @return Returns the number of lookups of tracked keys that were not cached
+     */
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    /**
+     * @return Returns the number of entries evicted to honor the size bounds
+     */
+    public long getEvictionCount() {
+        return _evictions.get();
+    }
+
+    /**
+     * @return Returns the number of entries dropped because Redis reported them modified
+     */
+    public long getInvalidationCount() {
+        return _invalidations.get();
+    }
+
+    /**
+     * @return Returns the number of cached entries
+     */
+    public int getSize() {
+        synchronized (synch) {
+            return _entries.size();
+        }
+    }
+
+    /**
+     * Closes the tracker and drops every entry from the cache
+     */
+    @Override
+    public void close() {
+        _tracker.close();
+        invalidateAll();
+    }
+
+    /**
+     * @param key Prefixed key to remove. Must be called while holding the lock
+     * @return Returns whether the key was cached
+     */
+    private boolean remove(String key) {
+        Entry entry = _entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        _bytes -= entry.getBytes();
+        return true;
+    }
+
+    /**
+     * @param key Prefixed key
+     * @param value Cached value
+     * @return Returns the estimated heap size of an entry
+     */
+    private static long estimateBytes(String key, byte[] value) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + value.length;
+    }
+
+    /**
+     * Single cached value together with its expiration
+     */
+    private static class Entry {
+
+        private final byte[] _value;
+        private final long _expiresAt;
+        private final long _bytes;
+
+        /**
+         * @param value Cached value
+         * @param expiresAt Time in milliseconds the key expires in Redis, or Long.MAX_VALUE if it never expires
+         * @param bytes Estimated heap size of the entry
+         */
+        Entry(byte[] value, long expiresAt, long bytes) {
+            _value = value;
+            _expiresAt = expiresAt;
+            _bytes = bytes;
+        }
+
+        /**
+         * @param now Current time in milliseconds
+         * @return Returns whether the key has expired in Redis
+         */
+        boolean isExpired(long now) {
+            return now >= _expiresAt;
+        }
+
+        /**
+         * @param now Current time in milliseconds
+         * @return Returns the remaining time-to-live in seconds, or -1 if the key never expires
+         */
+        long getTtl(long now) {
+            if (_expiresAt == Long.MAX_VALUE) {
+                return -1;
+            }
+            return Math.max(0, TimeUnit.MILLISECONDS.toSeconds(_expiresAt - now));
+        }
+
+        byte[] getValue() {
+            return _value;
+        }
+
+        long getBytes() {
+            return _bytes;
+        }
+    }
+}
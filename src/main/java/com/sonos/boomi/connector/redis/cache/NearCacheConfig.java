@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.cache;
+
+import com.boomi.connector.api.PropertyMap;
+
+/**
+ * Immutable settings used by {@link NearCache} to bound the number and size of cached entries
+ */
+public class NearCacheConfig {
+
+    private static final long DEFAULT_MAX_ENTRIES = 10000;
+    private static final long DEFAULT_MAX_BYTES = 67108864;
+
+    private final boolean _enabled;
+    private final int _maxEntries;
+    private final long _maxBytes;
+
+    /**
+     * @param enabled Whether the near cache is enabled
+     * @param maxEntries Maximum number of cached entries
+     * @param maxBytes Maximum estimated heap size in bytes of all cached entries
+     */
+    public NearCacheConfig(boolean enabled, int maxEntries, long maxBytes) {
+        _enabled = enabled;
+        _maxEntries = Math.max(1, maxEntries);
+        _maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * @param properties Connection properties provided by the Boomi connection component
+     * @return Returns a new instance of {@link NearCacheConfig} using the near cache settings of the
+     * connection component, falling back to defaults for any setting that is not provided
+     */
+    public static NearCacheConfig fromProperties(PropertyMap properties) {
+        return new NearCacheConfig(
+                properties.getBooleanProperty("nearCacheEnabled", false),
+                properties.getLongProperty("nearCacheMaxEntries", DEFAULT_MAX_ENTRIES).intValue(),
+                properties.getLongProperty("nearCacheMaxBytes", DEFAULT_MAX_BYTES)
+        );
+    }
+
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    public int getMaxEntries() {
+        return _maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return _maxBytes;
+    }
+}
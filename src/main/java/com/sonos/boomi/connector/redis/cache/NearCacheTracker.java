@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.cache;
+
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushListener;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Keeps a {@link NearCache} consistent with Redis using server-assisted client side caching.
+ *
+ * The tracker holds a dedicated RESP3 connection to the upstream node with CLIENT TRACKING enabled in
+ * broadcasting mode for the key prefixes of the operations using the cache. Redis pushes an invalidation
+ * message on that connection whenever a key matching a tracked prefix is modified by any client, and the
+ * key is dropped from the cache. While the connection is down invalidations may be lost, so the cache is
+ * emptied and bypassed until tracking has been re-enabled.
+ */
+public class NearCacheTracker implements PushListener, RedisConnectionStateListener, AutoCloseable {
+
+    private static final String PUSH_INVALIDATE = "invalidate";
+    private static final long CONNECT_RETRY_SECONDS = 30;
+
+    private final Object synch = new Object();
+    private final RedisClient _redisClient;
+    private final List<RedisURI> _nodes;
+    private final NearCache _cache;
+    private final Set<String> _trackedPrefixes = ConcurrentHashMap.newKeySet();
+    private final Set<String> _rejectedPrefixes = ConcurrentHashMap.newKeySet();
+    private final List<String> _registeredPrefixes = new ArrayList<>();
+    private StatefulRedisConnection<String, String> _connection;
+    private volatile boolean _tracking = false;
+    private long _connectRetryAt = 0;
+    private boolean _closed = false;
+
+    /**
+     * @param redisClient Client used to open the tracking connection
+     * @param nodes Redis URIs of the hosts. The tracking connection is opened to the upstream node
+     * @param cache Cache to invalidate
+     */
+    public NearCacheTracker(RedisClient redisClient, List<RedisURI> nodes, NearCache cache) {
+        _redisClient = redisClient;
+        _nodes = nodes;
+        _cache = cache;
+    }
+
+    /**
+     * Ensures keys with the provided prefix are tracked, enabling tracking for the prefix if needed
+     * @param keyPrefix Key prefix of an operation using the cache
+     * @return Returns whether keys with the provided prefix are currently tracked and may be served from memory
+     */
+    public boolean track(String keyPrefix) {
+        String prefix = keyPrefix == null ? "" : keyPrefix;
+        if (_tracking && _trackedPrefixes.contains(prefix)) {
+            return true;
+        }
+        if (_rejectedPrefixes.contains(prefix)) {
+            return false;
+        }
+
+        synchronized (synch) {
+            if (_closed || (_connection == null && !connect())) {
+                return false;
+            }
+            if (!_tracking) {
+                return false;
+            }
+            if (_trackedPrefixes.contains(prefix)) {
+                return true;
+            }
+
+            // Broadcasting prefixes may not overlap, so prefixes of registered prefixes are rejected
+            for (String registered : _registeredPrefixes) {
+                if (prefix.startsWith(registered)) {
+                    _trackedPrefixes.add(prefix);
+                    return true;
+                }
+                if (registered.startsWith(prefix)) {
+                    ContainerLogger.getInstance().warning("Near cache " + _cache.getName() + " can't track key prefix '" + prefix + "' because it overlaps tracked key prefix '" + registered + "'");
+                    _rejectedPrefixes.add(prefix);
+                    return false;
+                }
+            }
+
+            try {
+                _connection.sync().clientTracking(createTrackingArgs(prefix));
+            } catch (Exception e) {
+                ContainerLogger.getInstance().log(Level.WARNING, "Unable to enable tracking of key prefix '" + prefix + "' for near cache " + _cache.getName(), e);
+                _rejectedPrefixes.add(prefix);
+                return false;
+            }
+            _registeredPrefixes.add(prefix);
+            _trackedPrefixes.add(prefix);
+            return true;
+        }
+    }
+
+    /**
+     * @param message Push message received on the tracking connection
+     */
+    @Override
+    public void onPushMessage(PushMessage message) {
+        if (!PUSH_INVALIDATE.equals(message.getType())) {
+            return;
+        }
+
+        // A null key list is sent when the database is flushed
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys instanceof List) {
+            List<String> invalidated = new ArrayList<>();
+            for (Object key : (List<?>) keys) {
+                invalidated.add(String.valueOf(key));
+            }
+            _cache.invalidate(invalidated);
+        } else {
+            _cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @param connection Connection that reconnected
+     * @param local Local address of the connection
+     */
+    @Override
+    public void onRedisConnected(RedisChannelHandler<?, ?> connection, SocketAddress local) {
+        StatefulRedisConnection<String, String> trackingConnection;
+        List<String> prefixes;
+        synchronized (synch) {
+            if (_closed || connection != _connection) {
+                return;
+            }
+            trackingConnection = _connection;
+            prefixes = new ArrayList<>(_registeredPrefixes);
+        }
+
+        // Tracking state is lost on reconnect. Runs on the event loop, so the command must not be awaited
+        if (prefixes.isEmpty()) {
+            resumeTracking(trackingConnection);
+            return;
+        }
+        trackingConnection.async().clientTracking(createTrackingArgs(prefixes.toArray(new String[0]))).whenComplete((result, e) -> {
+            if (e != null) {
+                ContainerLogger.getInstance().log(Level.WARNING, "Unable to re-enable tracking for near cache " + _cache.getName(), e);
+                return;
+            }
+            resumeTracking(trackingConnection);
+        });
+    }
+
+    /**
+     * @param connection Connection that disconnected
+     */
+    @Override
+    public void onRedisDisconnected(RedisChannelHandler<?, ?> connection) {
+        if (connection != _connection) {
+            return;
+        }
+
+        _tracking = false;
+        _cache.invalidateAll();
+    }
+
+    /**
+     * @param connection Connection that raised the exception
+     * @param cause Exception raised on the connection
+     */
+    @Override
+    public void onRedisExceptionCaught(RedisChannelHandler<?, ?> connection, Throwable cause) {
+    }
+
+    /**
+     * Closes the tracking connection
+     */
+    @Override
+    public void close() {
+        synchronized (synch) {
+            if (_closed) {
+                return;
+            }
+
+            _closed = true;
+            _tracking = false;
+            _redisClient.removeListener(this);
+            if (_connection != null) {
+                _connection.close();
+                _connection = null;
+            }
+        }
+    }
+
+    /**
+     * Opens the tracking connection to the upstream node. Must be called while holding the lock
+     * @return Returns whether the tracking connection was opened
+     */
+    private boolean connect() {
+        long now = System.currentTimeMillis();
+        if (now < _connectRetryAt) {
+            return false;
+        }
+
+        StatefulRedisConnection<String, String> fallback = null;
+        for (RedisURI node : _nodes) {
+            try {
+                StatefulRedisConnection<String, String> connection = _redisClient.connect(StringCodec.UTF8, node);
+                List<Object> role = connection.sync().role();
+                if (!role.isEmpty() && "master".equals(String.valueOf(role.get(0)))) {
+                    if (fallback != null) {
+                        fallback.close();
+                    }
+                    fallback = connection;
+                    break;
+                }
+
+                if (fallback == null) {
+                    fallback = connection;
+                } else {
+                    connection.close();
+                }
+            } catch (Exception e) {
+                ContainerLogger.getInstance().log(Level.FINE, "Unable to open tracking connection for near cache " + _cache.getName(), e);
+            }
+        }
+
+        if (fallback == null) {
+            ContainerLogger.getInstance().warning("Unable to open tracking connection for near cache " + _cache.getName() + ", retrying in " + CONNECT_RETRY_SECONDS + "s");
+            _connectRetryAt = now + TimeUnit.SECONDS.toMillis(CONNECT_RETRY_SECONDS);
+            return false;
+        }
+
+        fallback.addListener(this);
+        _redisClient.addListener(this);
+        _connection = fallback;
+        _tracking = true;
+        return true;
+    }
+
+    /**
+     * Marks the tracking connection as tracking again, dropping entries that may have missed invalidations
+     * @param connection Tracking connection that re-enabled tracking
+     */
+    private void resumeTracking(StatefulRedisConnection<String, String> connection) {
+        synchronized (synch) {
+            if (_closed || connection != _connection) {
+                return;
+            }
+
+            _cache.invalidateAll();
+            _tracking = true;
+        }
+    }
+
+    /**
+     * @param prefixes Key prefixes to track. An empty prefix tracks every key
+     * @return Returns the arguments to enable broadcasting tracking for the provided prefixes
+     */
+    private static TrackingArgs createTrackingArgs(String... prefixes) {
+        TrackingArgs args = TrackingArgs.Builder.enabled().bcast();
+        List<String> nonEmpty = new ArrayList<>();
+        for (String prefix : prefixes) {
+            if (prefix.length() > 0) {
+                nonEmpty.add(prefix);
+            }
+        }
+        if (!nonEmpty.isEmpty()) {
+            args.prefixes(nonEmpty.toArray(new String[0]));
+        }
+        return args;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.command;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.output.BooleanOutput;
+import io.lettuce.core.output.ByteArrayOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.List;
+
+/**
+ * Binary-safe String and hash commands dispatched on the connector's String connections.
+ *
+ * Values are written to and read from the wire as raw bytes, bypassing the UTF-8 value codec of the connection,
+ * so documents of any content type (images, PDFs, compressed data) are stored byte for byte without being
+ * decoded into or encoded from Java strings. Keys are still encoded as UTF-8, so commands are routed to the
+ * same cluster slots as every other command on the key.
+ */
+public class BinaryCommands {
+
+    private static final StringCodec CODEC = StringCodec.UTF8;
+
+    /**
+     * @param commands Async commands used to dispatch the command
+     * @param key Key to read
+     * @return Returns the future of the GET command, completing with the raw value or null if the key doesn't exist
+     */
+    public static RedisFuture<byte[]> get(RedisClusterAsyncCommands<String, String> commands, String key) {
+        return commands.dispatch(CommandType.GET, new ByteArrayOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key));
+    }
+
+    /**
+     * @param commands Async commands used to dispatch the command
+     * @param keys Keys to read. On cluster connections all keys must map to the same hash slot
+     * @return Returns the future of the MGET command, completing with the raw values in key order and null for
+     * keys that don't exist
+     */
+    public static RedisFuture<List<byte[]>> mget(RedisClusterAsyncCommands<String, String> commands, String... keys) {
+        return commands.dispatch(CommandType.MGET, new ByteArrayListOutput<>(CODEC), new CommandArgs<>(CODEC).addKeys(keys));
+    }
+
+    /**
+     * @param commands Async commands used to dispatch the command
+     * @param key Key to write
+     * @param value Raw value to write
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     * @return Returns the future of the SET or SETEX command
+     */
+    public static RedisFuture<String> set(RedisClusterAsyncCommands<String, String> commands, String key, byte[] value, long ttl) {
+        if (ttl > -1) {
+            return commands.dispatch(CommandType.SETEX, new StatusOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key).add(ttl).add(value));
+        }
+        return commands.dispatch(CommandType.SET, new StatusOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key).add(value));
+    }
+
+    /**
+     * @param commands Async commands used to dispatch the command
+     * @param key Key of the hash to read
+     * @param field Field to read
+     * @return Returns the future of the HGET command, completing with the raw value or null if the field doesn't exist
+     */
+    public static RedisFuture<byte[]> hget(RedisClusterAsyncCommands<String, String> commands, String key, String field) {
+        return commands.dispatch(CommandType.HGET, new ByteArrayOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key).add(field));
+    }
+
+    /**
+     * @param commands Async commands used to dispatch the command
+     * @param key Key of the hash to write
+     * @param field Field to write
+     * @param value Raw value to write
+     * @return Returns the future of the HSET command, completing with whether the field was created
+     */
+    public static RedisFuture<Boolean> hset(RedisClusterAsyncCommands<String, String> commands, String key, String field, byte[] value) {
+        return commands.dispatch(CommandType.HSET, new BooleanOutput<>(CODEC), new CommandArgs<>(CODEC).addKey(key).add(field).add(value));
+    }
+}
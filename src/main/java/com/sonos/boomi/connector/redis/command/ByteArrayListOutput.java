@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.command;
+
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.output.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command output collecting the values of a multi-bulk reply as raw bytes, regardless of the connection codec.
+ * Nil values are collected as null
+ * @param <K> Key type of the connection codec
+ * @param <V> Value type of the connection codec
+ */
+public class ByteArrayListOutput<K, V> extends CommandOutput<K, V, List<byte[]>> {
+
+    /**
+     * @param codec Codec of the connection the command is dispatched on
+     */
+    public ByteArrayListOutput(RedisCodec<K, V> codec) {
+        super(codec, new ArrayList<>());
+    }
+
+    /**
+     * @param bytes Value of the reply, or null for a nil value
+     */
+    @Override
+    public void set(ByteBuffer bytes) {
+        if (bytes == null) {
+            output.add(null);
+            return;
+        }
+
+        byte[] value = new byte[bytes.remaining()];
+        bytes.get(value);
+        output.add(value);
+    }
+
+    /**
+     * @param count Number of values in the reply
+     */
+    @Override
+    public void multi(int count) {
+        if (output.isEmpty()) {
+            output = new ArrayList<>(count);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression codecs available for stored values. Each codec has a stable id written into the header of
+ * compressed values, so values can always be decompressed regardless of the codec configured when reading
+ */
+public enum CompressionCodec {
+
+    NONE(0) {
+        @Override
+        OutputStream compress(OutputStream output, byte[] dictionary) {
+            return output;
+        }
+
+        @Override
+        InputStream decompress(ByteArrayInputStream input, byte[] dictionary) {
+            return input;
+        }
+    },
+
+    GZIP(1) {
+        @Override
+        OutputStream compress(OutputStream output, byte[] dictionary) throws IOException {
+            return new GZIPOutputStream(output, BUFFER_SIZE);
+        }
+
+        @Override
+        InputStream decompress(ByteArrayInputStream input, byte[] dictionary) throws IOException {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+    },
+
+    DEFLATE(2) {
+        @Override
+        OutputStream compress(OutputStream output, byte[] dictionary) {
+            // Raw deflate lets the preset dictionary be applied up front on both sides
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            return new DeflaterOutputStream(output, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        InputStream decompress(ByteArrayInputStream input, byte[] dictionary) {
+            Inflater inflater = new Inflater(true);
+            if (dictionary != null) {
+                inflater.setDictionary(dictionary);
+            }
+            return new InflaterInputStream(input, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int _id;
+
+    /**
+     * @param id Stable id of the codec written into value headers
+     */
+    CompressionCodec(int id) {
+        _id = id;
+    }
+
+    /**
+     * @param output Stream receiving the compressed bytes
+     * @param dictionary Preset dictionary, or null. Ignored by codecs that don't support dictionaries
+     * @return Returns a stream compressing the bytes written to it into the output stream
+     * @throws IOException Throws on IO exception
+     */
+    abstract OutputStream compress(OutputStream output, byte[] dictionary) throws IOException;
+
+    /**
+     * @param input Stream of compressed bytes
+     * @param dictionary Preset dictionary used to compress the bytes, or null
+     * @return Returns a stream of the decompressed bytes
+     * @throws IOException Throws on IO exception
+     */
+    abstract InputStream decompress(ByteArrayInputStream input, byte[] dictionary) throws IOException;
+
+    /**
+     * @return Returns whether the codec can use a preset dictionary
+     */
+    boolean supportsDictionary() {
+        return this == DEFLATE;
+    }
+
+    int getId() {
+        return _id;
+    }
+
+    /**
+     * @param id Id read from a value header
+     * @return Returns the codec with the provided id, or null if the id is unknown
+     */
+    static CompressionCodec fromId(int id) {
+        for (CompressionCodec codec : values()) {
+            if (codec._id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
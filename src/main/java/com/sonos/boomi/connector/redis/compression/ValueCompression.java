@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.compression;
+
+import com.boomi.connector.api.ConnectorException;
+import com.boomi.connector.api.PropertyMap;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+
+/**
+ * Compresses stored values and transparently decompresses values read from Redis.
+ *
+ * Compressed values start with a header made of a magic prefix, the codec id and the checksum of the preset
+ * dictionary used (0 when none). The magic prefix starts with 0xC0, a byte that never occurs in UTF-8 text,
+ * so text values written without compression, including values written by earlier connector versions, are
+ * never mistaken for compressed values and are returned unchanged. When compression is enabled, binary values
+ * stored uncompressed that happen to start with the magic prefix are escaped with a header naming the NONE codec,
+ * so they are read back unchanged as well. When it is disabled, values are always stored unchanged, exactly as
+ * earlier connector versions stored them.
+ */
+public class ValueCompression {
+
+    private static final byte[] MAGIC = {(byte) 0xC0, 'R', 'Z'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+    private static final long DEFAULT_THRESHOLD = 1024;
+
+    private static final ValueCompression DISABLED = new ValueCompression(CompressionCodec.NONE, Integer.MAX_VALUE, null);
+
+    private final CompressionCodec _codec;
+    private final int _threshold;
+    private final byte[] _dictionary;
+    private final int _dictionaryId;
+
+    /**
+     * @param codec Codec used to compress values
+     * @param threshold Minimum size in bytes of values that are compressed
+     * @param dictionary Preset dictionary shared by writers and readers, or null
+     */
+    public ValueCompression(CompressionCodec codec, int threshold, byte[] dictionary) {
+        _codec = codec;
+        _threshold = Math.max(0, threshold);
+        _dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+        _dictionaryId = _dictionary == null ? 0 : checksum(_dictionary);
+    }
+
+    /**
+     * @param connectionProperties Connection properties holding the shared compression dictionary
+     * @param operationProperties Operation properties holding the codec and threshold. Null when only reading
+     * @return Returns a new instance of {@link ValueCompression} using the compression settings of the
+     * connection and operation components
+     */
+    public static ValueCompression fromProperties(PropertyMap connectionProperties, PropertyMap operationProperties) {
+        String dictionary = connectionProperties.getProperty("compressionDictionary");
+        byte[] dictionaryBytes = StringUtil.isNullOrEmpty(dictionary) ? null : dictionary.getBytes(StandardCharsets.UTF_8);
+        if (operationProperties == null) {
+            return dictionaryBytes == null ? DISABLED : new ValueCompression(CompressionCodec.NONE, Integer.MAX_VALUE, dictionaryBytes);
+        }
+
+        String codec = operationProperties.getProperty("compression", CompressionCodec.NONE.name());
+        return new ValueCompression(
+                CompressionCodec.valueOf(codec),
+                (int) Math.min(Integer.MAX_VALUE, operationProperties.getLongProperty("compressionThreshold", DEFAULT_THRESHOLD)),
+                dictionaryBytes
+        );
+    }
+
+    /**
+     * @param value Value to store
+     * @return Returns the value to write into Redis. Values are returned unchanged when compression is disabled.
+     * Otherwise values smaller than the threshold, or that don't shrink when compressed, are returned unchanged
+     * unless they start with the magic prefix
+     * @throws IOException Throws on IO exception
+     */
+    public byte[] compress(byte[] value) throws IOException {
+        if (_codec == CompressionCodec.NONE) {
+            return value;
+        }
+        if (value.length < _threshold) {
+            return escape(value);
+        }
+
+        boolean useDictionary = _dictionary != null && _codec.supportsDictionary();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, value.length / 4));
+        output.write(MAGIC);
+        output.write(_codec.getId());
+        writeInt(output, useDictionary ? _dictionaryId : 0);
+        try (OutputStream compressor = _codec.compress(new NonClosingOutputStream(output), useDictionary ? _dictionary : null)) {
+            compressor.write(value);
+        }
+        if (_codec == CompressionCodec.DEFLATE) {
+            // Raw inflate may need a trailing dummy byte to detect the end of the stream
+            output.write(0);
+        }
+
+        return output.size() < value.length ? output.toByteArray() : escape(value);
+    }
+
+    /**
+     * @param value Value stored without compression
+     * @return Returns the value unchanged, or prefixed with a header naming the NONE codec when it starts with
+     * the magic prefix, so it is never mistaken for a compressed value
+     */
+    private static byte[] escape(byte[] value) {
+        if (!startsWithMagic(value)) {
+            return value;
+        }
+
+        byte[] escaped = new byte[HEADER_LENGTH + value.length];
+        System.arraycopy(MAGIC, 0, escaped, 0, MAGIC.length);
+        escaped[MAGIC.length] = (byte) CompressionCodec.NONE.getId();
+        System.arraycopy(value, 0, escaped, HEADER_LENGTH, value.length);
+        return escaped;
+    }
+
+    /**
+     * @param stored Value read from Redis
+     * @return Returns a stream of the original value, decompressing it if it was stored compressed
+     * @throws IOException Throws on IO exception
+     */
+    public InputStream decompress(byte[] stored) throws IOException {
+        if (!isCompressed(stored)) {
+            return new ByteArrayInputStream(stored);
+        }
+
+        CompressionCodec codec = CompressionCodec.fromId(stored[MAGIC.length] & 0xFF);
+        if (codec == null) {
+            throw new ConnectorException("Value was compressed with an unknown codec " + (stored[MAGIC.length] & 0xFF));
+        }
+
+        int dictionaryId = readInt(stored, MAGIC.length + 1);
+        if (dictionaryId != 0 && dictionaryId != _dictionaryId) {
+            throw new ConnectorException("Value was compressed with a compression dictionary that doesn't match the connection's dictionary");
+        }
+
+        ByteArrayInputStream input = new ByteArrayInputStream(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+        return codec.decompress(input, dictionaryId == 0 ? null : _dictionary);
+    }
+
+    /**
+     * @param stored Value read from Redis
+     * @return Returns whether the value starts with a compression header
+     */
+    public static boolean isCompressed(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && startsWithMagic(stored);
+    }
+
+    /**
+     * @param value Value to check
+     * @return Returns whether the value starts with the magic prefix of the compression header
+     */
+    private static boolean startsWithMagic(byte[] value) {
+        if (value.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (value[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param dictionary Dictionary to identify
+     * @return Returns the checksum identifying the dictionary, never 0
+     */
+    private static int checksum(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary, 0, dictionary.length);
+        int checksum = (int) adler.getValue();
+        return checksum == 0 ? 1 : checksum;
+    }
+
+    /**
+     * @param output Stream to write into
+     * @param value Value to write big-endian
+     */
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    /**
+     * @param bytes Bytes to read from
+     * @param offset Offset of the big-endian value
+     * @return Returns the value read
+     */
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Keeps the header stream open when the compressor is closed, so trailing bytes can still be written
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.flight;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Responsible for the creation of a singleton instance that coalesces identical concurrent reads.
+ *
+ * The first caller of a given flight key executes the read while callers arriving before it completes wait
+ * for, and share, its result instead of sending their own identical command. This keeps bursts of concurrent
+ * misses on the same key (e.g. after a deploy or cache flush) from multiplying load on Redis.
+ */
+public class SingleFlight {
+
+    private final static String RUNTIME_EX = "Use getInstance() method to get the single instance of this class.";
+
+    private volatile static SingleFlight singleton;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> _inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong _calls = new AtomicLong();
+    private final AtomicLong _deduplicated = new AtomicLong();
+
+    /**
+     * Creates a singleton instance if one does not yet exist
+     * @throws RuntimeException Thrown if a singleton instance already exists
+     */
+    private SingleFlight() {
+        if (singleton != null) {
+            throw new RuntimeException(RUNTIME_EX);
+        }
+    }
+
+    /**
+     * @return Returns a singleton instance of this class
+     */
+    public static SingleFlight getInstance() {
+        if (singleton == null) {
+            synchronized (SingleFlight.class) {
+                if (singleton == null)
+                    singleton = new SingleFlight();
+            }
+        }
+
+        return singleton;
+    }
+
+    /**
+     * Executes the read, or waits for the in-flight read of another caller using the same flight key
+     * @param flightKey Key identifying identical reads, i.e. the target hosts, command, and Redis key
+     * @param read Read to execute when no identical read is in flight
+     * @param <T> Type of the read result
+     * @return Returns the result of the read. Results may be shared by several callers and must not be modified
+     * @throws Exception Thrown when the read failed, including reads executed by another caller
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String flightKey, Callable<T> read) throws Exception {
+        _calls.incrementAndGet();
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = _inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            _deduplicated.incrementAndGet();
+            try {
+                return (T) existing.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            T result = read.call();
+            flight.complete(result);
+            return result;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Later callers must issue a fresh read rather than reuse a completed one
+            _inFlight.remove(flightKey, flight);
+            if (!flight.isDone()) {
+                flight.completeExceptionally(new IllegalStateException("Shared read did not complete"));
+            }
+        }
+    }
+
+    /**
+     * @return Returns the number of reads requested
+     */
+    public long getCallCount() {
+        return _calls.get();
+    }
+
+    /**
+     * @return Returns the number of reads that shared the result of an identical in-flight read
+     */
+    public long getDeduplicatedCount() {
+        return _deduplicated.get();
+    }
+
+    /**
+     * @return Returns the number of reads currently in flight
+     */
+    public int getInFlightCount() {
+        return _inFlight.size();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.largeobject;
+
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the chunks of a large object in order. A few chunks are requested ahead of the reader, so reading
+ * is bounded by bandwidth rather than round trips while atom memory stays bounded by the prefetched chunks.
+ *
+ * Chunk fields are named after the generation of the manifest, so a chunk of another write is never returned.
+ * Chunks read from a node that doesn't hold the manifest's generation, e.g. a lagging replica, or of an object
+ * replaced while being read, are missing and fail the stream
+ */
+public class LargeObjectInputStream extends InputStream {
+
+    private static final int PREFETCH_CHUNKS = 4;
+
+    private final RedisClusterAsyncCommands<String, String> _commands;
+    private final String _key;
+    private final LargeObjectManifest _manifest;
+    private final Duration _timeout;
+    private final Deque<RedisFuture<byte[]>> _prefetched = new ArrayDeque<>(PREFETCH_CHUNKS);
+    private int _nextRequest = 0;
+    private int _nextRead = 0;
+    private long _read = 0;
+    private byte[] _chunk;
+    private int _position;
+
+    /**
+     * @param commands Async commands used to read the chunks
+     * @param key Key of the large object hash
+     * @param manifest Manifest of the large object
+     * @param timeout Time to wait for each chunk
+     */
+    public LargeObjectInputStream(RedisClusterAsyncCommands<String, String> commands, String key, LargeObjectManifest manifest, Duration timeout) {
+        _commands = commands;
+        _key = key;
+        _manifest = manifest;
+        _timeout = timeout;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return _chunk[_position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+
+        int count = Math.min(len, _chunk.length - _position);
+        System.arraycopy(_chunk, _position, b, off, count);
+        _position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return _chunk == null ? 0 : _chunk.length - _position;
+    }
+
+    /**
+     * Cancels chunks requested ahead of the reader
+     */
+    @Override
+    public void close() {
+        for (RedisFuture<byte[]> future : _prefetched) {
+            future.cancel(false);
+        }
+        _prefetched.clear();
+        _chunk = null;
+    }
+
+    /**
+     * @return Returns whether a chunk with unread bytes is available
+     * @throws IOException Thrown when a chunk could not be read or the large object was replaced while being read
+     */
+    private boolean ensureChunk() throws IOException {
+        while (_chunk == null || _position >= _chunk.length) {
+            // Keep the prefetch window full
+            while (_nextRequest < _manifest.getChunkCount() && _prefetched.size() < PREFETCH_CHUNKS) {
+                _prefetched.addLast(BinaryCommands.hget(_commands, _key, _manifest.getChunkField(_nextRequest++)));
+            }
+
+            RedisFuture<byte[]> next = _prefetched.pollFirst();
+            if (next == null) {
+                if (_read != _manifest.getLength()) {
+                    throw new IOException("Large object " + _key + " was " + _read + " bytes long instead of " + _manifest.getLength());
+                }
+                return false;
+            }
+
+            try {
+                _chunk = ConnectionUtil.awaitOrCancel(next, _timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                throw new IOException("Unable to read chunk of large object " + _key, e);
+            }
+            if (_chunk == null) {
+                throw new IOException("Chunk " + _nextRead + " of generation " + _manifest.getGeneration() + " of large object " + _key
+                        + " is missing. The object was replaced or deleted while being read, or was read from a node that doesn't hold it yet");
+            }
+            _nextRead++;
+            _position = 0;
+            _read += _chunk.length;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.largeobject;
+
+import com.boomi.connector.api.ConnectorException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Describes a committed large object: the generation that prefixes the hash fields of its chunks, the number
+ * of chunks, and the total length of the value. Manifests are stored as "generation:chunkCount:length" in the
+ * 'manifest' field of the large object hash
+ */
+public class LargeObjectManifest {
+
+    private final String _generation;
+    private final int _chunkCount;
+    private final long _length;
+
+    /**
+     * @param generation Unique identifier of the write that produced the chunks
+     * @param chunkCount Number of chunks of the value
+     * @param length Total length of the value in bytes
+     */
+    public LargeObjectManifest(String generation, int chunkCount, long length) {
+        _generation = generation;
+        _chunkCount = chunkCount;
+        _length = length;
+    }
+
+    /**
+     * @param manifest Raw value of the 'manifest' field
+     * @return Returns the parsed manifest
+     * @throws ConnectorException Thrown when the manifest is malformed
+     */
+    public static LargeObjectManifest parse(byte[] manifest) {
+        String[] parts = new String(manifest, StandardCharsets.UTF_8).split(":");
+        try {
+            return new LargeObjectManifest(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new ConnectorException("Large object manifest is malformed", e);
+        }
+    }
+
+    /**
+     * @param index Index of the chunk
+     * @return Returns the name of the hash field holding the chunk
+     */
+    public String getChunkField(int index) {
+        return _generation + ':' + index;
+    }
+
+    public String getGeneration() {
+        return _generation;
+    }
+
+    public int getChunkCount() {
+        return _chunkCount;
+    }
+
+    public long getLength() {
+        return _length;
+    }
+
+    /**
+     * @return Returns the value stored in the 'manifest' field
+     */
+    @Override
+    public String toString() {
+        return _generation + ':' + _chunkCount + ':' + _length;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.largeobject;
+
+import com.boomi.connector.api.ConnectorException;
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores String values too large to be written or read as a single bulk string.
+ *
+ * A large object is stored as a hash at the value's key. Its chunks are written into fields named
+ * "generation:index" and the 'manifest' field, written last, names the generation of the committed chunks.
+ * Readers only follow the manifest, so a large object being overwritten stays readable until the new value is
+ * committed. Since the key holds a hash, String reads of a large object fail with WRONGTYPE errors, which
+ * readers use to detect large objects without an extra round trip for regular values.
+ */
+public class LargeObjects {
+
+    public static final String MANIFEST_FIELD = "manifest";
+
+    private static final int MAX_CHUNKS_IN_FLIGHT = 16;
+    private static final String WRONGTYPE_ERROR = "WRONGTYPE";
+
+    /**
+     * Writes the input as a large object. Chunks are written as they are read from the input, so at most a few
+     * chunks are held in atom memory at once
+     * @param commands Async commands used to write the chunks. Auto-flush is expected to be disabled
+     * @param key Key of the large object
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     * @param input Value to write
+     * @param chunkSize Size of each chunk in bytes
+     * @param flush Callback writing the dispatched commands to the connection
+     * @param timeout Time to wait for the oldest chunk when too many chunks are awaiting acknowledgement
+     * @return Returns the futures of all commands of the write, ending with the commit
+     * @throws IOException Throws on IO exception
+     */
+    public static List<RedisFuture<?>> write(RedisClusterAsyncCommands<String, String> commands, String key, long ttl,
+                                             InputStream input, int chunkSize, Runnable flush, Duration timeout) throws IOException {
+        String generation = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<RedisFuture<?>> futures = new ArrayList<>();
+        futures.add(RedisScripts.getInstance().getLargeObjectPrepare().dispatch(commands, ScriptOutputType.INTEGER, new String[]{key}));
+
+        int index = 0;
+        long length = 0;
+        byte[] chunk;
+        while ((chunk = readChunk(input, chunkSize)) != null) {
+            futures.add(BinaryCommands.hset(commands, key, generation + ':' + index, chunk));
+            if (index == 0 && ttl > -1) {
+                // Chunks of an interrupted write expire with the key
+                futures.add(commands.expire(key, ttl));
+            }
+            index++;
+            length += chunk.length;
+            flush.run();
+
+            // Bound atom memory held by chunks awaiting acknowledgement
+            if (index > MAX_CHUNKS_IN_FLIGHT && !ConnectionUtil.awaitAll(timeout.toNanos(), TimeUnit.NANOSECONDS, futures.get(futures.size() - MAX_CHUNKS_IN_FLIGHT - 1))) {
+                throw new ConnectorException("Timed out writing chunks of large object " + key);
+            }
+        }
+
+        LargeObjectManifest manifest = new LargeObjectManifest(generation, index, length);
+        futures.add(RedisScripts.getInstance().getLargeObjectCommit().dispatch(commands, ScriptOutputType.INTEGER, new String[]{key}, String.valueOf(ttl), manifest.toString()));
+        return futures;
+    }
+
+    /**
+     * Chunks only match the manifest on the node that committed them, so the manifest and chunks should be read
+     * with commands routed to the upstream node
+     * @param commands Async commands used to read the chunks
+     * @param key Key of the large object
+     * @param manifest Raw value of the 'manifest' field of the large object
+     * @param timeout Time to wait for each chunk
+     * @return Returns a stream of the value of the large object
+     */
+    public static InputStream open(RedisClusterAsyncCommands<String, String> commands, String key, byte[] manifest, Duration timeout) {
+        return new LargeObjectInputStream(commands, key, LargeObjectManifest.parse(manifest), timeout);
+    }
+
+    /**
+     * @param commands Async commands used to read the manifest
+     * @param key Key of the large object
+     * @param timeout Time to wait for the manifest
+     * @return Returns the raw manifest of the large object, or null if the key doesn't hold a committed large object
+     */
+    public static byte[] readManifest(RedisClusterAsyncCommands<String, String> commands, String key, Duration timeout) {
+        return ConnectionUtil.awaitOrCancel(BinaryCommands.hget(commands, key, MANIFEST_FIELD), timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param e Exception thrown by a String read
+     * @return Returns whether the read failed because the key holds a hash, which may be a large object
+     */
+    public static boolean isWrongType(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RedisCommandExecutionException && cause.getMessage() != null && cause.getMessage().startsWith(WRONGTYPE_ERROR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param input Stream to read from
+     * @param chunkSize Maximum size of the chunk
+     * @return Returns the next chunk of the stream, or null at the end of the stream
+     * @throws IOException Throws on IO exception
+     */
+    private static byte[] readChunk(InputStream input, int chunkSize) throws IOException {
+        byte[] chunk = new byte[chunkSize];
+        int offset = 0;
+        int len;
+        while (offset < chunkSize && (len = input.read(chunk, offset, chunkSize - offset)) != -1) {
+            offset += len;
+        }
+        if (offset == 0) {
+            return null;
+        }
+        return offset == chunkSize ? chunk : Arrays.copyOf(chunk, offset);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.logging;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logging facade for the operation hot path, wrapping the process logger of an operation response or the
+ * {@link ContainerLogger}.
+ *
+ * Messages are only formatted once the level is known to be loggable, and the fixed-arity methods don't allocate
+ * argument arrays or box primitive arguments, so disabled log statements cost a level check per document. Key
+ * lists are passed through {@link #join(Collection)}, which wraps the list without copying it, defers joining
+ * until the message is formatted, and truncates long lists. High-volume per-document messages can be sampled
+ * using {@link #sampled(int)}.
+ */
+public class OperationLogger {
+
+    /**
+     * Maximum number of items of a joined list written to the log
+     */
+    public static final int MAX_JOINED_ITEMS = 10;
+
+    /**
+     * Sample rate of messages logged once per document or command
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 100;
+
+    private final Logger _logger;
+    private final int _sampleRate;
+    private final AtomicLong _sampleCount = new AtomicLong();
+
+    /**
+     * @param logger Logger receiving the messages
+     */
+    public OperationLogger(Logger logger) {
+        this(logger, 1);
+    }
+
+    /**
+     * @param logger Logger receiving the messages
+     * @param sampleRate Number of loggable messages per message written to the log
+     */
+    private OperationLogger(Logger logger, int sampleRate) {
+        _logger = logger;
+        _sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * @return Returns a new logger writing to the container log
+     */
+    public static OperationLogger container() {
+        return new OperationLogger(ContainerLogger.getInstance());
+    }
+
+    /**
+     * @param sampleRate Number of loggable messages per message written to the log
+     * @return Returns a new logger writing the first of every sampleRate loggable messages to the same log, used
+     * for messages logged once per document or command
+     */
+    public OperationLogger sampled(int sampleRate) {
+        return new OperationLogger(_logger, sampleRate);
+    }
+
+    /**
+     * @return Returns whether FINE messages are written to the log
+     */
+    public boolean isFineLoggable() {
+        return _logger.isLoggable(Level.FINE);
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg Argument of the format string
+     */
+    public void fine(String format, long arg) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg));
+        }
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg Argument of the format string
+     */
+    public void fine(String format, Object arg) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg));
+        }
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg1 First argument of the format string
+     * @param arg2 Second argument of the format string
+     */
+    public void fine(String format, long arg1, long arg2) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg1, arg2));
+        }
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg1 First argument of the format string
+     * @param arg2 Second argument of the format string
+     */
+    public void fine(String format, Object arg1, long arg2) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg1, arg2));
+        }
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg1 First argument of the format string
+     * @param arg2 Second argument of the format string
+     */
+    public void fine(String format, Object arg1, Object arg2) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg1, arg2));
+        }
+    }
+
+    /**
+     * @param format Format string of the message
+     * @param arg1 First argument of the format string
+     * @param arg2 Second argument of the format string
+     * @param arg3 Third argument of the format string
+     */
+    public void fine(String format, Object arg1, Object arg2, long arg3) {
+        if (isFineLoggable() && sample()) {
+            write(Level.FINE, String.format(format, arg1, arg2, arg3));
+        }
+    }
+
+    /**
+     * @param items Items to join
+     * @return Returns an object whose string form is the space separated items, truncated after
+     * {@link #MAX_JOINED_ITEMS} items. The items are only joined if the message is written
+     */
+    public static Object join(Collection<?> items) {
+        return new JoinedItems(items);
+    }
+
+    /**
+     * @param items Items to join
+     * @return Returns an object whose string form is the space separated items, truncated after
+     * {@link #MAX_JOINED_ITEMS} items. The items are only joined if the message is written
+     */
+    public static Object join(Object[] items) {
+        return new JoinedItems(Arrays.asList(items));
+    }
+
+    /**
+     * @return Returns whether the current loggable message is written according to the sample rate
+     */
+    private boolean sample() {
+        return _sampleRate == 1 || _sampleCount.getAndIncrement() % _sampleRate == 0;
+    }
+
+    /**
+     * @param level Level of the message
+     * @param message Formatted message
+     */
+    private void write(Level level, String message) {
+        _logger.log(level, _sampleRate == 1 ? message : message + " (1 of every " + _sampleRate + " messages logged)");
+    }
+
+    /**
+     * Joins a list of items when converted to a string
+     */
+    private static class JoinedItems {
+
+        private final Collection<?> _items;
+
+        /**
+         * @param items Items to join
+         */
+        JoinedItems(Collection<?> items) {
+            _items = items;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder joined = new StringBuilder();
+            Iterator<?> iterator = _items.iterator();
+            for (int i = 0; i < MAX_JOINED_ITEMS && iterator.hasNext(); i++) {
+                if (i > 0) {
+                    joined.append(' ');
+                }
+                joined.append(iterator.next());
+            }
+            if (_items.size() > MAX_JOINED_ITEMS) {
+                joined.append(" ... (").append(_items.size() - MAX_JOINED_ITEMS).append(" more)");
+            }
+            return joined.toString();
+        }
+    }
+}
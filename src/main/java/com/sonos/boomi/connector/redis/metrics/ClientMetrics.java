@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.sonos.boomi.connector.redis.flight.SingleFlight;
+import io.lettuce.core.resource.NettyCustomizer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes sent and received on every Redis client connection. The counting handler is installed
+ * closest to the socket, so the counts match the network traffic, including TLS overhead
+ */
+public class ClientMetrics implements ClientMetricsMBean, NettyCustomizer {
+
+    private static final String HANDLER_NAME = "redisConnectorTraffic";
+
+    private final LongAdder _bytesReceived = new LongAdder();
+    private final LongAdder _bytesSent = new LongAdder();
+    private final TrafficHandler _handler = new TrafficHandler();
+
+    @Override
+    public void afterChannelInitialized(Channel channel) {
+        channel.pipeline().addFirst(HANDLER_NAME, _handler);
+    }
+
+    /**
+     * @return Returns a single line summary of the network traffic and shared reads since the client was created
+     */
+    String summarize() {
+        return String.format("Redis client: %d bytes received, %d bytes sent, %d of %d GET reads shared with an in-flight read",
+                getBytesReceived(), getBytesSent(), getSingleFlightDeduplicatedCount(), getSingleFlightCallCount());
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return _bytesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return _bytesSent.sum();
+    }
+
+    @Override
+    public long getSingleFlightCallCount() {
+        return SingleFlight.getInstance().getCallCount();
+    }
+
+    @Override
+    public long getSingleFlightDeduplicatedCount() {
+        return SingleFlight.getInstance().getDeduplicatedCount();
+    }
+
+    @Override
+    public int getSingleFlightInFlightCount() {
+        return SingleFlight.getInstance().getInFlightCount();
+    }
+
+    /**
+     * Stateless handler shared by all connections
+     */
+    @ChannelHandler.Sharable
+    private class TrafficHandler extends ChannelDuplexHandler {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof ByteBuf) {
+                _bytesReceived.add(((ByteBuf) msg).readableBytes());
+            }
+            super.channelRead(ctx, msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (msg instanceof ByteBuf) {
+                _bytesSent.add(((ByteBuf) msg).readableBytes());
+            }
+            super.write(ctx, msg, promise);
+        }
+    }
+}
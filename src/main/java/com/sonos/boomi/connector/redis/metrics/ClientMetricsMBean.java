@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+/**
+ * JMX view of the network traffic of the Redis client and of the reads shared between concurrent GET operations
+ */
+public interface ClientMetricsMBean {
+
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    long getSingleFlightCallCount();
+
+    long getSingleFlightDeduplicatedCount();
+
+    int getSingleFlightInFlightCount();
+}
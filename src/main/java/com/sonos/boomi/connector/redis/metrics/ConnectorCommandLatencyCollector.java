@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import io.lettuce.core.metrics.CommandLatencyCollector;
+import io.lettuce.core.metrics.CommandLatencyId;
+import io.lettuce.core.metrics.CommandMetrics;
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Receives the command latencies measured by the Redis client and records them in the connector's
+ * {@link RedisCommandMetrics}. Latencies are aggregated per command type across all Redis nodes, and are
+ * published through the connector's JMX MBeans and summaries rather than the client's event bus
+ */
+class ConnectorCommandLatencyCollector implements CommandLatencyCollector {
+
+    private final ConnectorMetrics _metrics;
+
+    /**
+     * @param metrics Metrics registry recording the latencies
+     */
+    ConnectorCommandLatencyCollector(ConnectorMetrics metrics) {
+        _metrics = metrics;
+    }
+
+    @Override
+    public void recordCommandLatency(SocketAddress local, SocketAddress remote, ProtocolKeyword commandType, long firstResponseLatency, long completionLatency) {
+        _metrics.getCommandMetrics(commandType.name()).record(firstResponseLatency, completionLatency);
+    }
+
+    /**
+     * The collector is shared by every Redis client of the connector, so shutting down one client's resources
+     * doesn't stop it
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public Map<CommandLatencyId, CommandMetrics> retrieveMetrics() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.boomi.connector.api.OperationContext;
+import com.boomi.connector.api.OperationType;
+import com.sonos.boomi.connector.redis.cache.NearCache;
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindBuffer;
+import io.lettuce.core.metrics.CommandLatencyCollector;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Responsible for the creation of a singleton instance holding every metric recorded by the connector.
+ *
+ * Operation metrics are kept per object type, operation type and key prefix, command metrics per Redis command
+ * type. Every metric is published as a JMX MBean in the 'com.sonos.boomi.connector.redis' domain, and the
+ * metrics of operations and commands used since the previous summary are periodically logged to the container
+ * log.
+ */
+public class ConnectorMetrics {
+
+    private final static String RUNTIME_EX = "Use getInstance() method to get the single instance of this class.";
+    private final static String DOMAIN = "com.sonos.boomi.connector.redis";
+
+    private volatile static ConnectorMetrics singleton;
+
+    private final Object synch = new Object();
+    private final ConcurrentMap<String, OperationMetrics> _operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RedisCommandMetrics> _commands = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NearCacheMetrics> _nearCaches = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, WriteBehindMetrics> _writeBehindBuffers = new ConcurrentHashMap<>();
+    private final ClientMetrics _client = new ClientMetrics();
+    private final CommandLatencyCollector _commandLatencyCollector = new ConnectorCommandLatencyCollector(this);
+    private ScheduledExecutorService _summaryScheduler;
+    private ScheduledFuture<?> _summaryTask;
+    private long _summaryIntervalSeconds = 0;
+
+    /**
+     * Creates a singleton instance if one does not yet exist
+     * @throws RuntimeException Thrown if a singleton instance already exists
+     */
+    private ConnectorMetrics() {
+        if (singleton != null) {
+            throw new RuntimeException(RUNTIME_EX);
+        }
+
+        register(_client, "type=Client");
+    }
+
+    /**
+     * @return Returns a singleton instance of this class
+     */
+    public static ConnectorMetrics getInstance() {
+        if (singleton == null) {
+            synchronized (ConnectorMetrics.class) {
+                if (singleton == null)
+                    singleton = new ConnectorMetrics();
+            }
+        }
+
+        return singleton;
+    }
+
+    /**
+     * @param context Context of an operation
+     * @return Returns the metrics of the operations sharing the object type, operation type and key prefix of
+     * the operation
+     */
+    public OperationMetrics getOperationMetrics(OperationContext context) {
+        String operation = context.getOperationType() == OperationType.EXECUTE && context.getCustomOperationType() != null
+                ? context.getCustomOperationType()
+                : String.valueOf(context.getOperationType());
+        String keyPrefix = context.getOperationProperties().getProperty("keyPrefix", "");
+        return getOperationMetrics(context.getObjectTypeId(), operation, keyPrefix);
+    }
+
+    /**
+     * @param objectType Redis object type of the operations
+     * @param operation Operation type, or the custom operation type of EXECUTE operations
+     * @param keyPrefix Key prefix of the operations
+     * @return Returns the metrics of the operations, creating and publishing them on first use
+     */
+    public OperationMetrics getOperationMetrics(String objectType, String operation, String keyPrefix) {
+        String key = objectType + '\0' + operation + '\0' + keyPrefix;
+        OperationMetrics metrics = _operations.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        return _operations.computeIfAbsent(key, k -> {
+            OperationMetrics created = new OperationMetrics(objectType, operation, keyPrefix);
+            register(created, "type=Operation,objectType=" + ObjectName.quote(objectType) + ",operation=" + ObjectName.quote(operation)
+                    + ",keyPrefix=" + ObjectName.quote(keyPrefix));
+            return created;
+        });
+    }
+
+    /**
+     * @return Returns the collector recording the command latencies measured by the Redis client
+     */
+    public CommandLatencyCollector getCommandLatencyCollector() {
+        return _commandLatencyCollector;
+    }
+
+    /**
+     * @return Returns the network traffic metrics of the Redis client, which must be installed on the client
+     * resources as a Netty customizer
+     */
+    public ClientMetrics getClientMetrics() {
+        return _client;
+    }
+
+    /**
+     * Publishes the counters of a near cache, replacing any near cache published under the same name
+     * @param nearCache Near cache to publish
+     */
+    public void register(NearCache nearCache) {
+        synchronized (synch) {
+            NearCacheMetrics metrics = new NearCacheMetrics(nearCache);
+            if (_nearCaches.put(nearCache.getName(), metrics) != null) {
+                unregister(nearCacheProperties(nearCache));
+            }
+            register(metrics, nearCacheProperties(nearCache));
+        }
+    }
+
+    /**
+     * Stops publishing the counters of a near cache
+     * @param nearCache Near cache to remove
+     */
+    public void unregister(NearCache nearCache) {
+        synchronized (synch) {
+            NearCacheMetrics metrics = _nearCaches.get(nearCache.getName());
+            if (metrics != null && metrics.getNearCache() == nearCache) {
+                _nearCaches.remove(nearCache.getName());
+                unregister(nearCacheProperties(nearCache));
+            }
+        }
+    }
+
+    /**
+     * Publishes the counters of a write-behind buffer, replacing any buffer published under the same name
+     * @param buffer Write-behind buffer to publish
+     */
+    public void register(WriteBehindBuffer buffer) {
+        synchronized (synch) {
+            WriteBehindMetrics metrics = new WriteBehindMetrics(buffer);
+            if (_writeBehindBuffers.put(buffer.getName(), metrics) != null) {
+                unregister(writeBehindProperties(buffer));
+            }
+            register(metrics, writeBehindProperties(buffer));
+        }
+    }
+
+    /**
+     * Stops publishing the counters of a write-behind buffer
+     * @param buffer Write-behind buffer to remove
+     */
+    public void unregister(WriteBehindBuffer buffer) {
+        synchronized (synch) {
+            WriteBehindMetrics metrics = _writeBehindBuffers.get(buffer.getName());
+            if (metrics != null && metrics.getBuffer() == buffer) {
+                _writeBehindBuffers.remove(buffer.getName());
+                unregister(writeBehindProperties(buffer));
+            }
+        }
+    }
+
+    /**
+     * Schedules the periodic summary of the metrics in the container log. Only the first positive interval is
+     * applied, since the summary is shared by every connection component
+     * @param intervalSeconds Interval between two summaries in seconds. Zero or less leaves the summary disabled
+     */
+    public void scheduleSummary(long intervalSeconds) {
+        if (intervalSeconds <= 0 || _summaryTask != null) {
+            return;
+        }
+
+        synchronized (synch) {
+            if (_summaryTask != null) {
+                return;
+            }
+
+            _summaryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "redis-metrics-summary");
+                thread.setDaemon(true);
+                return thread;
+            });
+            _summaryIntervalSeconds = intervalSeconds;
+            _summaryTask = _summaryScheduler.scheduleAtFixedRate(this::logSummary, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Logs a summary of the operations and commands used since the previous summary, followed by the client,
+     * near cache, and write-behind buffer counters
+     */
+    public void logSummary() {
+        try {
+            List<String> lines = new ArrayList<>();
+            for (OperationMetrics metrics : _operations.values()) {
+                addLine(lines, metrics.summarize());
+            }
+            for (RedisCommandMetrics metrics : _commands.values()) {
+                addLine(lines, metrics.summarize());
+            }
+            if (lines.isEmpty()) {
+                return;
+            }
+
+            lines.add(_client.summarize());
+            for (NearCacheMetrics metrics : _nearCaches.values()) {
+                lines.add(metrics.summarize());
+            }
+            for (WriteBehindMetrics metrics : _writeBehindBuffers.values()) {
+                lines.add(metrics.summarize());
+            }
+            ContainerLogger.getInstance().info("Redis connector metrics of the last " + _summaryIntervalSeconds + "s:"
+                    + System.lineSeparator() + String.join(System.lineSeparator(), lines));
+        } catch (RuntimeException e) {
+            // Keep the summary task scheduled
+            ContainerLogger.getInstance().log(Level.WARNING, "Unable to summarize Redis connector metrics", e);
+        }
+    }
+
+    /**
+     * @param command Name of the command type
+     * @return Returns the metrics of the command type, creating and publishing them on first use
+     */
+    RedisCommandMetrics getCommandMetrics(String command) {
+        RedisCommandMetrics metrics = _commands.get(command);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        return _commands.computeIfAbsent(command, k -> {
+            RedisCommandMetrics created = new RedisCommandMetrics(command);
+            register(created, "type=Command,name=" + ObjectName.quote(command));
+            return created;
+        });
+    }
+
+    /**
+     * @param lines Lines of the summary
+     * @param line Line to add, or null if there's nothing to report
+     */
+    private static void addLine(List<String> lines, String line) {
+        if (line != null) {
+            lines.add(line);
+        }
+    }
+
+    /**
+     * @param nearCache Near cache
+     * @return Returns the key properties of the MBean name of the near cache
+     */
+    private static String nearCacheProperties(NearCache nearCache) {
+        return "type=NearCache,name=" + ObjectName.quote(nearCache.getName());
+    }
+
+    /**
+     * @param buffer Write-behind buffer
+     * @return Returns the key properties of the MBean name of the write-behind buffer
+     */
+    private static String writeBehindProperties(WriteBehindBuffer buffer) {
+        return "type=WriteBehind,name=" + ObjectName.quote(buffer.getName());
+    }
+
+    /**
+     * Publishes an MBean. Failures, e.g. names already taken by another version of the connector deployed on the
+     * same atom, are logged and otherwise ignored; the metrics are still recorded and summarized
+     * @param mbean MBean to publish
+     * @param properties Key properties of the MBean name
+     */
+    private static void register(Object mbean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            ContainerLogger.getInstance().log(Level.FINE, "Unable to register Redis connector MBean " + properties, e);
+        }
+    }
+
+    /**
+     * Stops publishing an MBean. Failures are logged and otherwise ignored
+     * @param properties Key properties of the MBean name
+     */
+    private static void unregister(String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            ContainerLogger.getInstance().log(Level.FINE, "Unable to unregister Redis connector MBean " + properties, e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free recorder of a distribution of non-negative values, such as latencies or batch sizes.
+ *
+ * Values are counted in log-linear buckets in the manner of HdrHistogram: values below 128 are counted exactly,
+ * larger values in 64 buckets per power of two, so every reported value is within 1/64 (about 1.6%) of the
+ * recorded value. Memory use is fixed at about 16KB regardless of the number of recorded values, and recording
+ * is a single atomic increment, so histograms can be updated on every command without measurable overhead.
+ */
+public class Histogram {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    static final int MAX_VALUE_BITS = 36;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder _sum = new LongAdder();
+
+    /**
+     * @param value Value to record. Negative values are recorded as 0, values of 2^36 (about 19 hours in microseconds) and above as 2^36 - 1
+     */
+    public void record(long value) {
+        long clamped = Math.min(Math.max(0, value), MAX_VALUE);
+        _counts.incrementAndGet(indexOf(clamped));
+        _sum.add(clamped);
+    }
+
+    /**
+     * @return Returns a copy of the values recorded so far. Values recorded while the copy is taken may or may
+     * not be included
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = _counts.get(i);
+        }
+        return new HistogramSnapshot(counts, _sum.sum());
+    }
+
+    /**
+     * Discards all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            _counts.set(i, 0);
+        }
+        _sum.reset();
+    }
+
+    /**
+     * @param value Value between 0 and {@link #MAX_VALUE}
+     * @return Returns the index of the bucket counting the value
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        // Keep the 7 most significant bits of the value; the top bit is always set, so 64 buckets remain
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + subBucket - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * @param index Index of a bucket
+     * @return Returns the highest value counted by the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF + 1;
+        long subBucket = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
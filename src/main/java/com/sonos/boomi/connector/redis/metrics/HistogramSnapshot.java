@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+/**
+ * Immutable copy of the values recorded by a {@link Histogram}, used to compute percentiles
+ */
+public class HistogramSnapshot {
+
+    private final long[] _counts;
+    private final long _totalCount;
+    private final long _sum;
+
+    /**
+     * @param counts Number of values counted by each bucket
+     * @param sum Sum of all counted values
+     */
+    HistogramSnapshot(long[] counts, long sum) {
+        long totalCount = 0;
+        for (long count : counts) {
+            totalCount += count;
+        }
+
+        _counts = counts;
+        _totalCount = totalCount;
+        _sum = sum;
+    }
+
+    /**
+     * @param previous Earlier snapshot of the same histogram
+     * @return Returns a snapshot of the values recorded since the previous snapshot was taken
+     */
+    public HistogramSnapshot since(HistogramSnapshot previous) {
+        long[] counts = new long[_counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = Math.max(0, _counts[i] - previous._counts[i]);
+        }
+        return new HistogramSnapshot(counts, Math.max(0, _sum - previous._sum));
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Returns the value below or equal to which the percentile of recorded values fall, or 0 if no
+     * values were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (_totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * _totalCount));
+        long seen = 0;
+        for (int i = 0; i < _counts.length; i++) {
+            seen += _counts[i];
+            if (seen >= rank) {
+                return Histogram.highestValueOf(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return Returns the largest recorded value, or 0 if no values were recorded
+     */
+    public long getMax() {
+        for (int i = _counts.length - 1; i >= 0; i--) {
+            if (_counts[i] > 0) {
+                return Histogram.highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Returns the mean of the recorded values, or 0 if no values were recorded
+     */
+    public double getMean() {
+        return _totalCount == 0 ? 0 : (double) _sum / _totalCount;
+    }
+
+    /**
+     * @return Returns the number of recorded values
+     */
+    public long getTotalCount() {
+        return _totalCount;
+    }
+}
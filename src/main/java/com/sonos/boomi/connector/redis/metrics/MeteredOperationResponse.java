@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.Payload;
+import com.boomi.connector.api.PayloadMetadata;
+import com.boomi.connector.api.TrackedData;
+
+import java.util.logging.Logger;
+
+/**
+ * Operation response reporting every result to the response provided by the atom while counting the documents
+ * and errors of the operation. Documents reported with partial results are counted once finished, without errors
+ */
+class MeteredOperationResponse implements OperationResponse {
+
+    private final OperationResponse _response;
+    private final OperationMetrics _metrics;
+
+    /**
+     * @param response Response provided by the atom
+     * @param metrics Metrics of the operation
+     */
+    MeteredOperationResponse(OperationResponse response, OperationMetrics metrics) {
+        _response = response;
+        _metrics = metrics;
+    }
+
+    @Override
+    public Logger getLogger() {
+        return _response.getLogger();
+    }
+
+    @Override
+    public PayloadMetadata createMetadata() {
+        return _response.createMetadata();
+    }
+
+    @Override
+    public void addResult(TrackedData trackedData, OperationStatus status, String statusCode, String statusMessage, Payload payload) {
+        _response.addResult(trackedData, status, statusCode, statusMessage, payload);
+        _metrics.recordResult(status);
+    }
+
+    @Override
+    public void addCombinedResult(Iterable<? extends TrackedData> trackedData, OperationStatus status, String statusCode, String statusMessage, Payload payload) {
+        _response.addCombinedResult(trackedData, status, statusCode, statusMessage, payload);
+        for (TrackedData ignored : trackedData) {
+            _metrics.recordResult(status);
+        }
+    }
+
+    @Override
+    public void addPartialResult(TrackedData trackedData, OperationStatus status, String statusCode, String statusMessage, Payload payload) {
+        _response.addPartialResult(trackedData, status, statusCode, statusMessage, payload);
+    }
+
+    @Override
+    public void finishPartialResult(TrackedData trackedData) {
+        _response.finishPartialResult(trackedData);
+        _metrics.recordDocument();
+    }
+
+    @Override
+    public void addPartialResult(Iterable<? extends TrackedData> trackedData, OperationStatus status, String statusCode, String statusMessage, Payload payload) {
+        _response.addPartialResult(trackedData, status, statusCode, statusMessage, payload);
+    }
+
+    @Override
+    public void finishPartialResult(Iterable<? extends TrackedData> trackedData) {
+        _response.finishPartialResult(trackedData);
+        for (TrackedData ignored : trackedData) {
+            _metrics.recordDocument();
+        }
+    }
+
+    @Override
+    public void addEmptyResult(TrackedData trackedData, OperationStatus status, String statusCode, String statusMessage) {
+        _response.addEmptyResult(trackedData, status, statusCode, statusMessage);
+        _metrics.recordResult(status);
+    }
+
+    @Override
+    public void addErrorResult(TrackedData trackedData, OperationStatus status, String statusCode, String statusMessage, Throwable t) {
+        _response.addErrorResult(trackedData, status, statusCode, statusMessage, t);
+        _metrics.recordResult(status);
+    }
+}
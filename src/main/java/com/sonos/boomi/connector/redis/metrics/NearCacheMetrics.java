@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.sonos.boomi.connector.redis.cache.NearCache;
+
+/**
+ * Exposes the counters of a near cache over JMX
+ */
+public class NearCacheMetrics implements NearCacheMetricsMBean {
+
+    private final NearCache _nearCache;
+
+    /**
+     * @param nearCache Near cache whose counters are exposed
+     */
+    NearCacheMetrics(NearCache nearCache) {
+        _nearCache = nearCache;
+    }
+
+    /**
+     * @return Returns the near cache whose counters are exposed
+     */
+    NearCache getNearCache() {
+        return _nearCache;
+    }
+
+    /**
+     * @return Returns a single line summary of the near cache counters since the cache was created
+     */
+    String summarize() {
+        return String.format("Redis near cache %s: %d entries, %d hits, %d misses, %d evictions, %d invalidations",
+                getName(), getSize(), getHitCount(), getMissCount(), getEvictionCount(), getInvalidationCount());
+    }
+
+    @Override
+    public String getName() {
+        return _nearCache.getName();
+    }
+
+    @Override
+    public long getHitCount() {
+        return _nearCache.getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return _nearCache.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return _nearCache.getEvictionCount();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return _nearCache.getInvalidationCount();
+    }
+
+    @Override
+    public int getSize() {
+        return _nearCache.getSize();
+    }
+}
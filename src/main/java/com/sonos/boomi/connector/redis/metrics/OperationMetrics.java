@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.OperationStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the operations sharing an object type, operation type and key prefix: execution latency, document
+ * and error counts, connection acquire time, and the sizes of pipelined batches
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final Object synch = new Object();
+    private final String _objectType;
+    private final String _operation;
+    private final String _keyPrefix;
+    private final Histogram _latency = new Histogram();
+    private final Histogram _connectionAcquire = new Histogram();
+    private final Histogram _batchSizes = new Histogram();
+    private final LongAdder _documents = new LongAdder();
+    private final LongAdder _errors = new LongAdder();
+    private HistogramSnapshot _summarizedLatency;
+    private long _summarizedDocuments = 0;
+    private long _summarizedErrors = 0;
+
+    /**
+     * @param objectType Redis object type of the operations, e.g. "String"
+     * @param operation Operation type, or the custom operation type of EXECUTE operations
+     * @param keyPrefix Key prefix of the operations
+     */
+    OperationMetrics(String objectType, String operation, String keyPrefix) {
+        _objectType = objectType;
+        _operation = operation;
+        _keyPrefix = keyPrefix;
+        _summarizedLatency = _latency.snapshot();
+    }
+
+    /**
+     * @param response Response of an execution of the operation
+     * @return Returns a response reporting every result to the provided response and counting it in these metrics
+     */
+    public OperationResponse meter(OperationResponse response) {
+        return new MeteredOperationResponse(response, this);
+    }
+
+    /**
+     * @param nanos Duration of an execution of the operation in nanoseconds
+     */
+    public void recordExecution(long nanos) {
+        _latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param nanos Time spent borrowing and preparing a connection in nanoseconds
+     */
+    public void recordConnectionAcquire(long nanos) {
+        _connectionAcquire.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param size Number of documents written or read by a single pipelined network write
+     */
+    public void recordBatch(int size) {
+        _batchSizes.record(size);
+    }
+
+    /**
+     * Counts a document processed by the operation
+     */
+    void recordDocument() {
+        _documents.increment();
+    }
+
+    /**
+     * @param status Status of a document result reported by the operation
+     */
+    void recordResult(OperationStatus status) {
+        _documents.increment();
+        if (status == OperationStatus.FAILURE || status == OperationStatus.APPLICATION_ERROR) {
+            _errors.increment();
+        }
+    }
+
+    /**
+     * @return Returns a single line summary of the executions since the previous summary, or null if the
+     * operation wasn't executed since then
+     */
+    String summarize() {
+        synchronized (synch) {
+            HistogramSnapshot latency = _latency.snapshot();
+            HistogramSnapshot interval = latency.since(_summarizedLatency);
+            long documents = _documents.sum();
+            long errors = _errors.sum();
+            String summary = null;
+            if (interval.getTotalCount() > 0) {
+                summary = String.format("Redis %s %s operations (key prefix '%s'): %d executions, %d documents, %d errors, latency p50=%dus p99=%dus p999=%dus max=%dus",
+                        _objectType, _operation, _keyPrefix, interval.getTotalCount(), Math.max(0, documents - _summarizedDocuments),
+                        Math.max(0, errors - _summarizedErrors), interval.getValueAtPercentile(50), interval.getValueAtPercentile(99),
+                        interval.getValueAtPercentile(99.9), interval.getMax());
+            }
+
+            _summarizedLatency = latency;
+            _summarizedDocuments = documents;
+            _summarizedErrors = errors;
+            return summary;
+        }
+    }
+
+    @Override
+    public String getObjectType() {
+        return _objectType;
+    }
+
+    @Override
+    public String getOperation() {
+        return _operation;
+    }
+
+    @Override
+    public String getKeyPrefix() {
+        return _keyPrefix;
+    }
+
+    @Override
+    public long getExecutionCount() {
+        return _latency.snapshot().getTotalCount();
+    }
+
+    @Override
+    public long getDocumentCount() {
+        return _documents.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return _errors.sum();
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return _latency.snapshot().getMean();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return _latency.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return _latency.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLatencyP999Micros() {
+        return _latency.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return _latency.snapshot().getMax();
+    }
+
+    @Override
+    public long getConnectionAcquireP50Micros() {
+        return _connectionAcquire.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getConnectionAcquireP99Micros() {
+        return _connectionAcquire.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getConnectionAcquireMaxMicros() {
+        return _connectionAcquire.snapshot().getMax();
+    }
+
+    @Override
+    public double getBatchSizeMean() {
+        return _batchSizes.snapshot().getMean();
+    }
+
+    @Override
+    public long getBatchSizeP50() {
+        return _batchSizes.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getBatchSizeMax() {
+        return _batchSizes.snapshot().getMax();
+    }
+
+    @Override
+    public void reset() {
+        synchronized (synch) {
+            _latency.reset();
+            _connectionAcquire.reset();
+            _batchSizes.reset();
+            _documents.reset();
+            _errors.reset();
+            _summarizedLatency = _latency.snapshot();
+            _summarizedDocuments = 0;
+            _summarizedErrors = 0;
+        }
+    }
+}
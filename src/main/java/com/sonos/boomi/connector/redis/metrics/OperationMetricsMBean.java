@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+/**
+ * JMX view of the metrics of the operations sharing an object type, operation type and key prefix. Latencies
+ * are in microseconds
+ */
+public interface OperationMetricsMBean {
+
+    String getObjectType();
+
+    String getOperation();
+
+    String getKeyPrefix();
+
+    long getExecutionCount();
+
+    long getDocumentCount();
+
+    long getErrorCount();
+
+    double getLatencyMeanMicros();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyP999Micros();
+
+    long getLatencyMaxMicros();
+
+    long getConnectionAcquireP50Micros();
+
+    long getConnectionAcquireP99Micros();
+
+    long getConnectionAcquireMaxMicros();
+
+    double getBatchSizeMean();
+
+    long getBatchSizeP50();
+
+    long getBatchSizeMax();
+
+    /**
+     * Discards all recorded values
+     */
+    void reset();
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a Redis command type, measured by the Redis client from the moment a command is written to the
+ * socket. The first response latency covers the network round trip and Redis processing, the completion latency
+ * additionally covers decoding the reply, so comparing them with operation latencies separates network time
+ * from connector overhead
+ */
+public class RedisCommandMetrics implements RedisCommandMetricsMBean {
+
+    private final Object synch = new Object();
+    private final String _command;
+    private final Histogram _firstResponse = new Histogram();
+    private final Histogram _completion = new Histogram();
+    private HistogramSnapshot _summarizedCompletion;
+
+    /**
+     * @param command Name of the command type, e.g. "GET"
+     */
+    RedisCommandMetrics(String command) {
+        _command = command;
+        _summarizedCompletion = _completion.snapshot();
+    }
+
+    /**
+     * @param firstResponseNanos Time until the first byte of the reply was received in nanoseconds
+     * @param completionNanos Time until the reply was decoded in nanoseconds
+     */
+    void record(long firstResponseNanos, long completionNanos) {
+        _firstResponse.record(TimeUnit.NANOSECONDS.toMicros(firstResponseNanos));
+        _completion.record(TimeUnit.NANOSECONDS.toMicros(completionNanos));
+    }
+
+    /**
+     * @return Returns a single line summary of the commands completed since the previous summary, or null if no
+     * command completed since then
+     */
+    String summarize() {
+        synchronized (synch) {
+            HistogramSnapshot completion = _completion.snapshot();
+            HistogramSnapshot interval = completion.since(_summarizedCompletion);
+            _summarizedCompletion = completion;
+            if (interval.getTotalCount() == 0) {
+                return null;
+            }
+
+            return String.format("Redis %s commands: %d completed, latency p50=%dus p99=%dus p999=%dus max=%dus",
+                    _command, interval.getTotalCount(), interval.getValueAtPercentile(50), interval.getValueAtPercentile(99),
+                    interval.getValueAtPercentile(99.9), interval.getMax());
+        }
+    }
+
+    @Override
+    public String getCommand() {
+        return _command;
+    }
+
+    @Override
+    public long getCommandCount() {
+        return _completion.snapshot().getTotalCount();
+    }
+
+    @Override
+    public long getFirstResponseP50Micros() {
+        return _firstResponse.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getFirstResponseP99Micros() {
+        return _firstResponse.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getFirstResponseP999Micros() {
+        return _firstResponse.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getFirstResponseMaxMicros() {
+        return _firstResponse.snapshot().getMax();
+    }
+
+    @Override
+    public long getCompletionP50Micros() {
+        return _completion.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getCompletionP99Micros() {
+        return _completion.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getCompletionP999Micros() {
+        return _completion.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getCompletionMaxMicros() {
+        return _completion.snapshot().getMax();
+    }
+
+    @Override
+    public void reset() {
+        synchronized (synch) {
+            _firstResponse.reset();
+            _completion.reset();
+            _summarizedCompletion = _completion.snapshot();
+        }
+    }
+}
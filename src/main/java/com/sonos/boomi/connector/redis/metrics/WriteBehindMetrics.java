@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindBuffer;
+
+/**
+ * Exposes the counters and flush latencies of a write-behind buffer over JMX
+ */
+public class WriteBehindMetrics implements WriteBehindMetricsMBean {
+
+    private final WriteBehindBuffer _buffer;
+
+    /**
+     * @param buffer Write-behind buffer whose counters are exposed
+     */
+    WriteBehindMetrics(WriteBehindBuffer buffer) {
+        _buffer = buffer;
+    }
+
+    /**
+     * @return Returns the write-behind buffer whose counters are exposed
+     */
+    WriteBehindBuffer getBuffer() {
+        return _buffer;
+    }
+
+    /**
+     * @return Returns a single line summary of the buffer counters since the buffer was created
+     */
+    String summarize() {
+        HistogramSnapshot flushLatency = _buffer.getFlushLatency();
+        return String.format("Redis write-behind buffer %s: %d queued (%d bytes), %d journaled (%d bytes), %d spilled (%d bytes), %d flushed, %d failed flushes, %d rejected, %d dropped, flush p50=%dus p99=%dus max=%dus",
+                getName(), getQueueDepth(), getQueuedBytes(), getJournalCount(), getJournalBytes(), getSpilledCount(), getSpilledBytes(),
+                getFlushedCount(), getFailedFlushCount(), getRejectedCount(), getDroppedCount(),
+                flushLatency.getValueAtPercentile(50), flushLatency.getValueAtPercentile(99), flushLatency.getMax());
+    }
+
+    @Override
+    public String getName() {
+        return _buffer.getName();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return _buffer.getQueueDepth();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return _buffer.getQueuedBytes();
+    }
+
+    @Override
+    public int getJournalCount() {
+        return _buffer.getJournalCount();
+    }
+
+    @Override
+    public long getJournalBytes() {
+        return _buffer.getJournalBytes();
+    }
+
+    @Override
+    public long getSpilledCount() {
+        return _buffer.getSpilledCount();
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        return _buffer.getSpilledBytes();
+    }
+
+    @Override
+    public long getFlushedCount() {
+        return _buffer.getFlushedCount();
+    }
+
+    @Override
+    public long getFailedFlushCount() {
+        return _buffer.getFailedFlushCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return _buffer.getRejectedCount();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return _buffer.getDroppedCount();
+    }
+
+    @Override
+    public long getFlushP50Micros() {
+        return _buffer.getFlushLatency().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getFlushP99Micros() {
+        return _buffer.getFlushLatency().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getFlushMaxMicros() {
+        return _buffer.getFlushLatency().getMax();
+    }
+}
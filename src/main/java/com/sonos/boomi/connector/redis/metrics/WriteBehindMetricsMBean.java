@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.metrics;
+
+/**
+ * JMX view of the counters of a write-behind buffer
+ */
+public interface WriteBehindMetricsMBean {
+
+    String getName();
+
+    int getQueueDepth();
+
+    long getQueuedBytes();
+
+    int getJournalCount();
+
+    long getJournalBytes();
+
+    long getSpilledCount();
+
+    long getSpilledBytes();
+
+    long getFlushedCount();
+
+    long getFailedFlushCount();
+
+    long getRejectedCount();
+
+    long getDroppedCount();
+
+    long getFlushP50Micros();
+
+    long getFlushP99Micros();
+
+    long getFlushMaxMicros();
+}
@@ -34,6 +34,8 @@ public class RedisObjectTypeFactory {
                 return new RedisStringObject(id, label, helpText);
             case "HashSet":
                 return new RedisHashSetObject(id, label, helpText);
+            case "SortedSet":
+                return new RedisSortedSetObject(id, label, helpText);
             default:
                 throw new Exception("Object type " + id + " is not supported");
         }
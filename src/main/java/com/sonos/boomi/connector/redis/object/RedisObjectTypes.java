@@ -91,13 +91,15 @@ public class RedisObjectTypes {
                 if (customTypeNode.getLength() > 0) {
                     customType = customTypeNode.item(0).getTextContent();
                 }
+                // Custom operation types use their own metadata resources, e.g. connector-metadata-hashset-executebatch_get-output.xsd
+                String metadataType = customType == null ? type : type + customType;
                 boolean hasInput = Boolean.parseBoolean(operation.getElementsByTagName("HasInput").item(0).getTextContent());
                 boolean hasOutput = Boolean.parseBoolean(operation.getElementsByTagName("HasOutput").item(0).getTextContent());
 
                 // Add input operation schema if enabled
                 String inputMetdataName = operationMetadataResourceFormat
                         .replace("{id}", id)
-                        .replace("{type}", type)
+                        .replace("{type}", metadataType)
                         .replace("{mode}", ObjectDefinitionRole.INPUT.value())
                         .toLowerCase();
                 if(hasInput && this.getClass().getClassLoader().getResource(inputMetdataName) != null) {
@@ -110,7 +112,7 @@ public class RedisObjectTypes {
                 // Add output operation schema if enabled
                 String outputMetadataName = operationMetadataResourceFormat
                         .replace("{id}", id)
-                        .replace("{type}", type)
+                        .replace("{type}", metadataType)
                         .replace("{mode}", ObjectDefinitionRole.OUTPUT.value())
                         .toLowerCase();
                 if(hasOutput && this.getClass().getClassLoader().getResource(outputMetadataName) != null) {
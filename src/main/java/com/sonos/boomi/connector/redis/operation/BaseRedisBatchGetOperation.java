@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.boomi.connector.util.BaseUpdateOperation;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Responsible for all common logic used during batched GET (EXECUTE BATCH_GET) operations.
+ *
+ * Unlike GET operations, which the atom executes once per document, batched GET operations receive every
+ * document of the request at once. Documents are grouped into batches whose commands are written to the
+ * connection as a single pipeline, so a whole batch is resolved in one network round trip.
+ */
+public abstract class BaseRedisBatchGetOperation extends BaseUpdateOperation {
+
+    protected static final String RESPONSE_SUCCESS = "OK";
+    protected static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
+    protected static final String RESPONSE_FAIL_NOTFOUND = "NOT_FOUND";
+    protected static final String RESPONSE_FAIL_ERR = "ERR";
+
+    private static final long DEFAULT_BATCH_SIZE = 500;
+
+    protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    protected BaseRedisBatchGetOperation(RedisConnection connection) {
+        super(connection);
+
+        _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
+    }
+
+    /**
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
+     */
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
+            _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param updateRequest {@link com.boomi.connector.api.UpdateRequest} object provided by the Atom for the execution of
+     *                                                             this EXECUTE operation
+     * @param operationResponse Response object used to report success or failure of EXECUTE operation processing
+     */
+    @Override
+    protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        int batchSize = Math.max(1, getContext().getOperationProperties().getLongProperty("batchSize", DEFAULT_BATCH_SIZE).intValue());
+        List<ObjectData> batch = new ArrayList<>(batchSize);
+        List<String> keys = new ArrayList<>(batchSize);
+        OperationLogger logger = new OperationLogger(operationResponse.getLogger());
+        try {
+            for (ObjectData objectData : updateRequest) {
+                // Validate and store keys
+                String key = getKey(objectData);
+                if (key == null) {
+                    operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                    continue;
+                }
+
+                batch.add(objectData);
+                keys.add(key);
+                if (batch.size() >= batchSize) {
+                    executeBatch(batch, keys, operationResponse, logger);
+                    batch.clear();
+                    keys.clear();
+                }
+            }
+
+            if (batch.size() > 0) {
+                executeBatch(batch, keys, operationResponse, logger);
+            }
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Pipelines the commands for a single batch and reports a result for each document in the batch
+     * @param batch Documents in the batch
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @param operationResponse Response object used to report results
+     * @param logger Logger of the operation
+     */
+    private void executeBatch(List<ObjectData> batch, List<String> keys, OperationResponse operationResponse, OperationLogger logger) {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        try {
+            // Queue all commands of the batch and write them with a single flush
+            pipeline(connection, () -> dispatchBatch(connection, batch, keys), batch.size());
+            ConnectorMetrics.getInstance().getOperationMetrics(getContext()).recordBatch(batch.size());
+
+            // Commands that depend on the results of the batch share a second round trip
+            pipeline(connection, () -> dispatchFollowUp(connection, keys), batch.size());
+            logger.fine("Batch of %s keys completed", batch.size());
+
+            for (int i = 0; i < batch.size(); i++) {
+                ObjectData objectData = batch.get(i);
+                try {
+                    addBatchResult(objectData, keys.get(i), i, operationResponse);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, cause.getMessage(), cause);
+                }
+            }
+        } catch (Exception e) {
+            addErrorResults(batch, operationResponse, e);
+        }
+    }
+
+    /**
+     * Queues commands with auto-flush disabled, writes them with a single flush and waits for them to complete.
+     * Command failures are reported per document, so only completion is awaited
+     * @param connection Connection used to queue commands
+     * @param dispatch Queues the commands and returns their futures
+     * @param batchSize Number of documents in the batch, used when reporting a timeout
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting
+     */
+    private void pipeline(StatefulConnection<String, String> connection, Supplier<List<RedisFuture<?>>> dispatch, int batchSize) throws InterruptedException {
+        List<RedisFuture<?>> futures;
+        connection.setAutoFlushCommands(false);
+        try {
+            futures = dispatch.get();
+            connection.flushCommands();
+        } catch (RuntimeException e) {
+            // Commands buffered by the aborted pipeline must not be sent by a later borrower
+            getRedisConnection().discardConnection();
+            throw e;
+        } finally {
+            ConnectionUtil.restoreAutoFlush(connection);
+        }
+
+        long deadline = System.nanoTime() + connection.getTimeout().toNanos();
+        for (RedisFuture<?> future : futures) {
+            if (!future.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw new ConnectorException("Timed out waiting for batch of " + batchSize + " keys");
+            }
+        }
+    }
+
+    /**
+     * Queues the commands needed to resolve every document in the batch. Auto-flush is disabled while this
+     * method runs, so commands are buffered until the whole batch has been queued
+     * @param connection Connection used to queue commands
+     * @param batch Documents in the batch
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @return Returns all futures that must complete before results are reported
+     */
+    protected abstract List<RedisFuture<?>> dispatchBatch(StatefulConnection<String, String> connection, List<ObjectData> batch, List<String> keys);
+
+    /**
+     * Queues commands that depend on the results of the batch, once all commands queued by
+     * {@link #dispatchBatch(StatefulConnection, List, List)} have completed. Auto-flush is disabled while this
+     * method runs, so all follow-up commands of the batch are written with a single flush
+     * @param connection Connection used to queue commands
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @return Returns all futures that must complete before results are reported. No follow-up commands are
+     * queued by default
+     */
+    protected List<RedisFuture<?>> dispatchFollowUp(StatefulConnection<String, String> connection, List<String> keys) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Reports the result of a single document once all batch futures have completed. Futures of the batch may
+     * have failed, in which case reading them throws and fails only the document being reported
+     * @param objectData Document to report the result on
+     * @param key Prefixed key of the document
+     * @param index Index of the document within the batch
+     * @param operationResponse Response object used to report the result
+     * @throws Exception Thrown when the result could not be read or written
+     */
+    protected abstract void addBatchResult(ObjectData objectData, String key, int index, OperationResponse operationResponse) throws Exception;
+
+    /**
+     * Reports a miss for the document using the operation's 'Throw On Not Found' setting
+     * @param objectData Document to report the miss on
+     * @param message Message to report when misses are reported as errors
+     * @param operationResponse Response object used to report the result
+     */
+    protected void addNotFoundResult(ObjectData objectData, String message, OperationResponse operationResponse) {
+        if (_settings.isThrowOnNotFound()) {
+            operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOTFOUND, message, null);
+        } else {
+            operationResponse.addEmptyResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null);
+        }
+    }
+
+    /**
+     * @param ttl Result of the TTL command for the document key
+     * @param operationResponse Response object used to create metadata
+     * @return Returns payload metadata containing the 'ttl' tracked property, or null if the key has no expiration
+     */
+    protected PayloadMetadata createTtlMetadata(Long ttl, OperationResponse operationResponse) {
+        if (ttl == null || ttl == -1) {
+            return null;
+        }
+
+        PayloadMetadata metadata = operationResponse.createMetadata();
+        metadata.setTrackedProperty("ttl", String.valueOf(ttl == -2 ? 0 : ttl));
+        return metadata;
+    }
+
+    /**
+     * @param objectData ObjectData containing the operation property named 'key'
+     * @return Returns the prefixed key to use for the provided object data. Returns null if no
+     * operation property named 'key' is found.
+     */
+    protected String getKey(ObjectData objectData) {
+        Map<String, String> properties = objectData.getDynamicProperties();
+        String key = properties.get("key");
+        if (key == null || key.length() == 0) {
+            return null;
+        }
+        return _settings.formatKey(key);
+    }
+
+    /**
+     * @return Returns the settings of the operation
+     */
+    protected OperationSettings getSettings() {
+        return _settings;
+    }
+
+    /**
+     * @return Returns the Redis connection object on this instance
+     */
+    protected RedisConnection getRedisConnection() {
+        return _connection;
+    }
+
+    /**
+     * @param objectDataCollection Documents to report the failure on
+     * @param operationResponse Response object used to report the failure
+     * @param e Exception to report
+     */
+    private void addErrorResults(Collection<ObjectData> objectDataCollection, OperationResponse operationResponse, Exception e) {
+        for (ObjectData data : objectDataCollection) {
+            operationResponse.addErrorResult(data, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+        }
+    }
+}
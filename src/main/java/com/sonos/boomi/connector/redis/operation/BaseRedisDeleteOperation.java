@@ -16,17 +16,48 @@
 
 package com.sonos.boomi.connector.redis.operation;
 
+import com.boomi.connector.api.ConnectorException;
+import com.boomi.connector.api.DeleteRequest;
 import com.boomi.connector.api.ObjectIdData;
+import com.boomi.connector.api.OperationRequest;
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.OperationStatus;
 import com.boomi.connector.util.BaseDeleteOperation;
 import com.sonos.boomi.connector.redis.RedisConnection;
-import com.sonos.boomi.connector.redis.util.OperationUtil;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * Responsible for all common logic used during DELETE operations
  */
 public abstract class BaseRedisDeleteOperation extends BaseDeleteOperation {
 
+    protected static final String RESPONSE_SUCCESS = "OK";
+    protected static final String RESPONSE_FAIL_ERR = "ERR";
+    protected static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
+    protected static final String RESPONSE_NOTFOUND = "NOT_FOUND";
+
+    private static final long DEFAULT_BATCH_SIZE = 1000;
+
     protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
 
     /**
      * @param connection Connection provided by the Connector
@@ -35,20 +66,34 @@ public abstract class BaseRedisDeleteOperation extends BaseDeleteOperation {
         super(connection);
 
         _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
     }
 
     /**
-     * Closes the Redis connection
-     * @throws Throwable Unhandled exceptions
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
      */
-    protected void finalize() throws Throwable {
-        super.finalize();
-
-        if (_connection != null) {
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
             _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
         }
     }
 
+    /**
+     * @return Returns the settings of the operation
+     */
+    protected OperationSettings getSettings() {
+        return _settings;
+    }
+
     /**
      * @return Returns the Redis connection object on this instance
      */
@@ -62,6 +107,225 @@ public abstract class BaseRedisDeleteOperation extends BaseDeleteOperation {
      * @return Returns the object Id to use for the provided {@link com.boomi.connector.api.ObjectIdData} instance
      */
     protected String getObjectId(ObjectIdData deleteObjectIdData) {
-        return OperationUtil.getOperationObjectId(deleteObjectIdData, getContext());
+        return _settings.formatKey(deleteObjectIdData.getObjectId());
+    }
+
+    /**
+     * @return Returns whether keys are deleted using UNLINK, which frees their memory in a background thread of
+     * the Redis server, instead of DEL
+     */
+    protected boolean isUnlink() {
+        return getContext().getOperationProperties().getBooleanProperty("unlink", false);
+    }
+
+    /**
+     * @return Returns whether the object Id of each document is a glob-style pattern selecting the keys to delete
+     */
+    protected boolean isPatternDelete() {
+        return getContext().getOperationProperties().getBooleanProperty("patternDelete", false);
+    }
+
+    /**
+     * Deletes every key matching the pattern given by the object Id of each document. Patterns are relative to the
+     * key prefix, whose pattern characters only match themselves. The keyspace is walked using SCAN, never KEYS,
+     * so the server is never blocked by a full keyspace walk, and each document reports the number of deleted keys
+     * @param deleteRequest Request provided by the atom
+     * @param operationResponse Response object used to report results
+     */
+    protected void executePatternDelete(DeleteRequest deleteRequest, OperationResponse operationResponse) {
+        OperationLogger logger = new OperationLogger(operationResponse.getLogger());
+        String escapedPrefix = StringUtil.escapeGlob(_settings.getKeyPrefix());
+        try {
+            for (ObjectIdData deleteObject : deleteRequest) {
+                String pattern = deleteObject.getObjectId();
+                if (StringUtil.isNullOrEmpty(pattern)) {
+                    operationResponse.addResult(deleteObject, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key pattern is a required document property", null);
+                    continue;
+                }
+
+                try {
+                    long start = System.nanoTime();
+                    long deleted = deleteMatching(escapedPrefix.concat(pattern));
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    String message = String.format("Deleted %s keys matching '%s' in %s ms", deleted, pattern, elapsedMillis);
+                    logger.fine("%s", message);
+                    operationResponse.addEmptyResult(deleteObject, OperationStatus.SUCCESS, deleted > 0 ? RESPONSE_SUCCESS : RESPONSE_NOTFOUND, message);
+                } catch (Exception e) {
+                    operationResponse.addErrorResult(deleteObject, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+                }
+            }
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Deletes every key matching the pattern. Each upstream node is scanned with its own SCAN cursor, and the
+     * nodes of a cluster are scanned in parallel rounds: every round requests the next page of all nodes at once,
+     * then deletes the keys of all pages using pipelined DEL or UNLINK commands in batches of 'Delete Batch Size' keys.
+     * Scan cursors are only valid on the node that issued them, and replicas may not hold the latest keys yet,
+     * so reads are routed to the upstream nodes for the duration of the delete
+     * @param pattern Glob-style pattern of the prefixed keys to delete
+     * @return Returns the number of keys that were deleted
+     * @throws Exception Thrown when a command fails or times out
+     */
+    protected long deleteMatching(String pattern) throws Exception {
+        getRedisConnection().setUpstreamReads(true);
+        try {
+            return scanAndDelete(pattern);
+        } finally {
+            getRedisConnection().setUpstreamReads(false);
+        }
+    }
+
+    /**
+     * @param pattern Glob-style pattern of the prefixed keys to delete
+     * @return Returns the number of keys that were deleted
+     * @throws Exception Thrown when a command fails or times out
+     */
+    private long scanAndDelete(String pattern) throws Exception {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        long timeout = connection.getTimeout().toNanos();
+        ScanArgs scanArgs = ScanArgs.Builder.matches(pattern).limit(getBatchSize());
+        List<StatefulConnection<String, String>> nodes = ConnectionUtil.getUpstreamConnections(connection);
+        List<ScanCursor> cursors = new ArrayList<>(Collections.nCopies(nodes.size(), ScanCursor.INITIAL));
+
+        long deleted = 0;
+        while (!cursors.isEmpty()) {
+            // Step 1: Request the next page of every node that isn't finished
+            List<RedisFuture<KeyScanCursor<String>>> pages = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                pages.add(ConnectionUtil.async(nodes.get(i)).scan(cursors.get(i), scanArgs));
+            }
+
+            // Step 2: Collect the matched keys and drop finished nodes
+            List<String> keys = new ArrayList<>();
+            List<StatefulConnection<String, String>> nextNodes = new ArrayList<>(nodes.size());
+            List<ScanCursor> nextCursors = new ArrayList<>(nodes.size());
+            for (int i = 0; i < pages.size(); i++) {
+                KeyScanCursor<String> page = ConnectionUtil.awaitOrCancel(pages.get(i), timeout, TimeUnit.NANOSECONDS);
+                keys.addAll(page.getKeys());
+                if (!page.isFinished()) {
+                    nextNodes.add(nodes.get(i));
+                    nextCursors.add(page);
+                }
+            }
+            nodes = nextNodes;
+            cursors = nextCursors;
+
+            // Step 3: Delete the matched keys through the main connection, which routes each key to its shard
+            for (RedisFuture<Long> future : deleteKeys(keys)) {
+                deleted += future.get();
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes the provided keys. A single-key DEL or UNLINK command is pipelined per key, so every key gets its own
+     * reply, and Redis Cluster connections route each command to the shard owning its key
+     * @param keys Prefixed keys to delete
+     * @return Returns the futures of the commands in key order. All futures are complete
+     * @throws ConnectorException Thrown when the commands time out
+     * @throws InterruptedException Thrown when interrupted while waiting for the commands
+     */
+    protected List<RedisFuture<Long>> deleteKeys(List<String> keys) throws InterruptedException {
+        boolean unlink = isUnlink();
+        return pipeline(keys, (commands, key) -> unlink ? commands.unlink(key) : commands.del(key));
+    }
+
+    /**
+     * Sends a command per item. Commands are written in batches of at most 'Delete Batch Size' commands, each written with a
+     * single flush and completed before the next batch is written, which bounds the commands queued on the server
+     * @param items Items to send a command for
+     * @param command Function queueing the command of an item
+     * @param <T> Type of the items
+     * @return Returns the futures of the commands in item order. All futures are complete, either successfully or
+     * exceptionally
+     * @throws ConnectorException Thrown when the commands time out
+     * @throws InterruptedException Thrown when interrupted while waiting for the commands
+     */
+    protected <T> List<RedisFuture<Long>> pipeline(List<T> items, BiFunction<RedisClusterAsyncCommands<String, String>, T, RedisFuture<Long>> command) throws InterruptedException {
+        int batchSize = getBatchSize();
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        List<RedisFuture<Long>> futures = new ArrayList<>(items.size());
+        long timeout = connection.getTimeout().toNanos();
+        for (int start = 0; start < items.size(); start += batchSize) {
+            int end = Math.min(items.size(), start + batchSize);
+            connection.setAutoFlushCommands(false);
+            try {
+                for (int i = start; i < end; i++) {
+                    futures.add(command.apply(commands, items.get(i)));
+                }
+                connection.flushCommands();
+            } catch (RuntimeException e) {
+                // Commands buffered by the aborted pipeline must not be sent by a later borrower
+                getRedisConnection().discardConnection();
+                throw e;
+            } finally {
+                ConnectionUtil.restoreAutoFlush(connection);
+            }
+            ConnectorMetrics.getInstance().getOperationMetrics(getContext()).recordBatch(end - start);
+
+            // Command failures are reported per document, so only wait for completion here
+            long deadline = System.nanoTime() + timeout;
+            for (int i = start; i < end; i++) {
+                if (!futures.get(i).await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    throw new ConnectorException("Timed out waiting for batch of " + (end - start) + " delete commands");
+                }
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * @return Returns the maximum number of delete commands written to Redis in a single flush
+     */
+    protected int getBatchSize() {
+        return Math.max(1, getContext().getOperationProperties().getLongProperty("deleteBatchSize", DEFAULT_BATCH_SIZE).intValue());
+    }
+
+    /**
+     * Reports the result of a completed delete command on every document it was sent for
+     * @param future Completed future of a DEL, UNLINK or HDEL command
+     * @param objectDataCollection Documents the command was sent for
+     * @param operationResponse Response object used to report the results
+     * @return Returns the number of keys or fields deleted by the command
+     */
+    protected long addResults(RedisFuture<Long> future, Collection<ObjectIdData> objectDataCollection, OperationResponse operationResponse) {
+        Long deleted;
+        try {
+            deleted = future.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            addResults(objectDataCollection, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, cause.getMessage(), cause);
+            return 0;
+        }
+
+        if (deleted != null && deleted > 0) {
+            addResults(objectDataCollection, operationResponse, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, null);
+            return deleted;
+        }
+        addResults(objectDataCollection, operationResponse, OperationStatus.SUCCESS, RESPONSE_NOTFOUND, "Nothing to delete", null);
+        return 0;
+    }
+
+    /**
+     * @param objectDataCollection Collection containing {@link com.boomi.connector.api.ObjectIdData} instances to report result on
+     * @param operationResponse    Response object used to report responses for all objects in objectKeyMap
+     * @param status               {@link com.boomi.connector.api.OperationStatus} enumeration used when reporting results
+     * @param statusCode           Status code used when reporting results
+     * @param statusMessage        Status message used when reporting results
+     * @param throwable            Exception used when reporting error results
+     */
+    protected void addResults(Collection<ObjectIdData> objectDataCollection, OperationResponse operationResponse, OperationStatus status, String statusCode, String statusMessage, Throwable throwable) {
+        for (ObjectIdData data : objectDataCollection) {
+            if (status == OperationStatus.FAILURE) {
+                operationResponse.addErrorResult(data, status, statusCode, statusMessage, throwable);
+            } else {
+                operationResponse.addEmptyResult(data, status, statusCode, statusMessage);
+            }
+        }
     }
 }
@@ -17,9 +17,22 @@
 package com.sonos.boomi.connector.redis.operation;
 
 import com.boomi.connector.api.ObjectIdData;
+import com.boomi.connector.api.OperationRequest;
+import com.boomi.connector.api.OperationResponse;
 import com.boomi.connector.util.BaseGetOperation;
 import com.sonos.boomi.connector.redis.RedisConnection;
-import com.sonos.boomi.connector.redis.util.OperationUtil;
+import com.sonos.boomi.connector.redis.cache.NearCache;
+import com.sonos.boomi.connector.redis.flight.SingleFlight;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Responsible for all common logic used during GET operations
@@ -27,6 +40,7 @@ import com.sonos.boomi.connector.redis.util.OperationUtil;
 public abstract class BaseRedisGetOperation extends BaseGetOperation {
 
     protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
 
     /**
      * @param connection Connection provided by the Connector
@@ -35,17 +49,24 @@ public abstract class BaseRedisGetOperation extends BaseGetOperation {
         super(connection);
 
         _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
     }
 
     /**
-     * Closes the Redis connection
-     * @throws Throwable
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
      */
-    protected void finalize() throws Throwable {
-        super.finalize();
-
-        if (_connection != null) {
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
             _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
         }
     }
 
@@ -55,7 +76,14 @@ public abstract class BaseRedisGetOperation extends BaseGetOperation {
      * @return Returns the object Id to use for the provided {@link com.boomi.connector.api.ObjectIdData}
      */
     protected String getObjectId(ObjectIdData objectIdData) {
-        return OperationUtil.getOperationObjectId(objectIdData, getContext());
+        return _settings.formatKey(objectIdData.getObjectId());
+    }
+
+    /**
+     * @return Returns the settings of the operation
+     */
+    protected OperationSettings getSettings() {
+        return _settings;
     }
 
     /**
@@ -64,4 +92,74 @@ public abstract class BaseRedisGetOperation extends BaseGetOperation {
     protected RedisConnection getRedisConnection() {
         return _connection;
     }
+
+    /**
+     * Reads the value and TTL of the key. Identical reads issued concurrently by other operations against the
+     * same hosts with the same read routing policy share a single in-flight read
+     * @param key Prefixed key to read
+     * @param commandName Name and arguments of the value command other than the key, e.g. "GET" or "HGET field",
+     *                    used to identify identical reads
+     * @param command Function dispatching the value command on the provided async commands
+     * @param <T> Type of the value
+     * @return Returns the value together with the TTL of the key. The value may be shared and must not be modified
+     * @throws Exception Thrown when the read failed
+     */
+    protected <T> ValueWithTtl<T> getWithTtl(String key, String commandName, Function<RedisClusterAsyncCommands<String, String>, RedisFuture<T>> command) throws Exception {
+        return getWithTtl(key, commandName, command, null);
+    }
+
+    /**
+     * Reads the value and TTL of the key like {@link #getWithTtl(String, String, Function)}. The read that is
+     * sent captures the invalidation sequence of the near cache before its commands are written, so callers
+     * sharing the read can populate the near cache without missing invalidations received while it was in flight
+     * @param key Prefixed key to read
+     * @param commandName Name and arguments of the value command other than the key, used to identify identical reads
+     * @param command Function dispatching the value command on the provided async commands
+     * @param nearCache Near cache whose invalidation sequence is captured, or null for none
+     * @param <T> Type of the value
+     * @return Returns the value together with the TTL of the key, and the captured sequence when the read was sent
+     * with a near cache. The value may be shared and must not be modified
+     * @throws Exception Thrown when the read failed
+     */
+    protected <T> ValueWithTtl<T> getWithTtl(String key, String commandName, Function<RedisClusterAsyncCommands<String, String>, RedisFuture<T>> command, NearCache nearCache) throws Exception {
+        // Each read policy is a distinct ReadFrom class, so replica reads are never shared with upstream reads
+        String flightKey = getContext().getConnectionProperties().getProperty("hosts") + '\0' + getRedisConnection().getReadFrom().getClass().getName()
+                + '\0' + commandName + '\0' + key;
+        return SingleFlight.getInstance().execute(flightKey, () -> readWithTtl(key, command, nearCache));
+    }
+
+    /**
+     * Sends the value command and a TTL command for the key in a single network write, so reading a value
+     * together with its expiration costs one round trip
+     * @param key Prefixed key to read
+     * @param command Function dispatching the value command on the provided async commands
+     * @param nearCache Near cache whose invalidation sequence is captured before the read, or null for none
+     * @param <T> Type of the value
+     * @return Returns the value together with the TTL of the key
+     */
+    private <T> ValueWithTtl<T> readWithTtl(String key, Function<RedisClusterAsyncCommands<String, String>, RedisFuture<T>> command, NearCache nearCache) {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        Long sequence = nearCache == null ? null : nearCache.getSequence();
+        RedisFuture<T> value;
+        RedisFuture<Long> ttl;
+        connection.setAutoFlushCommands(false);
+        try {
+            value = command.apply(commands);
+            ttl = commands.ttl(key);
+            connection.flushCommands();
+        } catch (RuntimeException e) {
+            // Commands buffered by the aborted pipeline must not be sent by a later borrower
+            getRedisConnection().discardConnection();
+            throw e;
+        } finally {
+            ConnectionUtil.restoreAutoFlush(connection);
+        }
+
+        Duration timeout = connection.getTimeout();
+        return new ValueWithTtl<>(
+                ConnectionUtil.awaitOrCancel(value, timeout.toNanos(), TimeUnit.NANOSECONDS),
+                ConnectionUtil.awaitOrCancel(ttl, timeout.toNanos(), TimeUnit.NANOSECONDS),
+                sequence);
+    }
 }
@@ -16,12 +16,31 @@
 
 package com.sonos.boomi.connector.redis.operation;
 
-import com.boomi.connector.api.ObjectData;
+import com.boomi.connector.api.*;
 import com.boomi.connector.util.BaseUpdateOperation;
 import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.pipeline.OrderedTaskWindow;
+import com.sonos.boomi.connector.redis.pipeline.PipelineListener;
+import com.sonos.boomi.connector.redis.pipeline.RedisCommandPipeline;
+import com.sonos.boomi.connector.redis.pipeline.RedisPipelineConfig;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
 import com.sonos.boomi.connector.redis.util.IntegerUtil;
-import com.sonos.boomi.connector.redis.util.OperationUtil;
+import com.sonos.boomi.connector.redis.util.StreamUtil;
+import com.sonos.boomi.connector.redis.util.TeeInputStream;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,7 +48,17 @@ import java.util.Map;
  */
 public abstract class BaseRedisUpsertOperation extends BaseUpdateOperation {
 
+    private static final String RESPONSE_SUCCESS = "OK";
+    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
+    private static final String RESPONSE_FAIL_ERROR = "ERR";
+    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+
+    private static final long DEFAULT_DOCUMENT_CONCURRENCY = 1;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 16;
+    private static final long MAX_PARSED_DOCUMENT_BYTES = 1048576;
+
     protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
 
     /**
      * @param connection Connection provided by the Connector
@@ -38,17 +67,24 @@ public abstract class BaseRedisUpsertOperation extends BaseUpdateOperation {
         super(connection);
 
         _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
     }
 
     /**
-     * Closes the Redis connection
-     * @throws Throwable
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
      */
-    protected void finalize() throws Throwable {
-        super.finalize();
-
-        if (_connection != null) {
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
             _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
         }
     }
 
@@ -81,7 +117,225 @@ public abstract class BaseRedisUpsertOperation extends BaseUpdateOperation {
      * @return Returns a formatted key using any key prefix provided by the operation
      */
     protected String formatKey(String key) {
-        return OperationUtil.getPrefixedKey(key, getContext());
+        return _settings.formatKey(key);
+    }
+
+    /**
+     * @param connection Connection the pipelined commands are dispatched on
+     * @param listener Listener notified of the outcome of each pipelined document
+     * @param <T> Type of the object tracked with each pipelined document
+     * @return Returns a new command pipeline sized using the batching settings of the operation
+     */
+    protected <T> RedisCommandPipeline<T> createPipeline(StatefulConnection<?, ?> connection, PipelineListener<T> listener) {
+        return new RedisCommandPipeline<>(connection, RedisPipelineConfig.fromProperties(getContext().getOperationProperties()), listener,
+                ConnectorMetrics.getInstance().getOperationMetrics(getContext()));
+    }
+
+    /**
+     * @param <T> Type of the prepared documents
+     * @return Returns a new task window preparing up to the operation's 'Document Concurrency' documents at once
+     * on the connector's document executor
+     */
+    protected <T> OrderedTaskWindow<T> createTaskWindow() {
+        int concurrency = getContext().getOperationProperties().getLongProperty("documentConcurrency", DEFAULT_DOCUMENT_CONCURRENCY).intValue();
+        return new OrderedTaskWindow<>(concurrency > 1 ? getRedisConnection().getDocumentExecutor() : null, concurrency);
+    }
+
+    /**
+     * Upserts documents whose items are written in chunks. Documents are read and parsed on the task window when
+     * the operation prepares several documents at once, except for documents over 1 MB which are streamed when
+     * they are dispatched, so their items are never all held in memory. Documents are always streamed otherwise
+     * @param updateRequest Request provided by the atom
+     * @param operationResponse Response object used to report success or failure of UPSERT operation processing
+     * @param format Format of the documents of the object type
+     * @param chunkSize Maximum number of items per chunk
+     * @param <C> Type of a chunk of items
+     */
+    protected <C> void executeChunkedUpdate(UpdateRequest updateRequest, OperationResponse operationResponse, ChunkedFormat<C> format, int chunkSize) {
+        try {
+            StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+            RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+            try (RedisCommandPipeline<PendingChunks> pipeline = createPipeline(connection, new ChunkListener(operationResponse, format.getCommandName()));
+                 OrderedTaskWindow<PreparedChunks<C>> window = createTaskWindow()) {
+                // Documents are only parsed ahead of time when the window prepares them concurrently
+                long maxParsedBytes = window.getParallelism() > 1 ? MAX_PARSED_DOCUMENT_BYTES : -1;
+                for (ObjectData objectData : updateRequest) {
+                    // Get inputs and validate
+                    Integer ttl = getTtl(objectData);
+                    String key = getKey(objectData);
+                    if (key == null) {
+                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                        continue;
+                    }
+
+                    window.submit(() -> prepareChunks(format, objectData, key, ttl, maxParsedBytes, chunkSize));
+                    while (window.hasResult()) {
+                        dispatchChunks(format, window.take(), commands, pipeline, chunkSize, operationResponse);
+                    }
+                }
+
+                while (!window.isEmpty()) {
+                    dispatchChunks(format, window.take(), commands, pipeline, chunkSize, operationResponse);
+                }
+            }
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Reads and parses a document into chunks of items. Runs on the task window, so failures are returned
+     * instead of thrown
+     * @param format Format of the document
+     * @param objectData Document to read
+     * @param key Prefixed key of the document
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     * @param maxParsedBytes Size of the largest document parsed ahead of time. Larger documents are streamed
+     *                       when they are dispatched
+     * @param chunkSize Maximum number of items per chunk
+     * @param <C> Type of a chunk of items
+     * @return Returns the prepared document
+     */
+    private static <C> PreparedChunks<C> prepareChunks(ChunkedFormat<C> format, ObjectData objectData, String key, Integer ttl,
+                                                       long maxParsedBytes, int chunkSize) {
+        try {
+            if (objectData.getDataSize() > maxParsedBytes) {
+                return new PreparedChunks<>(objectData, key, ttl, null, null);
+            }
+
+            byte[] data;
+            try (InputStream inputStream = objectData.getData()) {
+                data = StreamUtil.readBytes(inputStream, objectData.getDataSize());
+            }
+            return new PreparedChunks<>(objectData, key, ttl, data, readChunks(format, new ByteArrayInputStream(data), chunkSize));
+        } catch (Exception e) {
+            return new PreparedChunks<>(objectData, e);
+        }
+    }
+
+    /**
+     * Queues the chunks of a prepared document on the pipeline, streaming documents that weren't parsed
+     * @param format Format of the document
+     * @param prepared Document taken from the task window
+     * @param commands Async commands used to queue the chunks
+     * @param pipeline Pipeline the document is submitted on
+     * @param chunkSize Maximum number of items per chunk
+     * @param operationResponse Response object used to report failures
+     * @param <C> Type of a chunk of items
+     */
+    private <C> void dispatchChunks(ChunkedFormat<C> format, PreparedChunks<C> prepared, RedisClusterAsyncCommands<String, String> commands,
+                                    RedisCommandPipeline<PendingChunks> pipeline, int chunkSize, OperationResponse operationResponse) {
+        ObjectData objectData = prepared.getObjectData();
+        try {
+            if (prepared.getError() instanceof XMLStreamException) {
+                operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, prepared.getError().getMessage(), null);
+                return;
+            }
+            if (prepared.getError() != null) {
+                throw prepared.getError();
+            }
+
+            String key = prepared.getKey();
+            if (prepared.getData() == null) {
+                try (InputStream inputStream = objectData.getData()) {
+                    // Parse the input and queue its items in chunks while keeping a copy for the response payload
+                    OutputStream outputStream = getContext().createTempOutputStream();
+                    List<RedisFuture<Long>> results;
+                    try {
+                        results = streamChunks(format, commands, pipeline, key, prepared.getTtl(), chunkSize, new TeeInputStream(inputStream, outputStream));
+                    } catch (XMLStreamException e) {
+                        outputStream.close();
+                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, e.getMessage(), null);
+                        return;
+                    } catch (Exception e) {
+                        outputStream.close();
+                        throw e;
+                    }
+                    pipeline.submit(new PendingChunks(objectData, key, outputStream, results), objectData.getDataSize(), results);
+                }
+                return;
+            }
+
+            List<RedisFuture<Long>> results = new ArrayList<>(prepared.getChunks().size());
+            for (C chunk : prepared.getChunks()) {
+                results.add(format.dispatchChunk(commands, key, results.isEmpty() ? prepared.getTtl() : -1, chunk));
+            }
+            pipeline.submit(new PendingChunks(objectData, key, prepared.getData(), results), prepared.getData().length, results);
+        } catch (Exception e) {
+            operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the document and queues its items in chunks. When a ttl is provided the first chunk is written
+     * together with the expiration, so the key is never visible without its expiration
+     * @param format Format of the document
+     * @param commands Async commands used to queue the chunks
+     * @param pipeline Pipeline the document will be submitted on
+     * @param key Prefixed key of the document
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     * @param chunkSize Maximum number of items per chunk
+     * @param input Document data
+     * @param <C> Type of a chunk of items
+     * @return Returns the futures of the queued chunks
+     * @throws XMLStreamException Thrown when the document is not valid
+     * @throws IOException Throws on IO exception
+     */
+    private <C> List<RedisFuture<Long>> streamChunks(ChunkedFormat<C> format, RedisClusterAsyncCommands<String, String> commands,
+                                                     RedisCommandPipeline<PendingChunks> pipeline, String key, Integer ttl, int chunkSize,
+                                                     TeeInputStream input) throws XMLStreamException, IOException {
+        List<RedisFuture<Long>> results = new ArrayList<>();
+        try (ChunkReader<C> reader = format.openReader(input, chunkSize)) {
+            C chunk;
+            while ((chunk = reader.readChunk()) != null) {
+                results.add(format.dispatchChunk(commands, key, results.isEmpty() ? ttl : -1, chunk));
+                if (reader.isDone()) {
+                    break;
+                }
+
+                // Write the full chunk now and bound the chunks awaiting acknowledgement
+                pipeline.flushDispatched();
+                if (results.size() > MAX_CHUNKS_IN_FLIGHT) {
+                    pipeline.await(results.get(results.size() - MAX_CHUNKS_IN_FLIGHT - 1));
+                }
+            }
+        }
+        input.drain();
+
+        if (results.isEmpty()) {
+            throw new XMLStreamException(format.getEmptyDocumentMessage());
+        }
+        return results;
+    }
+
+    /**
+     * @param format Format of the document
+     * @param input Document data
+     * @param chunkSize Maximum number of items per chunk
+     * @param <C> Type of a chunk of items
+     * @return Returns the items of the document split into chunks
+     * @throws XMLStreamException Thrown when the document is not valid
+     */
+    private static <C> List<C> readChunks(ChunkedFormat<C> format, InputStream input, int chunkSize) throws XMLStreamException {
+        List<C> chunks = new ArrayList<>();
+        try (ChunkReader<C> reader = format.openReader(input, chunkSize)) {
+            C chunk;
+            while ((chunk = reader.readChunk()) != null) {
+                chunks.add(chunk);
+            }
+        }
+
+        if (chunks.isEmpty()) {
+            throw new XMLStreamException(format.getEmptyDocumentMessage());
+        }
+        return chunks;
+    }
+
+    /**
+     * @return Returns the settings of the operation
+     */
+    protected OperationSettings getSettings() {
+        return _settings;
     }
 
     /**
@@ -90,4 +344,289 @@ public abstract class BaseRedisUpsertOperation extends BaseUpdateOperation {
     protected RedisConnection getRedisConnection() {
         return _connection;
     }
+
+    /**
+     * Format of an object type whose documents are upserted in chunks of items
+     * @param <C> Type of a chunk of items
+     */
+    protected interface ChunkedFormat<C> {
+
+        /**
+         * @param input Document data
+         * @param chunkSize Maximum number of items per chunk
+         * @return Returns a reader splitting the items of the document into chunks
+         * @throws XMLStreamException Thrown when the document can't be parsed
+         */
+        ChunkReader<C> openReader(InputStream input, int chunkSize) throws XMLStreamException;
+
+        /**
+         * @param commands Async commands used to queue the chunk
+         * @param key Prefixed key of the document
+         * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+         * @param chunk Items to write
+         * @return Returns the future of the command writing the chunk
+         */
+        RedisFuture<Long> dispatchChunk(RedisClusterAsyncCommands<String, String> commands, String key, Integer ttl, C chunk);
+
+        /**
+         * @return Returns the name of the command writing the chunks, used when logging results
+         */
+        String getCommandName();
+
+        /**
+         * @return Returns the message reported for documents without any item
+         */
+        String getEmptyDocumentMessage();
+    }
+
+    /**
+     * Reads the items of a document and groups them into chunks
+     * @param <C> Type of a chunk of items
+     */
+    protected abstract static class ChunkReader<C> implements AutoCloseable {
+
+        private final int _chunkSize;
+        private boolean _done;
+
+        /**
+         * @param chunkSize Maximum number of items per chunk
+         */
+        protected ChunkReader(int chunkSize) {
+            _chunkSize = chunkSize;
+        }
+
+        /**
+         * @return Returns the next chunk of items, or null once all items were read
+         * @throws XMLStreamException Thrown when the document is not valid
+         */
+        C readChunk() throws XMLStreamException {
+            C chunk = null;
+            int size = 0;
+            while (!_done && size < _chunkSize) {
+                if (!next()) {
+                    _done = true;
+                    break;
+                }
+                if (chunk == null) {
+                    chunk = newChunk();
+                }
+                size = addItem(chunk);
+            }
+            return chunk;
+        }
+
+        /**
+         * @return Returns whether the end of the document was reached, so the last chunk read was its final chunk
+         */
+        boolean isDone() {
+            return _done;
+        }
+
+        /**
+         * @return Returns whether another item was read
+         * @throws XMLStreamException Thrown when the document is not valid
+         */
+        protected abstract boolean next() throws XMLStreamException;
+
+        /**
+         * @return Returns a new empty chunk
+         */
+        protected abstract C newChunk();
+
+        /**
+         * @param chunk Chunk the item last read is added to
+         * @return Returns the number of items in the chunk
+         */
+        protected abstract int addItem(C chunk);
+
+        /**
+         * @throws XMLStreamException Thrown when the reader can't be closed
+         */
+        @Override
+        public abstract void close() throws XMLStreamException;
+    }
+
+    /**
+     * Reports the result of the pipelined chunks of each document
+     */
+    private class ChunkListener implements PipelineListener<PendingChunks> {
+
+        private final OperationResponse _operationResponse;
+        private final String _commandName;
+        private final OperationLogger _sampledLogger;
+
+        /**
+         * @param operationResponse Response object used to report results
+         * @param commandName Name of the command writing the chunks, used when logging results
+         */
+        ChunkListener(OperationResponse operationResponse, String commandName) {
+            _operationResponse = operationResponse;
+            _commandName = commandName;
+            _sampledLogger = new OperationLogger(operationResponse.getLogger()).sampled(OperationLogger.DEFAULT_SAMPLE_RATE);
+        }
+
+        /**
+         * @param pending Document whose chunks were written
+         * @throws Exception Thrown when a command failed
+         */
+        @Override
+        public void onComplete(PendingChunks pending) throws Exception {
+            // Parsed documents hold their bytes instead of a temporary stream
+            try (OutputStream outputStream = pending.getOutputStream()) {
+                long written = 0;
+                for (RedisFuture<Long> result : pending.getResults()) {
+                    written += result.get();
+                }
+                _sampledLogger.fine("'%s %s' commands returned %s", _commandName, pending.getKey(), written);
+
+                // Send final response
+                try (InputStream payloadInputStream = outputStream != null
+                        ? getContext().tempOutputStreamToInputStream(outputStream) : new ByteArrayInputStream(pending.getData())) {
+                    _operationResponse.addResult(pending.getObjectData(), OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
+                }
+            }
+        }
+
+        /**
+         * @param pending Document whose chunks failed
+         * @param e Exception describing the failure
+         */
+        @Override
+        public void onError(PendingChunks pending, Exception e) {
+            if (pending.getOutputStream() != null) {
+                try {
+                    pending.getOutputStream().close();
+                } catch (IOException ignored) {
+                }
+            }
+            _operationResponse.addErrorResult(pending.getObjectData(), OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Document read and parsed by the task window, waiting to be dispatched
+     * @param <C> Type of a chunk of items
+     */
+    private static class PreparedChunks<C> {
+
+        private final ObjectData _objectData;
+        private final String _key;
+        private final Integer _ttl;
+        private final byte[] _data;
+        private final List<C> _chunks;
+        private final Exception _error;
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+         * @param data Document bytes, or null if the document is streamed when dispatched
+         * @param chunks Items of the document split into chunks, or null if the document is streamed when dispatched
+         */
+        PreparedChunks(ObjectData objectData, String key, Integer ttl, byte[] data, List<C> chunks) {
+            _objectData = objectData;
+            _key = key;
+            _ttl = ttl;
+            _data = data;
+            _chunks = chunks;
+            _error = null;
+        }
+
+        /**
+         * @param objectData Document being upserted
+         * @param error Exception thrown while the document was read or parsed
+         */
+        PreparedChunks(ObjectData objectData, Exception error) {
+            _objectData = objectData;
+            _key = null;
+            _ttl = null;
+            _data = null;
+            _chunks = null;
+            _error = error;
+        }
+
+        ObjectData getObjectData() {
+            return _objectData;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        Integer getTtl() {
+            return _ttl;
+        }
+
+        byte[] getData() {
+            return _data;
+        }
+
+        List<C> getChunks() {
+            return _chunks;
+        }
+
+        Exception getError() {
+            return _error;
+        }
+    }
+
+    /**
+     * Document whose chunks have been queued on the pipeline
+     */
+    private static class PendingChunks {
+
+        private final ObjectData _objectData;
+        private final String _key;
+        private final OutputStream _outputStream;
+        private final byte[] _data;
+        private final List<RedisFuture<Long>> _results;
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param outputStream Temporary stream holding a copy of the document used as the response payload
+         * @param results Futures of the commands writing each chunk
+         */
+        PendingChunks(ObjectData objectData, String key, OutputStream outputStream, List<RedisFuture<Long>> results) {
+            _objectData = objectData;
+            _key = key;
+            _outputStream = outputStream;
+            _data = null;
+            _results = results;
+        }
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param data Document bytes used as the response payload
+         * @param results Futures of the commands writing each chunk
+         */
+        PendingChunks(ObjectData objectData, String key, byte[] data, List<RedisFuture<Long>> results) {
+            _objectData = objectData;
+            _key = key;
+            _outputStream = null;
+            _data = data;
+            _results = results;
+        }
+
+        ObjectData getObjectData() {
+            return _objectData;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        OutputStream getOutputStream() {
+            return _outputStream;
+        }
+
+        byte[] getData() {
+            return _data;
+        }
+
+        List<RedisFuture<Long>> getResults() {
+            return _results;
+        }
+    }
 }
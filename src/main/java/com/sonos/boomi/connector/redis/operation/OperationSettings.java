@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationContext;
+import com.boomi.connector.api.PropertyMap;
+import com.sonos.boomi.connector.redis.compression.ValueCompression;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+
+/**
+ * Immutable snapshot of the operation settings used for every document, resolved once when the operation is
+ * created instead of being looked up in the property maps per document
+ */
+public class OperationSettings {
+
+    private static final long DEFAULT_SCAN_PAGE_SIZE = 1000;
+
+    private final String _keyPrefix;
+    private final boolean _throwOnNotFound;
+    private final ValueCompression _compression;
+    private final long _scanPageSize;
+
+    /**
+     * @param keyPrefix Prefix prepended to every key
+     * @param throwOnNotFound Whether reads of keys that don't exist fail with an application error
+     * @param compression Compression applied to String values written, and used to decompress values read
+     * @param scanPageSize Number of items requested per page when large HashSets and SortedSets are read
+     */
+    public OperationSettings(String keyPrefix, boolean throwOnNotFound, ValueCompression compression, long scanPageSize) {
+        _keyPrefix = keyPrefix;
+        _throwOnNotFound = throwOnNotFound;
+        _compression = compression;
+        _scanPageSize = Math.max(1, scanPageSize);
+    }
+
+    /**
+     * @param context Context of the operation
+     * @return Returns a new instance of {@link OperationSettings} using the settings of the operation and
+     * connection components
+     */
+    public static OperationSettings fromContext(OperationContext context) {
+        PropertyMap properties = context.getOperationProperties();
+        return new OperationSettings(
+                // Keys have always been formed by string concatenation, which renders a missing prefix as "null".
+                // Keep doing so, so that existing keys stay addressable
+                String.valueOf(properties.getProperty("keyPrefix")),
+                properties.getBooleanProperty("throwOnNotFound", true),
+                ValueCompression.fromProperties(context.getConnectionProperties(), properties),
+                properties.getLongProperty("scanPageSize", DEFAULT_SCAN_PAGE_SIZE)
+        );
+    }
+
+    /**
+     * @param key Base key
+     * @return Returns the key prefixed with the operation's key prefix, or the key itself if null or empty
+     */
+    public String formatKey(String key) {
+        if (StringUtil.isNullOrEmpty(key)) {
+            return key;
+        }
+
+        return _keyPrefix.concat(key);
+    }
+
+    /**
+     * @return Returns the prefix prepended to every key
+     */
+    public String getKeyPrefix() {
+        return _keyPrefix;
+    }
+
+    public boolean isThrowOnNotFound() {
+        return _throwOnNotFound;
+    }
+
+    public ValueCompression getCompression() {
+        return _compression;
+    }
+
+    public long getScanPageSize() {
+        return _scanPageSize;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for unique getter logic when handling batched GET operations for
+ * Redis HashSet data types. Each batch is resolved using pipelined HGETALL (or HGET when the
+ * 'field' document property is provided) and TTL commands
+ */
+public class RedisBatchGetHashSetOperation extends BaseRedisBatchGetOperation {
+
+    private List<String> _fields;
+    private List<RedisFuture<?>> _values;
+    private List<RedisFuture<Long>> _ttls;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisBatchGetHashSetOperation(RedisConnection connection) {
+        super(connection);
+    }
+
+    /**
+     * @param connection Connection used to queue commands
+     * @param batch Documents in the batch
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @return Returns the value and TTL futures of each key
+     */
+    @Override
+    protected List<RedisFuture<?>> dispatchBatch(StatefulConnection<String, String> connection, List<ObjectData> batch, List<String> keys) {
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        List<RedisFuture<?>> futures = new ArrayList<>(keys.size() * 2);
+        _fields = new ArrayList<>(keys.size());
+        _values = new ArrayList<>(keys.size());
+        _ttls = new ArrayList<>(keys.size());
+
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+
+            // Get optional field value
+            String field = batch.get(i).getDynamicProperties().get("field");
+            RedisFuture<?> value = StringUtil.isNullOrEmpty(field) ? commands.hgetall(key) : commands.hget(key, field);
+            RedisFuture<Long> ttl = commands.ttl(key);
+
+            _fields.add(field);
+            _values.add(value);
+            _ttls.add(ttl);
+            futures.add(value);
+            futures.add(ttl);
+        }
+        return futures;
+    }
+
+    /**
+     * @param objectData Document to report the result on
+     * @param key Prefixed key of the document
+     * @param index Index of the document within the batch
+     * @param operationResponse Response object used to report the result
+     * @throws Exception Thrown when the result could not be read or written
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void addBatchResult(ObjectData objectData, String key, int index, OperationResponse operationResponse) throws Exception {
+        // Validate result
+        String field = _fields.get(index);
+        Map<String, String> rtn;
+        if (StringUtil.isNullOrEmpty(field)) {
+            rtn = (Map<String, String>) _values.get(index).get();
+        } else {
+            String fieldRtn = (String) _values.get(index).get();
+            rtn = new HashMap<>(1);
+            if (fieldRtn != null) {
+                rtn.put(field, fieldRtn);
+            }
+        }
+        if (rtn.size() == 0) {
+            String keyNotFoundFormat = "Key %s not found", keyFieldNotFound = "Key %s / field %s not found";
+            addNotFoundResult(objectData, String.format(StringUtil.isNullOrEmpty(field) ? keyNotFoundFormat : keyFieldNotFound, key, field), operationResponse);
+            return;
+        }
+
+        // Send final payload response
+        PayloadMetadata metadata = createTtlMetadata(_ttls.get(index).get(), operationResponse);
+        try (OutputStream outputStream = RedisGetHashSetOperation.mapToGetResult(getContext(), rtn);
+             InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(outputStream)) {
+            if (metadata != null) {
+                operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream, metadata));
+            } else {
+                operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.largeobject.LargeObjects;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Responsible for unique getter logic when handling batched GET operations for
+ * Redis String data types. Each batch is resolved using a single MGET command pipelined
+ * with the TTL commands of every key in the batch. On Redis Cluster connections the batch keys are
+ * grouped by hash slot and one MGET is pipelined per slot, so the shards resolve their keys in parallel.
+ * MGET returns nil for large objects, so the manifests of existing keys without a value are read with a second
+ * pipelined round trip shared by the whole batch. Chunks only match the manifest of the node that committed
+ * them, so manifests and chunks are read from the upstream node
+ */
+public class RedisBatchGetStringOperation extends BaseRedisBatchGetOperation {
+
+    private List<RedisFuture<List<byte[]>>> _values;
+    private int[] _valueGroups;
+    private int[] _valuePositions;
+    private List<RedisFuture<Long>> _ttls;
+    private List<RedisFuture<byte[]>> _manifests;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisBatchGetStringOperation(RedisConnection connection) {
+        super(connection);
+    }
+
+    /**
+     * @param connection Connection used to queue commands
+     * @param batch Documents in the batch
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @return Returns the MGET future of each slot and the TTL future of each key
+     */
+    @Override
+    protected List<RedisFuture<?>> dispatchBatch(StatefulConnection<String, String> connection, List<ObjectData> batch, List<String> keys) {
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        List<RedisFuture<?>> futures = new ArrayList<>(keys.size() + 1);
+
+        // Multi-key commands must not span hash slots on cluster connections
+        _values = new ArrayList<>();
+        _valueGroups = new int[keys.size()];
+        _valuePositions = new int[keys.size()];
+        for (List<Integer> group : ConnectionUtil.groupBySlot(connection, keys)) {
+            for (int i = 0; i < group.size(); i++) {
+                _valueGroups[group.get(i)] = _values.size();
+                _valuePositions[group.get(i)] = i;
+            }
+            RedisFuture<List<byte[]>> values = BinaryCommands.mget(commands, ConnectionUtil.selectKeys(keys, group));
+            _values.add(values);
+            futures.add(values);
+        }
+
+        _ttls = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            RedisFuture<Long> ttl = commands.ttl(key);
+            _ttls.add(ttl);
+            futures.add(ttl);
+        }
+        return futures;
+    }
+
+    /**
+     * @param connection Connection used to queue commands
+     * @param keys Prefixed keys of the documents in the batch, in document order
+     * @return Returns the HGET futures reading the manifest of every existing key that MGET returned no value for
+     */
+    @Override
+    protected List<RedisFuture<?>> dispatchFollowUp(StatefulConnection<String, String> connection, List<String> keys) {
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        List<RedisFuture<?>> futures = new ArrayList<>();
+        _manifests = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        getRedisConnection().setUpstreamReads(true);
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] value;
+                Long ttl;
+                try {
+                    value = getValue(i);
+                    ttl = _ttls.get(i).get();
+                } catch (Exception e) {
+                    // Reported when the result of the document is added
+                    continue;
+                }
+                if (value == null && ttl != null && ttl != -2) {
+                    RedisFuture<byte[]> manifest = BinaryCommands.hget(commands, keys.get(i), LargeObjects.MANIFEST_FIELD);
+                    _manifests.set(i, manifest);
+                    futures.add(manifest);
+                }
+            }
+        } finally {
+            getRedisConnection().setUpstreamReads(false);
+        }
+        return futures;
+    }
+
+    /**
+     * @param objectData Document to report the result on
+     * @param key Prefixed key of the document
+     * @param index Index of the document within the batch
+     * @param operationResponse Response object used to report the result
+     * @throws Exception Thrown when the result could not be read
+     */
+    @Override
+    protected void addBatchResult(ObjectData objectData, String key, int index, OperationResponse operationResponse) throws Exception {
+        // Validate result. MGET returns nil for hashes, so existing keys without a value may hold a large object
+        byte[] value = getValue(index);
+        Long ttl = _ttls.get(index).get();
+        byte[] manifest = _manifests.get(index) != null ? _manifests.get(index).get() : null;
+        if (value == null && manifest == null) {
+            addNotFoundResult(objectData, "Key not found", operationResponse);
+            return;
+        }
+
+        // Send final payload response. Compressed values are decompressed and large objects are read chunk by chunk while the payload is streamed
+        PayloadMetadata metadata = createTtlMetadata(ttl, operationResponse);
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        getRedisConnection().setUpstreamReads(manifest != null);
+        try (InputStream payload = manifest != null
+                ? LargeObjects.open(ConnectionUtil.async(connection), key, manifest, connection.getTimeout())
+                : _settings.getCompression().decompress(value)) {
+            if (metadata != null) {
+                operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payload, metadata));
+            } else {
+                operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payload));
+            }
+        } finally {
+            getRedisConnection().setUpstreamReads(false);
+        }
+    }
+
+    /**
+     * @param index Index of the document within the batch
+     * @return Returns the value MGET returned for the document, or null if the key doesn't hold a String
+     * @throws Exception Thrown when the MGET command of the document's slot failed
+     */
+    private byte[] getValue(int index) throws Exception {
+        return _values.get(_valueGroups[index]).get().get(_valuePositions[index]);
+    }
+}
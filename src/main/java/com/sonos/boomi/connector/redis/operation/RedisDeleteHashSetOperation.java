@@ -21,7 +21,9 @@ import com.boomi.connector.api.ObjectIdData;
 import com.boomi.connector.api.OperationResponse;
 import com.boomi.connector.api.OperationStatus;
 import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
 import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.RedisFuture;
 
 import java.util.*;
 
@@ -31,10 +33,6 @@ import java.util.*;
  */
 public class RedisDeleteHashSetOperation extends BaseRedisDeleteOperation {
 
-    private static final String RESPONSE_SUCCESS = "OK";
-    private static final String RESPONSE_FAIL_ERR = "ERR";
-    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
-
     public RedisDeleteHashSetOperation(RedisConnection connection) {
         super(connection);
     }
@@ -46,10 +44,14 @@ public class RedisDeleteHashSetOperation extends BaseRedisDeleteOperation {
      */
     @Override
     protected void executeDelete(DeleteRequest deleteRequest, OperationResponse operationResponse) {
-        Set<String> keysForDeletion = new HashSet<>();
-        List<ObjectIdData> keysForDeletionObjects = new ArrayList<>();
-        Map<String, Set<String>> fieldsForDeletion = new HashMap<>();
-        Map<String, List<ObjectIdData>> fieldsForDeletionObjects = new HashMap<>();
+        if (isPatternDelete()) {
+            executePatternDelete(deleteRequest, operationResponse);
+            return;
+        }
+
+        Map<String, List<ObjectIdData>> keysForDeletion = new LinkedHashMap<>();
+        Map<HashField, List<ObjectIdData>> fieldsForDeletion = new LinkedHashMap<>();
+        OperationLogger logger = new OperationLogger(operationResponse.getLogger());
         try {
             // Validate and store objectIds
             for (ObjectIdData deleteObject : deleteRequest) {
@@ -64,39 +66,40 @@ public class RedisDeleteHashSetOperation extends BaseRedisDeleteOperation {
 
                 // Sort into operation groups
                 if (StringUtil.isNullOrEmpty(field)) {
-                    keysForDeletion.add(key);
-                    keysForDeletionObjects.add(deleteObject);
+                    keysForDeletion.computeIfAbsent(key, k -> new ArrayList<>()).add(deleteObject);
                 } else {
-                    if (!fieldsForDeletion.containsKey(key)) {
-                        fieldsForDeletion.put(key, new HashSet<>());
-                        fieldsForDeletionObjects.put(key, new ArrayList<>());
-                    }
-                    fieldsForDeletion.get(key).add(field);
-                    fieldsForDeletionObjects.get(key).add(deleteObject);
+                    fieldsForDeletion.computeIfAbsent(new HashField(key, field), k -> new ArrayList<>()).add(deleteObject);
                 }
             }
 
-            // Delete keys from cache
-            if (keysForDeletion.size() > 0) {
-                Long delResult = getRedisConnection().getConnection().sync().del(keysForDeletion.toArray(new String[]{}));
-                operationResponse.getLogger().fine(String.format("'DEL %s' command returned %s", com.boomi.util.StringUtil.join(" ", keysForDeletion), delResult));
-                addResults(keysForDeletionObjects, operationResponse, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, null);
-            }
-
-            // Delete fields from cache
+            // Delete fields from cache before keys, so that field results aren't affected by key deletes of the same request
             if (fieldsForDeletion.size() > 0) {
-                for (String delKey : fieldsForDeletion.keySet()) {
-                    String[] fields = fieldsForDeletion.get(delKey).toArray(new String[]{});
-                    Long delResult = getRedisConnection().getConnection().sync().hdel(delKey, fields);
-                    operationResponse.getLogger().fine(String.format("'HDEL %s %s' command returned %s", delKey, com.boomi.util.StringUtil.join(" ", fields), delResult));
-                    addResults(fieldsForDeletionObjects.get(delKey), operationResponse, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, null);
+                List<HashField> fields = new ArrayList<>(fieldsForDeletion.keySet());
+                List<RedisFuture<Long>> futures = pipeline(fields, (commands, hashField) -> commands.hdel(hashField.getKey(), hashField.getField()));
+                long deleted = 0;
+                for (int i = 0; i < fields.size(); i++) {
+                    deleted += addResults(futures.get(i), fieldsForDeletion.remove(fields.get(i)), operationResponse);
                 }
+                logger.fine("'HDEL' commands for %s fields deleted %s", fields.size(), deleted);
             }
 
+            // Delete keys from cache
+            if (keysForDeletion.size() > 0) {
+                List<String> keys = new ArrayList<>(keysForDeletion.keySet());
+                List<RedisFuture<Long>> futures = deleteKeys(keys);
+                long deleted = 0;
+                for (int i = 0; i < keys.size(); i++) {
+                    deleted += addResults(futures.get(i), keysForDeletion.remove(keys.get(i)), operationResponse);
+                }
+                logger.fine("'%s' commands for %s keys deleted %s", isUnlink() ? "UNLINK" : "DEL", keys.size(), deleted);
+            }
         } catch (Exception e) {
-            addResults(keysForDeletionObjects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
-            for (String delKey : fieldsForDeletionObjects.keySet()) {
-                addResults(fieldsForDeletionObjects.get(delKey), operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            // Report the failure on documents that didn't receive a result yet
+            for (List<ObjectIdData> objects : fieldsForDeletion.values()) {
+                addResults(objects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            }
+            for (List<ObjectIdData> objects : keysForDeletion.values()) {
+                addResults(objects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
             }
         } finally {
             getRedisConnection().closeConnection();
@@ -104,20 +107,45 @@ public class RedisDeleteHashSetOperation extends BaseRedisDeleteOperation {
     }
 
     /**
-     * @param objectDataCollection Collection containing {@link com.boomi.connector.api.ObjectIdData} instances to report result on
-     * @param operationResponse    Response object used to report responses for all objects in objectKeyMap
-     * @param status               {@link com.boomi.connector.api.OperationStatus} enumeration used when reporting results
-     * @param statusCode           Status code used when reporting results
-     * @param statusMessage        Status message used when reporting results
-     * @param throwable            Exception used when reporting error results
+     * Identifies a single field of a hash
      */
-    private void addResults(Collection<ObjectIdData> objectDataCollection, OperationResponse operationResponse, OperationStatus status, String statusCode, String statusMessage, Throwable throwable) {
-        for (ObjectIdData data : objectDataCollection) {
-            if (status == OperationStatus.FAILURE) {
-                operationResponse.addErrorResult(data, status, statusCode, statusMessage, throwable);
-            } else {
-                operationResponse.addEmptyResult(data, status, statusCode, statusMessage);
+    private static class HashField {
+
+        private final String _key;
+        private final String _field;
+
+        /**
+         * @param key Prefixed key of the hash
+         * @param field Field of the hash
+         */
+        HashField(String key, String field) {
+            _key = key;
+            _field = field;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        String getField() {
+            return _field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HashField)) {
+                return false;
             }
+            HashField other = (HashField) o;
+            return _key.equals(other._key) && _field.equals(other._field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * _key.hashCode() + _field.hashCode();
         }
     }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.DeleteRequest;
+import com.boomi.connector.api.ObjectIdData;
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.OperationStatus;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import com.sonos.boomi.connector.redis.util.ScoreUtil;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+
+import java.util.*;
+
+/**
+ * Responsible for unique deletion logic when handling DELETE operations for
+ * Redis SortedSet data types
+ */
+public class RedisDeleteSortedSetOperation extends BaseRedisDeleteOperation {
+
+    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+
+    public RedisDeleteSortedSetOperation(RedisConnection connection) {
+        super(connection);
+    }
+
+    /**
+     * @param deleteRequest     {@link com.boomi.connector.api.DeleteRequest} object provided by the Atom for the execution of
+     *                          this DELETE operation
+     * @param operationResponse Response object used to report success or failure of DELETE operation processing
+     */
+    @Override
+    protected void executeDelete(DeleteRequest deleteRequest, OperationResponse operationResponse) {
+        if (isPatternDelete()) {
+            executePatternDelete(deleteRequest, operationResponse);
+            return;
+        }
+
+        Map<String, List<ObjectIdData>> keysForDeletion = new LinkedHashMap<>();
+        Map<SortedSetMembers, List<ObjectIdData>> membersForDeletion = new LinkedHashMap<>();
+        OperationLogger logger = new OperationLogger(operationResponse.getLogger());
+        try {
+            // Validate and store objectIds
+            for (ObjectIdData deleteObject : deleteRequest) {
+                String key = getObjectId(deleteObject);
+                if (StringUtil.isNullOrEmpty(key)) {
+                    operationResponse.addResult(deleteObject, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                    continue;
+                }
+
+                // Get optional member or score range values
+                String member = deleteObject.getDynamicProperties().get("member");
+                String minScore = deleteObject.getDynamicProperties().get("minScore");
+                String maxScore = deleteObject.getDynamicProperties().get("maxScore");
+                Range<Double> range;
+                try {
+                    range = StringUtil.isNullOrEmpty(member) ? ScoreUtil.parseRange(minScore, maxScore) : null;
+                } catch (NumberFormatException e) {
+                    operationResponse.addResult(deleteObject, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, e.getMessage(), null);
+                    continue;
+                }
+
+                // Sort into operation groups
+                if (!StringUtil.isNullOrEmpty(member)) {
+                    membersForDeletion.computeIfAbsent(new SortedSetMembers(key, member, null, null, null), k -> new ArrayList<>()).add(deleteObject);
+                } else if (range != null) {
+                    membersForDeletion.computeIfAbsent(new SortedSetMembers(key, null, minScore, maxScore, range), k -> new ArrayList<>()).add(deleteObject);
+                } else {
+                    keysForDeletion.computeIfAbsent(key, k -> new ArrayList<>()).add(deleteObject);
+                }
+            }
+
+            // Delete members from cache before keys, so that member results aren't affected by key deletes of the same request
+            if (membersForDeletion.size() > 0) {
+                List<SortedSetMembers> members = new ArrayList<>(membersForDeletion.keySet());
+                List<RedisFuture<Long>> futures = pipeline(members, (commands, target) -> target.getMember() != null
+                        ? commands.zrem(target.getKey(), target.getMember())
+                        : commands.zremrangebyscore(target.getKey(), target.getRange()));
+                long deleted = 0;
+                for (int i = 0; i < members.size(); i++) {
+                    deleted += addResults(futures.get(i), membersForDeletion.remove(members.get(i)), operationResponse);
+                }
+                logger.fine("'ZREM' and 'ZREMRANGEBYSCORE' commands for %s members or ranges deleted %s", members.size(), deleted);
+            }
+
+            // Delete keys from cache
+            if (keysForDeletion.size() > 0) {
+                List<String> keys = new ArrayList<>(keysForDeletion.keySet());
+                List<RedisFuture<Long>> futures = deleteKeys(keys);
+                long deleted = 0;
+                for (int i = 0; i < keys.size(); i++) {
+                    deleted += addResults(futures.get(i), keysForDeletion.remove(keys.get(i)), operationResponse);
+                }
+                logger.fine("'%s' commands for %s keys deleted %s", isUnlink() ? "UNLINK" : "DEL", keys.size(), deleted);
+            }
+        } catch (Exception e) {
+            // Report the failure on documents that didn't receive a result yet
+            for (List<ObjectIdData> objects : membersForDeletion.values()) {
+                addResults(objects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            }
+            for (List<ObjectIdData> objects : keysForDeletion.values()) {
+                addResults(objects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            }
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Identifies a single member, or the members within a score range, of a sorted set
+     */
+    private static class SortedSetMembers {
+
+        private final String _key;
+        private final String _member;
+        private final String _minScore;
+        private final String _maxScore;
+        private final Range<Double> _range;
+
+        /**
+         * @param key Prefixed key of the sorted set
+         * @param member Member of the sorted set, or null to delete a score range
+         * @param minScore Lower bound of the score range as provided, used to identify identical ranges
+         * @param maxScore Upper bound of the score range as provided, used to identify identical ranges
+         * @param range Parsed score range, or null to delete a single member
+         */
+        SortedSetMembers(String key, String member, String minScore, String maxScore, Range<Double> range) {
+            _key = key;
+            _member = member;
+            _minScore = minScore;
+            _maxScore = maxScore;
+            _range = range;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        String getMember() {
+            return _member;
+        }
+
+        Range<Double> getRange() {
+            return _range;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SortedSetMembers)) {
+                return false;
+            }
+            SortedSetMembers other = (SortedSetMembers) o;
+            return _key.equals(other._key) && Objects.equals(_member, other._member)
+                    && Objects.equals(_minScore, other._minScore) && Objects.equals(_maxScore, other._maxScore);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(_key, _member, _minScore, _maxScore);
+        }
+    }
+}
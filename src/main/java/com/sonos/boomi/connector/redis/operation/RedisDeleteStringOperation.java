@@ -21,7 +21,9 @@ import com.boomi.connector.api.ObjectIdData;
 import com.boomi.connector.api.OperationResponse;
 import com.boomi.connector.api.OperationStatus;
 import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
 import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.RedisFuture;
 
 import java.util.*;
 
@@ -31,10 +33,6 @@ import java.util.*;
  */
 public class RedisDeleteStringOperation extends BaseRedisDeleteOperation {
 
-    private static final String RESPONSE_SUCCESS = "OK";
-    private static final String RESPONSE_FAIL_ERR = "ERR";
-    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
-
     public RedisDeleteStringOperation(RedisConnection connection) {
         super(connection);
     }
@@ -46,8 +44,12 @@ public class RedisDeleteStringOperation extends BaseRedisDeleteOperation {
      */
     @Override
     protected void executeDelete(DeleteRequest deleteRequest, OperationResponse operationResponse) {
-        Set<String> idsForDeletion = new HashSet<>();
-        List<ObjectIdData> objectsForResult = new ArrayList<>();
+        if (isPatternDelete()) {
+            executePatternDelete(deleteRequest, operationResponse);
+            return;
+        }
+
+        Map<String, List<ObjectIdData>> objectsForDeletion = new LinkedHashMap<>();
         try {
             // Validate and store objectIds
             for (ObjectIdData deleteObject : deleteRequest) {
@@ -57,38 +59,26 @@ public class RedisDeleteStringOperation extends BaseRedisDeleteOperation {
                     continue;
                 }
 
-                idsForDeletion.add(key);
-                objectsForResult.add(deleteObject);
+                objectsForDeletion.computeIfAbsent(key, k -> new ArrayList<>()).add(deleteObject);
             }
 
             // Delete from cache
-            Long delResult = getRedisConnection().getConnection().sync().del(idsForDeletion.toArray(new String[]{}));
-            operationResponse.getLogger().fine(String.format("'DEL %s' command returned %s", com.boomi.util.StringUtil.join(", ", idsForDeletion), delResult));
+            List<String> keys = new ArrayList<>(objectsForDeletion.keySet());
+            List<RedisFuture<Long>> futures = deleteKeys(keys);
 
-            // Send final result
-            addResults(objectsForResult, operationResponse, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, null);
+            // Send final results
+            long deleted = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                deleted += addResults(futures.get(i), objectsForDeletion.remove(keys.get(i)), operationResponse);
+            }
+            new OperationLogger(operationResponse.getLogger()).fine("'%s' commands for %s keys deleted %s", isUnlink() ? "UNLINK" : "DEL", keys.size(), deleted);
         } catch (Exception e) {
-            addResults(objectsForResult, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            // Report the failure on documents that didn't receive a result yet
+            for (List<ObjectIdData> objects : objectsForDeletion.values()) {
+                addResults(objects, operationResponse, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+            }
         } finally {
             getRedisConnection().closeConnection();
         }
     }
-
-    /**
-     * @param objectDataCollection Collection containing {@link com.boomi.connector.api.ObjectIdData} instances to report result on
-     * @param operationResponse    Response object used to report responses for all objects in objectKeyMap
-     * @param status               {@link com.boomi.connector.api.OperationStatus} enumeration used when reporting results
-     * @param statusCode           Status code used when reporting results
-     * @param statusMessage        Status message used when reporting results
-     * @param throwable            Exception used when reporting error results
-     */
-    private void addResults(Collection<ObjectIdData> objectDataCollection, OperationResponse operationResponse, OperationStatus status, String statusCode, String statusMessage, Throwable throwable) {
-        for (ObjectIdData data : objectDataCollection) {
-            if (status == OperationStatus.FAILURE) {
-                operationResponse.addErrorResult(data, status, statusCode, statusMessage, throwable);
-            } else {
-                operationResponse.addEmptyResult(data, status, statusCode, statusMessage);
-            }
-        }
-    }
 }
@@ -19,17 +19,27 @@ package com.sonos.boomi.connector.redis.operation;
 import com.boomi.connector.api.*;
 import com.sonos.boomi.connector.redis.RedisConnection;
 import com.sonos.boomi.connector.redis.util.StringUtil;
+import com.sonos.boomi.connector.redis.util.XmlStreamWriter;
+import io.lettuce.core.MapScanCursor;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Responsible for unique getter logic when handling GET operations for
- * Redis HashSet data types
+ * Redis HashSet data types.
+ *
+ * Whole hashes are read with HSCAN. Small hashes are returned by Redis in a single page, while large hashes are
+ * streamed page by page into the result so that they are never materialised in atom memory at once. Scan
+ * cursors are only valid on the node that issued them, so large hashes are streamed from the upstream node.
  */
 public class RedisGetHashSetOperation extends BaseRedisGetOperation {
 
@@ -37,6 +47,8 @@ public class RedisGetHashSetOperation extends BaseRedisGetOperation {
     private static final String RESPONSE_FAIL_NOTFOUND = "NOT_FOUND";
     private static final String RESPONSE_FAIL_ERR = "ERR";
 
+    private static final int MAX_TRACKED_FIELDS = 100000;
+
     /**
      * @param connection Connection provided by the Connector
      */
@@ -64,20 +76,28 @@ public class RedisGetHashSetOperation extends BaseRedisGetOperation {
             // Get optional field value
             String field = trackedData.getDynamicProperties().get("field");
 
-            // Get from cache and validate result
+            // Get first page from cache with ttl and validate result
             Map<String, String> rtn;
+            MapScanCursor<String, String> cursor = null;
+            Long ttlResult;
             if (StringUtil.isNullOrEmpty(field)) {
-                rtn = getRedisConnection().getConnection().sync().hgetall(objectId);
+                // Reads with another page size return another first page, so they don't share the read
+                ScanArgs scanArgs = getScanArgs();
+                ValueWithTtl<MapScanCursor<String, String>> result = getWithTtl(objectId, "HSCAN:" + _settings.getScanPageSize(), commands -> commands.hscan(objectId, scanArgs));
+                cursor = result.getValue();
+                rtn = cursor.getMap();
+                ttlResult = result.getTtl();
             } else {
-                String fieldRtn = getRedisConnection().getConnection().sync().hget(objectId, field);
+                ValueWithTtl<String> result = getWithTtl(objectId, "HGET " + field, commands -> commands.hget(objectId, field));
+                String fieldRtn = result.getValue();
+                ttlResult = result.getTtl();
                 rtn = new HashMap<>(1);
                 if (fieldRtn != null) {
                     rtn.put(field, fieldRtn);
                 }
             }
-            if (rtn.size() == 0) {
-                boolean throwOnNotFound = getContext().getOperationProperties().getBooleanProperty("throwOnNotFound");
-                if (throwOnNotFound) {
+            if (rtn.size() == 0 && (cursor == null || cursor.isFinished())) {
+                if (_settings.isThrowOnNotFound()) {
                     String keyNotFoundFormat = "Key %s not found", keyFieldNotFound = "Key %s / field %s not found";
                     operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOTFOUND, String.format(StringUtil.isNullOrEmpty(field) ? keyNotFoundFormat : keyFieldNotFound, objectId, field), null);
                 } else {
@@ -92,7 +112,7 @@ public class RedisGetHashSetOperation extends BaseRedisGetOperation {
             }
 
             // Get ttl
-            int ttl = Math.toIntExact(getRedisConnection().getConnection().sync().ttl(objectId));
+            int ttl = Math.toIntExact(ttlResult);
 
             // Construct metadata if there is a valid ttl
             PayloadMetadata metadata = null;
@@ -102,8 +122,11 @@ public class RedisGetHashSetOperation extends BaseRedisGetOperation {
             }
 
             // Send final payload response
-            try (OutputStream outputStream = mapToGetResult(getContext(), rtn);
-                 InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(outputStream)) {
+            OutputStream outputStream = cursor == null || cursor.isFinished()
+                    ? mapToGetResult(getContext(), rtn)
+                    : scanToGetResult(objectId, cursor);
+            try (OutputStream getResult = outputStream;
+                 InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(getResult)) {
                 if (metadata != null) {
                     operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream, metadata));
                 } else {
@@ -117,21 +140,95 @@ public class RedisGetHashSetOperation extends BaseRedisGetOperation {
         }
     }
 
+    /**
+     * Streams every page of a large hash into the result. HSCAN may return a field more than once while the
+     * hash is being rehashed, so the names of written fields are tracked to keep items unique. To bound atom
+     * memory, only the first {@link #MAX_TRACKED_FIELDS} names are tracked, so a field beyond them may be written
+     * twice if the hash is resized during the scan.
+     *
+     * The cursor of the first page is only valid on the node that returned it, which may be any node allowed by
+     * the 'Read From' policy, so unless the policy is UPSTREAM the scan restarts on the upstream node, where every
+     * page is read
+     * @param key Prefixed key of the hash
+     * @param firstPage First HSCAN page, already read together with the key TTL
+     * @return Returns an {@link java.io.OutputStream} containing the XML output of the GET operation
+     * @throws IOException Throws on IO exception
+     */
+    private OutputStream scanToGetResult(String key, MapScanCursor<String, String> firstPage) throws IOException {
+        RedisConnection connection = getRedisConnection();
+        boolean restart = connection.getReadFrom() != ReadFrom.UPSTREAM;
+        ScanArgs scanArgs = getScanArgs();
+        Set<String> written = new HashSet<>();
+        OutputStream getResult = getContext().createTempOutputStream();
+        connection.setUpstreamReads(true);
+        try {
+            RedisClusterCommands<String, String> commands = connection.sync();
+            XmlStreamWriter writer = new XmlStreamWriter(getResult).writeStartElement("HashSet");
+            MapScanCursor<String, String> cursor = restart ? commands.hscan(key, scanArgs) : firstPage;
+            while (true) {
+                for (Map.Entry<String, String> item : cursor.getMap().entrySet()) {
+                    if (written.contains(item.getKey())) {
+                        continue;
+                    }
+                    if (written.size() < MAX_TRACKED_FIELDS) {
+                        written.add(item.getKey());
+                    }
+                    writeItem(writer, item.getKey(), item.getValue());
+                }
+                if (cursor.isFinished()) {
+                    break;
+                }
+                cursor = commands.hscan(key, cursor, scanArgs);
+            }
+            writer.writeEndElement("HashSet").flush();
+            return getResult;
+        } catch (IOException | RuntimeException e) {
+            getResult.close();
+            throw e;
+        } finally {
+            connection.setUpstreamReads(false);
+        }
+    }
+
+    /**
+     * @return Returns the HSCAN arguments using the operation's scan page size
+     */
+    private ScanArgs getScanArgs() {
+        return ScanArgs.Builder.limit(_settings.getScanPageSize());
+    }
+
     /**
      * @param context Operation context used to create temporary output streams for memory management purposes
      * @param values Map of ID/Value pairs to write into an XML fragment
      * @return Returns an {@link java.io.OutputStream} containing the XML output of the GET operation
      * @throws IOException Throws on IO exception
      */
-    private OutputStream mapToGetResult(OperationContext context, Map<String, String> values) throws IOException {
+    static OutputStream mapToGetResult(OperationContext context, Map<String, String> values) throws IOException {
         OutputStream getResult = context.createTempOutputStream();
-        getResult.write("<HashSet>".getBytes(StandardCharsets.UTF_8));
-        for (Map.Entry<String, String> item : values.entrySet()) {
-            getResult.write(String.format("<Item><ID>%s</ID><Value>%s</Value></Item>", item.getKey(), item.getValue()).getBytes(StandardCharsets.UTF_8));
+        try {
+            XmlStreamWriter writer = new XmlStreamWriter(getResult).writeStartElement("HashSet");
+            for (Map.Entry<String, String> item : values.entrySet()) {
+                writeItem(writer, item.getKey(), item.getValue());
+            }
+            writer.writeEndElement("HashSet").flush();
+            return getResult;
+        } catch (IOException | RuntimeException e) {
+            getResult.close();
+            throw e;
         }
-        getResult.write("</HashSet>".getBytes(StandardCharsets.UTF_8));
-        getResult.flush();
-        return getResult;
+    }
+
+    /**
+     * @param writer Writer of the GET result
+     * @param id Hash field name
+     * @param value Hash field value
+     * @throws IOException Throws on IO exception
+     */
+    private static void writeItem(XmlStreamWriter writer, String id, String value) throws IOException {
+        writer.writeStartElement("Item")
+                .writeElement("ID", id)
+                .writeElement("Value", value)
+                .writeEndElement("Item");
     }
 
 }
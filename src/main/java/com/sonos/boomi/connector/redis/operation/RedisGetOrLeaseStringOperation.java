@@ -0,0 +1,352 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.boomi.connector.util.BaseUpdateOperation;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.largeobject.LargeObjects;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for cache-aside reads (EXECUTE GET_OR_LEASE) of Redis String data types.
+ *
+ * Each document is resolved with a single read. On a miss the operation acquires a short-lived lease on the key
+ * using SET NX PX, so only one caller recomputes the value while concurrent callers wait for the value to be
+ * written. Hits may also acquire the lease ahead of expiration using probabilistic early refresh (XFetch), so
+ * popular keys are recomputed by a single caller before they expire instead of by every caller after they expire.
+ *
+ * The outcome is reported in the 'cacheStatus' tracked property of each document:
+ * HIT documents contain the cached value, REFRESH documents contain the cached value and the caller holds the
+ * lease to recompute it, and MISS documents are empty and the caller holds the lease to compute the value. The
+ * caller writes computed values using a String UPSERT operation. Leases expire on their own, and the random token
+ * of an acquired lease is reported in the 'leaseToken' tracked property, so the holder may release it earlier
+ * with a String Release Lease operation.
+ *
+ * Values and leases are read from the upstream node regardless of the 'Read From' policy, so waiting callers see
+ * the value as soon as the lease holder wrote it instead of polling a replica that may not have received it yet.
+ */
+public class RedisGetOrLeaseStringOperation extends BaseUpdateOperation {
+
+    private static final String RESPONSE_SUCCESS = "OK";
+    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
+    private static final String RESPONSE_FAIL_TIMEOUT = "LEASE_TIMEOUT";
+    private static final String RESPONSE_FAIL_ERR = "ERR";
+
+    private static final String STATUS_HIT = "HIT";
+    private static final String STATUS_REFRESH = "REFRESH";
+    private static final String STATUS_MISS = "MISS";
+
+    private static final String LEASE_SUFFIX = ":lease";
+    private static final long DEFAULT_LEASE_TIME_MILLIS = 10000;
+    private static final long DEFAULT_LEASE_WAIT_MILLIS = 10000;
+    private static final long DEFAULT_RECOMPUTE_TIME_MILLIS = 1000;
+    private static final String DEFAULT_EARLY_REFRESH_BETA = "1.0";
+    private static final long MIN_POLL_INTERVAL_MILLIS = 5;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 250;
+
+    protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisGetOrLeaseStringOperation(RedisConnection connection) {
+        super(connection);
+
+        _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
+    }
+
+    /**
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
+     */
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
+            _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param updateRequest {@link com.boomi.connector.api.UpdateRequest} object provided by the Atom for the execution of
+     *                                                             this EXECUTE operation
+     * @param operationResponse Response object used to report success or failure of EXECUTE operation processing
+     */
+    @Override
+    protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        PropertyMap properties = getContext().getOperationProperties();
+        long leaseMillis = Math.max(1, properties.getLongProperty("leaseTime", DEFAULT_LEASE_TIME_MILLIS));
+        long waitMillis = Math.max(0, properties.getLongProperty("leaseWaitTime", DEFAULT_LEASE_WAIT_MILLIS));
+        long recomputeMillis = Math.max(0, properties.getLongProperty("recomputeTime", DEFAULT_RECOMPUTE_TIME_MILLIS));
+        double beta = parseBeta(properties.getProperty("earlyRefreshBeta", DEFAULT_EARLY_REFRESH_BETA));
+        getRedisConnection().setUpstreamReads(true);
+        try {
+            for (ObjectData objectData : updateRequest) {
+                try {
+                    // Validate key
+                    String key = objectData.getDynamicProperties().get("key");
+                    if (StringUtil.isNullOrEmpty(key)) {
+                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                        continue;
+                    }
+                    String prefixedKey = _settings.formatKey(key);
+
+                    // Serve hits, refreshing them early when XFetch selects this caller
+                    StoredValue value = read(prefixedKey);
+                    if (value != null) {
+                        String leaseToken = isEarlyRefresh(value.getPttl(), recomputeMillis, beta) ? tryLease(prefixedKey, leaseMillis) : null;
+                        addValueResult(objectData, prefixedKey, value, leaseToken != null ? STATUS_REFRESH : STATUS_HIT, leaseToken, operationResponse);
+                        continue;
+                    }
+
+                    // Wait for the lease holder to write the value, or acquire the lease when nobody holds it
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+                    long pollMillis = MIN_POLL_INTERVAL_MILLIS;
+                    while (true) {
+                        String leaseToken = tryLease(prefixedKey, leaseMillis);
+                        if (leaseToken != null) {
+                            addMissResult(objectData, leaseToken, operationResponse);
+                            break;
+                        }
+
+                        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                        if (remainingMillis <= 0) {
+                            operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_TIMEOUT, "Timed out waiting for the value to be computed by the lease holder", null);
+                            break;
+                        }
+                        Thread.sleep(Math.min(pollMillis, remainingMillis));
+                        pollMillis = Math.min(MAX_POLL_INTERVAL_MILLIS, pollMillis * 2);
+
+                        value = read(prefixedKey);
+                        if (value != null) {
+                            addValueResult(objectData, prefixedKey, value, STATUS_HIT, null, operationResponse);
+                            break;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+                } catch (Exception e) {
+                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+                }
+            }
+        } finally {
+            getRedisConnection().setUpstreamReads(false);
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Implements the XFetch early expiration test: a value is refreshed early when
+     * {@code -recomputeTime * beta * ln(random)} reaches the remaining time to live. Refreshes become more likely
+     * as expiration approaches and for values that take longer to recompute
+     * @param pttl Remaining time to live of the key in milliseconds. Negative for keys without expiration
+     * @param recomputeMillis Expected time in milliseconds needed to recompute the value
+     * @param beta Factor scaling the early refresh window. Zero disables early refreshes
+     * @return Returns whether this caller should refresh the value before it expires
+     */
+    static boolean isEarlyRefresh(long pttl, long recomputeMillis, double beta) {
+        if (pttl < 0 || beta <= 0 || recomputeMillis <= 0) {
+            return false;
+        }
+
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return -recomputeMillis * beta * Math.log(random) >= pttl;
+    }
+
+    /**
+     * @param key Prefixed key to lease
+     * @param leaseMillis Time in milliseconds the lease is held
+     * @return Returns the random token of the lease if it was acquired by this caller, or null if another caller
+     * holds the lease
+     */
+    private String tryLease(String key, long leaseMillis) {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        String token = UUID.randomUUID().toString();
+        String reply = ConnectionUtil.sync(connection).set(getLeaseKey(key), token, SetArgs.Builder.nx().px(leaseMillis));
+        return "OK".equals(reply) ? token : null;
+    }
+
+    /**
+     * Sends a GET and a PTTL command for the key in a single network write. Large objects are hashes, so their
+     * manifest is read when GET reports a type mismatch
+     * @param key Prefixed key to read
+     * @return Returns the stored value, or null if the key doesn't exist
+     * @throws Exception Thrown when the read failed
+     */
+    private StoredValue read(String key) throws Exception {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+        RedisFuture<byte[]> value;
+        RedisFuture<Long> pttl;
+        connection.setAutoFlushCommands(false);
+        try {
+            value = BinaryCommands.get(commands, key);
+            pttl = commands.pttl(key);
+            connection.flushCommands();
+        } catch (RuntimeException e) {
+            // Commands buffered by the aborted pipeline must not be sent by a later borrower
+            getRedisConnection().discardConnection();
+            throw e;
+        } finally {
+            ConnectionUtil.restoreAutoFlush(connection);
+        }
+
+        Duration timeout = connection.getTimeout();
+        long remaining = ConnectionUtil.awaitOrCancel(pttl, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            byte[] rtn = ConnectionUtil.awaitOrCancel(value, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return rtn == null ? null : new StoredValue(rtn, false, remaining);
+        } catch (Exception e) {
+            if (!LargeObjects.isWrongType(e)) {
+                throw e;
+            }
+        }
+
+        byte[] manifest = LargeObjects.readManifest(commands, key, timeout);
+        return manifest == null ? null : new StoredValue(manifest, true, remaining);
+    }
+
+    /**
+     * @param objectData Document to report the result on
+     * @param key Prefixed key of the document
+     * @param value Stored value of the key
+     * @param cacheStatus Value of the 'cacheStatus' tracked property
+     * @param leaseToken Token of the lease acquired to refresh the value, or null if no lease was acquired
+     * @param operationResponse Response object used to report the result
+     * @throws Exception Thrown when the value could not be read
+     */
+    private void addValueResult(ObjectData objectData, String key, StoredValue value, String cacheStatus, String leaseToken, OperationResponse operationResponse) throws Exception {
+        PayloadMetadata metadata = operationResponse.createMetadata();
+        metadata.setTrackedProperty("cacheStatus", cacheStatus);
+        if (leaseToken != null) {
+            metadata.setTrackedProperty("leaseToken", leaseToken);
+        }
+        if (value.getPttl() >= 0) {
+            metadata.setTrackedProperty("ttl", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(value.getPttl() + 500)));
+        }
+
+        // Compressed values are decompressed and large objects are read chunk by chunk while the payload is streamed
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        try (InputStream payload = value.isLargeObject()
+                ? LargeObjects.open(ConnectionUtil.async(connection), key, value.getValue(), connection.getTimeout())
+                : _settings.getCompression().decompress(value.getValue())) {
+            operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payload, metadata));
+        }
+    }
+
+    /**
+     * @param objectData Document to report the miss on
+     * @param leaseToken Token of the lease acquired to compute the value
+     * @param operationResponse Response object used to report the result
+     */
+    private void addMissResult(ObjectData objectData, String leaseToken, OperationResponse operationResponse) {
+        PayloadMetadata metadata = operationResponse.createMetadata();
+        metadata.setTrackedProperty("cacheStatus", STATUS_MISS);
+        metadata.setTrackedProperty("leaseToken", leaseToken);
+        operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(new ByteArrayInputStream(new byte[0]), metadata));
+    }
+
+    /**
+     * @param value Configured early refresh beta
+     * @return Returns the parsed beta
+     * @throws ConnectorException Thrown when the value is not a non-negative number
+     */
+    private static double parseBeta(String value) {
+        try {
+            double beta = Double.parseDouble(value.trim());
+            if (beta >= 0) {
+                return beta;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new ConnectorException("Early Refresh Beta must be a non-negative number: " + value);
+    }
+
+    /**
+     * @param key Prefixed key
+     * @return Returns the key holding the lease of the provided key
+     */
+    static String getLeaseKey(String key) {
+        return key.concat(LEASE_SUFFIX);
+    }
+
+    /**
+     * @return Returns the Redis connection object on this instance
+     */
+    protected RedisConnection getRedisConnection() {
+        return _connection;
+    }
+
+    /**
+     * Raw value of a key together with its remaining time to live
+     */
+    private static class StoredValue {
+
+        private final byte[] _value;
+        private final boolean _largeObject;
+        private final long _pttl;
+
+        /**
+         * @param value Raw value, or the manifest of a large object
+         * @param largeObject Whether the value is the manifest of a large object
+         * @param pttl Remaining time to live in milliseconds. Negative for keys without expiration
+         */
+        StoredValue(byte[] value, boolean largeObject, long pttl) {
+            _value = value;
+            _largeObject = largeObject;
+            _pttl = pttl;
+        }
+
+        byte[] getValue() {
+            return _value;
+        }
+
+        boolean isLargeObject() {
+            return _largeObject;
+        }
+
+        long getPttl() {
+            return _pttl;
+        }
+    }
+}
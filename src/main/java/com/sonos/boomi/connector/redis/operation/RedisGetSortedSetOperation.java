@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import com.sonos.boomi.connector.redis.util.ScoreUtil;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import com.sonos.boomi.connector.redis.util.XmlStreamWriter;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for unique getter logic when handling GET operations for
+ * Redis SortedSet data types.
+ *
+ * Members are returned in score order. The 'minScore' and 'maxScore' document properties limit the result to a
+ * score range, and the 'offset' and 'count' document properties page through it. Large results are read and
+ * streamed into the result page by page so that they are never materialised in atom memory at once.
+ */
+public class RedisGetSortedSetOperation extends BaseRedisGetOperation {
+
+    private static final String RESPONSE_SUCCESS = "OK";
+    private static final String RESPONSE_FAIL_NOTFOUND = "NOT_FOUND";
+    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+    private static final String RESPONSE_FAIL_ERR = "ERR";
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisGetSortedSetOperation(RedisConnection connection) {
+        super(connection);
+    }
+
+    /**
+     * @param getRequest {@link com.boomi.connector.api.GetRequest} object provided by the Atom for the execution of
+     *                                                             this GET operation
+     * @param operationResponse Response object used to report success or failure of GET operation processing
+     */
+    @Override
+    protected void executeGet(GetRequest getRequest, OperationResponse operationResponse) {
+        ObjectIdData trackedData = getRequest.getObjectId();
+
+        try {
+            // Validate objectId
+            String objectId = getObjectId(getRequest.getObjectId());
+            if (StringUtil.isNullOrEmpty(objectId)) {
+                operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOTFOUND, "Key is a required document property", null);
+                return;
+            }
+
+            // Get optional member, score range and paging values
+            Map<String, String> properties = trackedData.getDynamicProperties();
+            String member = properties.get("member");
+            String minScore = properties.get("minScore"), maxScore = properties.get("maxScore");
+            Range<Double> range;
+            long offset, count;
+            try {
+                range = ScoreUtil.parseRange(minScore, maxScore);
+                offset = parseLong(properties.get("offset"), 0);
+                count = parseLong(properties.get("count"), -1);
+            } catch (NumberFormatException e) {
+                operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, e.getMessage(), null);
+                return;
+            }
+            if (offset < 0) {
+                operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, "Offset must not be negative", null);
+                return;
+            }
+
+            // Get first page from cache with ttl and validate result. A ttl of -2 means the key doesn't exist, while
+            // an existing sorted set without members in the range returns an empty result
+            boolean descending = getContext().getOperationProperties().getBooleanProperty("descending", false);
+            long pageSize = _settings.getScanPageSize();
+            List<ScoredValue<String>> page;
+            long limit = 0;
+            Long ttlResult;
+            boolean found;
+            if (StringUtil.isNullOrEmpty(member)) {
+                limit = nextLimit(pageSize, count, 0);
+                long firstLimit = limit;
+                String commandName = String.format("ZRANGE %s %s %d %d%s", minScore, maxScore, offset, limit, descending ? " REV" : "");
+                ValueWithTtl<List<ScoredValue<String>>> result = getWithTtl(objectId, commandName, commands -> readPage(commands, objectId, range, descending, offset, firstLimit));
+                page = result.getValue();
+                ttlResult = result.getTtl();
+                found = ttlResult != -2;
+            } else {
+                ValueWithTtl<Double> result = getWithTtl(objectId, "ZSCORE " + member, commands -> commands.zscore(objectId, member));
+                ttlResult = result.getTtl();
+                found = result.getValue() != null;
+                page = found ? Collections.singletonList(ScoredValue.just(result.getValue(), member)) : Collections.emptyList();
+                count = page.size();
+            }
+            if (!found) {
+                if (_settings.isThrowOnNotFound()) {
+                    String keyNotFoundFormat = "Key %s not found", keyMemberNotFound = "Key %s / member %s not found";
+                    operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOTFOUND, String.format(StringUtil.isNullOrEmpty(member) ? keyNotFoundFormat : keyMemberNotFound, objectId, member), null);
+                } else {
+                    /*
+                    https://help.boomi.com/bundle/connectors/page/int-Implementing_custom_connector_operations.html
+                    Get — retrieves an object from the service based on an object ID. Since Get requests are commonly used to test for the existence of an object,
+                    a request for an object which does not exist should not return a failure, but should instead return an "empty" success.
+                     */
+                    operationResponse.addEmptyResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null);
+                }
+                return;
+            }
+
+            // Get ttl
+            int ttl = Math.toIntExact(ttlResult);
+
+            // Construct metadata if there is a valid ttl
+            PayloadMetadata metadata = null;
+            if (ttl != -1) {
+                metadata = operationResponse.createMetadata();
+                metadata.setTrackedProperty("ttl", String.valueOf((ttl == -2 ? 0 : ttl)));
+            }
+
+            // Send final payload response
+            try (OutputStream getResult = pagesToGetResult(objectId, page, limit, range, descending, offset, count, pageSize);
+                 InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(getResult)) {
+                if (metadata != null) {
+                    operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream, metadata));
+                } else {
+                    operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
+                }
+            }
+        } catch (Exception e) {
+            operationResponse.addErrorResult(trackedData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * Streams the first page and, while pages come back full, every following page into the result
+     * @param key Prefixed key of the sorted set
+     * @param firstPage First page, already read together with the key TTL
+     * @param firstLimit Number of members requested for the first page
+     * @param range Score range, or null to page by rank
+     * @param descending Whether members are read from the highest to the lowest score
+     * @param offset Number of members skipped before the first page
+     * @param count Maximum number of members to return, or -1 for all
+     * @param pageSize Maximum number of members requested per page
+     * @return Returns an {@link java.io.OutputStream} containing the XML output of the GET operation
+     * @throws IOException Throws on IO exception
+     */
+    private OutputStream pagesToGetResult(String key, List<ScoredValue<String>> firstPage, long firstLimit, Range<Double> range, boolean descending, long offset, long count, long pageSize) throws IOException {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        long timeout = connection.getTimeout().toNanos();
+        OutputStream getResult = getContext().createTempOutputStream();
+        try {
+            XmlStreamWriter writer = new XmlStreamWriter(getResult).writeStartElement("SortedSet");
+            List<ScoredValue<String>> page = firstPage;
+            long limit = firstLimit, read = 0;
+            while (true) {
+                for (ScoredValue<String> member : page) {
+                    writeMember(writer, member);
+                }
+                read += page.size();
+                if (page.size() < limit) {
+                    break;
+                }
+                limit = nextLimit(pageSize, count, read);
+                if (limit == 0) {
+                    break;
+                }
+                page = ConnectionUtil.awaitOrCancel(readPage(ConnectionUtil.async(connection), key, range, descending, offset + read, limit), timeout, TimeUnit.NANOSECONDS);
+            }
+            writer.writeEndElement("SortedSet").flush();
+            return getResult;
+        } catch (IOException | RuntimeException e) {
+            getResult.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param commands Async commands used to read the page
+     * @param key Prefixed key of the sorted set
+     * @param range Score range, or null to page by rank
+     * @param descending Whether members are read from the highest to the lowest score
+     * @param start Number of members skipped before the page
+     * @param limit Maximum number of members to read
+     * @return Returns the future of the page members with their scores
+     */
+    private static RedisFuture<List<ScoredValue<String>>> readPage(RedisClusterAsyncCommands<String, String> commands, String key, Range<Double> range, boolean descending, long start, long limit) {
+        if (range == null && limit > 0) {
+            return descending
+                    ? commands.zrevrangeWithScores(key, start, start + limit - 1)
+                    : commands.zrangeWithScores(key, start, start + limit - 1);
+        }
+
+        // Ranks can't express an empty page, so a count of 0 reads an unbounded score range with a limit of 0
+        Range<Double> scores = range == null ? Range.unbounded() : range;
+        return descending
+                ? commands.zrevrangebyscoreWithScores(key, scores, Limit.create(start, limit))
+                : commands.zrangebyscoreWithScores(key, scores, Limit.create(start, limit));
+    }
+
+    /**
+     * @param pageSize Maximum number of members requested per page
+     * @param count Maximum number of members to return, or -1 for all
+     * @param read Number of members read so far
+     * @return Returns the number of members to request for the next page
+     */
+    private static long nextLimit(long pageSize, long count, long read) {
+        return count < 0 ? pageSize : Math.min(pageSize, count - read);
+    }
+
+    /**
+     * @param value Value to parse
+     * @param defaultValue Value returned when no value is provided
+     * @return Returns the parsed value
+     * @throws NumberFormatException Thrown when the value is not an integer
+     */
+    private static long parseLong(String value, long defaultValue) {
+        return StringUtil.isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * @param writer Writer of the GET result
+     * @param member Sorted set member with its score
+     * @throws IOException Throws on IO exception
+     */
+    private static void writeMember(XmlStreamWriter writer, ScoredValue<String> member) throws IOException {
+        writer.writeStartElement("Member")
+                .writeElement("Value", member.getValue())
+                .writeElement("Score", ScoreUtil.formatScore(member.getScore()))
+                .writeEndElement("Member");
+    }
+
+}
@@ -18,7 +18,16 @@ package com.sonos.boomi.connector.redis.operation;
 
 import com.boomi.connector.api.*;
 import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.cache.CachedValue;
+import com.sonos.boomi.connector.redis.cache.NearCache;
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.largeobject.LargeObjects;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
 import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.api.StatefulConnection;
+
+import java.io.InputStream;
 
 /**
  * Responsible for unique getter logic when handling GET operations for
@@ -55,11 +64,23 @@ public class RedisGetStringOperation extends BaseRedisGetOperation {
                 return;
             }
 
-            // Get from cache and validate result
-            String rtn = getRedisConnection().getConnection().sync().get(objectId);
+            // Get from cache with ttl and validate result. Large objects are hashes, so their manifest is read instead.
+            // Chunks only match the manifest of the node that committed them, so both are read from the upstream node
+            ValueWithTtl<byte[]> result;
+            boolean largeObject = false;
+            try {
+                result = getValue(objectId);
+            } catch (Exception e) {
+                if (!LargeObjects.isWrongType(e)) {
+                    throw e;
+                }
+                getRedisConnection().setUpstreamReads(true);
+                result = getWithTtl(objectId, "HGET " + LargeObjects.MANIFEST_FIELD, commands -> BinaryCommands.hget(commands, objectId, LargeObjects.MANIFEST_FIELD));
+                largeObject = true;
+            }
+            byte[] rtn = result.getValue();
             if (rtn == null) {
-                boolean throwOnNotFound = getContext().getOperationProperties().getBooleanProperty("throwOnNotFound");
-                if (throwOnNotFound) {
+                if (_settings.isThrowOnNotFound()) {
                     operationResponse.addResult(trackedData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOTFOUND, "Key not found", null);
                 } else {
                     /*
@@ -73,7 +94,7 @@ public class RedisGetStringOperation extends BaseRedisGetOperation {
             }
 
             // Get ttl
-            Integer ttl = Math.toIntExact(getRedisConnection().getConnection().sync().ttl(objectId));
+            Integer ttl = Math.toIntExact(result.getTtl());
 
             // Construct metadata if there is a valid ttl
             PayloadMetadata metadata = null;
@@ -82,19 +103,60 @@ public class RedisGetStringOperation extends BaseRedisGetOperation {
                 metadata.setTrackedProperty("ttl", String.valueOf((ttl == -2 ? 0 : ttl)));
             }
 
-            // Send final payload response
-            if (metadata != null) {
-                operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(rtn, metadata));
-            } else {
-                operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(rtn));
+            // Send final payload response. Compressed values are decompressed and large objects are read chunk by chunk while the payload is streamed
+            try (InputStream payload = largeObject ? openLargeObject(objectId, rtn) : _settings.getCompression().decompress(rtn)) {
+                if (metadata != null) {
+                    operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payload, metadata));
+                } else {
+                    operationResponse.addResult(trackedData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payload));
+                }
             }
             return;
         } catch (Exception e) {
             operationResponse.addErrorResult(trackedData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
             return;
         } finally {
+            getRedisConnection().setUpstreamReads(false);
             getRedisConnection().closeConnection();
         }
     }
 
+    /**
+     * Reads the raw value and TTL of the key, serving them from the near cache when possible
+     * @param objectId Prefixed key to read
+     * @return Returns the raw value of the key together with its TTL. The value may be shared and must not be modified
+     * @throws Exception Thrown when the read failed
+     */
+    private ValueWithTtl<byte[]> getValue(String objectId) throws Exception {
+        NearCache nearCache = getRedisConnection().getNearCache();
+        if (nearCache == null) {
+            return getWithTtl(objectId, "GET", commands -> BinaryCommands.get(commands, objectId));
+        }
+
+        String keyPrefix = _settings.getKeyPrefix();
+        CachedValue cached = nearCache.get(objectId, keyPrefix);
+        if (cached != null) {
+            return new ValueWithTtl<>(cached.getValue(), cached.getTtl());
+        }
+
+        ValueWithTtl<byte[]> result = getWithTtl(objectId, "GET", commands -> BinaryCommands.get(commands, objectId), nearCache);
+
+        // Replica reads may lag behind invalidations sent by the upstream node, so only upstream reads are cached.
+        // The sequence was captured by whichever caller sent the read, so shared reads are checked against it too
+        ReadFrom readFrom = getRedisConnection().getReadFrom();
+        if ((readFrom == ReadFrom.UPSTREAM || readFrom == ReadFrom.UPSTREAM_PREFERRED) && result.getSequence() != null) {
+            nearCache.put(objectId, keyPrefix, result.getValue(), result.getTtl(), result.getSequence());
+        }
+        return result;
+    }
+
+    /**
+     * @param objectId Prefixed key of the large object
+     * @param manifest Raw manifest of the large object
+     * @return Returns a stream of the value of the large object
+     */
+    private InputStream openLargeObject(String objectId, byte[] manifest) {
+        StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+        return LargeObjects.open(ConnectionUtil.async(connection), objectId, manifest, connection.getTimeout());
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.*;
+import com.boomi.connector.util.BaseUpdateOperation;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.metrics.ConnectorMetrics;
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.StringUtil;
+import io.lettuce.core.ScriptOutputType;
+
+/**
+ * Responsible for releasing leases (EXECUTE RELEASE_LEASE) acquired by String Get Or Lease operations.
+ *
+ * A lease is only released while it is still held by the token reported in the 'leaseToken' tracked property
+ * when it was acquired, so a caller whose lease expired and was acquired by another caller never releases the
+ * other caller's lease. Released leases let the next caller that misses compute the value right away instead of
+ * waiting for the lease to expire, e.g. after the holder failed to compute the value.
+ */
+public class RedisReleaseLeaseStringOperation extends BaseUpdateOperation {
+
+    private static final String RESPONSE_SUCCESS = "OK";
+    private static final String RESPONSE_NOT_HELD = "NOT_HELD";
+    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
+    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+    private static final String RESPONSE_FAIL_ERR = "ERR";
+
+    protected final RedisConnection _connection;
+    protected final OperationSettings _settings;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisReleaseLeaseStringOperation(RedisConnection connection) {
+        super(connection);
+
+        _connection = connection;
+        _settings = OperationSettings.fromContext(getContext());
+    }
+
+    /**
+     * Executes the operation, recording its latency and document results in the operation metrics. The borrowed
+     * Redis connection is always returned to the pool once the request is processed
+     * @param request Request provided by the atom
+     * @param response Response used to report the results of the request
+     */
+    @Override
+    public void execute(OperationRequest request, OperationResponse response) {
+        OperationMetrics metrics = ConnectorMetrics.getInstance().getOperationMetrics(getContext());
+        long start = System.nanoTime();
+        try {
+            super.execute(request, metrics.meter(response));
+        } finally {
+            _connection.closeConnection();
+            metrics.recordExecution(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param updateRequest {@link com.boomi.connector.api.UpdateRequest} object provided by the Atom for the execution of
+     *                                                             this EXECUTE operation
+     * @param operationResponse Response object used to report success or failure of EXECUTE operation processing
+     */
+    @Override
+    protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        try {
+            for (ObjectData objectData : updateRequest) {
+                try {
+                    // Validate inputs
+                    String key = objectData.getDynamicProperties().get("key");
+                    if (StringUtil.isNullOrEmpty(key)) {
+                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                        continue;
+                    }
+                    String leaseToken = objectData.getDynamicProperties().get("leaseToken");
+                    if (StringUtil.isNullOrEmpty(leaseToken)) {
+                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, "Lease Token is a required document property", null);
+                        continue;
+                    }
+
+                    // Delete the lease only if it is still held by the token
+                    String leaseKey = RedisGetOrLeaseStringOperation.getLeaseKey(_settings.formatKey(key));
+                    Long released = RedisScripts.getInstance().getLeaseRelease()
+                            .execute(getRedisConnection().sync(), ScriptOutputType.INTEGER, new String[]{leaseKey}, leaseToken);
+                    if (released != null && released > 0) {
+                        operationResponse.addEmptyResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null);
+                    } else {
+                        operationResponse.addEmptyResult(objectData, OperationStatus.SUCCESS, RESPONSE_NOT_HELD, "Lease expired or is held by another caller");
+                    }
+                } catch (Exception e) {
+                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERR, e.getMessage(), e);
+                }
+            }
+        } finally {
+            getRedisConnection().closeConnection();
+        }
+    }
+
+    /**
+     * @return Returns the Redis connection object on this instance
+     */
+    protected RedisConnection getRedisConnection() {
+        return _connection;
+    }
+}
@@ -14,33 +14,34 @@
  * limitations under the License.
  */
 
+
 package com.sonos.boomi.connector.redis.operation;
 
-import com.boomi.connector.api.*;
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.UpdateRequest;
 import com.sonos.boomi.connector.redis.RedisConnection;
-import com.sonos.boomi.connector.redis.util.StreamUtil;
-import com.sonos.boomi.connector.redis.util.StringUtil;
-import com.sonos.boomi.connector.redis.util.XmlUtil;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.HashSetXmlReader;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Responsible for unique getter logic when handling UPSERT operations for
- * Redis HashSet data types
+ * Redis HashSet data types.
+ *
+ * Documents are read with a pull parser and their fields are written in chunks as they are parsed, so large
+ * documents are upserted with flat memory. Documents with no more fields than the chunk size are written by a
+ * single command once fully parsed, so they are never partially written.
  */
 public class RedisUpsertHashSetOperation extends BaseRedisUpsertOperation {
 
-    private static final String RESPONSE_SUCCESS = "OK";
-    private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
-    private static final String RESPONSE_FAIL_ERROR = "ERR";
-    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+    private static final long DEFAULT_CHUNK_SIZE = 1000;
 
     /**
      * @param connection Connection provided by the Connector
@@ -56,74 +57,93 @@ public class RedisUpsertHashSetOperation extends BaseRedisUpsertOperation {
      */
     @Override
     protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
-        try {
-            for (ObjectData objectData : updateRequest) {
-                try (InputStream inputStream = objectData.getData()) {
-                    // Get inputs and validate
-                    Integer ttl = getTtl(objectData);
-                    String key = getKey(objectData);
-                    if (key == null) {
-                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
-                        continue;
-                    }
-
-                    // Transform input into lettuce.io compatible hset command input
-                    Map<String, String> data;
-                    try {
-                        data = getHsetInput(inputStream);
-                    } catch (Exception e) {
-                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, e.getMessage(), null);
-                        continue;
-                    }
-
-                    // Upsert cache and set ttl
-                    Long hsetResult = getRedisConnection().getConnection().sync().hset(key, data);
-                    operationResponse.getLogger().fine(String.format("'HSET %s' command returned %s", key, hsetResult));
-                    if (ttl > -1) {
-                        boolean expireResult = getRedisConnection().getConnection().sync().expire(key, ttl);
-                        operationResponse.getLogger().fine(String.format("'EXPIRE %s' command returned %s", key, expireResult == true ? 1 : 0));
-                    }
-
-                    // Send final response
-                    try (OutputStream outputStream = getContext().createTempOutputStream()) {
-                        StreamUtil.copy(inputStream, outputStream);
-                        try (InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(outputStream)) {
-                            operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
-                        }
-                    }
-                    return;
-                } catch (Exception e) {
-                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
-                    return;
-                }
-            }
-        } finally {
-            getRedisConnection().closeConnection();
+        int chunkSize = Math.max(1, getContext().getOperationProperties().getLongProperty("hsetChunkSize", DEFAULT_CHUNK_SIZE).intValue());
+        executeChunkedUpdate(updateRequest, operationResponse, new HashSetFormat(), chunkSize);
+    }
+
+    /**
+     * @param ttl Time-to-live in seconds to apply to the hash
+     * @param data Field/value pairs to write into the hash
+     * @return Returns the arguments of the hset-expire script
+     */
+    private static String[] toHsetExpireArgs(Integer ttl, Map<String, String> data) {
+        String[] args = new String[data.size() * 2 + 1];
+        args[0] = String.valueOf(ttl);
+        int i = 1;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            args[i++] = entry.getKey();
+            args[i++] = entry.getValue();
         }
+        return args;
     }
 
     /**
-     * @param data Document data to be converted to an HSET compatible data structure
-     * @return Returns a new instance to be used during HSET Redis commands
-     * @throws Exception
+     * HashSet documents, written in chunks of field/value pairs
      */
-    protected Map<String, String> getHsetInput(InputStream data) throws Exception {
-        Document doc = XmlUtil.parseStream(data);
-
-        NodeList items = doc.getElementsByTagName("Item");
-        HashMap<String, String> rtn = new HashMap<>(items.getLength());
-        for (int i = 0; i < items.getLength(); i++) {
-            Element node = (Element) items.item(i);
-            String id = XmlUtil.getTextContentByTagName(node, "ID");
-            if (StringUtil.isNullOrEmpty(id)) {
-                throw new Exception("ID is a required field");
-            }
-            String val = Objects.toString(XmlUtil.getTextContentByTagName(node, "Value"), "");
-            rtn.put(id, val);
+    private static class HashSetFormat implements ChunkedFormat<Map<String, String>> {
+
+        /**
+         * @param input Document data
+         * @param chunkSize Maximum number of fields per chunk
+         * @return Returns a reader splitting the fields of the document into chunks
+         * @throws XMLStreamException Thrown when the document can't be parsed
+         */
+        @Override
+        public ChunkReader<Map<String, String>> openReader(InputStream input, int chunkSize) throws XMLStreamException {
+            HashSetXmlReader reader = new HashSetXmlReader(input);
+            return new ChunkReader<Map<String, String>>(chunkSize) {
+                @Override
+                protected boolean next() throws XMLStreamException {
+                    return reader.next();
+                }
+
+                @Override
+                protected Map<String, String> newChunk() {
+                    return new HashMap<>();
+                }
+
+                @Override
+                protected int addItem(Map<String, String> chunk) {
+                    chunk.put(reader.getId(), reader.getValue());
+                    return chunk.size();
+                }
+
+                @Override
+                public void close() throws XMLStreamException {
+                    reader.close();
+                }
+            };
         }
-        data.reset();
 
-        return rtn;
+        /**
+         * @param commands Async commands used to queue the chunk
+         * @param key Prefixed key of the hash
+         * @param ttl Time-to-live in seconds to apply to the hash, or -1 for none
+         * @param chunk Field/value pairs to write into the hash
+         * @return Returns the future of the HSET command or hset-expire script
+         */
+        @Override
+        public RedisFuture<Long> dispatchChunk(RedisClusterAsyncCommands<String, String> commands, String key, Integer ttl, Map<String, String> chunk) {
+            return ttl > -1
+                    ? RedisScripts.getInstance().getHsetExpire().dispatch(commands, ScriptOutputType.INTEGER, new String[]{key}, toHsetExpireArgs(ttl, chunk))
+                    : commands.hset(key, chunk);
+        }
+
+        /**
+         * @return Returns the name of the command writing the chunks, used when logging results
+         */
+        @Override
+        public String getCommandName() {
+            return "HSET";
+        }
+
+        /**
+         * @return Returns the message reported for documents without any item
+         */
+        @Override
+        public String getEmptyDocumentMessage() {
+            return "HashSet document contains no items";
+        }
     }
 
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationResponse;
+import com.boomi.connector.api.UpdateRequest;
+import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.ScoreUtil;
+import com.sonos.boomi.connector.redis.util.SortedSetXmlReader;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for unique getter logic when handling UPSERT operations for
+ * Redis SortedSet data types.
+ *
+ * Documents are read with a pull parser and their members are added in chunks as they are parsed, so large
+ * documents are upserted with flat memory. Existing members keep their place in the sorted set and have their
+ * score updated. Documents with no more members than the chunk size are written by a single command once fully
+ * parsed, so they are never partially written.
+ */
+public class RedisUpsertSortedSetOperation extends BaseRedisUpsertOperation {
+
+    private static final long DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * @param connection Connection provided by the Connector
+     */
+    public RedisUpsertSortedSetOperation(RedisConnection connection) {
+        super(connection);
+    }
+
+    /**
+     * @param updateRequest {@link com.boomi.connector.api.UpdateRequest} object provided by the Atom for the execution of
+     *                                                             this UPSERT operation
+     * @param operationResponse Response object used to report success or failure of UPSERT operation processing
+     */
+    @Override
+    protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        int chunkSize = Math.max(1, getContext().getOperationProperties().getLongProperty("zaddChunkSize", DEFAULT_CHUNK_SIZE).intValue());
+        executeChunkedUpdate(updateRequest, operationResponse, new SortedSetFormat(), chunkSize);
+    }
+
+    /**
+     * @param ttl Time-to-live in seconds to apply to the sorted set
+     * @param chunk Members with their scores to add to the sorted set
+     * @return Returns the arguments of the zadd-expire script
+     */
+    private static String[] toZaddExpireArgs(Integer ttl, List<ScoredValue<String>> chunk) {
+        String[] args = new String[chunk.size() * 2 + 1];
+        args[0] = String.valueOf(ttl);
+        int i = 1;
+        for (ScoredValue<String> member : chunk) {
+            args[i++] = ScoreUtil.formatScore(member.getScore());
+            args[i++] = member.getValue();
+        }
+        return args;
+    }
+
+    /**
+     * SortedSet documents, written in chunks of scored members
+     */
+    private static class SortedSetFormat implements ChunkedFormat<List<ScoredValue<String>>> {
+
+        /**
+         * @param input Document data
+         * @param chunkSize Maximum number of members per chunk
+         * @return Returns a reader splitting the members of the document into chunks
+         * @throws XMLStreamException Thrown when the document can't be parsed
+         */
+        @Override
+        public ChunkReader<List<ScoredValue<String>>> openReader(InputStream input, int chunkSize) throws XMLStreamException {
+            SortedSetXmlReader reader = new SortedSetXmlReader(input);
+            return new ChunkReader<List<ScoredValue<String>>>(chunkSize) {
+                @Override
+                protected boolean next() throws XMLStreamException {
+                    return reader.next();
+                }
+
+                @Override
+                protected List<ScoredValue<String>> newChunk() {
+                    return new ArrayList<>();
+                }
+
+                @Override
+                protected int addItem(List<ScoredValue<String>> chunk) {
+                    chunk.add(ScoredValue.just(reader.getScore(), reader.getValue()));
+                    return chunk.size();
+                }
+
+                @Override
+                public void close() throws XMLStreamException {
+                    reader.close();
+                }
+            };
+        }
+
+        /**
+         * @param commands Async commands used to queue the chunk
+         * @param key Prefixed key of the sorted set
+         * @param ttl Time-to-live in seconds to apply to the sorted set, or -1 for none
+         * @param chunk Members with their scores to add to the sorted set
+         * @return Returns the future of the ZADD command or zadd-expire script
+         */
+        @Override
+        public RedisFuture<Long> dispatchChunk(RedisClusterAsyncCommands<String, String> commands, String key, Integer ttl, List<ScoredValue<String>> chunk) {
+            // ZADD accepts scored values through its untyped overload, which avoids a generic array
+            return ttl > -1
+                    ? RedisScripts.getInstance().getZaddExpire().dispatch(commands, ScriptOutputType.INTEGER, new String[]{key}, toZaddExpireArgs(ttl, chunk))
+                    : commands.zadd(key, chunk.toArray());
+        }
+
+        /**
+         * @return Returns the name of the command writing the chunks, used when logging results
+         */
+        @Override
+        public String getCommandName() {
+            return "ZADD";
+        }
+
+        /**
+         * @return Returns the message reported for documents without any item
+         */
+        @Override
+        public String getEmptyDocumentMessage() {
+            return "SortedSet document contains no members";
+        }
+    }
+
+}
@@ -18,24 +18,52 @@ package com.sonos.boomi.connector.redis.operation;
 
 import com.boomi.connector.api.*;
 import com.sonos.boomi.connector.redis.RedisConnection;
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.compression.ValueCompression;
+import com.sonos.boomi.connector.redis.largeobject.LargeObjects;
+import com.sonos.boomi.connector.redis.logging.OperationLogger;
+import com.sonos.boomi.connector.redis.pipeline.OrderedTaskWindow;
+import com.sonos.boomi.connector.redis.pipeline.PipelineListener;
+import com.sonos.boomi.connector.redis.pipeline.RedisCommandPipeline;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
 import com.sonos.boomi.connector.redis.util.StreamUtil;
+import com.sonos.boomi.connector.redis.util.TeeInputStream;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindBuffer;
+import com.sonos.boomi.connector.redis.writebehind.WriteBehindEntry;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Responsible for unique getter logic when handling UPSERT operations for
- * Redis HashSet data types
+ * Redis String data types.
+ *
+ * When a large object chunk size is configured, documents larger than a chunk are written as large objects
+ * (see {@link LargeObjects}) while they are read, instead of being read into memory and sent as a single SET.
+ *
+ * In write-behind mode, documents are acknowledged as soon as they are accepted by the connector-scoped
+ * {@link WriteBehindBuffer}, which writes them to Redis in the background. Large object chunking doesn't apply to
+ * buffered documents.
  */
 public class RedisUpsertStringOperation extends BaseRedisUpsertOperation {
 
     private static final String RESULT_SET_SUCCESS = "OK";
-    private static final String RESULT_SETEX_SUCCESS = "OK";
 
     private static final String RESPONSE_SUCCESS = "OK";
     private static final String RESPONSE_FAIL_NOKEY = "NO_KEY";
     private static final String RESPONSE_FAIL_ERROR = "ERR";
+    private static final String RESPONSE_FAIL_BUFFER_FULL = "BUFFER_FULL";
+    private static final String RESPONSE_FAIL_BADINPUT = "BAD_INPUT";
+
+    private static final long DEFAULT_LARGE_OBJECT_CHUNK_SIZE = 0;
+    private static final long MAX_BULK_LENGTH = 512L * 1024 * 1024;
 
     /**
      * @param connection Connection provided by the Connector
@@ -51,10 +79,19 @@ public class RedisUpsertStringOperation extends BaseRedisUpsertOperation {
      */
     @Override
     protected void executeUpdate(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        if (getContext().getOperationProperties().getBooleanProperty("writeBehind", false)) {
+            executeWriteBehind(updateRequest, operationResponse);
+            return;
+        }
+
         try {
-            for (ObjectData objectData : updateRequest) {
-                try (InputStream inputStream = objectData.getData())
-                {
+            StatefulConnection<String, String> connection = getRedisConnection().getConnection();
+            RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+            ValueCompression compression = _settings.getCompression();
+            long chunkSize = Math.max(0, getContext().getOperationProperties().getLongProperty("largeObjectChunkSize", DEFAULT_LARGE_OBJECT_CHUNK_SIZE));
+            try (RedisCommandPipeline<PendingSet> pipeline = createPipeline(connection, new SetListener(operationResponse));
+                 OrderedTaskWindow<PreparedSet> window = createTaskWindow()) {
+                for (ObjectData objectData : updateRequest) {
                     // Get inputs and validate
                     Integer ttl = getTtl(objectData);
                     String key = getKey(objectData);
@@ -63,33 +100,15 @@ public class RedisUpsertStringOperation extends BaseRedisUpsertOperation {
                         continue;
                     }
 
-                    // Upsert cache and set ttl
-                    boolean success = false;
-                    String result = null;
-                    String data = StreamUtil.readString(inputStream, StandardCharsets.UTF_8);
-                    if (ttl > -1) {
-                        result = getRedisConnection().getConnection().sync().setex(key, ttl, data);
-                        success = result == RESULT_SETEX_SUCCESS;
-                    } else {
-                        result = getRedisConnection().getConnection().sync().set(key, data);
-                        success = result == RESULT_SET_SUCCESS;
-                    }
-                    operationResponse.getLogger().fine(String.format("'SETEX %s' command returned %s", key, result));
-
-                    // Send final payload response
-                    if (success) {
-                        try (OutputStream outputStream = getContext().createTempOutputStream()) {
-                            StreamUtil.copy(inputStream, outputStream);
-                            try (InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(outputStream)) {
-                                operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
-                            }
-                        }
-                        return;
-                    } else {
-                        operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_ERROR, result, ResponseUtil.toPayload(data));
+                    // Documents are read and compressed by the window while earlier documents are dispatched
+                    window.submit(() -> prepareSet(objectData, key, ttl, compression, chunkSize));
+                    while (window.hasResult()) {
+                        dispatchSet(window.take(), commands, connection, pipeline, chunkSize, operationResponse);
                     }
-                } catch (Exception e) {
-                    operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+                }
+
+                while (!window.isEmpty()) {
+                    dispatchSet(window.take(), commands, connection, pipeline, chunkSize, operationResponse);
                 }
             }
         } finally {
@@ -97,4 +116,308 @@ public class RedisUpsertStringOperation extends BaseRedisUpsertOperation {
         }
     }
 
+    /**
+     * Reads and compresses a document. Runs on the task window, so failures are returned instead of thrown
+     * @param objectData Document to read
+     * @param key Prefixed key of the document
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     * @param compression Compression applied to the document bytes
+     * @param chunkSize Large object chunk size, or 0 if large objects are disabled
+     * @return Returns the prepared document
+     */
+    private static PreparedSet prepareSet(ObjectData objectData, String key, Integer ttl, ValueCompression compression, long chunkSize) {
+        try {
+            // Large objects are written while they are read, so they are read when dispatched
+            if (chunkSize > 0 && objectData.getDataSize() > chunkSize) {
+                return new PreparedSet(objectData, key, ttl, null, null);
+            }
+
+            try (InputStream inputStream = objectData.getData()) {
+                byte[] data = StreamUtil.readBytes(inputStream, objectData.getDataSize());
+                return new PreparedSet(objectData, key, ttl, data, compression.compress(data));
+            }
+        } catch (Exception e) {
+            return new PreparedSet(objectData, e);
+        }
+    }
+
+    /**
+     * Queues the commands of a prepared document on the pipeline
+     * @param prepared Document taken from the task window
+     * @param commands Async commands used to queue the commands
+     * @param connection Connection the commands are dispatched on
+     * @param pipeline Pipeline the document is submitted on
+     * @param chunkSize Large object chunk size, or 0 if large objects are disabled
+     * @param operationResponse Response object used to report failures
+     */
+    private void dispatchSet(PreparedSet prepared, RedisClusterAsyncCommands<String, String> commands, StatefulConnection<String, String> connection,
+                             RedisCommandPipeline<PendingSet> pipeline, long chunkSize, OperationResponse operationResponse) {
+        ObjectData objectData = prepared.getObjectData();
+        try {
+            if (prepared.getError() != null) {
+                throw prepared.getError();
+            }
+
+            String key = prepared.getKey();
+            if (prepared.getData() == null) {
+                // Stream documents larger than a chunk into a large object while keeping a copy for the response payload
+                try (InputStream inputStream = objectData.getData()) {
+                    OutputStream outputStream = getContext().createTempOutputStream();
+                    List<RedisFuture<?>> results;
+                    try {
+                        results = LargeObjects.write(commands, key, prepared.getTtl(), new TeeInputStream(inputStream, outputStream), (int) Math.min(chunkSize, Integer.MAX_VALUE - 8),
+                                pipeline::flushDispatched, connection.getTimeout());
+                    } catch (Exception e) {
+                        outputStream.close();
+                        throw e;
+                    }
+                    pipeline.submit(new PendingSet(objectData, key, outputStream, results), chunkSize, results);
+                }
+                return;
+            }
+
+            // Queue cache upsert and ttl. Only the stored bytes, already held by the command, are kept until the
+            // response payload is built from them, so pending documents don't also hold their uncompressed bytes
+            RedisFuture<String> result = BinaryCommands.set(commands, key, prepared.getStored(), prepared.getTtl());
+            List<RedisFuture<?>> results = Collections.singletonList(result);
+            pipeline.submit(new PendingSet(objectData, key, prepared.getStored(), results), prepared.getStored().length, results);
+        } catch (Exception e) {
+            operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hands every document to the write-behind buffer and reports it as upserted once the buffer accepted it.
+     * Buffered documents are written as single values, so documents larger than the large object chunk size, or
+     * than the default Redis bulk string limit when large objects are disabled, are rejected before they are read
+     * @param updateRequest Request containing the documents to upsert
+     * @param operationResponse Response object used to report results
+     */
+    private void executeWriteBehind(UpdateRequest updateRequest, OperationResponse operationResponse) {
+        WriteBehindBuffer buffer = getRedisConnection().getWriteBehindBuffer();
+        ValueCompression compression = _settings.getCompression();
+        OperationLogger logger = new OperationLogger(operationResponse.getLogger()).sampled(OperationLogger.DEFAULT_SAMPLE_RATE);
+        long chunkSize = Math.max(0, getContext().getOperationProperties().getLongProperty("largeObjectChunkSize", DEFAULT_LARGE_OBJECT_CHUNK_SIZE));
+        long maxSize = chunkSize > 0 ? chunkSize : MAX_BULK_LENGTH;
+        for (ObjectData objectData : updateRequest) {
+            try (InputStream inputStream = objectData.getData()) {
+                Integer ttl = getTtl(objectData);
+                String key = getKey(objectData);
+                if (key == null) {
+                    operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_NOKEY, "Key is a required document property", null);
+                    continue;
+                }
+                // Redis rejects an expire time of 0, so the write would be dropped after it was reported as upserted
+                if (ttl == 0) {
+                    operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, "Ttl must be greater than 0", null);
+                    continue;
+                }
+                // Redis would reject the value after it was reported as upserted, and large objects can't be buffered
+                if (objectData.getDataSize() > maxSize) {
+                    operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BADINPUT, "Document of " + objectData.getDataSize() + " bytes exceeds the write-behind limit of " + maxSize + " bytes", null);
+                    continue;
+                }
+
+                byte[] data = StreamUtil.readBytes(inputStream, objectData.getDataSize());
+                if (buffer.offer(new WriteBehindEntry(key, compression.compress(data), ttl))) {
+                    logger.fine("'SET %s' queued for write-behind", key);
+                    operationResponse.addResult(objectData, OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(new ByteArrayInputStream(data)));
+                } else {
+                    operationResponse.addResult(objectData, OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_BUFFER_FULL, "Write-behind buffer and journal are full", PayloadUtil.toPayload(new ByteArrayInputStream(data)));
+                }
+            } catch (Exception e) {
+                operationResponse.addErrorResult(objectData, OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reports the result of each pipelined SET/SETEX command or large object write
+     */
+    private class SetListener implements PipelineListener<PendingSet> {
+
+        private final OperationResponse _operationResponse;
+        private final OperationLogger _logger;
+        private final OperationLogger _sampledLogger;
+
+        /**
+         * @param operationResponse Response object used to report results
+         */
+        SetListener(OperationResponse operationResponse) {
+            _operationResponse = operationResponse;
+            _logger = new OperationLogger(operationResponse.getLogger());
+            _sampledLogger = _logger.sampled(OperationLogger.DEFAULT_SAMPLE_RATE);
+        }
+
+        /**
+         * @param pending Document whose SET/SETEX command or large object write completed
+         * @throws Exception Thrown when the command failed
+         */
+        @Override
+        public void onComplete(PendingSet pending) throws Exception {
+            // Large objects are committed by their last command
+            List<RedisFuture<?>> results = pending.getResults();
+            Object result = results.get(results.size() - 1).get();
+            if (pending.getOutputStream() != null) {
+                _logger.fine("Large object '%s' committed in %s commands", pending.getKey(), results.size());
+                try (OutputStream outputStream = pending.getOutputStream();
+                     InputStream payloadInputStream = getContext().tempOutputStreamToInputStream(outputStream)) {
+                    _operationResponse.addResult(pending.getObjectData(), OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
+                }
+                return;
+            }
+            _sampledLogger.fine("'SET %s' command returned %s", pending.getKey(), result);
+
+            // Send final payload response
+            try (InputStream payloadInputStream = _settings.getCompression().decompress(pending.getStored())) {
+                if (RESULT_SET_SUCCESS.equals(result)) {
+                    _operationResponse.addResult(pending.getObjectData(), OperationStatus.SUCCESS, RESPONSE_SUCCESS, null, PayloadUtil.toPayload(payloadInputStream));
+                } else {
+                    _operationResponse.addResult(pending.getObjectData(), OperationStatus.APPLICATION_ERROR, RESPONSE_FAIL_ERROR, String.valueOf(result), PayloadUtil.toPayload(payloadInputStream));
+                }
+            }
+        }
+
+        /**
+         * @param pending Document whose SET/SETEX command or large object write failed
+         * @param e Exception describing the failure
+         */
+        @Override
+        public void onError(PendingSet pending, Exception e) {
+            if (pending.getOutputStream() != null) {
+                try {
+                    pending.getOutputStream().close();
+                } catch (IOException ignored) {
+                }
+            }
+            _operationResponse.addErrorResult(pending.getObjectData(), OperationStatus.FAILURE, RESPONSE_FAIL_ERROR, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Document read and compressed by the task window, waiting to be dispatched
+     */
+    private static class PreparedSet {
+
+        private final ObjectData _objectData;
+        private final String _key;
+        private final Integer _ttl;
+        private final byte[] _data;
+        private final byte[] _stored;
+        private final Exception _error;
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+         * @param data Document bytes, before compression, or null if the document is written as a large object
+         * @param stored Document bytes as stored in Redis, or null if the document is written as a large object
+         */
+        PreparedSet(ObjectData objectData, String key, Integer ttl, byte[] data, byte[] stored) {
+            _objectData = objectData;
+            _key = key;
+            _ttl = ttl;
+            _data = data;
+            _stored = stored;
+            _error = null;
+        }
+
+        /**
+         * @param objectData Document being upserted
+         * @param error Exception thrown while the document was read
+         */
+        PreparedSet(ObjectData objectData, Exception error) {
+            _objectData = objectData;
+            _key = null;
+            _ttl = null;
+            _data = null;
+            _stored = null;
+            _error = error;
+        }
+
+        ObjectData getObjectData() {
+            return _objectData;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        Integer getTtl() {
+            return _ttl;
+        }
+
+        byte[] getData() {
+            return _data;
+        }
+
+        byte[] getStored() {
+            return _stored;
+        }
+
+        Exception getError() {
+            return _error;
+        }
+    }
+
+    /**
+     * Document whose SET/SETEX command or large object write has been queued on the pipeline
+     */
+    private static class PendingSet {
+
+        private final ObjectData _objectData;
+        private final String _key;
+        private final byte[] _stored;
+        private final OutputStream _outputStream;
+        private final List<RedisFuture<?>> _results;
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param stored Document bytes as written by the SET/SETEX command
+         * @param results Future of the SET/SETEX command
+         */
+        PendingSet(ObjectData objectData, String key, byte[] stored, List<RedisFuture<?>> results) {
+            _objectData = objectData;
+            _key = key;
+            _stored = stored;
+            _outputStream = null;
+            _results = results;
+        }
+
+        /**
+         * @param objectData Document being upserted
+         * @param key Prefixed key of the document
+         * @param outputStream Temporary stream holding a copy of the document used as the response payload
+         * @param results Futures of the commands of the large object write, ending with the commit
+         */
+        PendingSet(ObjectData objectData, String key, OutputStream outputStream, List<RedisFuture<?>> results) {
+            _objectData = objectData;
+            _key = key;
+            _stored = null;
+            _outputStream = outputStream;
+            _results = results;
+        }
+
+        ObjectData getObjectData() {
+            return _objectData;
+        }
+
+        String getKey() {
+            return _key;
+        }
+
+        byte[] getStored() {
+            return _stored;
+        }
+
+        OutputStream getOutputStream() {
+            return _outputStream;
+        }
+
+        List<RedisFuture<?>> getResults() {
+            return _results;
+        }
+    }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+/**
+ * Value read from Redis together with the TTL of its key
+ * @param <T> Type of the value
+ */
+class ValueWithTtl<T> {
+
+    private final T _value;
+    private final Long _ttl;
+    private final Long _sequence;
+
+    /**
+     * @param value Value read from Redis
+     * @param ttl Result of the TTL command for the key
+     */
+    ValueWithTtl(T value, Long ttl) {
+        this(value, ttl, null);
+    }
+
+    /**
+     * @param value Value read from Redis
+     * @param ttl Result of the TTL command for the key
+     * @param sequence Near cache invalidation sequence captured before the value was read, or null if it wasn't
+     *                 captured
+     */
+    ValueWithTtl(T value, Long ttl, Long sequence) {
+        _value = value;
+        _ttl = ttl;
+        _sequence = sequence;
+    }
+
+    T getValue() {
+        return _value;
+    }
+
+    Long getTtl() {
+        return _ttl;
+    }
+
+    Long getSequence() {
+        return _sequence;
+    }
+}
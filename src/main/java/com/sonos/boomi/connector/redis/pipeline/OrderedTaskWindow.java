@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs tasks on an executor while handing their results back in submission order.
+ *
+ * Operations submit the CPU and IO bound preparation of each document, such as reading, parsing, and
+ * compressing it, and take the prepared documents from the head of the window on their own thread to dispatch
+ * their commands. Up to the configured parallelism of documents are prepared concurrently while earlier documents
+ * are dispatched and awaited, so preparation overlaps with network waits without reordering results. With a
+ * parallelism of 1, tasks run on the submitting thread when they are submitted.
+ *
+ * Tasks are expected to report their failures in their result instead of throwing.
+ *
+ * @param <T> Type of the task results
+ */
+public class OrderedTaskWindow<T> implements AutoCloseable {
+
+    private final ExecutorService _executor;
+    private final int _parallelism;
+    private final Deque<Future<T>> _tasks = new ArrayDeque<>();
+
+    /**
+     * @param executor Executor running the tasks, or null to run every task on the submitting thread
+     * @param parallelism Maximum number of tasks submitted but not yet taken
+     */
+    public OrderedTaskWindow(ExecutorService executor, int parallelism) {
+        _parallelism = executor == null ? 1 : Math.max(1, parallelism);
+        _executor = _parallelism > 1 ? executor : null;
+    }
+
+    /**
+     * @param task Task to run. Callers must take a result while {@link #hasResult()} returns true before
+     *             submitting the next task
+     */
+    public void submit(Callable<T> task) {
+        if (_executor == null) {
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            _tasks.addLast(future);
+        } else {
+            _tasks.addLast(_executor.submit(task));
+        }
+    }
+
+    /**
+     * @return Returns whether the oldest task completed, or the window is full and the oldest task must be
+     * taken before another task is submitted
+     */
+    public boolean hasResult() {
+        Future<T> oldest = _tasks.peekFirst();
+        return oldest != null && (oldest.isDone() || _tasks.size() >= _parallelism);
+    }
+
+    /**
+     * @return Returns the maximum number of tasks submitted but not yet taken. A parallelism of 1 runs every
+     * task on the submitting thread
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * @return Returns whether all submitted tasks were taken
+     */
+    public boolean isEmpty() {
+        return _tasks.isEmpty();
+    }
+
+    /**
+     * Waits for the oldest task and removes it from the window
+     * @return Returns the result of the oldest task
+     * @throws IllegalStateException Thrown when the window is empty, the task threw, or the thread was interrupted
+     */
+    public T take() {
+        Future<T> oldest = _tasks.pollFirst();
+        if (oldest == null) {
+            throw new IllegalStateException("No task to take");
+        }
+
+        try {
+            return oldest.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a task", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the tasks that were not taken, e.g. when the operation failed
+     */
+    @Override
+    public void close() {
+        for (Future<T> task : _tasks) {
+            task.cancel(true);
+        }
+        _tasks.clear();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pipeline;
+
+/**
+ * Receives the outcome of each entry submitted to a {@link RedisCommandPipeline}. Callbacks are invoked on the
+ * submitting thread, in submission order
+ * @param <T> Type of the object tracked with each pipeline entry
+ */
+public interface PipelineListener<T> {
+
+    /**
+     * Called once every command future of the entry has completed
+     * @param tracked Object submitted with the entry
+     * @throws Exception Thrown when the entry's command results could not be processed. The exception is
+     * reported back through {@link #onError(Object, Exception)}
+     */
+    void onComplete(T tracked) throws Exception;
+
+    /**
+     * Called when the commands of the entry failed, timed out, or could not be processed
+     * @param tracked Object submitted with the entry
+     * @param e Exception describing the failure
+     */
+    void onError(T tracked, Exception e);
+}
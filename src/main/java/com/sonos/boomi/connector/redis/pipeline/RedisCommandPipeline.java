@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pipeline;
+
+import com.sonos.boomi.connector.redis.metrics.OperationMetrics;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes asynchronous Redis commands to a connection in batches instead of one network write per command.
+ *
+ * Callers dispatch commands through the connection's async API and submit the returned futures together with
+ * the object they belong to (typically the {@link com.boomi.connector.api.ObjectData} being processed).
+ * Auto-flush is disabled while the pipeline is open; queued commands are written once the configured number of
+ * entries or payload bytes is reached. When the number or payload bytes of written but uncompleted entries exceed
+ * the in-flight window, the oldest entries are awaited and reported to the {@link PipelineListener} before more
+ * are accepted, which bounds memory while keeping results in submission order.
+ *
+ * @param <T> Type of the object tracked with each entry
+ */
+public class RedisCommandPipeline<T> implements AutoCloseable {
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final StatefulConnection<?, ?> _connection;
+    private final RedisPipelineConfig _config;
+    private final PipelineListener<T> _listener;
+    private final OperationMetrics _metrics;
+    private final Deque<Entry<T>> _inFlight = new ArrayDeque<>();
+    private final Duration _timeout;
+    private int _queuedCount = 0;
+    private long _queuedBytes = 0;
+    private long _inFlightBytes = 0;
+    private boolean _closed = false;
+
+    /**
+     * @param connection Connection the commands are dispatched on. Auto-flush is disabled until the pipeline is closed
+     * @param config Settings used to size batches and bound in-flight entries
+     * @param listener Listener notified of the outcome of each entry
+     */
+    public RedisCommandPipeline(StatefulConnection<?, ?> connection, RedisPipelineConfig config, PipelineListener<T> listener) {
+        this(connection, config, listener, null);
+    }
+
+    /**
+     * @param connection Connection the commands are dispatched on. Auto-flush is disabled until the pipeline is closed
+     * @param config Settings used to size batches and bound in-flight entries
+     * @param listener Listener notified of the outcome of each entry
+     * @param metrics Metrics recording the number of entries written by each flush, or null
+     */
+    public RedisCommandPipeline(StatefulConnection<?, ?> connection, RedisPipelineConfig config, PipelineListener<T> listener, OperationMetrics metrics) {
+        _connection = connection;
+        _config = config;
+        _listener = listener;
+        _metrics = metrics;
+        _timeout = connection.getTimeout();
+        _connection.setAutoFlushCommands(false);
+    }
+
+    /**
+     * Submits the futures of commands already dispatched for an object
+     * @param tracked Object the commands belong to
+     * @param bytes Approximate payload size of the commands, used to trigger byte-based flushes and bound the
+     *              payload bytes held by in-flight entries
+     * @param futures Futures of the dispatched commands
+     */
+    public void submit(T tracked, long bytes, List<? extends RedisFuture<?>> futures) {
+        if (_closed) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+
+        _inFlight.addLast(new Entry<>(tracked, bytes, futures));
+        _queuedCount++;
+        _queuedBytes += bytes;
+        _inFlightBytes += bytes;
+        if (_queuedCount >= _config.getBatchSize() || _queuedBytes >= _config.getBatchBytes()) {
+            flush();
+        }
+
+        // Bound outstanding commands and the payloads they hold by completing the oldest entries first
+        while (_inFlight.size() > _config.getMaxInFlight() || (_inFlightBytes > _config.getMaxInFlightBytes() && !_inFlight.isEmpty())) {
+            if (_queuedCount > 0) {
+                flush();
+            }
+            complete(_inFlight.pollFirst());
+        }
+    }
+
+    /**
+     * Writes all queued commands to the connection
+     */
+    public void flush() {
+        if (_queuedCount == 0) {
+            return;
+        }
+
+        _connection.flushCommands();
+        recordBatch();
+    }
+
+    /**
+     * Writes all commands dispatched on the connection, including commands of an object that hasn't been
+     * submitted yet. Used to stream the leading commands of a large object instead of buffering them
+     */
+    public void flushDispatched() {
+        _connection.flushCommands();
+        recordBatch();
+    }
+
+    /**
+     * Writes all queued commands and reports the outcome of every remaining entry
+     */
+    public void drain() {
+        flush();
+        while (!_inFlight.isEmpty()) {
+            complete(_inFlight.pollFirst());
+        }
+    }
+
+    /**
+     * Waits for commands to complete. Cluster connections re-dispatch commands answered with a MOVED or ASK
+     * redirect on the connection of another node, where they stay queued while auto-flush is disabled, so the
+     * connection is flushed periodically while waiting
+     * @param futures Futures of the commands to wait for
+     * @return Returns whether all commands completed within the connection's timeout
+     */
+    public boolean await(Future<?>... futures) {
+        long deadline = System.nanoTime() + _timeout.toNanos();
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (ConnectionUtil.awaitAll(Math.min(remaining, FLUSH_INTERVAL_NANOS), TimeUnit.NANOSECONDS, futures)) {
+                return true;
+            }
+            _connection.flushCommands();
+        }
+    }
+
+    /**
+     * @return Returns the number of entries submitted but not yet reported
+     */
+    public int getInFlightCount() {
+        return _inFlight.size();
+    }
+
+    /**
+     * @return Returns the payload bytes of the entries submitted but not yet reported
+     */
+    public long getInFlightBytes() {
+        return _inFlightBytes;
+    }
+
+    /**
+     * Drains the pipeline and restores auto-flush on the connection
+     */
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+
+        try {
+            drain();
+        } finally {
+            _closed = true;
+            ConnectionUtil.restoreAutoFlush(_connection);
+        }
+    }
+
+    /**
+     * Records the size of the batch just written and starts a new batch
+     */
+    private void recordBatch() {
+        if (_metrics != null && _queuedCount > 0) {
+            _metrics.recordBatch(_queuedCount);
+        }
+        _queuedCount = 0;
+        _queuedBytes = 0;
+    }
+
+    /**
+     * Awaits the futures of an entry and reports its outcome to the listener
+     * @param entry Entry to complete
+     */
+    private void complete(Entry<T> entry) {
+        _inFlightBytes -= entry.getBytes();
+        try {
+            if (!await(entry.getFutures().toArray(new Future<?>[0]))) {
+                _listener.onError(entry.getTracked(), new RedisCommandTimeoutException("Command timed out after " + _timeout));
+                return;
+            }
+            for (RedisFuture<?> future : entry.getFutures()) {
+                future.get();
+            }
+            _listener.onComplete(entry.getTracked());
+        } catch (ExecutionException e) {
+            _listener.onError(entry.getTracked(), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (Exception e) {
+            _listener.onError(entry.getTracked(), e);
+        }
+    }
+
+    /**
+     * Tracked object and command futures submitted together
+     * @param <T> Type of the tracked object
+     */
+    private static class Entry<T> {
+
+        private final T _tracked;
+        private final long _bytes;
+        private final List<? extends RedisFuture<?>> _futures;
+
+        /**
+         * @param tracked Object the commands belong to
+         * @param bytes Approximate payload size of the commands
+         * @param futures Futures of the dispatched commands
+         */
+        Entry(T tracked, long bytes, List<? extends RedisFuture<?>> futures) {
+            _tracked = tracked;
+            _bytes = bytes;
+            _futures = futures;
+        }
+
+        T getTracked() {
+            return _tracked;
+        }
+
+        long getBytes() {
+            return _bytes;
+        }
+
+        List<? extends RedisFuture<?>> getFutures() {
+            return _futures;
+        }
+    }
+}
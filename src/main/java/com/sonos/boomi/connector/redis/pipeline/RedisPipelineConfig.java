@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pipeline;
+
+import com.boomi.connector.api.PropertyMap;
+
+/**
+ * Immutable settings used by {@link RedisCommandPipeline} to size command batches and bound in-flight commands
+ */
+public class RedisPipelineConfig {
+
+    private static final long DEFAULT_BATCH_SIZE = 256;
+    private static final long DEFAULT_BATCH_BYTES = 1024 * 1024;
+    private static final long DEFAULT_MAX_IN_FLIGHT = 1024;
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64 * 1024 * 1024;
+
+    private final int _batchSize;
+    private final long _batchBytes;
+    private final int _maxInFlight;
+    private final long _maxInFlightBytes;
+
+    /**
+     * @param batchSize Number of queued entries that triggers a flush of the pipeline
+     * @param batchBytes Number of queued payload bytes that triggers a flush of the pipeline
+     * @param maxInFlight Maximum number of entries written to Redis but not yet completed
+     */
+    public RedisPipelineConfig(int batchSize, long batchBytes, int maxInFlight) {
+        this(batchSize, batchBytes, maxInFlight, DEFAULT_MAX_IN_FLIGHT_BYTES);
+    }
+
+    /**
+     * @param batchSize Number of queued entries that triggers a flush of the pipeline
+     * @param batchBytes Number of queued payload bytes that triggers a flush of the pipeline
+     * @param maxInFlight Maximum number of entries written to Redis but not yet completed
+     * @param maxInFlightBytes Maximum number of payload bytes of the entries written to Redis but not yet completed
+     */
+    public RedisPipelineConfig(int batchSize, long batchBytes, int maxInFlight, long maxInFlightBytes) {
+        _batchSize = Math.max(1, batchSize);
+        _batchBytes = Math.max(1, batchBytes);
+        _maxInFlight = Math.max(_batchSize, maxInFlight);
+        _maxInFlightBytes = Math.max(_batchBytes, maxInFlightBytes);
+    }
+
+    /**
+     * @param properties Operation properties provided by the Boomi operation component
+     * @return Returns a new instance of {@link RedisPipelineConfig} using the pipeline settings of the
+     * operation component, falling back to defaults for any setting that is not provided
+     */
+    public static RedisPipelineConfig fromProperties(PropertyMap properties) {
+        return new RedisPipelineConfig(
+                properties.getLongProperty("pipelineBatchSize", DEFAULT_BATCH_SIZE).intValue(),
+                properties.getLongProperty("batchBytes", DEFAULT_BATCH_BYTES),
+                properties.getLongProperty("maxInFlight", DEFAULT_MAX_IN_FLIGHT).intValue(),
+                properties.getLongProperty("maxInFlightBytes", DEFAULT_MAX_IN_FLIGHT_BYTES)
+        );
+    }
+
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    public long getBatchBytes() {
+        return _batchBytes;
+    }
+
+    public int getMaxInFlight() {
+        return _maxInFlight;
+    }
+
+    public long getMaxInFlightBytes() {
+        return _maxInFlightBytes;
+    }
+}
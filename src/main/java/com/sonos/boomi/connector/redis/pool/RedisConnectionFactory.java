@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pool;
+
+import com.boomi.connector.api.PropertyMap;
+import com.sonos.boomi.connector.redis.script.RedisScripts;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.masterreplica.MasterReplica;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Opens new Redis connections for a {@link RedisConnectionPool}.
+ *
+ * Standalone and master/replica hosts are connected using {@link MasterReplica} on the connector's shared
+ * {@link RedisClient}. When cluster mode is enabled, connections are opened using a {@link RedisClusterClient}
+ * owned by this factory, which keeps the slot topology current through periodic and adaptive refreshes.
+ */
+public class RedisConnectionFactory implements Supplier<StatefulConnection<String, String>>, AutoCloseable {
+
+    private static final long DEFAULT_TOPOLOGY_REFRESH_SECONDS = 60;
+
+    private final Object synch = new Object();
+    private final RedisClient _redisClient;
+    private final List<RedisURI> _nodes;
+    private final boolean _cluster;
+    private final Duration _topologyRefreshPeriod;
+    private RedisClusterClient _clusterClient;
+
+    /**
+     * @param redisClient Shared client used for standalone connections and whose resources are shared with the cluster client
+     * @param nodes Redis URIs of the hosts
+     * @param cluster Whether the hosts are nodes of a Redis Cluster
+     * @param topologyRefreshPeriod Period of cluster topology refreshes. Zero disables periodic refreshes
+     */
+    public RedisConnectionFactory(RedisClient redisClient, List<RedisURI> nodes, boolean cluster, Duration topologyRefreshPeriod) {
+        _redisClient = redisClient;
+        _nodes = nodes;
+        _cluster = cluster;
+        _topologyRefreshPeriod = topologyRefreshPeriod;
+    }
+
+    /**
+     * @param redisClient Shared client used for standalone connections
+     * @param properties Connection properties provided by the Boomi connection component
+     * @return Returns a new instance of {@link RedisConnectionFactory} for the hosts and cluster settings of the
+     * connection component
+     */
+    public static RedisConnectionFactory fromProperties(RedisClient redisClient, PropertyMap properties) {
+        return new RedisConnectionFactory(
+                redisClient,
+                ConnectionUtil.parseHosts(properties.getProperty("hosts")),
+                properties.getBooleanProperty("clusterMode", false),
+                Duration.ofSeconds(properties.getLongProperty("topologyRefreshPeriod", DEFAULT_TOPOLOGY_REFRESH_SECONDS))
+        );
+    }
+
+    /**
+     * @return Returns a new Redis connection to the hosts with all connector scripts loaded
+     */
+    @Override
+    public StatefulConnection<String, String> get() {
+        StatefulConnection<String, String> connection;
+        RedisClusterCommands<String, String> commands;
+        if (_cluster) {
+            StatefulRedisClusterConnection<String, String> clusterConnection = getClusterClient().connect(StringCodec.UTF8);
+            connection = clusterConnection;
+            commands = clusterConnection.sync();
+        } else {
+            StatefulRedisMasterReplicaConnection<String, String> masterReplicaConnection = MasterReplica.connect(_redisClient, StringCodec.UTF8, _nodes);
+            connection = masterReplicaConnection;
+            commands = masterReplicaConnection.sync();
+        }
+
+        try {
+            RedisScripts.getInstance().load(commands);
+        } catch (RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * @return Returns whether connections are opened against a Redis Cluster
+     */
+    public boolean isCluster() {
+        return _cluster;
+    }
+
+    /**
+     * @return Returns a description of the hosts that is safe to log, i.e. without credentials
+     */
+    public String describeHosts() {
+        return ConnectionUtil.describeHosts(_nodes);
+    }
+
+    /**
+     * Shuts down the cluster client if one was created
+     */
+    @Override
+    public void close() {
+        synchronized (synch) {
+            if (_clusterClient != null) {
+                _clusterClient.shutdown();
+                _clusterClient = null;
+            }
+        }
+    }
+
+    /**
+     * @return Returns the cluster client of this factory, creating it on first use
+     */
+    private RedisClusterClient getClusterClient() {
+        synchronized (synch) {
+            if (_clusterClient == null) {
+                ClusterTopologyRefreshOptions.Builder refreshOptions = ClusterTopologyRefreshOptions.builder()
+                        .enableAllAdaptiveRefreshTriggers();
+                if (!_topologyRefreshPeriod.isZero() && !_topologyRefreshPeriod.isNegative()) {
+                    refreshOptions.enablePeriodicRefresh(_topologyRefreshPeriod);
+                }
+
+                RedisClusterClient clusterClient = RedisClusterClient.create(_redisClient.getResources(), _nodes);
+                clusterClient.setOptions(ClusterClientOptions.builder()
+                        .topologyRefreshOptions(refreshOptions.build())
+                        .build());
+                _clusterClient = clusterClient;
+            }
+            return _clusterClient;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pool;
+
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.api.StatefulConnection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Connector-scoped pool of Redis connections shared by every operation that targets the same hosts.
+ *
+ * Connections are borrowed exclusively by a {@link com.sonos.boomi.connector.redis.RedisConnection} for the
+ * duration of an operation execution and returned afterwards, so steady-state operations never pay the
+ * connect and topology discovery cost. Idle connections are reused most-recently-returned first, which lets
+ * surplus connections age out through idle eviction when load drops.
+ *
+ * The number of connections opened by the pool, borrowed or idle, is bounded by the configured maximum total.
+ * Borrowers of an exhausted pool wait up to the borrow timeout for a connection to be released, so a burst of
+ * concurrent executions can't open an unbounded number of connections to Redis.
+ *
+ * @param <C> Type of the pooled Lettuce connection
+ */
+public class RedisConnectionPool<C extends StatefulConnection<?, ?>> implements AutoCloseable {
+
+    private static final long EVICTION_INTERVAL_SECONDS = 30;
+
+    private final Object synch = new Object();
+    private final String _name;
+    private final Supplier<C> _factory;
+    private final RedisConnectionPoolConfig _config;
+    private final Deque<PooledConnection<C>> _idle = new ArrayDeque<>();
+    private final Map<C, PooledConnection<C>> _borrowed = new IdentityHashMap<>();
+    private int _opening = 0;
+    private ScheduledFuture<?> _evictionTask;
+    private boolean _closed = false;
+
+    /**
+     * @param name Name of the pool used when logging pool activity
+     * @param factory Factory used to open new connections when the pool has no reusable idle connection
+     * @param config Settings used to size and expire pooled connections
+     */
+    public RedisConnectionPool(String name, Supplier<C> factory, RedisConnectionPoolConfig config) {
+        _name = name;
+        _factory = factory;
+        _config = config;
+    }
+
+    /**
+     * Schedules periodic idle eviction and minimum idle replenishment on the provided scheduler
+     * @param scheduler Scheduler used to run the eviction task
+     */
+    public void startEviction(ScheduledExecutorService scheduler) {
+        synchronized (synch) {
+            if (_evictionTask != null || _closed) {
+                return;
+            }
+
+            _evictionTask = scheduler.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return Returns an open connection for exclusive use by the caller. The connection must be handed back
+     * using {@link #release(StatefulConnection)} once the caller is finished with it. Waits up to the borrow
+     * timeout for a connection to be released when the pool already opened its maximum number of connections
+     * @throws RedisConnectionException Thrown when no connection was released before the borrow timeout
+     */
+    public C borrow() {
+        long now = System.currentTimeMillis();
+        long deadline = now + _config.getBorrowTimeoutMillis();
+        PooledConnection<C> pooled;
+        List<PooledConnection<C>> discarded = new ArrayList<>();
+        synchronized (synch) {
+            while (true) {
+                if (_closed) {
+                    throw new IllegalStateException("Connection pool " + _name + " is closed");
+                }
+
+                while ((pooled = _idle.pollFirst()) != null && !isReusable(pooled, now)) {
+                    discarded.add(pooled);
+                }
+                if (pooled != null) {
+                    _borrowed.put(pooled.getConnection(), pooled);
+                    break;
+                }
+                if (!isExhausted()) {
+                    // Reserve the slot of the new connection before connecting outside of the lock
+                    _opening++;
+                    break;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new RedisConnectionException("Timed out after " + _config.getBorrowTimeoutMillis() + " ms waiting for one of the "
+                            + _config.getMaxTotal() + " connections of pool " + _name + " to be released");
+                }
+                try {
+                    synch.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RedisConnectionException("Interrupted while waiting for a connection of pool " + _name, e);
+                }
+                now = System.currentTimeMillis();
+            }
+            if (!discarded.isEmpty()) {
+                synch.notifyAll();
+            }
+        }
+        closeAll(discarded);
+        if (pooled != null) {
+            return pooled.getConnection();
+        }
+
+        // Connect outside of the lock so that a slow handshake doesn't block other borrowers
+        C connection = null;
+        try {
+            connection = _factory.get();
+        } finally {
+            synchronized (synch) {
+                _opening--;
+                if (connection != null) {
+                    _borrowed.put(connection, new PooledConnection<>(connection, now));
+                } else {
+                    synch.notifyAll();
+                }
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool. Connections that are closed, expired, or exceed the
+     * maximum idle count are closed instead of being pooled
+     * @param connection Connection previously returned by {@link #borrow()}
+     */
+    public void release(C connection) {
+        if (connection == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean keep = false;
+        synchronized (synch) {
+            PooledConnection<C> pooled = _borrowed.remove(connection);
+            if (pooled != null && !_closed && _idle.size() < _config.getMaxIdle() && isReusable(pooled, now)) {
+                // Borrowers may have disabled auto-flush to pipeline commands
+                connection.setAutoFlushCommands(true);
+                pooled.markIdle(now);
+                _idle.addFirst(pooled);
+                keep = true;
+            }
+            synch.notifyAll();
+        }
+
+        if (!keep) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Closes a borrowed connection instead of handing it back to the pool. Used when the borrower aborted a
+     * pipeline, so that commands still buffered on the connection are never written by a later borrower
+     * @param connection Connection previously returned by {@link #borrow()}
+     */
+    public void invalidate(C connection) {
+        if (connection == null) {
+            return;
+        }
+
+        synchronized (synch) {
+            _borrowed.remove(connection);
+            synch.notifyAll();
+        }
+        close(connection);
+    }
+
+    /**
+     * Closes idle connections that exceeded the idle timeout or maximum lifetime, then opens new connections
+     * until the pool holds the configured minimum number of idle connections
+     */
+    public void evict() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection<C>> discarded = new ArrayList<>();
+        int missing;
+        synchronized (synch) {
+            if (_closed) {
+                return;
+            }
+
+            // Oldest idle connections sit at the tail of the deque
+            Iterator<PooledConnection<C>> iterator = _idle.descendingIterator();
+            while (iterator.hasNext()) {
+                PooledConnection<C> pooled = iterator.next();
+                boolean idleExpired = _config.getIdleTimeoutMillis() > 0
+                        && now - pooled.getIdleSince() > _config.getIdleTimeoutMillis()
+                        && _idle.size() > _config.getMinIdle();
+                if (idleExpired || !isReusable(pooled, now)) {
+                    iterator.remove();
+                    discarded.add(pooled);
+                }
+            }
+            missing = _config.getMinIdle() - _idle.size();
+            if (!discarded.isEmpty()) {
+                synch.notifyAll();
+            }
+        }
+        closeAll(discarded);
+
+        for (int i = 0; i < missing; i++) {
+            synchronized (synch) {
+                if (_closed || isExhausted()) {
+                    return;
+                }
+                _opening++;
+            }
+
+            PooledConnection<C> pooled = null;
+            try {
+                pooled = new PooledConnection<>(_factory.get(), now);
+                pooled.markIdle(now);
+            } catch (Exception e) {
+                ContainerLogger.getInstance().log(Level.WARNING, "Unable to replenish Redis connection pool " + _name, e);
+            }
+
+            boolean closed;
+            synchronized (synch) {
+                _opening--;
+                closed = _closed;
+                if (pooled != null && !closed) {
+                    _idle.addLast(pooled);
+                }
+                synch.notifyAll();
+            }
+            if (pooled == null) {
+                return;
+            }
+            if (closed) {
+                close(pooled.getConnection());
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Returns the number of connections currently borrowed from the pool
+     */
+    public int getBorrowedCount() {
+        synchronized (synch) {
+            return _borrowed.size();
+        }
+    }
+
+    /**
+     * @return Returns the number of connections opened by the pool, borrowed, idle, or being connected
+     */
+    public int getTotalCount() {
+        synchronized (synch) {
+            return _borrowed.size() + _idle.size() + _opening;
+        }
+    }
+
+    /**
+     * @return Returns the number of idle connections currently held by the pool
+     */
+    public int getIdleCount() {
+        synchronized (synch) {
+            return _idle.size();
+        }
+    }
+
+    /**
+     * Closes all idle connections, stops eviction, and closes the connection factory if it holds resources.
+     * Borrowed connections are closed as they are released
+     */
+    @Override
+    public void close() {
+        List<PooledConnection<C>> discarded;
+        synchronized (synch) {
+            if (_closed) {
+                return;
+            }
+
+            _closed = true;
+            if (_evictionTask != null) {
+                _evictionTask.cancel(false);
+            }
+            discarded = new ArrayList<>(_idle);
+            _idle.clear();
+            // Waiting borrowers fail fast instead of waiting for the borrow timeout
+            synch.notifyAll();
+        }
+        closeAll(discarded);
+
+        if (_factory instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) _factory).close();
+            } catch (Exception e) {
+                ContainerLogger.getInstance().log(Level.FINE, "Unable to close Redis connection factory of pool " + _name, e);
+            }
+        }
+    }
+
+    /**
+     * Must be called while holding the pool lock
+     * @return Returns whether the pool already opened its maximum number of connections
+     */
+    private boolean isExhausted() {
+        return _config.getMaxTotal() > 0 && _borrowed.size() + _idle.size() + _opening >= _config.getMaxTotal();
+    }
+
+    /**
+     * @param pooled Pooled connection to check
+     * @param now Current time in milliseconds
+     * @return Returns whether the connection is open and within its maximum lifetime
+     */
+    private boolean isReusable(PooledConnection<C> pooled, long now) {
+        if (!pooled.getConnection().isOpen()) {
+            return false;
+        }
+        return _config.getMaxLifetimeMillis() == 0 || now - pooled.getCreatedAt() < _config.getMaxLifetimeMillis();
+    }
+
+    /**
+     * @param connections Pooled connections to close
+     */
+    private void closeAll(List<PooledConnection<C>> connections) {
+        for (PooledConnection<C> pooled : connections) {
+            close(pooled.getConnection());
+        }
+    }
+
+    /**
+     * @param connection Connection to close. Failures are logged and otherwise ignored
+     */
+    private void close(C connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            ContainerLogger.getInstance().log(Level.FINE, "Unable to close pooled Redis connection", e);
+        }
+    }
+
+    /**
+     * Tracks the lifetime of a single pooled connection
+     * @param <C> Type of the pooled Lettuce connection
+     */
+    private static class PooledConnection<C> {
+
+        private final C _connection;
+        private final long _createdAt;
+        private long _idleSince;
+
+        /**
+         * @param connection Connection being pooled
+         * @param createdAt Time in milliseconds the connection was opened
+         */
+        PooledConnection(C connection, long createdAt) {
+            _connection = connection;
+            _createdAt = createdAt;
+            _idleSince = createdAt;
+        }
+
+        /**
+         * @param now Time in milliseconds the connection was returned to the pool
+         */
+        void markIdle(long now) {
+            _idleSince = now;
+        }
+
+        C getConnection() {
+            return _connection;
+        }
+
+        long getCreatedAt() {
+            return _createdAt;
+        }
+
+        long getIdleSince() {
+            return _idleSince;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pool;
+
+import com.boomi.connector.api.PropertyMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable settings used by {@link RedisConnectionPool} to size and expire pooled connections
+ */
+public class RedisConnectionPoolConfig {
+
+    private static final long DEFAULT_MIN_IDLE = 0;
+    private static final long DEFAULT_MAX_IDLE = 8;
+    private static final long DEFAULT_MAX_LIFETIME_SECONDS = 1800;
+    private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    private static final long DEFAULT_MAX_TOTAL = 64;
+    private static final long DEFAULT_BORROW_TIMEOUT_SECONDS = 10;
+
+    private final int _minIdle;
+    private final int _maxIdle;
+    private final long _maxLifetimeMillis;
+    private final long _idleTimeoutMillis;
+    private final int _maxTotal;
+    private final long _borrowTimeoutMillis;
+
+    /**
+     * @param minIdle Minimum number of idle connections kept open by the pool
+     * @param maxIdle Maximum number of idle connections kept open by the pool
+     * @param maxLifetimeMillis Maximum age of a pooled connection in milliseconds. Zero disables the limit
+     * @param idleTimeoutMillis Time in milliseconds an idle connection is kept before eviction. Zero disables eviction
+     * @param maxTotal Maximum number of connections opened by the pool, borrowed or idle. Zero disables the limit
+     * @param borrowTimeoutMillis Time in milliseconds a borrower waits for a connection while the pool is exhausted
+     */
+    public RedisConnectionPoolConfig(int minIdle, int maxIdle, long maxLifetimeMillis, long idleTimeoutMillis, int maxTotal, long borrowTimeoutMillis) {
+        _maxTotal = Math.max(0, maxTotal);
+        _maxIdle = _maxTotal == 0 ? Math.max(0, maxIdle) : Math.max(0, Math.min(maxIdle, _maxTotal));
+        _minIdle = Math.max(0, Math.min(minIdle, _maxIdle));
+        _maxLifetimeMillis = Math.max(0, maxLifetimeMillis);
+        _idleTimeoutMillis = Math.max(0, idleTimeoutMillis);
+        _borrowTimeoutMillis = Math.max(0, borrowTimeoutMillis);
+    }
+
+    /**
+     * @param properties Connection properties provided by the Boomi connection component
+     * @return Returns a new instance of {@link RedisConnectionPoolConfig} using the pool settings of the
+     * connection component, falling back to defaults for any setting that is not provided
+     */
+    public static RedisConnectionPoolConfig fromProperties(PropertyMap properties) {
+        return new RedisConnectionPoolConfig(
+                properties.getLongProperty("poolMinIdle", DEFAULT_MIN_IDLE).intValue(),
+                properties.getLongProperty("poolMaxIdle", DEFAULT_MAX_IDLE).intValue(),
+                TimeUnit.SECONDS.toMillis(properties.getLongProperty("poolMaxLifetime", DEFAULT_MAX_LIFETIME_SECONDS)),
+                TimeUnit.SECONDS.toMillis(properties.getLongProperty("poolIdleTimeout", DEFAULT_IDLE_TIMEOUT_SECONDS)),
+                properties.getLongProperty("poolMaxTotal", DEFAULT_MAX_TOTAL).intValue(),
+                TimeUnit.SECONDS.toMillis(properties.getLongProperty("poolBorrowTimeout", DEFAULT_BORROW_TIMEOUT_SECONDS))
+        );
+    }
+
+    public int getMinIdle() {
+        return _minIdle;
+    }
+
+    public int getMaxIdle() {
+        return _maxIdle;
+    }
+
+    public long getMaxLifetimeMillis() {
+        return _maxLifetimeMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return _idleTimeoutMillis;
+    }
+
+    public int getMaxTotal() {
+        return _maxTotal;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return _borrowTimeoutMillis;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.script;
+
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Server-side Lua script executed by its SHA1 digest using EVALSHA, so the script body is only sent to Redis
+ * when it is loaded into the script cache, or when Redis reports that the script is missing from it
+ */
+public class RedisScript {
+
+    private final static String RESOURCE_NAME_FORMAT = "redis-script-{name}.lua";
+
+    private final String _name;
+    private final String _source;
+    private final String _sha;
+    private final Runnable _onNoScript;
+
+    /**
+     * @param name Name of the script. The script body is loaded from the redis-script-{name}.lua resource
+     * @param onNoScript Callback invoked when Redis reports that the script is missing from its script cache
+     * @throws IOException Thrown when the script resource could not be read
+     */
+    RedisScript(String name, Runnable onNoScript) throws IOException {
+        _name = name;
+        _source = readResource(RESOURCE_NAME_FORMAT.replace("{name}", name));
+        _sha = sha1(_source);
+        _onNoScript = onNoScript;
+    }
+
+    /**
+     * Queues an EVALSHA command for the script on the provided async commands. When Redis reports that the script
+     * is missing from its script cache, e.g. after SCRIPT FLUSH or a failover, the command is sent again using
+     * EVAL, so the document still succeeds
+     * @param commands Async commands used to dispatch the script
+     * @param type Output type of the script result
+     * @param keys Keys accessed by the script
+     * @param args Arguments passed to the script
+     * @param <T> Type of the script result
+     * @return Returns the future of the script result
+     */
+    public <T> RedisFuture<T> dispatch(RedisClusterAsyncCommands<String, String> commands, ScriptOutputType type, String[] keys, String... args) {
+        ScriptFuture<T> future = new ScriptFuture<>();
+        RedisFuture<T> evalsha = commands.evalsha(_sha, type, keys, args);
+        evalsha.whenComplete((result, e) -> {
+            if (!(e instanceof RedisNoScriptException)) {
+                future.completeWith(result, e);
+                return;
+            }
+
+            _onNoScript.run();
+            RedisFuture<T> eval = commands.eval(_source, type, keys, args);
+            eval.whenComplete(future::completeWith);
+            // The dispatching thread may have disabled auto-flush, and may not flush the connection again
+            ConnectionUtil.connection(commands).flushCommands();
+        });
+        return future;
+    }
+
+    /**
+     * Executes the script using EVALSHA, falling back to EVAL when the script is missing from the script cache
+     * @param commands Sync commands used to execute the script
+     * @param type Output type of the script result
+     * @param keys Keys accessed by the script
+     * @param args Arguments passed to the script
+     * @param <T> Type of the script result
+     * @return Returns the script result
+     */
+    public <T> T execute(RedisClusterCommands<String, String> commands, ScriptOutputType type, String[] keys, String... args) {
+        try {
+            return commands.evalsha(_sha, type, keys, args);
+        } catch (RedisNoScriptException e) {
+            _onNoScript.run();
+            return commands.eval(_source, type, keys, args);
+        }
+    }
+
+    /**
+     * Loads the script into the Redis script cache
+     * @param commands Sync commands used to load the script
+     */
+    public void load(RedisClusterCommands<String, String> commands) {
+        commands.scriptLoad(_source);
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public String getSha() {
+        return _sha;
+    }
+
+    /**
+     * @param resourceName Name of the classpath resource to read
+     * @return Returns the UTF-8 contents of the resource
+     * @throws IOException Thrown when the resource could not be found or read
+     */
+    private String readResource(String resourceName) throws IOException {
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            if (stream == null) {
+                throw new IOException("Script resource " + resourceName + " not found");
+            }
+            return com.boomi.util.StreamUtil.toString(stream, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param source Script body
+     * @return Returns the hex encoded SHA1 digest Redis uses to identify the script
+     */
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
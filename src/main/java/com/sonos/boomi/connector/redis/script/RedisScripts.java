@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.script;
+
+import com.boomi.connector.api.ConnectorException;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+
+/**
+ * Responsible for the creation of a singleton instance that stores all server-side scripts used by operations.
+ *
+ * Scripts are loaded into the Redis script cache whenever the connector opens a new connection. If Redis later
+ * reports a missing script (e.g. after SCRIPT FLUSH or a failover), the script is sent again using EVAL and
+ * the scripts are reloaded the next time a connection is borrowed.
+ */
+public class RedisScripts {
+
+    private final static String RUNTIME_EX = "Use getInstance() method to get the single instance of this class.";
+
+    private volatile static RedisScripts singleton;
+
+    private final RedisScript _hsetExpire;
+    private final RedisScript _zaddExpire;
+    private final RedisScript _largeObjectPrepare;
+    private final RedisScript _largeObjectCommit;
+    private final RedisScript _leaseRelease;
+    private final RedisScript[] _scripts;
+    private volatile boolean _reloadRequired = false;
+
+    /**
+     * Creates a singleton instance if one does not yet exist
+     * @throws RuntimeException Thrown if a singleton instance already exists
+     */
+    private RedisScripts() {
+        if (singleton != null) {
+            throw new RuntimeException(RUNTIME_EX);
+        }
+
+        try {
+            Runnable onNoScript = () -> _reloadRequired = true;
+            _hsetExpire = new RedisScript("hset-expire", onNoScript);
+            _zaddExpire = new RedisScript("zadd-expire", onNoScript);
+            _largeObjectPrepare = new RedisScript("large-object-prepare", onNoScript);
+            _largeObjectCommit = new RedisScript("large-object-commit", onNoScript);
+            _leaseRelease = new RedisScript("lease-release", onNoScript);
+            _scripts = new RedisScript[]{_hsetExpire, _zaddExpire, _largeObjectPrepare, _largeObjectCommit, _leaseRelease};
+        } catch (Exception e) {
+            throw new ConnectorException(e);
+        }
+    }
+
+    /**
+     * @return Returns a singleton instance of this class
+     */
+    public static RedisScripts getInstance() {
+        if (singleton == null) {
+            synchronized (RedisScripts.class) {
+                if (singleton == null)
+                    singleton = new RedisScripts();
+            }
+        }
+
+        return singleton;
+    }
+
+    /**
+     * Loads all scripts into the Redis script cache
+     * @param commands Sync commands used to load the scripts
+     */
+    public void load(RedisClusterCommands<String, String> commands) {
+        for (RedisScript script : _scripts) {
+            script.load(commands);
+        }
+    }
+
+    /**
+     * Reloads all scripts if Redis reported a missing script since they were last loaded
+     * @param commands Sync commands used to load the scripts
+     */
+    public void reloadIfRequired(RedisClusterCommands<String, String> commands) {
+        if (!_reloadRequired) {
+            return;
+        }
+
+        _reloadRequired = false;
+        load(commands);
+    }
+
+    /**
+     * @return Returns the script that writes hash fields and applies the key expiration in a single atomic step.
+     * KEYS[1] is the hash key, ARGV[1] the ttl in seconds (-1 for none) and ARGV[2..n] field/value pairs
+     */
+    public RedisScript getHsetExpire() {
+        return _hsetExpire;
+    }
+
+    /**
+     * @return Returns the script that adds sorted set members and applies the key expiration in a single atomic
+     * step. KEYS[1] is the sorted set key, ARGV[1] the ttl in seconds (-1 for none) and ARGV[2..n] score/member pairs
+     */
+    public RedisScript getZaddExpire() {
+        return _zaddExpire;
+    }
+
+    /**
+     * @return Returns the script that deletes the value at a key unless it is a hash, so the chunks of a large
+     * object can be written into it. KEYS[1] is the key
+     */
+    public RedisScript getLargeObjectPrepare() {
+        return _largeObjectPrepare;
+    }
+
+    /**
+     * @return Returns the script that publishes the manifest of a large object, deletes the chunks of the
+     * previous large object and applies the key expiration in a single atomic step. KEYS[1] is the hash key,
+     * ARGV[1] the ttl in seconds (-1 for none) and ARGV[2] the manifest
+     */
+    public RedisScript getLargeObjectCommit() {
+        return _largeObjectCommit;
+    }
+
+    /**
+     * @return Returns the script that deletes a lease only if it is still held by the provided token. KEYS[1] is
+     * the lease key and ARGV[1] the token
+     */
+    public RedisScript getLeaseRelease() {
+        return _leaseRelease;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.script;
+
+import io.lettuce.core.RedisFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future of a script dispatched asynchronously, completed with the result of EVALSHA or, when the script was
+ * missing from the script cache, of the EVAL command sent in its place
+ * @param <T> Type of the script result
+ */
+class ScriptFuture<T> extends CompletableFuture<T> implements RedisFuture<T> {
+
+    private volatile String _error;
+
+    /**
+     * Completes the future with the outcome of a command
+     * @param result Result of the command
+     * @param error Failure of the command, or null if it succeeded
+     */
+    void completeWith(T result, Throwable error) {
+        if (error != null) {
+            _error = error.getMessage();
+            completeExceptionally(error);
+        } else {
+            complete(result);
+        }
+    }
+
+    @Override
+    public String getError() {
+        return _error;
+    }
+
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.util;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Contains helpful methods used to issue commands on standalone, master/replica, and cluster connections alike
+ */
+public class ConnectionUtil {
+
+    /**
+     * @param connection Standalone, master/replica, or cluster connection
+     * @return Returns the synchronous command API of the connection
+     */
+    @SuppressWarnings("unchecked")
+    public static RedisClusterCommands<String, String> sync(StatefulConnection<String, String> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<String, String>) connection).sync();
+        }
+        return ((StatefulRedisConnection<String, String>) connection).sync();
+    }
+
+    /**
+     * @param connection Standalone, master/replica, or cluster connection
+     * @return Returns the asynchronous command API of the connection
+     */
+    @SuppressWarnings("unchecked")
+    public static RedisClusterAsyncCommands<String, String> async(StatefulConnection<String, String> connection) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<String, String>) connection).async();
+        }
+        return ((StatefulRedisConnection<String, String>) connection).async();
+    }
+
+    /**
+     * @param commands Asynchronous command API of a standalone, master/replica, or cluster connection
+     * @return Returns the connection the commands are sent on
+     */
+    public static StatefulConnection<String, String> connection(RedisClusterAsyncCommands<String, String> commands) {
+        if (commands instanceof RedisAdvancedClusterAsyncCommands) {
+            return ((RedisAdvancedClusterAsyncCommands<String, String>) commands).getStatefulConnection();
+        }
+        return ((RedisAsyncCommands<String, String>) commands).getStatefulConnection();
+    }
+
+    /**
+     * Restores auto-flush on a connection after its commands were written with a manual flush. Cluster connections
+     * re-dispatch commands answered with a MOVED or ASK redirect on the connection of another node, where they stay
+     * queued if the redirect arrived while auto-flush was disabled, so the connection is flushed once more
+     * @param connection Connection whose auto-flush was disabled
+     */
+    public static void restoreAutoFlush(StatefulConnection<?, ?> connection) {
+        connection.setAutoFlushCommands(true);
+        connection.flushCommands();
+    }
+
+    /**
+     * Waits for a command to complete, cancelling it when it doesn't complete in time
+     * @param future Future of the command
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @param <T> Type of the command result
+     * @return Returns the result of the command
+     * @throws RedisCommandTimeoutException Thrown when the command didn't complete in time
+     * @throws RedisException Thrown when the command failed, wrapping the error unless it is a Redis error
+     */
+    public static <T> T awaitOrCancel(RedisFuture<T> future, long timeout, TimeUnit unit) {
+        try {
+            return future.get(timeout, unit);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RedisCommandTimeoutException("Command timed out after " + timeout + " " + unit.name().toLowerCase());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RedisException) {
+                throw (RedisException) e.getCause();
+            }
+            throw new RedisException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisCommandInterruptedException(e);
+        }
+    }
+
+    /**
+     * Waits for commands to complete. Commands that fail count as completed, so callers read the outcome of each
+     * command from its own future
+     * @param timeout Maximum time to wait for all commands together
+     * @param unit Unit of the timeout
+     * @param futures Futures of the commands
+     * @return Returns whether all commands completed in time
+     */
+    public static boolean awaitAll(long timeout, TimeUnit unit, Future<?>... futures) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    // Reported through the future by the caller
+                }
+            }
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisCommandInterruptedException(e);
+        }
+    }
+
+    /**
+     * @param connection Connection to check
+     * @return Returns whether the connection is a Redis Cluster connection
+     */
+    public static boolean isCluster(StatefulConnection<?, ?> connection) {
+        return connection instanceof StatefulRedisClusterConnection;
+    }
+
+    /**
+     * @param connection Standalone, master/replica, or cluster connection
+     * @return Returns a connection to every upstream node of a cluster connection, or the connection itself for
+     * standalone and master/replica connections. Node connections are owned by the cluster connection and must not
+     * be closed by the caller
+     */
+    @SuppressWarnings("unchecked")
+    public static List<StatefulConnection<String, String>> getUpstreamConnections(StatefulConnection<String, String> connection) {
+        List<StatefulConnection<String, String>> connections = new ArrayList<>();
+        if (connection instanceof StatefulRedisClusterConnection) {
+            StatefulRedisClusterConnection<String, String> clusterConnection = (StatefulRedisClusterConnection<String, String>) connection;
+            for (RedisClusterNode node : clusterConnection.getPartitions()) {
+                if (node.is(RedisClusterNode.NodeFlag.UPSTREAM)) {
+                    connections.add(clusterConnection.getConnection(node.getNodeId()));
+                }
+            }
+        } else {
+            connections.add(connection);
+        }
+        return connections;
+    }
+
+    /**
+     * Groups keys by the cluster hash slot they map to, so that multi-key commands never span slots. When the
+     * connection is not a cluster connection all keys are returned in a single group
+     * @param connection Connection the keys will be sent on
+     * @param keys Keys to group
+     * @return Returns the indexes of the provided keys grouped by hash slot. Groups and indexes within each group
+     * retain the order of the provided keys
+     */
+    public static Collection<List<Integer>> groupBySlot(StatefulConnection<?, ?> connection, List<String> keys) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        boolean cluster = isCluster(connection);
+        for (int i = 0; i < keys.size(); i++) {
+            int slot = cluster ? SlotHash.getSlot(keys.get(i)) : 0;
+            groups.computeIfAbsent(slot, k -> new ArrayList<>()).add(i);
+        }
+        return groups.values();
+    }
+
+    /**
+     * @param keys Keys to select from
+     * @param indexes Indexes of the keys to select
+     * @return Returns the selected keys as an array
+     */
+    public static String[] selectKeys(List<String> keys, List<Integer> indexes) {
+        String[] selected = new String[indexes.size()];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = keys.get(indexes.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Sets the read routing policy of the connection. Write commands are always routed to the upstream node
+     * regardless of the policy. Standalone connections have a single node and ignore the policy
+     * @param connection Connection to route reads on
+     * @param readFrom Read routing policy
+     */
+    public static void setReadFrom(StatefulConnection<?, ?> connection, ReadFrom readFrom) {
+        if (connection instanceof StatefulRedisClusterConnection) {
+            ((StatefulRedisClusterConnection<?, ?>) connection).setReadFrom(readFrom);
+        } else if (connection instanceof StatefulRedisMasterReplicaConnection) {
+            ((StatefulRedisMasterReplicaConnection<?, ?>) connection).setReadFrom(readFrom);
+        }
+    }
+
+    /**
+     * @param value Name of a read routing policy as configured on the connection or operation component
+     * @param defaultValue Policy to return when no policy name is provided
+     * @return Returns the read routing policy for the provided name
+     */
+    public static ReadFrom parseReadFrom(String value, ReadFrom defaultValue) {
+        if (StringUtil.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+
+        switch (value) {
+            case "UPSTREAM":
+                return ReadFrom.UPSTREAM;
+            case "UPSTREAM_PREFERRED":
+                return ReadFrom.UPSTREAM_PREFERRED;
+            case "REPLICA":
+                return ReadFrom.REPLICA;
+            case "REPLICA_PREFERRED":
+                return ReadFrom.REPLICA_PREFERRED;
+            case "LOWEST_LATENCY":
+                return ReadFrom.NEAREST;
+            case "ANY":
+                return ReadFrom.ANY;
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * @param hosts Semicolon delimited Redis URIs
+     * @return Returns the parsed Redis URIs
+     */
+    public static List<RedisURI> parseHosts(String hosts) {
+        return Arrays.stream(hosts.split(";"))
+                .filter(host -> !StringUtil.isNullOrEmpty(host.trim()))
+                .map(host -> RedisURI.create(host.trim()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param nodes Redis URIs
+     * @return Returns a description of the hosts that is safe to log, i.e. without credentials
+     */
+    public static String describeHosts(List<RedisURI> nodes) {
+        return nodes.stream()
+                .map(uri -> uri.getHost() + ":" + uri.getPort())
+                .collect(Collectors.joining(";"));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Pull parser reading the items of a HashSet document one at a time.
+ *
+ * Documents have the shape {@code <HashSet><Item><ID>field</ID><Value>value</Value></Item>...</HashSet>}. Only
+ * the current item is held in memory, so documents of any size are read with flat memory.
+ */
+public class HashSetXmlReader implements AutoCloseable {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final XMLStreamReader _reader;
+    private String _id;
+    private String _value;
+
+    /**
+     * @param input Stream containing the HashSet document
+     * @throws XMLStreamException Thrown when the stream can't be read as XML
+     */
+    public HashSetXmlReader(InputStream input) throws XMLStreamException {
+        _reader = FACTORY.createXMLStreamReader(input);
+    }
+
+    /**
+     * Advances to the next item of the document
+     * @return Returns whether an item was read. Returns false once the end of the document is reached
+     * @throws XMLStreamException Thrown when the document is not well-formed or an item has no ID
+     */
+    public boolean next() throws XMLStreamException {
+        while (_reader.hasNext()) {
+            if (_reader.next() == XMLStreamConstants.START_ELEMENT && "Item".equals(_reader.getLocalName())) {
+                readItem();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the ID of the current item
+     */
+    public String getId() {
+        return _id;
+    }
+
+    /**
+     * @return Returns the value of the current item. Items without a value have an empty value
+     */
+    public String getValue() {
+        return _value;
+    }
+
+    /**
+     * Closes the parser. The underlying stream is not closed
+     * @throws XMLStreamException Thrown when the parser can't be closed
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        _reader.close();
+    }
+
+    /**
+     * Reads the ID and value of the item the parser is positioned on
+     * @throws XMLStreamException Thrown when the item is not well-formed or has no ID
+     */
+    private void readItem() throws XMLStreamException {
+        _id = null;
+        _value = "";
+        int depth = 1;
+        while (depth > 0) {
+            int event = _reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = _reader.getLocalName();
+                if ("ID".equals(name) && _id == null) {
+                    _id = _reader.getElementText();
+                } else if ("Value".equals(name)) {
+                    _value = _reader.getElementText();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (StringUtil.isNullOrEmpty(_id)) {
+            throw new XMLStreamException("ID is a required field", _reader.getLocation());
+        }
+    }
+
+    /**
+     * @return Returns a factory that doesn't resolve DTDs or external entities
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
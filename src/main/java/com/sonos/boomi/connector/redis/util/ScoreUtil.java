@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.util;
+
+import io.lettuce.core.Range;
+
+import java.util.Locale;
+
+/**
+ * Contains helpful utility methods for the scores of Redis SortedSet members
+ */
+public class ScoreUtil {
+
+    private static final double MAX_EXACT_INTEGER = 1e15;
+
+    /**
+     * @param value Score to parse. Accepts decimal numbers and 'inf', '+inf' or '-inf' in any case
+     * @return Returns the parsed score
+     * @throws NumberFormatException Thrown when the value is not a valid score
+     */
+    public static double parseScore(String value) {
+        String trimmed = value == null ? "" : value.trim();
+        switch (trimmed.toLowerCase(Locale.ROOT)) {
+            case "inf":
+            case "+inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                double score;
+                try {
+                    score = Double.parseDouble(trimmed);
+                } catch (NumberFormatException e) {
+                    score = Double.NaN;
+                }
+                if (Double.isNaN(score) || Double.isInfinite(score)) {
+                    throw new NumberFormatException("Score must be a number: " + value);
+                }
+                return score;
+        }
+    }
+
+    /**
+     * @param score Score to format
+     * @return Returns the score formatted as an XML Schema double that Redis also parses. Integral scores are
+     * formatted without a fraction
+     */
+    public static String formatScore(double score) {
+        if (Double.isInfinite(score)) {
+            return score > 0 ? "INF" : "-INF";
+        }
+        if (score == Math.rint(score) && Math.abs(score) < MAX_EXACT_INTEGER) {
+            return Long.toString((long) score);
+        }
+        return Double.toString(score);
+    }
+
+    /**
+     * @param min Lower bound of the range, or null for no lower bound. Prefix with '(' to exclude the bound
+     * @param max Upper bound of the range, or null for no upper bound. Prefix with '(' to exclude the bound
+     * @return Returns the score range, or null if neither bound is provided
+     * @throws NumberFormatException Thrown when a bound is not a valid score
+     */
+    public static Range<Double> parseRange(String min, String max) {
+        if (StringUtil.isNullOrEmpty(min) && StringUtil.isNullOrEmpty(max)) {
+            return null;
+        }
+        return Range.from(parseBoundary(min), parseBoundary(max));
+    }
+
+    /**
+     * @param value Bound to parse, or null for an unbounded bound
+     * @return Returns the parsed bound
+     * @throws NumberFormatException Thrown when the bound is not a valid score
+     */
+    private static Range.Boundary<Double> parseBoundary(String value) {
+        if (StringUtil.isNullOrEmpty(value)) {
+            return Range.Boundary.unbounded();
+        }
+
+        String trimmed = value.trim();
+        if (trimmed.startsWith("(")) {
+            return Range.Boundary.excluding(parseScore(trimmed.substring(1)));
+        }
+        return Range.Boundary.including(parseScore(trimmed));
+    }
+}
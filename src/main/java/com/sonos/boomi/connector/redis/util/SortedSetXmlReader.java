@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Pull parser reading the members of a SortedSet document one at a time.
+ *
+ * Documents have the shape {@code <SortedSet><Member><Value>member</Value><Score>1.5</Score></Member>...</SortedSet>}.
+ * Only the current member is held in memory, so documents of any size are read with flat memory.
+ */
+public class SortedSetXmlReader implements AutoCloseable {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final XMLStreamReader _reader;
+    private String _value;
+    private double _score;
+
+    /**
+     * @param input Stream containing the SortedSet document
+     * @throws XMLStreamException Thrown when the stream can't be read as XML
+     */
+    public SortedSetXmlReader(InputStream input) throws XMLStreamException {
+        _reader = FACTORY.createXMLStreamReader(input);
+    }
+
+    /**
+     * Advances to the next member of the document
+     * @return Returns whether a member was read. Returns false once the end of the document is reached
+     * @throws XMLStreamException Thrown when the document is not well-formed, or a member has no value or an
+     * invalid score
+     */
+    public boolean next() throws XMLStreamException {
+        while (_reader.hasNext()) {
+            if (_reader.next() == XMLStreamConstants.START_ELEMENT && "Member".equals(_reader.getLocalName())) {
+                readMember();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the value of the current member
+     */
+    public String getValue() {
+        return _value;
+    }
+
+    /**
+     * @return Returns the score of the current member
+     */
+    public double getScore() {
+        return _score;
+    }
+
+    /**
+     * Closes the parser. The underlying stream is not closed
+     * @throws XMLStreamException Thrown when the parser can't be closed
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        _reader.close();
+    }
+
+    /**
+     * Reads the value and score of the member the parser is positioned on
+     * @throws XMLStreamException Thrown when the member is not well-formed, or has no value or an invalid score
+     */
+    private void readMember() throws XMLStreamException {
+        _value = null;
+        String score = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = _reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = _reader.getLocalName();
+                if ("Value".equals(name) && _value == null) {
+                    _value = _reader.getElementText();
+                } else if ("Score".equals(name)) {
+                    score = _reader.getElementText();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (_value == null) {
+            throw new XMLStreamException("Value is a required field", _reader.getLocation());
+        }
+        if (StringUtil.isNullOrEmpty(score)) {
+            throw new XMLStreamException("Score is a required field", _reader.getLocation());
+        }
+        try {
+            _score = ScoreUtil.parseScore(score);
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Score must be a number: " + score, _reader.getLocation());
+        }
+    }
+
+    /**
+     * @return Returns a factory that doesn't resolve DTDs or external entities
+     */
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
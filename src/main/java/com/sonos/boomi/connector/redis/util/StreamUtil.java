@@ -16,6 +16,7 @@
 
 package com.sonos.boomi.connector.redis.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -49,4 +50,38 @@ public class StreamUtil {
         stream.reset();
         return rtn;
     }
+
+    /**
+     * @param stream Input stream to read fully
+     * @param sizeHint Expected number of bytes in the stream, or a negative value if unknown
+     * @return Returns the bytes of the stream. The array is exactly sized when the size hint is accurate, so
+     * no intermediate copy is made
+     * @throws IOException
+     */
+    public static byte[] readBytes(InputStream stream, long sizeHint) throws IOException {
+        ByteArrayOutputStream output;
+        if (sizeHint >= 0 && sizeHint < Integer.MAX_VALUE - 8) {
+            byte[] buf = new byte[(int) sizeHint];
+            int offset = 0;
+            int len;
+            while (offset < buf.length && (len = stream.read(buf, offset, buf.length - offset)) != -1) {
+                offset += len;
+            }
+            int next = offset == buf.length ? stream.read() : -1;
+            if (offset == buf.length && next == -1) {
+                return buf;
+            }
+
+            // Size hint was inaccurate, fall back to a growing buffer
+            output = new ByteArrayOutputStream(Math.max(32, offset * 2));
+            output.write(buf, 0, offset);
+            if (next != -1) {
+                output.write(next);
+            }
+        } else {
+            output = new ByteArrayOutputStream();
+        }
+        copy(stream, output);
+        return output.toByteArray();
+    }
 }
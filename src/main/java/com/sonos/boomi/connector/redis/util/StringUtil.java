@@ -39,4 +39,25 @@ public class StringUtil {
     public static boolean isNullOrEmpty(String value) {
         return value == null || value == "";
     }
+
+    /**
+     * @param value Value to escape. Null values are treated as empty
+     * @return Returns the value with the glob-style pattern characters used by Redis MATCH patterns escaped, so
+     * that the value only matches itself
+     */
+    public static String escapeGlob(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
 }
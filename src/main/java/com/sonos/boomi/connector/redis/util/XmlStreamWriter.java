@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Minimal streaming XML writer that encodes directly into an {@link OutputStream} as UTF-8.
+ *
+ * Characters are encoded into a reusable buffer that is written to the stream whenever it fills, so writing
+ * a document allocates no intermediate strings or byte arrays. Text content is escaped, and characters that
+ * can't be represented in XML 1.0 are replaced with U+FFFD so the output is always well-formed.
+ */
+public class XmlStreamWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private final OutputStream _output;
+    private final byte[] _buffer = new byte[BUFFER_SIZE];
+    private int _position = 0;
+
+    /**
+     * @param output Stream to write the XML into
+     */
+    public XmlStreamWriter(OutputStream output) {
+        _output = output;
+    }
+
+    /**
+     * @param name Name of the element
+     * @return Returns this writer
+     * @throws IOException Throws on IO exception
+     */
+    public XmlStreamWriter writeStartElement(String name) throws IOException {
+        writeByte('<');
+        writeChars(name, false);
+        writeByte('>');
+        return this;
+    }
+
+    /**
+     * @param name Name of the element
+     * @return Returns this writer
+     * @throws IOException Throws on IO exception
+     */
+    public XmlStreamWriter writeEndElement(String name) throws IOException {
+        writeByte('<');
+        writeByte('/');
+        writeChars(name, false);
+        writeByte('>');
+        return this;
+    }
+
+    /**
+     * @param text Text content to escape and write. Null is written as empty content
+     * @return Returns this writer
+     * @throws IOException Throws on IO exception
+     */
+    public XmlStreamWriter writeCharacters(String text) throws IOException {
+        if (text != null) {
+            writeChars(text, true);
+        }
+        return this;
+    }
+
+    /**
+     * @param name Name of the element
+     * @param text Text content of the element
+     * @return Returns this writer
+     * @throws IOException Throws on IO exception
+     */
+    public XmlStreamWriter writeElement(String name, String text) throws IOException {
+        return writeStartElement(name).writeCharacters(text).writeEndElement(name);
+    }
+
+    /**
+     * Writes buffered bytes into the stream and flushes it
+     * @throws IOException Throws on IO exception
+     */
+    public void flush() throws IOException {
+        if (_position > 0) {
+            _output.write(_buffer, 0, _position);
+            _position = 0;
+        }
+        _output.flush();
+    }
+
+    /**
+     * @param chars Characters to encode
+     * @param escape Whether markup characters are escaped
+     * @throws IOException Throws on IO exception
+     */
+    private void writeChars(String chars, boolean escape) throws IOException {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                if (escape && c == '<') {
+                    writeAscii("&lt;");
+                } else if (escape && c == '>') {
+                    writeAscii("&gt;");
+                } else if (escape && c == '&') {
+                    writeAscii("&amp;");
+                } else if (escape && c == '\r') {
+                    // Parsers normalize a literal CR to LF, so it must be a character reference to round-trip
+                    writeAscii("&#13;");
+                } else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                    writeCodePoint(REPLACEMENT_CHARACTER);
+                } else {
+                    writeByte(c);
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, chars.charAt(++i)));
+            } else if (Character.isSurrogate(c) || c == '\uFFFE' || c == '\uFFFF') {
+                writeCodePoint(REPLACEMENT_CHARACTER);
+            } else {
+                writeCodePoint(c);
+            }
+        }
+    }
+
+    /**
+     * @param ascii ASCII characters to write
+     * @throws IOException Throws on IO exception
+     */
+    private void writeAscii(String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            writeByte(ascii.charAt(i));
+        }
+    }
+
+    /**
+     * @param codePoint Non-ASCII code point to encode as UTF-8
+     * @throws IOException Throws on IO exception
+     */
+    private void writeCodePoint(int codePoint) throws IOException {
+        if (codePoint < 0x800) {
+            writeByte(0xC0 | (codePoint >> 6));
+            writeByte(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            writeByte(0xE0 | (codePoint >> 12));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            writeByte(0x80 | (codePoint & 0x3F));
+        } else {
+            writeByte(0xF0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            writeByte(0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    /**
+     * @param b Byte to write
+     * @throws IOException Throws on IO exception
+     */
+    private void writeByte(int b) throws IOException {
+        if (_position == _buffer.length) {
+            _output.write(_buffer, 0, _position);
+            _position = 0;
+        }
+        _buffer[_position++] = (byte) b;
+    }
+}
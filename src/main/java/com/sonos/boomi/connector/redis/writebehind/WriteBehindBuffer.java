@@ -0,0 +1,472 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.writebehind;
+
+import com.sonos.boomi.connector.redis.command.BinaryCommands;
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+import com.sonos.boomi.connector.redis.metrics.Histogram;
+import com.sonos.boomi.connector.redis.metrics.HistogramSnapshot;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPool;
+import com.sonos.boomi.connector.redis.util.ConnectionUtil;
+import io.lettuce.core.RedisBusyException;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisLoadingException;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Connector-scoped buffer of String writes that are acknowledged before they reach Redis.
+ *
+ * Writes are queued in memory up to a configured size and written by a background flusher thread in pipelined
+ * batches, using connections borrowed from the connection pool of the same hosts. Once the memory queue is full,
+ * writes spill to a {@link WriteBehindJournal}, and every later write follows them there until the journal has
+ * been replayed, so writes always reach Redis in the order they were offered. When a flush fails or times out,
+ * e.g. because Redis is unavailable, the connection is closed so that its queued commands are discarded, and the
+ * batch is retried with an increasing backoff. Writes that Redis rejects with a command error, which would fail
+ * again on every retry, are logged and dropped instead, so a single invalid write never stalls the buffer.
+ *
+ * Writes held in memory are lost if the atom process is killed; only spilled writes survive. On close, writes
+ * that can't be flushed in time are moved to the front of the journal and replayed by the next buffer opened on
+ * the same journal file.
+ */
+public class WriteBehindBuffer implements AutoCloseable {
+
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+    private static final List<String> TRANSIENT_ERROR_PREFIXES = Arrays.asList("OOM", "READONLY", "MASTERDOWN", "TRYAGAIN", "CLUSTERDOWN");
+
+    private final Object synch = new Object();
+    private final String _name;
+    private final RedisConnectionPool<StatefulConnection<String, String>> _pool;
+    private final WriteBehindConfig _config;
+    private final WriteBehindJournal _journal;
+    private final Deque<WriteBehindEntry> _queue = new ArrayDeque<>();
+    private final Histogram _flushLatency = new Histogram();
+    private final LongAdder _flushedCount = new LongAdder();
+    private final LongAdder _failedFlushCount = new LongAdder();
+    private final LongAdder _rejectedCount = new LongAdder();
+    private final LongAdder _droppedCount = new LongAdder();
+    private final LongAdder _spilledCount = new LongAdder();
+    private final LongAdder _spilledBytes = new LongAdder();
+    private List<WriteBehindEntry> _inFlight;
+    private long _queuedBytes = 0;
+    private Thread _flusher;
+    private boolean _closed = false;
+    private boolean _stopped = false;
+
+    /**
+     * @param name Name of the buffer used when logging buffer activity
+     * @param pool Connection pool the flusher borrows connections from
+     * @param config Settings used to bound the buffer and the journal
+     * @param journalFile Journal file to spill to. Writes left in the file by a previous buffer are replayed
+     */
+    public WriteBehindBuffer(String name, RedisConnectionPool<StatefulConnection<String, String>> pool, WriteBehindConfig config, File journalFile) {
+        _name = name;
+        _pool = pool;
+        _config = config;
+        _journal = openJournal(journalFile, config.getJournalMaxBytes());
+    }
+
+    /**
+     * Starts the background flusher thread
+     */
+    public void start() {
+        synchronized (synch) {
+            if (_flusher != null || _closed) {
+                return;
+            }
+
+            _flusher = new Thread(this::flush, "redis-write-behind-flusher");
+            _flusher.setDaemon(true);
+            _flusher.start();
+        }
+    }
+
+    /**
+     * @param entry Write to buffer
+     * @return Returns whether the write was accepted, or false if both the memory queue and the journal are full
+     */
+    public boolean offer(WriteBehindEntry entry) {
+        long bytes = entry.estimateBytes();
+        synchronized (synch) {
+            if (_closed) {
+                throw new IllegalStateException("Write-behind buffer " + _name + " is closed");
+            }
+
+            if ((_journal == null || _journal.isEmpty()) && _queuedBytes + bytes <= _config.getMaxBytes()) {
+                _queue.addLast(entry);
+                _queuedBytes += bytes;
+                synch.notifyAll();
+                return true;
+            }
+
+            long journalBytes = _journal == null ? 0 : _journal.getSize();
+            if (_journal == null || !_journal.append(entry)) {
+                _rejectedCount.increment();
+                return false;
+            }
+            _spilledCount.increment();
+            _spilledBytes.add(_journal.getSize() - journalBytes);
+            synch.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Stops the flusher once the memory queue is written, or immediately if Redis is failing, then moves writes
+     * still held in memory to the front of the journal and closes it
+     */
+    @Override
+    public void close() {
+        Thread flusher;
+        synchronized (synch) {
+            if (_closed) {
+                return;
+            }
+
+            _closed = true;
+            flusher = _flusher;
+            synch.notifyAll();
+        }
+
+        if (flusher != null) {
+            try {
+                flusher.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (synch) {
+            _stopped = true;
+            List<WriteBehindEntry> remaining = new ArrayList<>();
+            if (_inFlight != null) {
+                remaining.addAll(_inFlight);
+            }
+            remaining.addAll(_queue);
+            _inFlight = null;
+            _queue.clear();
+            _queuedBytes = 0;
+
+            if (remaining.size() > 0) {
+                long journalBytes = _journal == null ? 0 : _journal.getSize();
+                if (_journal != null && _journal.prepend(remaining)) {
+                    _spilledCount.add(remaining.size());
+                    _spilledBytes.add(_journal.getSize() - journalBytes);
+                    ContainerLogger.getInstance().info("Spilled " + remaining.size() + " buffered writes of " + _name + " to " + _journal.getFile());
+                } else {
+                    ContainerLogger.getInstance().log(Level.WARNING, "Discarding " + remaining.size() + " buffered writes of " + _name + " that could not be written to Redis");
+                }
+            }
+
+            if (_journal != null) {
+                try {
+                    _journal.close();
+                } catch (IOException e) {
+                    ContainerLogger.getInstance().log(Level.WARNING, "Unable to close write-behind journal " + _journal.getFile(), e);
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return Returns the number of writes held in memory, including the batch being flushed
+     */
+    public int getQueueDepth() {
+        synchronized (synch) {
+            return _queue.size() + (_inFlight == null ? 0 : _inFlight.size());
+        }
+    }
+
+    /**
+     * @return Returns the estimated heap size of the writes held in memory
+     */
+    public long getQueuedBytes() {
+        synchronized (synch) {
+            return _queuedBytes;
+        }
+    }
+
+    /**
+     * @return Returns the number of writes held in the journal
+     */
+    public int getJournalCount() {
+        synchronized (synch) {
+            return _journal == null || _stopped ? 0 : _journal.getCount();
+        }
+    }
+
+    /**
+     * @return Returns the number of bytes of writes held in the journal
+     */
+    public long getJournalBytes() {
+        synchronized (synch) {
+            return _journal == null || _stopped ? 0 : _journal.getSize();
+        }
+    }
+
+    /**
+     * @return Returns the number of writes spilled to the journal since the buffer was created
+     */
+    public long getSpilledCount() {
+        return _spilledCount.sum();
+    }
+
+    /**
+     * @return Returns the number of bytes spilled to the journal since the buffer was created
+     */
+    public long getSpilledBytes() {
+        return _spilledBytes.sum();
+    }
+
+    /**
+     * @return Returns the number of writes flushed to Redis since the buffer was created
+     */
+    public long getFlushedCount() {
+        return _flushedCount.sum();
+    }
+
+    /**
+     * @return Returns the number of flushes that failed and were retried since the buffer was created
+     */
+    public long getFailedFlushCount() {
+        return _failedFlushCount.sum();
+    }
+
+    /**
+     * @return Returns the number of writes rejected because the buffer was full since the buffer was created
+     */
+    public long getRejectedCount() {
+        return _rejectedCount.sum();
+    }
+
+    /**
+     * @return Returns the number of writes dropped because Redis rejected them with a command error since the
+     * buffer was created
+     */
+    public long getDroppedCount() {
+        return _droppedCount.sum();
+    }
+
+    /**
+     * @return Returns the latencies in microseconds of the successful flushes
+     */
+    public HistogramSnapshot getFlushLatency() {
+        return _flushLatency.snapshot();
+    }
+
+    /**
+     * Flusher thread loop. Batches are taken from the failed batch being retried, then the memory queue, then
+     * the journal, which matches the order the writes were offered in
+     */
+    private void flush() {
+        long backoffMillis = 0;
+        try {
+            while (true) {
+                List<WriteBehindEntry> batch;
+                int journalPosition = -1;
+                synchronized (synch) {
+                    if (backoffMillis > 0 && !_closed) {
+                        synch.wait(backoffMillis);
+                    }
+                    while (!_closed && !hasPending()) {
+                        synch.wait();
+                    }
+                    // On close, keep writing the memory queue unless Redis is failing; the journal is replayed later
+                    if (_stopped || _closed && (backoffMillis > 0 || _inFlight == null && _queue.isEmpty())) {
+                        return;
+                    }
+
+                    if (_inFlight == null && _queue.size() > 0) {
+                        _inFlight = new ArrayList<>(Math.min(_queue.size(), _config.getBatchSize()));
+                        while (_inFlight.size() < _config.getBatchSize() && _queue.size() > 0) {
+                            _inFlight.add(_queue.pollFirst());
+                        }
+                    }
+                    if (_inFlight != null) {
+                        batch = _inFlight;
+                    } else {
+                        batch = new ArrayList<>(Math.min(_journal.getCount(), _config.getBatchSize()));
+                        journalPosition = _journal.read(batch, _config.getBatchSize());
+                    }
+                }
+
+                long start = System.nanoTime();
+                int dropped;
+                try {
+                    dropped = write(batch);
+                } catch (Exception e) {
+                    _failedFlushCount.increment();
+                    if (backoffMillis == 0) {
+                        ContainerLogger.getInstance().log(Level.WARNING, "Unable to flush " + batch.size() + " buffered writes of " + _name + ", retrying", e);
+                    }
+                    backoffMillis = Math.min(Math.max(MIN_BACKOFF_MILLIS, backoffMillis * 2), MAX_BACKOFF_MILLIS);
+                    continue;
+                }
+                _flushLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                _flushedCount.add(batch.size() - dropped);
+                _droppedCount.add(dropped);
+                if (backoffMillis > 0) {
+                    ContainerLogger.getInstance().info("Resumed flushing buffered writes of " + _name);
+                    backoffMillis = 0;
+                }
+
+                synchronized (synch) {
+                    if (_stopped) {
+                        return;
+                    }
+
+                    if (journalPosition < 0) {
+                        for (WriteBehindEntry entry : batch) {
+                            _queuedBytes -= entry.estimateBytes();
+                        }
+                        _inFlight = null;
+                    } else {
+                        _journal.commit(journalPosition, batch.size());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            ContainerLogger.getInstance().log(Level.SEVERE, "Write-behind flusher of " + _name + " stopped", e);
+        }
+    }
+
+    /**
+     * @return Returns whether any write is waiting to be flushed. Must be called while holding the lock
+     */
+    private boolean hasPending() {
+        return _inFlight != null || _queue.size() > 0 || _journal != null && !_journal.isEmpty();
+    }
+
+    /**
+     * Writes a batch with a single pipelined flush and waits for every command to complete. Writes rejected by
+     * Redis with a command error, e.g. an invalid expire time, are logged and dropped
+     * @param batch Writes to send
+     * @return Returns the number of writes dropped because Redis rejected them
+     * @throws Exception Thrown when a connection can't be borrowed, the connection failed, a command failed with a
+     * transient error, or the flush timed out
+     */
+    private int write(List<WriteBehindEntry> batch) throws Exception {
+        StatefulConnection<String, String> connection = _pool.borrow();
+        try {
+            // Commands written while disconnected are queued until Redis is reachable again, so fail fast when
+            // the connection is known to be disconnected and otherwise rely on the flush timeout
+            if (!connection.isOpen()) {
+                throw new RedisConnectionException("Connection is not open");
+            }
+
+            RedisClusterAsyncCommands<String, String> commands = ConnectionUtil.async(connection);
+            List<RedisFuture<String>> futures = new ArrayList<>(batch.size());
+            connection.setAutoFlushCommands(false);
+            try {
+                for (WriteBehindEntry entry : batch) {
+                    futures.add(BinaryCommands.set(commands, entry.getKey(), entry.getValue(), entry.getTtl()));
+                }
+                connection.flushCommands();
+            } finally {
+                ConnectionUtil.restoreAutoFlush(connection);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_config.getFlushTimeoutMillis());
+            int dropped = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    throw new RedisCommandTimeoutException("Timed out flushing " + batch.size() + " buffered writes");
+                } catch (ExecutionException e) {
+                    if (!isRejected(e.getCause())) {
+                        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                    ContainerLogger.getInstance().log(Level.WARNING, "Dropping buffered write of key " + batch.get(i).getKey() + " of " + _name + " rejected by Redis: " + e.getCause().getMessage());
+                    dropped++;
+                }
+            }
+            return dropped;
+        } catch (Exception e) {
+            // Commands still queued on the connection must not overwrite newer values once it reconnects
+            connection.close();
+            throw e;
+        } finally {
+            _pool.release(connection);
+        }
+    }
+
+    /**
+     * @param error Failure of a single command
+     * @return Returns whether Redis rejected the command itself, so that retrying it can't succeed. Errors
+     * reported while Redis is loading, busy, out of memory, or failing over are transient and retried
+     */
+    private static boolean isRejected(Throwable error) {
+        if (!(error instanceof RedisCommandExecutionException) || error instanceof RedisBusyException || error instanceof RedisLoadingException) {
+            return false;
+        }
+
+        String message = String.valueOf(error.getMessage());
+        for (String prefix : TRANSIENT_ERROR_PREFIXES) {
+            if (message.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param file Journal file
+     * @param capacity Maximum number of bytes of records held by the journal. Zero disables the journal
+     * @return Returns the opened journal, or null if the journal is disabled or can't be opened
+     */
+    private WriteBehindJournal openJournal(File file, long capacity) {
+        if (capacity <= 0) {
+            return null;
+        }
+
+        try {
+            WriteBehindJournal journal = WriteBehindJournal.open(file, capacity);
+            if (!journal.isEmpty()) {
+                ContainerLogger.getInstance().info("Replaying " + journal.getCount() + " buffered writes of " + _name + " from " + file);
+            }
+            return journal;
+        } catch (IOException e) {
+            ContainerLogger.getInstance().log(Level.WARNING, "Unable to open write-behind journal " + file + ", writes won't be spilled", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.writebehind;
+
+import com.boomi.connector.api.PropertyMap;
+
+/**
+ * Immutable settings used by {@link WriteBehindBuffer} to bound buffered writes and locate the spill journal
+ */
+public class WriteBehindConfig {
+
+    private static final long DEFAULT_MAX_BYTES = 67108864;
+    private static final long DEFAULT_BATCH_SIZE = 500;
+    private static final long DEFAULT_FLUSH_TIMEOUT_MILLIS = 5000;
+    private static final long DEFAULT_JOURNAL_MAX_BYTES = 268435456;
+
+    private final long _maxBytes;
+    private final int _batchSize;
+    private final long _flushTimeoutMillis;
+    private final String _journalDirectory;
+    private final long _journalMaxBytes;
+
+    /**
+     * @param maxBytes Maximum estimated heap size in bytes of all buffered writes
+     * @param batchSize Maximum number of writes sent to Redis in a single pipelined flush
+     * @param flushTimeoutMillis Time in milliseconds to wait for a flush before it is retried
+     * @param journalDirectory Directory of the spill journal, or null to use the temporary directory
+     * @param journalMaxBytes Maximum size in bytes of the spill journal. Zero disables spilling
+     */
+    public WriteBehindConfig(long maxBytes, int batchSize, long flushTimeoutMillis, String journalDirectory, long journalMaxBytes) {
+        _maxBytes = Math.max(1, maxBytes);
+        _batchSize = Math.max(1, batchSize);
+        _flushTimeoutMillis = Math.max(1, flushTimeoutMillis);
+        _journalDirectory = journalDirectory == null || journalDirectory.length() == 0 ? System.getProperty("java.io.tmpdir") : journalDirectory;
+        _journalMaxBytes = Math.max(0, Math.min(journalMaxBytes, WriteBehindJournal.MAX_CAPACITY));
+    }
+
+    /**
+     * @param properties Connection properties provided by the Boomi connection component
+     * @return Returns a new instance of {@link WriteBehindConfig} using the write-behind settings of the
+     * connection component, falling back to defaults for any setting that is not provided
+     */
+    public static WriteBehindConfig fromProperties(PropertyMap properties) {
+        return new WriteBehindConfig(
+                properties.getLongProperty("writeBehindMaxBytes", DEFAULT_MAX_BYTES),
+                properties.getLongProperty("writeBehindBatchSize", DEFAULT_BATCH_SIZE).intValue(),
+                properties.getLongProperty("writeBehindFlushTimeout", DEFAULT_FLUSH_TIMEOUT_MILLIS),
+                properties.getProperty("writeBehindJournalDirectory"),
+                properties.getLongProperty("writeBehindJournalMaxBytes", DEFAULT_JOURNAL_MAX_BYTES)
+        );
+    }
+
+    public long getMaxBytes() {
+        return _maxBytes;
+    }
+
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    public long getFlushTimeoutMillis() {
+        return _flushTimeoutMillis;
+    }
+
+    public String getJournalDirectory() {
+        return _journalDirectory;
+    }
+
+    public long getJournalMaxBytes() {
+        return _journalMaxBytes;
+    }
+}
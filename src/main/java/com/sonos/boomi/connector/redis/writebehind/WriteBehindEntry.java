@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.writebehind;
+
+/**
+ * Single String write waiting in a {@link WriteBehindBuffer} to be sent to Redis
+ */
+public class WriteBehindEntry {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    private final String _key;
+    private final byte[] _value;
+    private final long _ttl;
+
+    /**
+     * @param key Prefixed key to write
+     * @param value Raw value to write, already compressed if configured
+     * @param ttl Time-to-live in seconds to apply to the key, or -1 for none
+     */
+    public WriteBehindEntry(String key, byte[] value, long ttl) {
+        _key = key;
+        _value = value;
+        _ttl = ttl;
+    }
+
+    public String getKey() {
+        return _key;
+    }
+
+    public byte[] getValue() {
+        return _value;
+    }
+
+    public long getTtl() {
+        return _ttl;
+    }
+
+    /**
+     * @return Returns the estimated heap size of the entry
+     */
+    long estimateBytes() {
+        return ENTRY_OVERHEAD_BYTES + 2L * _key.length() + _value.length;
+    }
+}
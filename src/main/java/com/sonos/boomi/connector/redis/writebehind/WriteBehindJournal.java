@@ -0,0 +1,363 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.writebehind;
+
+import com.sonos.boomi.connector.redis.logging.ContainerLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Memory-mapped file holding the writes a {@link WriteBehindBuffer} could not keep in memory, in write order.
+ *
+ * The file starts with a header holding the read and write positions, followed by records of the form
+ * [key length][key][ttl][value length][value]. A record is written completely before the write position is
+ * advanced past it, so records survive a crash of the atom process as soon as they are appended; the pages are
+ * flushed to disk by the operating system, or when the journal is closed. Records left between the read and
+ * write positions are replayed when the journal is opened again.
+ *
+ * The journal isn't thread safe; all access is guarded by the owning buffer.
+ */
+public class WriteBehindJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x52574231;
+    private static final int HEADER_BYTES = 24;
+    private static final int READ_POSITION_OFFSET = 8;
+    private static final int WRITE_POSITION_OFFSET = 16;
+    private static final int RECORD_OVERHEAD_BYTES = 16;
+    private static final int MOVE_CHUNK_BYTES = 65536;
+
+    static final long MAX_CAPACITY = Integer.MAX_VALUE - HEADER_BYTES;
+
+    private final File _file;
+    private final FileChannel _channel;
+    private final FileLock _lock;
+    private final MappedByteBuffer _buffer;
+    private int _readPosition;
+    private int _writePosition;
+    private int _count;
+
+    /**
+     * @param file Journal file
+     * @param channel Channel of the journal file
+     * @param lock Exclusive lock held on the journal file
+     * @param buffer Mapping of the whole journal file
+     */
+    private WriteBehindJournal(File file, FileChannel channel, FileLock lock, MappedByteBuffer buffer) {
+        _file = file;
+        _channel = channel;
+        _lock = lock;
+        _buffer = buffer;
+
+        recover();
+    }
+
+    /**
+     * Opens or creates a journal file and locks it for exclusive use by this process
+     * @param file Journal file
+     * @param capacity Maximum number of bytes of records held by the journal. Existing files larger than this
+     *                 keep their size so that none of their records are lost
+     * @return Returns the opened journal, holding any records left by a previous process
+     * @throws IOException Thrown when the file can't be created, locked, or mapped
+     */
+    public static WriteBehindJournal open(File file, long capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Journal " + file + " is in use by another connector");
+            }
+
+            long size = Math.min(Math.max(channel.size(), HEADER_BYTES + capacity), Integer.MAX_VALUE);
+            return new WriteBehindJournal(file, channel, lock, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param entry Entry to append after all records held by the journal
+     * @return Returns whether the entry was appended, or false if the journal is full
+     */
+    public boolean append(WriteBehindEntry entry) {
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        long length = recordBytes(key, entry.getValue());
+        if (_writePosition + length > _buffer.capacity()) {
+            if (getSize() + length > _buffer.capacity() - HEADER_BYTES) {
+                return false;
+            }
+
+            // Reclaim the space of records that were already replayed
+            move(HEADER_BYTES);
+        }
+
+        _writePosition = writeRecord(_writePosition, key, entry);
+        _count++;
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Inserts entries in front of all records held by the journal, so that they are replayed first
+     * @param entries Entries to insert, in write order
+     * @return Returns whether the entries were inserted, or false if the journal can't hold them all
+     */
+    public boolean prepend(List<WriteBehindEntry> entries) {
+        long length = 0;
+        byte[][] keys = new byte[entries.size()][];
+        for (int i = 0; i < entries.size(); i++) {
+            keys[i] = entries.get(i).getKey().getBytes(StandardCharsets.UTF_8);
+            length += recordBytes(keys[i], entries.get(i).getValue());
+        }
+        if (getSize() + length > _buffer.capacity() - HEADER_BYTES) {
+            return false;
+        }
+
+        if (_readPosition - HEADER_BYTES < length) {
+            move(HEADER_BYTES + (int) length);
+        }
+
+        int position = _readPosition - (int) length;
+        _readPosition = position;
+        for (int i = 0; i < entries.size(); i++) {
+            position = writeRecord(position, keys[i], entries.get(i));
+        }
+        _count += entries.size();
+        writeHeader();
+        return true;
+    }
+
+    /**
+     * Reads the oldest records without removing them from the journal
+     * @param entries List the entries of the records are added to
+     * @param maxCount Maximum number of records to read
+     * @return Returns the position following the last record read, to pass to {@link #commit(int, int)} once
+     * the entries have been written to Redis
+     */
+    public int read(List<WriteBehindEntry> entries, int maxCount) {
+        int position = _readPosition;
+        for (int i = 0; i < maxCount && position < _writePosition; i++) {
+            int keyLength = _buffer.getInt(position);
+            byte[] key = get(position + 4, keyLength);
+            long ttl = _buffer.getLong(position + 4 + keyLength);
+            int valueLength = _buffer.getInt(position + 12 + keyLength);
+            byte[] value = get(position + RECORD_OVERHEAD_BYTES + keyLength, valueLength);
+            entries.add(new WriteBehindEntry(new String(key, StandardCharsets.UTF_8), value, ttl));
+            position += RECORD_OVERHEAD_BYTES + keyLength + valueLength;
+        }
+        return position;
+    }
+
+    /**
+     * Removes records previously returned by {@link #read(List, int)}
+     * @param position Position returned by {@link #read(List, int)}
+     * @param count Number of records read
+     */
+    public void commit(int position, int count) {
+        _readPosition = position;
+        _count -= count;
+        if (_readPosition >= _writePosition) {
+            _readPosition = HEADER_BYTES;
+            _writePosition = HEADER_BYTES;
+            _count = 0;
+        }
+        writeHeader();
+    }
+
+    /**
+     * @return Returns whether the journal holds no records
+     */
+    public boolean isEmpty() {
+        return _readPosition >= _writePosition;
+    }
+
+    /**
+     * @return Returns the number of records held by the journal
+     */
+    public int getCount() {
+        return _count;
+    }
+
+    /**
+     * @return Returns the number of bytes of records held by the journal
+     */
+    public long getSize() {
+        return _writePosition - _readPosition;
+    }
+
+    /**
+     * @return Returns the journal file
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Flushes the journal to disk and releases the file lock. The journal can't be used afterwards
+     * @throws IOException Thrown when the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            _buffer.force();
+        } finally {
+            try {
+                _lock.release();
+            } finally {
+                _channel.close();
+            }
+        }
+    }
+
+    /**
+     * Restores the positions of the header, discarding records that were only partially written
+     */
+    private void recover() {
+        if (_buffer.getInt(0) != MAGIC) {
+            reset();
+            return;
+        }
+
+        long readPosition = _buffer.getLong(READ_POSITION_OFFSET);
+        long writePosition = _buffer.getLong(WRITE_POSITION_OFFSET);
+        if (readPosition < HEADER_BYTES || readPosition > writePosition || writePosition > _buffer.capacity()) {
+            ContainerLogger.getInstance().log(Level.WARNING, "Discarding write-behind journal " + _file + " with invalid header");
+            reset();
+            return;
+        }
+
+        // Count the records, stopping at the first one that doesn't fit in the written range
+        int position = (int) readPosition;
+        int count = 0;
+        while (position < writePosition) {
+            long keyLength = position + 16 <= writePosition ? _buffer.getInt(position) : -1;
+            long valueLength = keyLength >= 0 && position + keyLength + 16 <= writePosition ? _buffer.getInt(position + 12 + (int) keyLength) : -1;
+            long next = position + RECORD_OVERHEAD_BYTES + keyLength + valueLength;
+            if (keyLength < 0 || valueLength < 0 || next > writePosition) {
+                ContainerLogger.getInstance().log(Level.WARNING, "Discarding " + (writePosition - position) + " corrupt bytes of write-behind journal " + _file);
+                break;
+            }
+            position = (int) next;
+            count++;
+        }
+
+        _readPosition = (int) readPosition;
+        _writePosition = position;
+        _count = count;
+        writeHeader();
+    }
+
+    /**
+     * Empties the journal
+     */
+    private void reset() {
+        _buffer.putInt(0, MAGIC);
+        _readPosition = HEADER_BYTES;
+        _writePosition = HEADER_BYTES;
+        _count = 0;
+        writeHeader();
+    }
+
+    /**
+     * Moves all records held by the journal so that the oldest record starts at the provided position
+     * @param target Position of the oldest record after the move
+     */
+    private void move(int target) {
+        int size = (int) getSize();
+        if (target != _readPosition && size > 0) {
+            byte[] chunk = new byte[Math.min(size, MOVE_CHUNK_BYTES)];
+            if (target < _readPosition) {
+                // Copy front to back so that overlapping ranges aren't overwritten before they are copied
+                for (int offset = 0; offset < size; offset += chunk.length) {
+                    int length = Math.min(chunk.length, size - offset);
+                    copy(_readPosition + offset, target + offset, chunk, length);
+                }
+            } else {
+                for (int end = size; end > 0; end -= chunk.length) {
+                    int length = Math.min(chunk.length, end);
+                    copy(_readPosition + end - length, target + end - length, chunk, length);
+                }
+            }
+        }
+
+        _readPosition = target;
+        _writePosition = target + size;
+        writeHeader();
+    }
+
+    /**
+     * @param position Position to write the record at
+     * @param key UTF-8 bytes of the entry key
+     * @param entry Entry to write
+     * @return Returns the position following the record
+     */
+    private int writeRecord(int position, byte[] key, WriteBehindEntry entry) {
+        byte[] value = entry.getValue();
+        _buffer.putInt(position, key.length);
+        put(position + 4, key);
+        _buffer.putLong(position + 4 + key.length, entry.getTtl());
+        _buffer.putInt(position + 12 + key.length, value.length);
+        put(position + RECORD_OVERHEAD_BYTES + key.length, value);
+        return position + RECORD_OVERHEAD_BYTES + key.length + value.length;
+    }
+
+    private void writeHeader() {
+        _buffer.putLong(READ_POSITION_OFFSET, _readPosition);
+        _buffer.putLong(WRITE_POSITION_OFFSET, _writePosition);
+    }
+
+    private void copy(int from, int to, byte[] chunk, int length) {
+        ByteBuffer view = _buffer.duplicate();
+        view.position(from);
+        view.get(chunk, 0, length);
+        view.position(to);
+        view.put(chunk, 0, length);
+    }
+
+    private byte[] get(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = _buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private void put(int position, byte[] bytes) {
+        ByteBuffer view = _buffer.duplicate();
+        view.position(position);
+        view.put(bytes);
+    }
+
+    private static long recordBytes(byte[] key, byte[] value) {
+        return RECORD_OVERHEAD_BYTES + (long) key.length + value.length;
+    }
+}
@@ -0,0 +1,11 @@
+-- Writes the field/value pairs in ARGV[2..n] into the hash at KEYS[1] and applies the ttl in ARGV[1]
+-- (seconds, -1 for none) in a single atomic step, so the hash is never visible without its expiration.
+-- Fields are written in slices to stay below the Lua C stack limit on unpack() for very large hashes.
+local written = 0
+for i = 2, #ARGV, 1000 do
+    written = written + redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+if tonumber(ARGV[1]) > -1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return written
@@ -0,0 +1,21 @@
+-- Commits a large object whose chunks have been written into the hash at KEYS[1]. The manifest in ARGV[2]
+-- replaces the previous manifest, the chunks of the previous large object are deleted and the ttl in ARGV[1]
+-- (seconds, -1 for none) is applied in a single atomic step, so readers switch from the previous value to the
+-- new value at once.
+local deleted = 0
+local previous = redis.call('HGET', KEYS[1], 'manifest')
+if previous then
+    local generation, count = string.match(previous, '^([^:]+):(%d+):')
+    if generation then
+        for i = 0, tonumber(count) - 1 do
+            deleted = deleted + redis.call('HDEL', KEYS[1], generation .. ':' .. i)
+        end
+    end
+end
+redis.call('HSET', KEYS[1], 'manifest', ARGV[2])
+if tonumber(ARGV[1]) > -1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+else
+    redis.call('PERSIST', KEYS[1])
+end
+return deleted
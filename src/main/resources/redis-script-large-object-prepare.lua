@@ -0,0 +1,9 @@
+-- Prepares KEYS[1] to receive the chunks of a large object. Large objects are stored as hashes, so a value of
+-- any other type currently stored at the key is deleted first. Existing large objects are kept readable until
+-- the new large object is committed.
+local type = redis.call('TYPE', KEYS[1]).ok
+if type ~= 'hash' and type ~= 'none' then
+    redis.call('DEL', KEYS[1])
+    return 1
+end
+return 0
@@ -0,0 +1,6 @@
+-- Releases the lease stored at KEYS[1] if it is still held by the token in ARGV[1]. A lease that expired and was
+-- acquired by another caller is left untouched.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,11 @@
+-- Adds the score/member pairs in ARGV[2..n] to the sorted set at KEYS[1] and applies the ttl in ARGV[1]
+-- (seconds, -1 for none) in a single atomic step, so the sorted set is never visible without its expiration.
+-- Members are added in slices to stay below the Lua C stack limit on unpack() for very large sorted sets.
+local added = 0
+for i = 2, #ARGV, 1000 do
+    added = added + redis.call('ZADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+if tonumber(ARGV[1]) > -1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return added
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Redirects, disconnects and error replies from Redis, as seen during resharding and failovers
+ */
+public class FailoverTest extends StandInTestBase {
+
+    private static final String KEY = "0";
+    private static final int NODE_COUNT = 3;
+
+    @Test
+    public void clusterOperationsFollowMovedRedirects() throws InterruptedException {
+        List<RespStandInServer> nodes = RespStandInServer.startCluster(NODE_COUNT);
+        try {
+            RespStandInServer owner = null;
+            RespStandInServer other = null;
+            for (RespStandInServer node : nodes) {
+                if (node.servesKey(KEY_PREFIX + KEY)) {
+                    owner = node;
+                } else {
+                    other = node;
+                }
+            }
+
+            Map<String, Object> connectionProperties = connectionProperties(nodes.get(0).getUri());
+            connectionProperties.put("clusterMode", true);
+            ConnectorTester upsert = createTester(OperationType.UPSERT, "String", connectionProperties, operationProperties());
+            ConnectorTester get = createTester(OperationType.GET, "String", connectionProperties, operationProperties());
+
+            // The owner redirects to another node, which redirects back to the owner
+            owner.redirectNext("SET", 1, RespStandInServer.Redirect.MOVED, other);
+            assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, KEY, "value"))));
+            assertEquals(1, owner.getKeyCount());
+
+            owner.redirectNext("GET", 1, RespStandInServer.Redirect.MOVED, other);
+            List<SimpleOperationResult> results = get.executeGetOperation(KEY);
+            assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus(), results.get(0).getMessage());
+            assertEquals("value", payload(results.get(0)));
+            assertTrue(other.getCommandCount("GET") > 0);
+        } finally {
+            for (RespStandInServer node : nodes) {
+                node.close();
+            }
+        }
+    }
+
+    @Test
+    public void operationsReconnectAfterDisconnect() {
+        ConnectorTester upsert = createTester(OperationType.UPSERT, "String");
+        ConnectorTester get = createTester(OperationType.GET, "String");
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, KEY, "value"))));
+
+        // Pooled connections are closed by the server, as they would be by a failover
+        _server.disconnectClients();
+
+        List<SimpleOperationResult> results = get.executeGetOperation(KEY);
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus(), results.get(0).getMessage());
+        assertEquals("value", payload(results.get(0)));
+    }
+
+    @Test
+    public void errorRepliesFailTheDocument() {
+        ConnectorTester get = createTester(OperationType.GET, "String");
+        _server.failNext("GET", 1, "LOADING Redis is loading the dataset in memory");
+
+        List<SimpleOperationResult> results = get.executeGetOperation(KEY);
+        assertEquals(OperationStatus.FAILURE, results.get(0).getStatus());
+        assertEquals("ERR", results.get(0).getStatusCode());
+
+        // Later executions are unaffected
+        results = get.executeGetOperation(KEY);
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("NOT_FOUND", results.get(0).getStatusCode());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis;
+
+import com.boomi.connector.api.Connector;
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTestContext;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimplePayloadMetadata;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.standin.RespStandInServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Base of the tests executing connector operations the way the atom does, through the connector-sdk-test-util
+ * testers, against an in-process RESP stand-in server started for every test
+ */
+public abstract class StandInTestBase {
+
+    protected static final String KEY_PREFIX = "test:";
+
+    protected RespStandInServer _server;
+
+    @BeforeEach
+    public void startServer() throws InterruptedException {
+        _server = RespStandInServer.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        _server.close();
+    }
+
+    /**
+     * @param operationType Type of the operation to execute
+     * @param objectTypeId Redis object type of the operation, e.g. "String" or "HashSet"
+     * @return Returns a tester executing the operation against the stand-in server with default properties
+     */
+    protected ConnectorTester createTester(OperationType operationType, String objectTypeId) {
+        return createTester(operationType, objectTypeId, connectionProperties(_server.getUri()), operationProperties());
+    }
+
+    /**
+     * @param operationType Type of the operation to execute
+     * @param objectTypeId Redis object type of the operation, e.g. "String" or "HashSet"
+     * @param connectionProperties Connection properties of the operation, including the 'hosts' property
+     * @param operationProperties Operation properties of the operation
+     * @return Returns a tester executing the operation against the hosts of the connection properties
+     */
+    protected static ConnectorTester createTester(OperationType operationType, String objectTypeId,
+                                                  Map<String, Object> connectionProperties, Map<String, Object> operationProperties) {
+        return createTester(operationType, null, objectTypeId, connectionProperties, operationProperties);
+    }
+
+    /**
+     * @param customType Custom type of the EXECUTE operation, e.g. "BATCH_GET"
+     * @param objectTypeId Redis object type of the operation, e.g. "String" or "HashSet"
+     * @param operationProperties Operation properties of the operation
+     * @return Returns a tester executing the EXECUTE operation against the stand-in server
+     */
+    protected ConnectorTester createExecuteTester(String customType, String objectTypeId, Map<String, Object> operationProperties) {
+        return createTester(OperationType.EXECUTE, customType, objectTypeId, connectionProperties(_server.getUri()), operationProperties);
+    }
+
+    /**
+     * @param operationType Type of the operation to execute
+     * @param customType Custom type of EXECUTE operations, or null
+     * @param objectTypeId Redis object type of the operation, e.g. "String" or "HashSet"
+     * @param connectionProperties Connection properties of the operation, including the 'hosts' property
+     * @param operationProperties Operation properties of the operation
+     * @return Returns a tester executing the operation against the hosts of the connection properties
+     */
+    protected static ConnectorTester createTester(OperationType operationType, String customType, String objectTypeId,
+                                                  Map<String, Object> connectionProperties, Map<String, Object> operationProperties) {
+        ConnectorTestContext context = new ConnectorTestContext() {
+            @Override
+            protected Class<? extends Connector> getConnectorClass() {
+                return RedisConnector.class;
+            }
+        };
+        context.setOperationType(operationType);
+        context.setOperationCustomType(customType);
+        context.setObjectTypeId(objectTypeId);
+        for (Map.Entry<String, Object> property : connectionProperties.entrySet()) {
+            context.addConnectionProperty(property.getKey(), property.getValue());
+        }
+        for (Map.Entry<String, Object> property : operationProperties.entrySet()) {
+            context.addOperationProperty(property.getKey(), property.getValue());
+        }
+
+        ConnectorTester tester = new ConnectorTester(new RedisConnector());
+        tester.setOperationContext(context);
+        return tester;
+    }
+
+    /**
+     * @param hosts Redis hosts of the connection
+     * @return Returns connection properties using the provided hosts and the defaults of every other property
+     */
+    protected static Map<String, Object> connectionProperties(String hosts) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hosts", hosts);
+        return properties;
+    }
+
+    /**
+     * @return Returns operation properties using the test key prefix and the defaults of every other property
+     */
+    protected static Map<String, Object> operationProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("keyPrefix", KEY_PREFIX);
+        return properties;
+    }
+
+    /**
+     * @param id Id of the document
+     * @param key Key of the document
+     * @param data Content of the document
+     * @return Returns an UPSERT document for the key
+     */
+    protected static SimpleTrackedData document(int id, String key, String data) {
+        return document(id, data, Collections.singletonMap("key", key));
+    }
+
+    /**
+     * @param id Id of the document
+     * @param data Content of the document
+     * @param properties Dynamic document properties of the document
+     * @return Returns a document with the provided properties
+     */
+    protected static SimpleTrackedData document(int id, String data, Map<String, String> properties) {
+        return new SimpleTrackedData(id, new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), null, properties);
+    }
+
+    /**
+     * @param result Result of a document
+     * @return Returns the payload of the result as a String, or null if it has no payload
+     */
+    protected static String payload(SimpleOperationResult result) {
+        List<byte[]> payloads = result.getPayloads();
+        return payloads.isEmpty() ? null : new String(payloads.get(0), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param result Result of a document
+     * @param name Name of the tracked property
+     * @return Returns the value of the tracked property of the result's payload, or null if it isn't set
+     */
+    protected static String trackedProperty(SimpleOperationResult result, String name) {
+        List<SimplePayloadMetadata> metadatas = result.getPayloadMetadatas();
+        return metadatas == null || metadatas.isEmpty() || metadatas.get(0) == null ? null : metadatas.get(0).getTrackedProps().get(name);
+    }
+
+    /**
+     * Checks that every result reports a success
+     * @param results Results of an operation
+     */
+    protected static void assertSucceeded(List<SimpleOperationResult> results) {
+        for (SimpleOperationResult result : results) {
+            assertEquals(OperationStatus.SUCCESS, result.getStatus(), result.getMessage());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.cache;
+
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * String GET operations served from the near cache and invalidated by Redis client tracking
+ */
+public class NearCacheTest extends StandInTestBase {
+
+    @Test
+    public void cachedValuesAreInvalidatedByWritesOfOtherClients() throws InterruptedException {
+        ConnectorTester upsert = createTester(OperationType.UPSERT, "String");
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "first"))));
+
+        Map<String, Object> connectionProperties = connectionProperties(_server.getUri());
+        connectionProperties.put("nearCacheEnabled", true);
+        ConnectorTester get = createTester(OperationType.GET, "String", connectionProperties, operationProperties());
+        assertEquals("first", get("1", get));
+
+        // Hits are served without reading from Redis
+        long reads = _server.getCommandCount("GET");
+        assertEquals("first", get("1", get));
+        assertEquals("first", get("1", get));
+        assertEquals(reads, _server.getCommandCount("GET"));
+
+        // The write of another connection is pushed to the tracking connection, which drops the cached value
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "second"))));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String value = get("1", get);
+        while (!"second".equals(value) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            value = get("1", get);
+        }
+        assertEquals("second", value);
+        assertEquals(reads + 1, _server.getCommandCount("GET"));
+    }
+
+    /**
+     * @param key Key to read
+     * @param get Tester of the GET operation
+     * @return Returns the value read by the GET operation
+     */
+    private static String get(String key, ConnectorTester get) {
+        List<SimpleOperationResult> results = get.executeGetOperation(key);
+        assertSucceeded(results);
+        return payload(results.get(0));
+    }
+}
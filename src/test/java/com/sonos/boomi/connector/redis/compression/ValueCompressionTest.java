@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sonos.boomi.connector.redis.compression;
+
+import com.sonos.boomi.connector.redis.util.StreamUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compression of stored values and escaping of uncompressed values that look compressed
+ */
+public class ValueCompressionTest {
+
+    private static final byte[] DICTIONARY = "{\"id\":,\"name\":\"\",\"description\":\"\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void compressedValuesRoundTrip() throws IOException {
+        byte[] value = repeat("{\"id\":1,\"name\":\"speaker\",\"description\":\"wireless speaker\"}", 100);
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            ValueCompression compression = new ValueCompression(codec, 0, DICTIONARY);
+            byte[] stored = compression.compress(value);
+            assertEquals(codec != CompressionCodec.NONE, ValueCompression.isCompressed(stored));
+            assertTrue(stored.length <= value.length);
+            assertTrue(Arrays.equals(value, read(compression.decompress(stored))), codec.name());
+        }
+    }
+
+    @Test
+    public void valuesAreUnchangedWhenCompressionIsDisabled() throws IOException {
+        byte[] value = {(byte) 0xC0, 'R', 'Z', 0, 1, 2, 3, 4, 5};
+        assertSame(value, new ValueCompression(CompressionCodec.NONE, 0, null).compress(value));
+    }
+
+    @Test
+    public void uncompressedValuesStartingWithMagicAreEscaped() throws IOException {
+        byte[] value = {(byte) 0xC0, 'R', 'Z', 9, 1, 2, 3, 4, 5};
+        ValueCompression compression = new ValueCompression(CompressionCodec.GZIP, 1024, null);
+        byte[] stored = compression.compress(value);
+        assertTrue(stored.length > value.length);
+        assertTrue(Arrays.equals(value, read(compression.decompress(stored))));
+
+        byte[] text = "small text value".getBytes(StandardCharsets.UTF_8);
+        byte[] storedText = compression.compress(text);
+        assertSame(text, storedText);
+        assertFalse(ValueCompression.isCompressed(storedText));
+    }
+
+    /**
+     * @param text Text to repeat
+     * @param count Number of repetitions
+     * @return Returns the UTF-8 bytes of the repeated text
+     */
+    private static byte[] repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param input Stream to read
+     * @return Returns the content of the stream
+     * @throws IOException Thrown when the stream can't be read
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        try (InputStream stream = input) {
+            return StreamUtil.readBytes(stream, -1);
+        }
+    }
+}
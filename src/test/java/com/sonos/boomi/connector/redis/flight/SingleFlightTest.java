@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.flight;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coalescing of identical concurrent reads
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentReadsOfTheSameKeyShareOneRead() throws Exception {
+        String flightKey = "test:" + System.nanoTime();
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> execute(flightKey, () -> {
+            reads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return value;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long deduplicated = SingleFlight.getInstance().getDeduplicatedCount();
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> execute(flightKey, () -> {
+            reads.incrementAndGet();
+            return new Object();
+        }));
+        awaitDeduplicated(deduplicated + 1);
+
+        release.countDown();
+        assertSame(value, first.get(5, TimeUnit.SECONDS));
+        assertSame(value, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, reads.get());
+
+        // Completed reads are never reused
+        assertSame(flightKey, SingleFlight.getInstance().execute(flightKey, () -> flightKey));
+    }
+
+    @Test
+    public void failedReadFailsEveryWaitingCaller() throws Exception {
+        String flightKey = "test:" + System.nanoTime();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> execute(flightKey, () -> {
+            started.countDown();
+            release.await();
+            throw new IllegalStateException("read failed");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long deduplicated = SingleFlight.getInstance().getDeduplicatedCount();
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> execute(flightKey, Object::new));
+        awaitDeduplicated(deduplicated + 1);
+
+        release.countDown();
+        assertTrue(assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause() instanceof IllegalStateException);
+        assertTrue(assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause() instanceof IllegalStateException);
+    }
+
+    /**
+     * @param flightKey Flight key of the read
+     * @param read Read to execute
+     * @return Returns the result of the read, rethrowing failures unchecked
+     */
+    private static Object execute(String flightKey, Callable<Object> read) {
+        try {
+            return SingleFlight.getInstance().execute(flightKey, read);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Waits until a caller joined the in-flight read
+     * @param count Expected number of deduplicated reads
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting
+     */
+    private static void awaitDeduplicated(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (SingleFlight.getInstance().getDeduplicatedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, SingleFlight.getInstance().getDeduplicatedCount());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EXECUTE BATCH_GET operations on Redis Strings and HashSets
+ */
+public class RedisBatchGetOperationTest extends StandInTestBase {
+
+    private static final String DOCUMENT = "<HashSet><Item><ID>name</ID><Value>Customer 1</Value></Item></HashSet>";
+
+    @Test
+    public void batchGetReturnsValuesAndLargeObjectsInDocumentOrder() {
+        String large = largeValue(1000);
+        Map<String, Object> properties = operationProperties();
+        properties.put("largeObjectChunkSize", 64L);
+        assertSucceeded(createTester(OperationType.UPSERT, "String", connectionProperties(_server.getUri()), properties)
+                .executeUpsertOperationWithTrackedData(Arrays.asList(document(0, "small", "value"), document(1, "large", large))));
+
+        List<SimpleOperationResult> results = createExecuteTester("BATCH_GET", "String", operationProperties())
+                .executeExecuteOperationWithTrackedData(Arrays.asList(keyDocument(0, "large"), keyDocument(1, "missing"), keyDocument(2, "small")));
+        assertEquals(3, results.size());
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus(), results.get(0).getMessage());
+        assertEquals(large, payload(results.get(0)));
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(1).getStatus());
+        assertEquals("NOT_FOUND", results.get(1).getStatusCode());
+        assertEquals(OperationStatus.SUCCESS, results.get(2).getStatus(), results.get(2).getMessage());
+        assertEquals("value", payload(results.get(2)));
+
+        // A single MGET reads the batch, then the manifest and each of the 16 chunks of the large object are read
+        assertEquals(1, _server.getCommandCount("MGET"));
+        assertEquals(1 + 16, _server.getCommandCount("HGET"));
+    }
+
+    @Test
+    public void failedCommandFailsOnlyItsDocument() {
+        assertSucceeded(createTester(OperationType.UPSERT, "HashSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "hash", DOCUMENT))));
+        assertSucceeded(createTester(OperationType.UPSERT, "String")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "string", "value"))));
+
+        List<SimpleOperationResult> results = createExecuteTester("BATCH_GET", "HashSet", operationProperties())
+                .executeExecuteOperationWithTrackedData(Arrays.asList(keyDocument(0, "string"), keyDocument(1, "hash")));
+        assertEquals(OperationStatus.FAILURE, results.get(0).getStatus());
+        assertEquals("ERR", results.get(0).getStatusCode());
+        assertTrue(results.get(0).getMessage().startsWith("WRONGTYPE"), results.get(0).getMessage());
+        assertEquals(OperationStatus.SUCCESS, results.get(1).getStatus(), results.get(1).getMessage());
+        assertTrue(payload(results.get(1)).contains("<ID>name</ID><Value>Customer 1</Value>"), payload(results.get(1)));
+    }
+
+    /**
+     * @param id Id of the document
+     * @param key Key to read
+     * @return Returns a BATCH_GET document reading the key
+     */
+    private static SimpleTrackedData keyDocument(int id, String key) {
+        return document(id, key, "");
+    }
+
+    /**
+     * @param length Length of the value
+     * @return Returns a value made of distinct lines, so misordered chunks are detected
+     */
+    static String largeValue(int length) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; value.length() < length; i++) {
+            value.append("line ").append(i).append('\n');
+        }
+        return value.substring(0, length);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Cache-aside reads with EXECUTE GET_OR_LEASE operations and lease releases with EXECUTE RELEASE_LEASE operations
+ * on Redis Strings
+ */
+public class RedisGetOrLeaseStringOperationTest extends StandInTestBase {
+
+    @Test
+    public void leaseIsReleasedOnlyWithItsToken() {
+        SimpleOperationResult miss = getOrLease("1", operationProperties());
+        assertEquals("MISS", trackedProperty(miss, "cacheStatus"));
+        String leaseToken = trackedProperty(miss, "leaseToken");
+        assertNotNull(leaseToken);
+        assertEquals(1, _server.getKeyCount());
+
+        SimpleOperationResult notHeld = releaseLease("1", "another token");
+        assertEquals("NOT_HELD", notHeld.getStatusCode());
+        assertEquals(1, _server.getKeyCount());
+
+        SimpleOperationResult released = releaseLease("1", leaseToken);
+        assertEquals("OK", released.getStatusCode());
+        assertEquals(0, _server.getKeyCount());
+
+        // The next caller acquires the lease right away instead of waiting for the released lease to expire
+        Map<String, Object> properties = operationProperties();
+        properties.put("leaseWaitTime", 0L);
+        assertEquals("MISS", trackedProperty(getOrLease("1", properties), "cacheStatus"));
+    }
+
+    @Test
+    public void storedValueIsAHit() {
+        upsert("1", "value", null);
+
+        SimpleOperationResult hit = getOrLease("1", operationProperties());
+        assertEquals("HIT", trackedProperty(hit, "cacheStatus"));
+        assertNull(trackedProperty(hit, "leaseToken"));
+        assertEquals("value", payload(hit));
+    }
+
+    @Test
+    public void expiringValueIsRefreshedByOneCaller() {
+        upsert("1", "value", "60");
+
+        // A recompute time far beyond the TTL makes every caller eligible for an early refresh
+        Map<String, Object> properties = operationProperties();
+        properties.put("recomputeTime", 1000000000000L);
+        SimpleOperationResult refresh = getOrLease("1", properties);
+        assertEquals("REFRESH", trackedProperty(refresh, "cacheStatus"));
+        assertNotNull(trackedProperty(refresh, "leaseToken"));
+        assertEquals("value", payload(refresh));
+
+        // Callers arriving while the lease is held keep being served the current value
+        SimpleOperationResult hit = getOrLease("1", properties);
+        assertEquals("HIT", trackedProperty(hit, "cacheStatus"));
+        assertNull(trackedProperty(hit, "leaseToken"));
+        assertEquals("value", payload(hit));
+    }
+
+    @Test
+    public void waitingCallersReceiveTheValueOfTheLeaseHolder() throws Exception {
+        assertEquals("MISS", trackedProperty(getOrLease("1", operationProperties()), "cacheStatus"));
+
+        CompletableFuture<SimpleOperationResult> waiting = CompletableFuture.supplyAsync(() -> getOrLease("1", operationProperties()));
+        Thread.sleep(100);
+        upsert("1", "computed", null);
+
+        SimpleOperationResult hit = waiting.get(10, TimeUnit.SECONDS);
+        assertEquals("HIT", trackedProperty(hit, "cacheStatus"));
+        assertEquals("computed", payload(hit));
+    }
+
+    @Test
+    public void waitingForTheLeaseHolderTimesOut() {
+        assertEquals("MISS", trackedProperty(getOrLease("1", operationProperties()), "cacheStatus"));
+
+        Map<String, Object> properties = operationProperties();
+        properties.put("leaseWaitTime", 100L);
+        List<SimpleOperationResult> results = createExecuteTester("GET_OR_LEASE", "String", properties)
+                .executeExecuteOperationWithTrackedData(Collections.singletonList(document(0, "1", "")));
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("LEASE_TIMEOUT", results.get(0).getStatusCode());
+    }
+
+    /**
+     * @param key Key to write
+     * @param value Value to write
+     * @param ttl Time-to-live in seconds of the key, or null for none
+     */
+    private void upsert(String key, String value, String ttl) {
+        Map<String, String> documentProperties = new HashMap<>();
+        documentProperties.put("key", key);
+        if (ttl != null) {
+            documentProperties.put("ttl", ttl);
+        }
+        assertSucceeded(createTester(OperationType.UPSERT, "String")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, value, documentProperties))));
+    }
+
+    /**
+     * @param key Key to read
+     * @param properties Operation properties
+     * @return Returns the result of a Get Or Lease operation reading the key
+     */
+    private SimpleOperationResult getOrLease(String key, Map<String, Object> properties) {
+        List<SimpleOperationResult> results = createExecuteTester("GET_OR_LEASE", "String", properties)
+                .executeExecuteOperationWithTrackedData(Collections.singletonList(document(0, key, "")));
+        assertSucceeded(results);
+        return results.get(0);
+    }
+
+    /**
+     * @param key Key whose lease is released
+     * @param leaseToken Token of the lease
+     * @return Returns the result of a Release Lease operation releasing the lease
+     */
+    private SimpleOperationResult releaseLease(String key, String leaseToken) {
+        Map<String, String> documentProperties = new HashMap<>();
+        documentProperties.put("key", key);
+        documentProperties.put("leaseToken", leaseToken);
+        List<SimpleTrackedData> documents = Collections.singletonList(document(0, "", documentProperties));
+        List<SimpleOperationResult> results = createExecuteTester("RELEASE_LEASE", "String", operationProperties())
+                .executeExecuteOperationWithTrackedData(documents);
+        assertSucceeded(results);
+        return results.get(0);
+    }
+}
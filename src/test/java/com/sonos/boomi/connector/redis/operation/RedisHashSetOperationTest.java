@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET, UPSERT and DELETE operations on Redis HashSets
+ */
+public class RedisHashSetOperationTest extends StandInTestBase {
+
+    private static final String DOCUMENT = "<HashSet><Item><ID>name</ID><Value>Customer 1</Value></Item><Item><ID>status</ID><Value>ACTIVE</Value></Item></HashSet>";
+
+    @Test
+    public void getReturnsUpsertedFields() {
+        assertSucceeded(createTester(OperationType.UPSERT, "HashSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", DOCUMENT))));
+        assertEquals(1, _server.getCommandCount("HSET"));
+
+        List<SimpleOperationResult> results = createTester(OperationType.GET, "HashSet").executeGetOperation("1");
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus());
+        String payload = payload(results.get(0));
+        assertTrue(payload.contains("<ID>name</ID><Value>Customer 1</Value>"), payload);
+        assertTrue(payload.contains("<ID>status</ID><Value>ACTIVE</Value>"), payload);
+    }
+
+    @Test
+    public void upsertWritesLargeDocumentsInChunks() {
+        StringBuilder document = new StringBuilder("<HashSet>");
+        for (int i = 0; i < 25; i++) {
+            document.append("<Item><ID>field-").append(i).append("</ID><Value>").append(i).append("</Value></Item>");
+        }
+        document.append("</HashSet>");
+
+        Map<String, Object> properties = operationProperties();
+        properties.put("hsetChunkSize", 10L);
+        assertSucceeded(createTester(OperationType.UPSERT, "HashSet", connectionProperties(_server.getUri()), properties)
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", document.toString()))));
+        assertEquals(3, _server.getCommandCount("HSET"));
+
+        String payload = payload(createTester(OperationType.GET, "HashSet").executeGetOperation("1").get(0));
+        assertTrue(payload.contains("<ID>field-24</ID><Value>24</Value>"), payload);
+    }
+
+    @Test
+    public void getStreamsLargeHashesPageByPage() {
+        StringBuilder document = new StringBuilder("<HashSet>");
+        for (int i = 0; i < 25; i++) {
+            document.append("<Item><ID>field-").append(i).append("</ID><Value>").append(i).append("</Value></Item>");
+        }
+        document.append("</HashSet>");
+        assertSucceeded(createTester(OperationType.UPSERT, "HashSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", document.toString()))));
+
+        Map<String, Object> properties = operationProperties();
+        properties.put("scanPageSize", 10L);
+        String payload = payload(createTester(OperationType.GET, "HashSet", connectionProperties(_server.getUri()), properties).executeGetOperation("1").get(0));
+        for (int i = 0; i < 25; i++) {
+            assertEquals(payload.indexOf("<ID>field-" + i + "</ID>"), payload.lastIndexOf("<ID>field-" + i + "</ID>"), payload);
+            assertTrue(payload.contains("<ID>field-" + i + "</ID><Value>" + i + "</Value>"), payload);
+        }
+        // The first page is read again from the upstream node, where the scan continues
+        assertEquals(4, _server.getCommandCount("HSCAN"));
+    }
+
+    @Test
+    public void upsertOfInvalidDocumentIsRejected() {
+        List<SimpleOperationResult> results = createTester(OperationType.UPSERT, "HashSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "<HashSet><Item>")));
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("BAD_INPUT", results.get(0).getStatusCode());
+        assertEquals(0, _server.getKeyCount());
+    }
+
+    @Test
+    public void deleteRemovesHash() {
+        assertSucceeded(createTester(OperationType.UPSERT, "HashSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", DOCUMENT))));
+
+        List<SimpleOperationResult> results = createTester(OperationType.DELETE, "HashSet").executeDeleteOperation(Collections.singletonList("1"));
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus());
+        assertEquals(0, _server.getKeyCount());
+    }
+}
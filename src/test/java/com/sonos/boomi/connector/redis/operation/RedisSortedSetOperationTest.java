@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET, UPSERT and DELETE operations on Redis SortedSets
+ */
+public class RedisSortedSetOperationTest extends StandInTestBase {
+
+    private static final String DOCUMENT = "<SortedSet><Member><Value>b</Value><Score>2</Score></Member><Member><Value>a</Value><Score>1</Score></Member></SortedSet>";
+
+    @Test
+    public void getReturnsMembersInScoreOrder() {
+        assertSucceeded(createTester(OperationType.UPSERT, "SortedSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", DOCUMENT))));
+
+        List<SimpleOperationResult> results = createTester(OperationType.GET, "SortedSet").executeGetOperation("1");
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus());
+        String payload = payload(results.get(0));
+        assertTrue(payload.indexOf("<Value>a</Value>") >= 0 && payload.indexOf("<Value>a</Value>") < payload.indexOf("<Value>b</Value>"), payload);
+    }
+
+    @Test
+    public void upsertOfEmptyDocumentIsRejected() {
+        List<SimpleOperationResult> results = createTester(OperationType.UPSERT, "SortedSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "<SortedSet/>")));
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("BAD_INPUT", results.get(0).getStatusCode());
+    }
+
+    @Test
+    public void deleteRemovesSortedSet() {
+        assertSucceeded(createTester(OperationType.UPSERT, "SortedSet")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", DOCUMENT))));
+
+        List<SimpleOperationResult> results = createTester(OperationType.DELETE, "SortedSet").executeDeleteOperation(Collections.singletonList("1"));
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus());
+        assertEquals(0, _server.getKeyCount());
+    }
+}
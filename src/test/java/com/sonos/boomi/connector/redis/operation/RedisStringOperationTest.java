@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.ConnectorTester;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET, UPSERT and DELETE operations on Redis Strings
+ */
+public class RedisStringOperationTest extends StandInTestBase {
+
+    @Test
+    public void getReturnsUpsertedValue() {
+        List<SimpleOperationResult> upserted = createTester(OperationType.UPSERT, "String")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "{\"id\":1}")));
+        assertSucceeded(upserted);
+        assertEquals("{\"id\":1}", payload(upserted.get(0)));
+
+        List<SimpleOperationResult> results = createTester(OperationType.GET, "String").executeGetOperation("1");
+        assertEquals(1, results.size());
+        assertEquals(OperationStatus.SUCCESS, results.get(0).getStatus());
+        assertEquals("{\"id\":1}", payload(results.get(0)));
+    }
+
+    @Test
+    public void getOfMissingKeyIsNotFound() {
+        List<SimpleOperationResult> results = createTester(OperationType.GET, "String").executeGetOperation("missing");
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("NOT_FOUND", results.get(0).getStatusCode());
+    }
+
+    @Test
+    public void upsertWithoutKeyIsRejected() {
+        List<SimpleOperationResult> results = createTester(OperationType.UPSERT, "String")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "", "value")));
+        assertEquals(OperationStatus.APPLICATION_ERROR, results.get(0).getStatus());
+        assertEquals("NO_KEY", results.get(0).getStatusCode());
+        assertEquals(0, _server.getKeyCount());
+    }
+
+    @Test
+    public void deleteRemovesKey() {
+        assertSucceeded(createTester(OperationType.UPSERT, "String")
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "value"))));
+
+        ConnectorTester delete = createTester(OperationType.DELETE, "String");
+        List<SimpleOperationResult> deleted = delete.executeDeleteOperation(Collections.singletonList("1"));
+        assertEquals(OperationStatus.SUCCESS, deleted.get(0).getStatus());
+        assertEquals("OK", deleted.get(0).getStatusCode());
+        assertEquals(0, _server.getKeyCount());
+
+        List<SimpleOperationResult> deletedAgain = delete.executeDeleteOperation(Collections.singletonList("1"));
+        assertEquals(OperationStatus.SUCCESS, deletedAgain.get(0).getStatus());
+        assertEquals("NOT_FOUND", deletedAgain.get(0).getStatusCode());
+    }
+
+    @Test
+    public void largeObjectsAreChunkedAndReassembled() {
+        Map<String, Object> properties = operationProperties();
+        properties.put("largeObjectChunkSize", 64L);
+        ConnectorTester upsert = createTester(OperationType.UPSERT, "String", connectionProperties(_server.getUri()), properties);
+        ConnectorTester get = createTester(OperationType.GET, "String");
+
+        String first = RedisBatchGetOperationTest.largeValue(1000);
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", first))));
+        assertTrue(_server.getCommandCount("HSET") >= 16);
+        assertEquals(first, payload(get.executeGetOperation("1").get(0)));
+
+        // Overwrites commit a new generation of chunks
+        String second = RedisBatchGetOperationTest.largeValue(700).toUpperCase();
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", second))));
+        assertEquals(second, payload(get.executeGetOperation("1").get(0)));
+        assertEquals(1, _server.getKeyCount());
+
+        // Values smaller than the chunk size replace the large object with a regular value
+        assertSucceeded(upsert.executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "small"))));
+        assertEquals("small", payload(get.executeGetOperation("1").get(0)));
+    }
+
+    @Test
+    public void compressedValuesAreReadBackByEveryOperation() {
+        String value = RedisBatchGetOperationTest.largeValue(4096);
+        for (String codec : Arrays.asList("GZIP", "DEFLATE")) {
+            Map<String, Object> properties = operationProperties();
+            properties.put("compression", codec);
+            properties.put("compressionThreshold", 0L);
+            assertSucceeded(createTester(OperationType.UPSERT, "String", connectionProperties(_server.getUri()), properties)
+                    .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, codec, value))));
+
+            assertEquals(value, payload(createTester(OperationType.GET, "String").executeGetOperation(codec).get(0)), codec);
+            List<SimpleOperationResult> batch = createExecuteTester("BATCH_GET", "String", operationProperties())
+                    .executeExecuteOperationWithTrackedData(Collections.singletonList(document(0, codec, "")));
+            assertEquals(value, payload(batch.get(0)), codec);
+        }
+    }
+
+    @Test
+    public void patternDeleteRemovesMatchingKeysOnly() {
+        assertSucceeded(createTester(OperationType.UPSERT, "String").executeUpsertOperationWithTrackedData(Arrays.asList(
+                document(0, "order:1", "1"), document(1, "order:2", "2"), document(2, "customer:1", "3"))));
+
+        Map<String, Object> properties = operationProperties();
+        properties.put("patternDelete", true);
+        ConnectorTester delete = createTester(OperationType.DELETE, "String", connectionProperties(_server.getUri()), properties);
+        List<SimpleOperationResult> deleted = delete.executeDeleteOperation(Collections.singletonList("order:*"));
+        assertEquals(OperationStatus.SUCCESS, deleted.get(0).getStatus(), deleted.get(0).getMessage());
+        assertEquals("OK", deleted.get(0).getStatusCode());
+        assertEquals(1, _server.getKeyCount());
+        assertEquals("3", payload(createTester(OperationType.GET, "String").executeGetOperation("customer:1").get(0)));
+
+        List<SimpleOperationResult> deletedAgain = delete.executeDeleteOperation(Collections.singletonList("order:*"));
+        assertEquals(OperationStatus.SUCCESS, deletedAgain.get(0).getStatus());
+        assertEquals("NOT_FOUND", deletedAgain.get(0).getStatusCode());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.sonos.boomi.connector.redis.operation;
+
+import com.boomi.connector.api.OperationStatus;
+import com.boomi.connector.api.OperationType;
+import com.boomi.connector.testutil.SimpleOperationResult;
+import com.boomi.connector.testutil.SimpleTrackedData;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pipelining of the commands of UPSERT operations
+ */
+public class RedisUpsertPipelineTest extends StandInTestBase {
+
+    private static final int DOCUMENT_COUNT = 200;
+    private static final long BATCH_SIZE = 50;
+
+    @Test
+    public void upsertPipelinesDocuments() {
+        // Connect before measuring, so the connection handshake isn't counted
+        assertSucceeded(upsertStrings());
+        _server.resetStatistics();
+        _server.setLatency(1, TimeUnit.MILLISECONDS);
+        List<SimpleOperationResult> results = upsertStrings();
+
+        assertEquals(DOCUMENT_COUNT, results.size());
+        assertSucceeded(results);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            assertEquals("value " + i, payload(results.get(i)));
+        }
+        assertEquals(DOCUMENT_COUNT, _server.getCommandCount("SET"));
+        assertEquals(DOCUMENT_COUNT, _server.getKeyCount());
+
+        // Each batch of pipelined commands is flushed at once, so it arrives in a few socket reads instead of one per command
+        assertTrue(_server.getReadBatchCount() < DOCUMENT_COUNT / 4, "Commands arrived in " + _server.getReadBatchCount() + " reads");
+    }
+
+    @Test
+    public void failedCommandFailsOnlyItsDocument() {
+        _server.failNext("SET", 1, "ERR injected failure");
+        List<SimpleOperationResult> results = upsertStrings();
+
+        assertEquals(OperationStatus.FAILURE, results.get(0).getStatus());
+        assertEquals("ERR", results.get(0).getStatusCode());
+        assertSucceeded(results.subList(1, DOCUMENT_COUNT));
+        assertEquals(DOCUMENT_COUNT - 1, _server.getKeyCount());
+    }
+
+    @Test
+    public void inFlightBytesBoundPendingDocuments() {
+        // Every document is awaited once a few documents' bytes are pending, well before the batch size is reached
+        Map<String, Object> properties = operationProperties();
+        properties.put("pipelineBatchSize", BATCH_SIZE);
+        properties.put("batchBytes", 32L);
+        properties.put("maxInFlightBytes", 32L);
+        List<SimpleTrackedData> documents = new ArrayList<>(DOCUMENT_COUNT);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            documents.add(document(i, String.valueOf(i), "value " + i));
+        }
+        List<SimpleOperationResult> results = createTester(OperationType.UPSERT, "String", connectionProperties(_server.getUri()), properties)
+                .executeUpsertOperationWithTrackedData(documents);
+
+        assertEquals(DOCUMENT_COUNT, results.size());
+        assertSucceeded(results);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            assertEquals("value " + i, payload(results.get(i)));
+        }
+        assertEquals(DOCUMENT_COUNT, _server.getKeyCount());
+    }
+
+    @Test
+    public void concurrentlyPreparedDocumentsKeepTheirOrder() {
+        Map<String, Object> properties = operationProperties();
+        properties.put("documentConcurrency", 4L);
+        properties.put("pipelineBatchSize", BATCH_SIZE);
+        for (String objectType : new String[]{"HashSet", "SortedSet"}) {
+            List<SimpleTrackedData> documents = new ArrayList<>(DOCUMENT_COUNT);
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                documents.add(document(i, objectType + i, "HashSet".equals(objectType)
+                        ? "<HashSet><Item><ID>id</ID><Value>" + i + "</Value></Item></HashSet>"
+                        : "<SortedSet><Member><Value>" + i + "</Value><Score>" + i + "</Score></Member></SortedSet>"));
+            }
+
+            List<SimpleOperationResult> results = createTester(OperationType.UPSERT, objectType, connectionProperties(_server.getUri()), properties)
+                    .executeUpsertOperationWithTrackedData(documents);
+            assertEquals(DOCUMENT_COUNT, results.size());
+            assertSucceeded(results);
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                assertTrue(payload(results.get(i)).contains(">" + i + "</Value>"), payload(results.get(i)));
+            }
+        }
+        assertEquals(2 * DOCUMENT_COUNT, _server.getKeyCount());
+    }
+
+    /**
+     * @return Returns the results of upserting {@link #DOCUMENT_COUNT} Strings in a single execution
+     */
+    private List<SimpleOperationResult> upsertStrings() {
+        Map<String, Object> properties = operationProperties();
+        properties.put("pipelineBatchSize", BATCH_SIZE);
+        List<SimpleTrackedData> documents = new ArrayList<>(DOCUMENT_COUNT);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            documents.add(document(i, String.valueOf(i), "value " + i));
+        }
+        return createTester(OperationType.UPSERT, "String", connectionProperties(_server.getUri()), properties)
+                .executeUpsertOperationWithTrackedData(documents);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.pool;
+
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Bounded borrowing of pooled connections
+ */
+public class RedisConnectionPoolTest extends StandInTestBase {
+
+    private RedisClient _client;
+
+    @AfterEach
+    public void shutdownClient() {
+        if (_client != null) {
+            _client.shutdown();
+        }
+    }
+
+    @Test
+    public void exhaustedPoolWaitsForReleasedConnection() throws Exception {
+        try (RedisConnectionPool<StatefulRedisConnection<String, String>> pool = createPool(1, 5000)) {
+            StatefulRedisConnection<String, String> borrowed = pool.borrow();
+            CompletableFuture<StatefulRedisConnection<String, String>> waiting = CompletableFuture.supplyAsync(pool::borrow);
+            Thread.sleep(200);
+            assertFalse(waiting.isDone());
+
+            pool.release(borrowed);
+            assertSame(borrowed, waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(1, pool.getTotalCount());
+        }
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() {
+        try (RedisConnectionPool<StatefulRedisConnection<String, String>> pool = createPool(1, 100)) {
+            StatefulRedisConnection<String, String> borrowed = pool.borrow();
+            assertThrows(RedisConnectionException.class, pool::borrow);
+
+            // Invalidated connections free their slot for a new connection
+            pool.invalidate(borrowed);
+            pool.release(pool.borrow());
+            assertEquals(1, pool.getTotalCount());
+        }
+    }
+
+    /**
+     * @param maxTotal Maximum number of connections opened by the pool
+     * @param borrowTimeoutMillis Time in milliseconds borrowers wait for a connection
+     * @return Returns a pool of connections to the stand-in server
+     */
+    private RedisConnectionPool<StatefulRedisConnection<String, String>> createPool(int maxTotal, long borrowTimeoutMillis) {
+        if (_client == null) {
+            _client = RedisClient.create(_server.getUri());
+        }
+        RedisConnectionPoolConfig config = new RedisConnectionPoolConfig(0, maxTotal, 0, 0, maxTotal, borrowTimeoutMillis);
+        return new RedisConnectionPool<>("test", _client::connect, config);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes RESP requests into commands. Each command is emitted as the list of its raw arguments, the first
+ * being the command name. Both multi-bulk requests sent by clients and inline commands typed by hand are
+ * supported, and pipelined requests are decoded one command at a time
+ */
+class RespDecoder extends ByteToMessageDecoder {
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            in.markReaderIndex();
+            List<byte[]> command = in.getByte(in.readerIndex()) == '*' ? decodeMultiBulk(in) : decodeInline(in);
+            if (command == null) {
+                // Wait for the rest of the request
+                in.resetReaderIndex();
+                return;
+            }
+            if (!command.isEmpty()) {
+                out.add(command);
+            }
+        }
+    }
+
+    /**
+     * @param in Buffer positioned at the start of a multi-bulk request
+     * @return Returns the arguments of the request, or null if the request is incomplete
+     */
+    private static List<byte[]> decodeMultiBulk(ByteBuf in) {
+        in.skipBytes(1);
+        String count = readLine(in);
+        if (count == null) {
+            return null;
+        }
+
+        int length = Integer.parseInt(count);
+        List<byte[]> arguments = new ArrayList<>(Math.max(0, length));
+        for (int i = 0; i < length; i++) {
+            if (!in.isReadable()) {
+                return null;
+            }
+            if (in.readByte() != '$') {
+                throw new DecoderException("Protocol error: expected '$'");
+            }
+            String size = readLine(in);
+            if (size == null) {
+                return null;
+            }
+
+            int bulkLength = Integer.parseInt(size);
+            if (in.readableBytes() < bulkLength + 2) {
+                return null;
+            }
+            byte[] argument = new byte[bulkLength];
+            in.readBytes(argument);
+            in.skipBytes(2);
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    /**
+     * @param in Buffer positioned at the start of an inline command
+     * @return Returns the space separated arguments of the command, or null if the line is incomplete
+     */
+    private static List<byte[]> decodeInline(ByteBuf in) {
+        String line = readLine(in);
+        if (line == null) {
+            return null;
+        }
+
+        List<byte[]> arguments = new ArrayList<>();
+        for (String argument : line.trim().split("\\s+")) {
+            if (!argument.isEmpty()) {
+                arguments.add(argument.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * @param in Buffer to read from
+     * @return Returns the next CRLF terminated line without its terminator, or null if the line is incomplete
+     */
+    private static String readLine(ByteBuf in) {
+        int end = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) '\n');
+        if (end < 0) {
+            if (in.readableBytes() > MAX_LINE_LENGTH) {
+                throw new DecoderException("Protocol error: line too long");
+            }
+            return null;
+        }
+
+        int length = end - in.readerIndex();
+        String line = in.toString(in.readerIndex(), length > 0 && in.getByte(end - 1) == '\r' ? length - 1 : length, StandardCharsets.UTF_8);
+        in.readerIndex(end + 1);
+        return line;
+    }
+}
@@ -0,0 +1,511 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import io.lettuce.core.cluster.SlotHash;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable stand-in for a Redis server, speaking RESP2 and RESP3 over a local socket.
+ *
+ * The stand-in implements the commands used by the connector (Strings, hashes, expirations, scans, the
+ * connector's scripts, client tracking and the cluster topology commands) against an in-memory keyspace, and
+ * lets callers inject latency, error replies, MOVED/ASK redirects and disconnects. Operation throughput,
+ * pipelining and failover behavior can therefore be measured deterministically without a live Redis.
+ *
+ * Start a server with {@link #start()}, point the connector at {@link #getUri()}, and close it when done.
+ */
+public class RespStandInServer implements AutoCloseable {
+
+    /**
+     * Kind of redirect injected by {@link #redirectNext(String, int, Redirect, RespStandInServer)}
+     */
+    public enum Redirect {
+        MOVED, ASK
+    }
+
+    private static final String HOST = "127.0.0.1";
+    private static final int SLOT_COUNT = SlotHash.SLOT_COUNT;
+
+    private final Object synch = new Object();
+    private final StandInDataStore _store = new StandInDataStore();
+    private final NioEventLoopGroup _group;
+    private final Channel _serverChannel;
+    private final String _nodeId = UUID.randomUUID().toString().replace("-", "") + "00000000";
+    private final Set<Channel> _clients = ConcurrentHashMap.newKeySet();
+    private final Map<Channel, List<String>> _tracking = new ConcurrentHashMap<>();
+    private final Set<String> _loadedScripts = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> _commandCounts = new ConcurrentHashMap<>();
+    private final AtomicLong _commandCount = new AtomicLong();
+    private final AtomicLong _readBatchCount = new AtomicLong();
+    private final AtomicLong _clientIds = new AtomicLong();
+    private final List<Fault> _faults = new ArrayList<>();
+    private volatile long _latencyNanos = 0;
+    private volatile List<RespStandInServer> _clusterNodes = Collections.emptyList();
+    private volatile int _firstSlot = 0;
+    private volatile int _lastSlot = SLOT_COUNT - 1;
+
+    /**
+     * @param port Port to listen on, or 0 for any free port
+     * @throws InterruptedException Thrown when interrupted while binding
+     */
+    private RespStandInServer(int port) throws InterruptedException {
+        _group = new NioEventLoopGroup();
+        _serverChannel = new ServerBootstrap()
+                .group(_group)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel channel) {
+                        channel.pipeline().addLast(new RespDecoder(), new StandInCommandHandler(RespStandInServer.this, _store));
+                    }
+                })
+                .bind(HOST, port)
+                .sync()
+                .channel();
+    }
+
+    /**
+     * @return Returns a new standalone server listening on a free local port
+     * @throws InterruptedException Thrown when interrupted while binding
+     */
+    public static RespStandInServer start() throws InterruptedException {
+        return start(0);
+    }
+
+    /**
+     * @param port Port to listen on, or 0 for any free port
+     * @return Returns a new standalone server listening on the port
+     * @throws InterruptedException Thrown when interrupted while binding
+     */
+    public static RespStandInServer start(int port) throws InterruptedException {
+        return new RespStandInServer(port);
+    }
+
+    /**
+     * Starts the nodes of a Redis Cluster stand-in. Hash slots are split evenly between the nodes, and nodes
+     * reply with MOVED redirects to commands on keys of slots served by another node
+     * @param nodeCount Number of nodes to start
+     * @return Returns the started nodes
+     * @throws InterruptedException Thrown when interrupted while binding
+     */
+    public static List<RespStandInServer> startCluster(int nodeCount) throws InterruptedException {
+        List<RespStandInServer> nodes = new ArrayList<>(nodeCount);
+        try {
+            for (int i = 0; i < nodeCount; i++) {
+                RespStandInServer node = start();
+                node._firstSlot = i * SLOT_COUNT / nodeCount;
+                node._lastSlot = (i + 1) * SLOT_COUNT / nodeCount - 1;
+                nodes.add(node);
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            for (RespStandInServer node : nodes) {
+                node.close();
+            }
+            throw e;
+        }
+
+        List<RespStandInServer> topology = Collections.unmodifiableList(new ArrayList<>(nodes));
+        for (RespStandInServer node : nodes) {
+            node._clusterNodes = topology;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return Returns the Redis URI of the server
+     */
+    public String getUri() {
+        return "redis://" + getHostAndPort();
+    }
+
+    /**
+     * @return Returns the port the server listens on
+     */
+    public int getPort() {
+        return ((InetSocketAddress) _serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * @return Returns the id of the server when it is a cluster node
+     */
+    public String getNodeId() {
+        return _nodeId;
+    }
+
+    /**
+     * @param key Key to check
+     * @return Returns whether the hash slot of the key is served by this server. Standalone servers serve every key
+     */
+    public boolean servesKey(String key) {
+        int slot = SlotHash.getSlot(key);
+        return slot >= _firstSlot && slot <= _lastSlot;
+    }
+
+    /**
+     * Delays every reply by the provided latency, simulating network and server latency. Pipelined replies
+     * keep their order
+     * @param latency Latency to add to every reply
+     * @param unit Unit of the latency
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        _latencyNanos = Math.max(0, unit.toNanos(latency));
+    }
+
+    /**
+     * Replies to the next matching commands with an error instead of executing them
+     * @param command Name of the commands to fail, or "*" for any command
+     * @param count Number of commands to fail
+     * @param error Error reply, starting with the error code, e.g. "ERR injected failure"
+     */
+    public void failNext(String command, int count, String error) {
+        addFault(new Fault(command, count, null, null, error));
+    }
+
+    /**
+     * Replies to the next matching commands with a MOVED or ASK redirect to the target instead of executing them
+     * @param command Name of the commands to redirect, or "*" for any command
+     * @param count Number of commands to redirect
+     * @param redirect Kind of redirect
+     * @param target Server the commands are redirected to
+     */
+    public void redirectNext(String command, int count, Redirect redirect, RespStandInServer target) {
+        addFault(new Fault(command, count, redirect, target, null));
+    }
+
+    /**
+     * Removes all injected faults that have not been triggered yet
+     */
+    public void clearFaults() {
+        synchronized (synch) {
+            _faults.clear();
+        }
+    }
+
+    /**
+     * Closes every client connection and waits until they are closed, simulating a server restart or failover.
+     * Clients reconnect on their own. Commands in flight at the time of the disconnect are lost, as they would be
+     * on a real failover
+     */
+    public void disconnectClients() {
+        for (Channel client : _clients) {
+            client.close().syncUninterruptibly();
+        }
+    }
+
+    /**
+     * Deletes every key and notifies tracking clients
+     */
+    public void flushAll() {
+        List<String> keys;
+        synchronized (_store.getLock()) {
+            keys = _store.keys();
+            _store.clear();
+        }
+        keysModified(keys);
+    }
+
+    /**
+     * @return Returns the number of live keys
+     */
+    public int getKeyCount() {
+        synchronized (_store.getLock()) {
+            return _store.keys().size();
+        }
+    }
+
+    /**
+     * @return Returns the number of commands received since the server started or statistics were reset
+     */
+    public long getCommandCount() {
+        return _commandCount.get();
+    }
+
+    /**
+     * @param command Name of the command
+     * @return Returns the number of commands with the provided name received
+     */
+    public long getCommandCount(String command) {
+        LongAdder count = _commandCounts.get(command.toUpperCase(Locale.ROOT));
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return Returns the number of socket reads that delivered commands. Pipelined commands arrive in few
+     * reads, so comparing this with {@link #getCommandCount()} shows how well clients batch their commands
+     */
+    public long getReadBatchCount() {
+        return _readBatchCount.get();
+    }
+
+    /**
+     * @return Returns the number of open client connections
+     */
+    public int getClientCount() {
+        return _clients.size();
+    }
+
+    /**
+     * Resets all command statistics
+     */
+    public void resetStatistics() {
+        _commandCount.set(0);
+        _readBatchCount.set(0);
+        _commandCounts.clear();
+    }
+
+    /**
+     * Closes all client connections and stops listening
+     */
+    @Override
+    public void close() {
+        disconnectClients();
+        _serverChannel.close().syncUninterruptibly();
+        _group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    String getHostAndPort() {
+        return HOST + ":" + getPort();
+    }
+
+    long getLatencyNanos() {
+        return _latencyNanos;
+    }
+
+    long nextClientId() {
+        return _clientIds.incrementAndGet();
+    }
+
+    void register(Channel channel) {
+        _clients.add(channel);
+    }
+
+    void unregister(Channel channel) {
+        _clients.remove(channel);
+        _tracking.remove(channel);
+    }
+
+    void recordCommand(String command) {
+        _commandCount.incrementAndGet();
+        _commandCounts.computeIfAbsent(command, name -> new LongAdder()).increment();
+    }
+
+    void recordReadBatch() {
+        _readBatchCount.incrementAndGet();
+    }
+
+    /**
+     * @param sourceBody Body of the script to load
+     * @return Returns the SHA1 digest identifying the script
+     */
+    String loadScript(String sourceBody) {
+        String sha = StandInScripts.sha1(sourceBody);
+        _loadedScripts.add(sha);
+        return sha;
+    }
+
+    boolean isScriptLoaded(String sha) {
+        return _loadedScripts.contains(sha);
+    }
+
+    void flushScripts() {
+        _loadedScripts.clear();
+    }
+
+    /**
+     * @param channel Client connection enabling broadcasting client tracking
+     * @param prefixes Key prefixes the client is notified about
+     */
+    void track(Channel channel, List<String> prefixes) {
+        _tracking.put(channel, new ArrayList<>(prefixes));
+    }
+
+    void untrack(Channel channel) {
+        _tracking.remove(channel);
+    }
+
+    /**
+     * Sends invalidation pushes for the modified keys to every tracking client whose prefixes match
+     * @param keys Keys modified by a command
+     */
+    void keysModified(List<String> keys) {
+        for (Map.Entry<Channel, List<String>> tracking : _tracking.entrySet()) {
+            List<String> matching = new ArrayList<>();
+            for (String key : keys) {
+                for (String prefix : tracking.getValue()) {
+                    if (key.startsWith(prefix)) {
+                        matching.add(key);
+                        break;
+                    }
+                }
+            }
+            if (matching.isEmpty()) {
+                continue;
+            }
+
+            Channel channel = tracking.getKey();
+            ByteBuf buffer = channel.alloc().buffer();
+            RespWriter out = new RespWriter(buffer, true).push(2).bulk("invalidate").array(matching.size());
+            for (String key : matching) {
+                out.bulk(key);
+            }
+            channel.writeAndFlush(buffer);
+        }
+    }
+
+    /**
+     * @param command Upper case name of the command about to execute
+     * @param key First key of the command, or null
+     * @return Returns the injected error reply for the command, or null if it should execute normally
+     */
+    String takeFault(String command, byte[] key) {
+        synchronized (synch) {
+            if (_faults.isEmpty()) {
+                return null;
+            }
+
+            Iterator<Fault> iterator = _faults.iterator();
+            while (iterator.hasNext()) {
+                Fault fault = iterator.next();
+                if (!fault.matches(command)) {
+                    continue;
+                }
+                if (fault.consume()) {
+                    iterator.remove();
+                }
+                return fault.getReply(key);
+            }
+            return null;
+        }
+    }
+
+    boolean isClusterEnabled() {
+        return !_clusterNodes.isEmpty();
+    }
+
+    List<RespStandInServer> getClusterNodes() {
+        return _clusterNodes;
+    }
+
+    /**
+     * @param slot Hash slot
+     * @return Returns the cluster node serving the slot
+     */
+    RespStandInServer getSlotOwner(int slot) {
+        for (RespStandInServer node : _clusterNodes) {
+            if (slot >= node._firstSlot && slot <= node._lastSlot) {
+                return node;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return Returns the CLUSTER NODES description of the cluster
+     */
+    String describeClusterNodes() {
+        StringBuilder nodes = new StringBuilder();
+        int epoch = 1;
+        for (RespStandInServer node : _clusterNodes) {
+            nodes.append(node.getNodeId()).append(' ')
+                    .append(node.getHostAndPort()).append('@').append(node.getPort() + 10000).append(' ')
+                    .append(node == this ? "myself,master" : "master").append(" - 0 0 ").append(epoch++)
+                    .append(" connected ").append(node._firstSlot).append('-').append(node._lastSlot).append('\n');
+        }
+        return nodes.toString();
+    }
+
+    /**
+     * @param fault Fault to inject
+     */
+    private void addFault(Fault fault) {
+        synchronized (synch) {
+            _faults.add(fault);
+        }
+    }
+
+    /**
+     * Error reply or redirect injected for a number of matching commands
+     */
+    private static class Fault {
+
+        private final String _command;
+        private final Redirect _redirect;
+        private final RespStandInServer _target;
+        private final String _error;
+        private int _remaining;
+
+        /**
+         * @param command Name of the matching commands, or "*" for any command
+         * @param count Number of commands the fault applies to
+         * @param redirect Kind of redirect, or null for an error reply
+         * @param target Server commands are redirected to, or null for an error reply
+         * @param error Error reply, or null for a redirect
+         */
+        Fault(String command, int count, Redirect redirect, RespStandInServer target, String error) {
+            _command = command.toUpperCase(Locale.ROOT);
+            _remaining = count;
+            _redirect = redirect;
+            _target = target;
+            _error = error;
+        }
+
+        boolean matches(String command) {
+            return _remaining > 0 && ("*".equals(_command) || _command.equals(command));
+        }
+
+        /**
+         * @return Returns whether the fault is exhausted
+         */
+        boolean consume() {
+            return --_remaining <= 0;
+        }
+
+        /**
+         * @param key First key of the command, or null
+         * @return Returns the error reply of the command
+         */
+        String getReply(byte[] key) {
+            if (_redirect == null) {
+                return _error;
+            }
+            return _redirect.name() + " " + (key == null ? 0 : SlotHash.getSlot(key)) + " " + _target.getHostAndPort();
+        }
+    }
+}
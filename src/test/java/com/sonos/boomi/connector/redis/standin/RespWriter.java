@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes replies into a buffer using the RESP version negotiated by the connection. RESP3 specific types
+ * (nulls, maps and pushes) are downgraded to their RESP2 equivalents on RESP2 connections
+ */
+class RespWriter {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ByteBuf _buffer;
+    private final boolean _resp3;
+
+    /**
+     * @param buffer Buffer to write replies into
+     * @param resp3 Whether the connection negotiated RESP3
+     */
+    RespWriter(ByteBuf buffer, boolean resp3) {
+        _buffer = buffer;
+        _resp3 = resp3;
+    }
+
+    RespWriter simple(String value) {
+        return line('+', value);
+    }
+
+    RespWriter error(String message) {
+        return line('-', message);
+    }
+
+    RespWriter integer(long value) {
+        return line(':', String.valueOf(value));
+    }
+
+    RespWriter bulk(String value) {
+        return value == null ? nil() : bulk(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    RespWriter bulk(byte[] value) {
+        if (value == null) {
+            return nil();
+        }
+        line('$', String.valueOf(value.length));
+        _buffer.writeBytes(value);
+        _buffer.writeBytes(CRLF);
+        return this;
+    }
+
+    RespWriter nil() {
+        if (_resp3) {
+            _buffer.writeByte('_');
+            _buffer.writeBytes(CRLF);
+            return this;
+        }
+        return line('$', "-1");
+    }
+
+    RespWriter array(int length) {
+        return line('*', String.valueOf(length));
+    }
+
+    /**
+     * @param entries Number of key/value pairs that follow
+     * @return Returns this writer
+     */
+    RespWriter map(int entries) {
+        return _resp3 ? line('%', String.valueOf(entries)) : array(entries * 2);
+    }
+
+    /**
+     * @param length Number of elements that follow, starting with the push kind
+     * @return Returns this writer
+     */
+    RespWriter push(int length) {
+        return line(_resp3 ? '>' : '*', String.valueOf(length));
+    }
+
+    boolean isResp3() {
+        return _resp3;
+    }
+
+    /**
+     * @param type RESP type prefix
+     * @param value Line content
+     * @return Returns this writer
+     */
+    private RespWriter line(char type, String value) {
+        _buffer.writeByte(type);
+        _buffer.writeCharSequence(value, StandardCharsets.UTF_8);
+        _buffer.writeBytes(CRLF);
+        return this;
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import io.lettuce.core.cluster.SlotHash;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Executes the commands of a single client connection against the keyspace of a {@link RespStandInServer}.
+ *
+ * Replies are written in request order. Injected latency delays every reply without reordering pipelined
+ * replies, and injected faults replace the reply of matching commands before they execute.
+ */
+class StandInCommandHandler extends SimpleChannelInboundHandler<List<byte[]>> {
+
+    private static final String ERR_WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+    private static final String ERR_SYNTAX = "ERR syntax error";
+    private static final String ERR_NOT_INTEGER = "ERR value is not an integer or out of range";
+
+    private final RespStandInServer _server;
+    private final StandInDataStore _store;
+    private boolean _resp3 = false;
+    private boolean _asking = false;
+    private long _lastDeadline = 0;
+
+    /**
+     * @param server Server the connection belongs to
+     * @param store Keyspace of the server
+     */
+    StandInCommandHandler(RespStandInServer server, StandInDataStore store) {
+        _server = server;
+        _store = store;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        _server.register(ctx.channel());
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        _server.unregister(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, List<byte[]> command) {
+        String name = string(command.get(0)).toUpperCase(Locale.ROOT);
+        List<byte[]> args = command.subList(1, command.size());
+        _server.recordCommand(name);
+
+        ByteBuf buffer = ctx.alloc().buffer();
+        boolean resp3 = _resp3;
+        List<String> modified = new ArrayList<>();
+        try {
+            String fault = _server.takeFault(name, firstKey(name, args));
+            if (fault != null) {
+                new RespWriter(buffer, resp3).error(fault);
+            } else {
+                // HELLO replies using the protocol it negotiates
+                execute(ctx, name, args, modified, buffer);
+            }
+        } catch (StandInException e) {
+            buffer.clear();
+            new RespWriter(buffer, resp3).error(e.getMessage());
+        } catch (RuntimeException e) {
+            buffer.clear();
+            new RespWriter(buffer, resp3).error("ERR " + e);
+        }
+        if (!"ASKING".equals(name)) {
+            _asking = false;
+        }
+
+        reply(ctx, buffer);
+        if (!modified.isEmpty()) {
+            _server.keysModified(modified);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        _server.recordReadBatch();
+        ctx.flush();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+
+    /**
+     * Writes the reply, delayed by the injected latency. Replies are never scheduled before the reply of an
+     * earlier command, so pipelined replies keep their order when the latency changes
+     * @param ctx Channel context
+     * @param reply Encoded reply
+     */
+    private void reply(ChannelHandlerContext ctx, ByteBuf reply) {
+        long latency = _server.getLatencyNanos();
+        long now = System.nanoTime();
+        if (latency == 0 && _lastDeadline <= now) {
+            ctx.write(reply);
+            return;
+        }
+
+        long deadline = Math.max(now + latency, _lastDeadline);
+        _lastDeadline = deadline;
+        ctx.executor().schedule(() -> ctx.writeAndFlush(reply), deadline - now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param ctx Channel context
+     * @param name Upper case command name
+     * @param args Command arguments
+     * @param modified Collects the keys modified by the command
+     * @param buffer Buffer the reply is written into
+     */
+    private void execute(ChannelHandlerContext ctx, String name, List<byte[]> args, List<String> modified, ByteBuf buffer) {
+        switch (name) {
+            case "HELLO":
+                hello(args, buffer);
+                return;
+            case "QUIT":
+                writer(buffer).simple("OK");
+                ctx.channel().eventLoop().execute(ctx::close);
+                return;
+            default:
+                break;
+        }
+
+        RespWriter out = writer(buffer);
+        switch (name) {
+            case "PING":
+                if (args.isEmpty()) {
+                    out.simple("PONG");
+                } else {
+                    out.bulk(args.get(0));
+                }
+                return;
+            case "ECHO":
+                out.bulk(arg(args, 0));
+                return;
+            case "AUTH":
+            case "SELECT":
+            case "READONLY":
+            case "READWRITE":
+                out.simple("OK");
+                return;
+            case "ASKING":
+                _asking = true;
+                out.simple("OK");
+                return;
+            case "CLIENT":
+                client(ctx, args, out);
+                return;
+            case "INFO":
+                out.bulk("# Server\r\nredis_version:6.0.0\r\nredis_mode:" + (_server.isClusterEnabled() ? "cluster" : "standalone")
+                        + "\r\n# Replication\r\nrole:master\r\nconnected_slaves:0\r\n");
+                return;
+            case "ROLE":
+                out.array(3).bulk("master").integer(0).array(0);
+                return;
+            case "COMMAND":
+                out.array(0);
+                return;
+            case "CLUSTER":
+                cluster(args, out);
+                return;
+            case "SCRIPT":
+                script(args, out);
+                return;
+            default:
+                break;
+        }
+
+        // Keyspace commands execute atomically against the store
+        checkSlots(name, args);
+        synchronized (_store.getLock()) {
+            if (!StandInCommands.execute(_store, name, args, modified, out)
+                    && !StandInScripts.getInstance().execute(_server, _store, name, args, modified, out)) {
+                throw new StandInException("ERR unknown command '" + name.toLowerCase(Locale.ROOT) + "'");
+            }
+        }
+    }
+
+    /**
+     * @param args HELLO arguments
+     * @param buffer Buffer the reply is written into
+     */
+    private void hello(List<byte[]> args, ByteBuf buffer) {
+        int protocol = args.isEmpty() ? (_resp3 ? 3 : 2) : parseInt(args.get(0));
+        if (protocol != 2 && protocol != 3) {
+            throw new StandInException("NOPROTO unsupported protocol version");
+        }
+
+        _resp3 = protocol == 3;
+        RespWriter out = writer(buffer);
+        out.map(7);
+        out.bulk("server").bulk("redis");
+        out.bulk("version").bulk("6.0.0");
+        out.bulk("proto").integer(protocol);
+        out.bulk("id").integer(_server.nextClientId());
+        out.bulk("mode").bulk(_server.isClusterEnabled() ? "cluster" : "standalone");
+        out.bulk("role").bulk("master");
+        out.bulk("modules").array(0);
+    }
+
+    /**
+     * @param ctx Channel context
+     * @param args CLIENT arguments
+     * @param out Reply writer
+     */
+    private void client(ChannelHandlerContext ctx, List<byte[]> args, RespWriter out) {
+        String subcommand = string(arg(args, 0)).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "SETNAME":
+                out.simple("OK");
+                return;
+            case "GETNAME":
+                out.nil();
+                return;
+            case "ID":
+                out.integer(ctx.channel().hashCode() & 0x7FFFFFFF);
+                return;
+            case "LIST":
+                StringBuilder list = new StringBuilder();
+                for (int i = 0; i < _server.getClientCount(); i++) {
+                    list.append("id=").append(i + 1).append(" addr=127.0.0.1:0 name= db=0 cmd=client\n");
+                }
+                out.bulk(list.toString());
+                return;
+            case "TRACKING":
+                tracking(ctx, args, out);
+                return;
+            default:
+                throw new StandInException("ERR Unknown subcommand '" + subcommand.toLowerCase(Locale.ROOT) + "'");
+        }
+    }
+
+    /**
+     * @param ctx Channel context
+     * @param args CLIENT TRACKING arguments
+     * @param out Reply writer
+     */
+    private void tracking(ChannelHandlerContext ctx, List<byte[]> args, RespWriter out) {
+        boolean enabled = "ON".equalsIgnoreCase(string(arg(args, 1)));
+        if (!enabled) {
+            _server.untrack(ctx.channel());
+            out.simple("OK");
+            return;
+        }
+        if (!_resp3) {
+            throw new StandInException("ERR the stand-in server supports client tracking on RESP3 connections only");
+        }
+
+        boolean bcast = false;
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 2; i < args.size(); i++) {
+            String option = string(args.get(i)).toUpperCase(Locale.ROOT);
+            if ("BCAST".equals(option)) {
+                bcast = true;
+            } else if ("PREFIX".equals(option)) {
+                prefixes.add(string(arg(args, ++i)));
+            } else if (!"NOLOOP".equals(option) && !"OPTIN".equals(option) && !"OPTOUT".equals(option)) {
+                throw new StandInException(ERR_SYNTAX);
+            }
+        }
+        if (!bcast) {
+            throw new StandInException("ERR the stand-in server supports broadcasting client tracking only");
+        }
+        _server.track(ctx.channel(), prefixes.isEmpty() ? Collections.singletonList("") : prefixes);
+        out.simple("OK");
+    }
+
+    /**
+     * @param args CLUSTER arguments
+     * @param out Reply writer
+     */
+    private void cluster(List<byte[]> args, RespWriter out) {
+        if (!_server.isClusterEnabled()) {
+            throw new StandInException("ERR This instance has cluster support disabled");
+        }
+
+        String subcommand = string(arg(args, 0)).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "NODES":
+                out.bulk(_server.describeClusterNodes());
+                return;
+            case "MYID":
+                out.bulk(_server.getNodeId());
+                return;
+            case "INFO":
+                out.bulk("cluster_state:ok\r\ncluster_slots_assigned:16384\r\ncluster_known_nodes:" + _server.getClusterNodes().size() + "\r\n");
+                return;
+            case "KEYSLOT":
+                out.integer(SlotHash.getSlot(arg(args, 1)));
+                return;
+            default:
+                throw new StandInException("ERR Unknown subcommand '" + subcommand.toLowerCase(Locale.ROOT) + "'");
+        }
+    }
+
+    /**
+     * @param args SCRIPT arguments
+     * @param out Reply writer
+     */
+    private void script(List<byte[]> args, RespWriter out) {
+        String subcommand = string(arg(args, 0)).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "LOAD":
+                out.bulk(_server.loadScript(string(arg(args, 1))));
+                return;
+            case "EXISTS":
+                out.array(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) {
+                    out.integer(_server.isScriptLoaded(string(args.get(i))) ? 1 : 0);
+                }
+                return;
+            case "FLUSH":
+                _server.flushScripts();
+                out.simple("OK");
+                return;
+            default:
+                throw new StandInException("ERR Unknown subcommand '" + subcommand.toLowerCase(Locale.ROOT) + "'");
+        }
+    }
+
+    /**
+     * Rejects commands on keys of slots served by another cluster node, like a Redis Cluster node does
+     * @param name Upper case command name
+     * @param args Command arguments
+     */
+    private void checkSlots(String name, List<byte[]> args) {
+        if (!_server.isClusterEnabled()) {
+            return;
+        }
+
+        List<byte[]> keys = StandInCommands.keys(name, args);
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        int slot = SlotHash.getSlot(keys.get(0));
+        for (byte[] key : keys) {
+            if (SlotHash.getSlot(key) != slot) {
+                throw new StandInException("CROSSSLOT Keys in request don't hash to the same slot");
+            }
+        }
+        RespStandInServer owner = _server.getSlotOwner(slot);
+        if (owner != _server && !_asking) {
+            throw new StandInException("MOVED " + slot + " " + owner.getHostAndPort());
+        }
+    }
+
+    /**
+     * @param name Upper case command name
+     * @param args Command arguments
+     * @return Returns the first key of the command, or null if it has none
+     */
+    private static byte[] firstKey(String name, List<byte[]> args) {
+        List<byte[]> keys = StandInCommands.keys(name, args);
+        return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    private RespWriter writer(ByteBuf buffer) {
+        return new RespWriter(buffer, _resp3);
+    }
+
+    static byte[] arg(List<byte[]> args, int index) {
+        if (index >= args.size()) {
+            throw new StandInException("ERR wrong number of arguments");
+        }
+        return args.get(index);
+    }
+
+    static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    static int parseInt(byte[] value) {
+        return (int) parseLong(value);
+    }
+
+    static long parseLong(byte[] value) {
+        try {
+            return Long.parseLong(string(value));
+        } catch (NumberFormatException e) {
+            throw new StandInException(ERR_NOT_INTEGER);
+        }
+    }
+
+    static StandInException wrongType() {
+        return new StandInException(ERR_WRONGTYPE);
+    }
+
+    static StandInException syntaxError() {
+        return new StandInException(ERR_SYNTAX);
+    }
+
+    /**
+     * @param glob Redis glob-style pattern
+     * @return Returns the equivalent regular expression
+     */
+    static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    regex.append('[');
+                    for (int j = i + 1; j < end; j++) {
+                        char member = glob.charAt(j);
+                        boolean literal = Character.isLetterOrDigit(member) || member == '-' || (member == '^' && j == i + 1);
+                        regex.append(literal ? "" : "\\").append(member);
+                    }
+                    regex.append(']');
+                    i = end;
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * @param hash Hash to write
+     * @param out Reply writer
+     */
+    static void writeHash(Map<String, byte[]> hash, RespWriter out) {
+        out.map(hash.size());
+        for (Map.Entry<String, byte[]> field : hash.entrySet()) {
+            out.bulk(field.getKey()).bulk(field.getValue());
+        }
+    }
+}
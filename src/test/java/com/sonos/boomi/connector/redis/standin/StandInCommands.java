@@ -0,0 +1,783 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.arg;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.parseInt;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.parseLong;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.string;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.syntaxError;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.wrongType;
+
+/**
+ * Keyspace commands of the stand-in server: the String, hash, sorted set, expiration and scan commands used by
+ * the connector. Commands must be executed while holding the store lock
+ */
+class StandInCommands {
+
+    private static final int DEFAULT_SCAN_COUNT = 10;
+
+    /**
+     * @param store Keyspace to execute against
+     * @param name Upper case command name
+     * @param args Command arguments
+     * @param modified Collects the keys modified by the command
+     * @param out Reply writer
+     * @return Returns whether the command is a keyspace command and was executed
+     */
+    static boolean execute(StandInDataStore store, String name, List<byte[]> args, List<String> modified, RespWriter out) {
+        switch (name) {
+            case "GET": {
+                StandInDataStore.Entry entry = stringEntry(store, string(arg(args, 0)));
+                out.bulk(entry == null ? null : entry.getString());
+                return true;
+            }
+            case "MGET": {
+                out.array(args.size());
+                for (byte[] key : args) {
+                    StandInDataStore.Entry entry = store.get(string(key));
+                    out.bulk(entry != null && entry.isString() ? entry.getString() : null);
+                }
+                return true;
+            }
+            case "SET":
+                set(store, args, modified, out);
+                return true;
+            case "SETEX":
+            case "PSETEX": {
+                String key = string(arg(args, 0));
+                long ttl = parseLong(arg(args, 1));
+                if (ttl <= 0) {
+                    throw new StandInException("ERR invalid expire time in '" + name.toLowerCase(Locale.ROOT) + "' command");
+                }
+                store.put(key, arg(args, 2)).setExpiresAt(System.currentTimeMillis() + ("SETEX".equals(name) ? ttl * 1000 : ttl));
+                modified.add(key);
+                out.simple("OK");
+                return true;
+            }
+            case "DEL":
+            case "UNLINK": {
+                int deleted = 0;
+                for (byte[] key : args) {
+                    if (store.remove(string(key))) {
+                        deleted++;
+                        modified.add(string(key));
+                    }
+                }
+                out.integer(deleted);
+                return true;
+            }
+            case "EXISTS": {
+                int count = 0;
+                for (byte[] key : args) {
+                    count += store.get(string(key)) != null ? 1 : 0;
+                }
+                out.integer(count);
+                return true;
+            }
+            case "TYPE": {
+                StandInDataStore.Entry entry = store.get(string(arg(args, 0)));
+                out.simple(entry == null ? "none" : entry.getType());
+                return true;
+            }
+            case "TTL":
+            case "PTTL": {
+                StandInDataStore.Entry entry = store.get(string(arg(args, 0)));
+                long ttl = entry == null ? -2 : entry.getExpiresAt() == 0 ? -1 : entry.getExpiresAt() - System.currentTimeMillis();
+                out.integer(ttl < 0 || "PTTL".equals(name) ? ttl : (ttl + 500) / 1000);
+                return true;
+            }
+            case "EXPIRE":
+            case "PEXPIRE": {
+                String key = string(arg(args, 0));
+                long ttl = parseLong(arg(args, 1));
+                StandInDataStore.Entry entry = store.get(key);
+                if (entry == null) {
+                    out.integer(0);
+                    return true;
+                }
+                if (ttl <= 0) {
+                    store.remove(key);
+                } else {
+                    entry.setExpiresAt(System.currentTimeMillis() + ("EXPIRE".equals(name) ? ttl * 1000 : ttl));
+                }
+                modified.add(key);
+                out.integer(1);
+                return true;
+            }
+            case "PERSIST": {
+                StandInDataStore.Entry entry = store.get(string(arg(args, 0)));
+                boolean persisted = entry != null && entry.getExpiresAt() != 0;
+                if (persisted) {
+                    entry.setExpiresAt(0);
+                }
+                out.integer(persisted ? 1 : 0);
+                return true;
+            }
+            case "HSET":
+            case "HMSET": {
+                if (args.size() < 3 || args.size() % 2 == 0) {
+                    throw new StandInException("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+                }
+                String key = string(args.get(0));
+                int created = hset(store, key, args.subList(1, args.size()));
+                modified.add(key);
+                if ("HMSET".equals(name)) {
+                    out.simple("OK");
+                } else {
+                    out.integer(created);
+                }
+                return true;
+            }
+            case "HGET": {
+                Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+                out.bulk(hash == null ? null : hash.get(string(arg(args, 1))));
+                return true;
+            }
+            case "HMGET": {
+                Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+                out.array(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) {
+                    out.bulk(hash == null ? null : hash.get(string(args.get(i))));
+                }
+                return true;
+            }
+            case "HGETALL": {
+                Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+                StandInCommandHandler.writeHash(hash == null ? Collections.<String, byte[]>emptyMap() : hash, out);
+                return true;
+            }
+            case "HDEL": {
+                String key = string(arg(args, 0));
+                Map<String, byte[]> hash = hash(store, key);
+                int deleted = 0;
+                for (int i = 1; hash != null && i < args.size(); i++) {
+                    deleted += hash.remove(string(args.get(i))) != null ? 1 : 0;
+                }
+                if (hash != null && hash.isEmpty()) {
+                    store.remove(key);
+                }
+                if (deleted > 0) {
+                    modified.add(key);
+                }
+                out.integer(deleted);
+                return true;
+            }
+            case "HLEN": {
+                Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+                out.integer(hash == null ? 0 : hash.size());
+                return true;
+            }
+            case "HEXISTS": {
+                Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+                out.integer(hash != null && hash.containsKey(string(arg(args, 1))) ? 1 : 0);
+                return true;
+            }
+            case "HSCAN":
+                hscan(store, args, out);
+                return true;
+            case "ZADD": {
+                if (args.size() < 3 || args.size() % 2 == 0) {
+                    throw new StandInException("ERR wrong number of arguments for 'zadd' command");
+                }
+                String key = string(args.get(0));
+                int created = zadd(store, key, args.subList(1, args.size()));
+                modified.add(key);
+                out.integer(created);
+                return true;
+            }
+            case "ZSCORE": {
+                StandInSortedSet sortedSet = sortedSet(store, string(arg(args, 0)));
+                Double score = sortedSet == null ? null : sortedSet.score(string(arg(args, 1)));
+                out.bulk(score == null ? null : formatScore(score));
+                return true;
+            }
+            case "ZCARD": {
+                StandInSortedSet sortedSet = sortedSet(store, string(arg(args, 0)));
+                out.integer(sortedSet == null ? 0 : sortedSet.size());
+                return true;
+            }
+            case "ZRANGE":
+            case "ZREVRANGE":
+                zrange(store, args, "ZREVRANGE".equals(name), out);
+                return true;
+            case "ZRANGEBYSCORE":
+            case "ZREVRANGEBYSCORE":
+                zrangebyscore(store, args, "ZREVRANGEBYSCORE".equals(name), out);
+                return true;
+            case "ZREM": {
+                String key = string(arg(args, 0));
+                StandInSortedSet sortedSet = sortedSet(store, key);
+                int removed = 0;
+                for (int i = 1; sortedSet != null && i < args.size(); i++) {
+                    removed += sortedSet.remove(string(args.get(i))) ? 1 : 0;
+                }
+                removeIfEmpty(store, key, sortedSet, removed, modified);
+                out.integer(removed);
+                return true;
+            }
+            case "ZREMRANGEBYSCORE": {
+                String key = string(arg(args, 0));
+                StandInSortedSet sortedSet = sortedSet(store, key);
+                ScoreBound min = ScoreBound.parse(arg(args, 1)), max = ScoreBound.parse(arg(args, 2));
+                int removed = 0;
+                for (Map.Entry<String, Double> member : sortedSet == null ? Collections.<Map.Entry<String, Double>>emptyList() : sortedSet.members(false)) {
+                    if (min.belowOrAt(member.getValue()) && max.aboveOrAt(member.getValue())) {
+                        removed += sortedSet.remove(member.getKey()) ? 1 : 0;
+                    }
+                }
+                removeIfEmpty(store, key, sortedSet, removed, modified);
+                out.integer(removed);
+                return true;
+            }
+            case "SCAN":
+                scan(store, args, out);
+                return true;
+            case "DBSIZE":
+                out.integer(store.keys().size());
+                return true;
+            case "FLUSHALL":
+            case "FLUSHDB":
+                modified.addAll(store.keys());
+                store.clear();
+                out.simple("OK");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param name Upper case command name
+     * @param args Command arguments
+     * @return Returns the keys accessed by the command
+     */
+    static List<byte[]> keys(String name, List<byte[]> args) {
+        switch (name) {
+            case "MGET":
+            case "DEL":
+            case "UNLINK":
+            case "EXISTS":
+                return args;
+            case "EVALSHA":
+            case "EVAL":
+                if (args.size() < 2) {
+                    return Collections.emptyList();
+                }
+                int count = parseInt(args.get(1));
+                return args.subList(2, Math.min(args.size(), 2 + count));
+            case "GET":
+            case "SET":
+            case "SETEX":
+            case "PSETEX":
+            case "TYPE":
+            case "TTL":
+            case "PTTL":
+            case "EXPIRE":
+            case "PEXPIRE":
+            case "PERSIST":
+            case "HSET":
+            case "HMSET":
+            case "HGET":
+            case "HMGET":
+            case "HGETALL":
+            case "HDEL":
+            case "HLEN":
+            case "HEXISTS":
+            case "HSCAN":
+            case "ZADD":
+            case "ZSCORE":
+            case "ZCARD":
+            case "ZRANGE":
+            case "ZREVRANGE":
+            case "ZRANGEBYSCORE":
+            case "ZREVRANGEBYSCORE":
+            case "ZREM":
+            case "ZREMRANGEBYSCORE":
+                return args.isEmpty() ? Collections.<byte[]>emptyList() : args.subList(0, 1);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @param store Keyspace
+     * @param key Key of the hash
+     * @param pairs Field/value pairs to write
+     * @return Returns the number of fields created
+     */
+    static int hset(StandInDataStore store, String key, List<byte[]> pairs) {
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry != null && !entry.isHash()) {
+            throw wrongType();
+        }
+        if (entry == null) {
+            entry = store.put(key, StandInDataStore.Entry.newHash());
+        }
+
+        int created = 0;
+        Map<String, byte[]> hash = entry.getHash();
+        for (int i = 0; i + 1 < pairs.size(); i += 2) {
+            created += hash.put(string(pairs.get(i)), pairs.get(i + 1)) == null ? 1 : 0;
+        }
+        return created;
+    }
+
+    /**
+     * @param store Keyspace
+     * @param key Key of the hash
+     * @return Returns the hash stored at the key, or null if the key doesn't exist
+     */
+    static Map<String, byte[]> hash(StandInDataStore store, String key) {
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isHash()) {
+            throw wrongType();
+        }
+        return entry.getHash();
+    }
+
+    /**
+     * @param store Keyspace
+     * @param key Key of the sorted set
+     * @param pairs Score/member pairs to write
+     * @return Returns the number of members created
+     */
+    static int zadd(StandInDataStore store, String key, List<byte[]> pairs) {
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry != null && !entry.isSortedSet()) {
+            throw wrongType();
+        }
+
+        // Validate every score before writing, so that an invalid score doesn't leave the command partially applied
+        double[] scores = new double[pairs.size() / 2];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = parseScore(string(pairs.get(i * 2)));
+        }
+        if (entry == null) {
+            entry = store.put(key, new StandInSortedSet());
+        }
+
+        int created = 0;
+        for (int i = 0; i < scores.length; i++) {
+            created += entry.getSortedSet().add(string(pairs.get(i * 2 + 1)), scores[i]) ? 1 : 0;
+        }
+        return created;
+    }
+
+    /**
+     * @param store Keyspace
+     * @param key Key of the sorted set
+     * @return Returns the sorted set stored at the key, or null if the key doesn't exist
+     */
+    static StandInSortedSet sortedSet(StandInDataStore store, String key) {
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isSortedSet()) {
+            throw wrongType();
+        }
+        return entry.getSortedSet();
+    }
+
+    /**
+     * @param store Keyspace
+     * @param key Key of the String
+     * @return Returns the entry of the String stored at the key, or null if the key doesn't exist
+     */
+    private static StandInDataStore.Entry stringEntry(StandInDataStore store, String key) {
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry != null && !entry.isString()) {
+            throw wrongType();
+        }
+        return entry;
+    }
+
+    /**
+     * SET key value [EX seconds|PX milliseconds|KEEPTTL] [NX|XX] [GET]
+     * @param store Keyspace
+     * @param args Command arguments
+     * @param modified Collects the keys modified by the command
+     * @param out Reply writer
+     */
+    private static void set(StandInDataStore store, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(args, 0));
+        byte[] value = arg(args, 1);
+        long expiresAt = 0;
+        boolean nx = false;
+        boolean xx = false;
+        boolean keepTtl = false;
+        boolean get = false;
+        for (int i = 2; i < args.size(); i++) {
+            String option = string(args.get(i)).toUpperCase(Locale.ROOT);
+            switch (option) {
+                case "EX":
+                    expiresAt = System.currentTimeMillis() + parseLong(arg(args, ++i)) * 1000;
+                    break;
+                case "PX":
+                    expiresAt = System.currentTimeMillis() + parseLong(arg(args, ++i));
+                    break;
+                case "NX":
+                    nx = true;
+                    break;
+                case "XX":
+                    xx = true;
+                    break;
+                case "KEEPTTL":
+                    keepTtl = true;
+                    break;
+                case "GET":
+                    get = true;
+                    break;
+                default:
+                    throw syntaxError();
+            }
+        }
+
+        StandInDataStore.Entry existing = store.get(key);
+        byte[] previous = null;
+        if (get && existing != null) {
+            if (!existing.isString()) {
+                throw wrongType();
+            }
+            previous = existing.getString();
+        }
+        if ((nx && existing != null) || (xx && existing == null)) {
+            if (get) {
+                out.bulk(previous);
+            } else {
+                out.nil();
+            }
+            return;
+        }
+
+        long previousExpiresAt = existing == null ? 0 : existing.getExpiresAt();
+        store.put(key, value).setExpiresAt(keepTtl ? previousExpiresAt : expiresAt);
+        modified.add(key);
+        if (get) {
+            out.bulk(previous);
+        } else {
+            out.simple("OK");
+        }
+    }
+
+    /**
+     * ZRANGE key start stop [WITHSCORES] and ZREVRANGE key start stop [WITHSCORES]
+     * @param store Keyspace
+     * @param args Command arguments
+     * @param descending Whether members are ordered from the highest to the lowest score
+     * @param out Reply writer
+     */
+    private static void zrange(StandInDataStore store, List<byte[]> args, boolean descending, RespWriter out) {
+        StandInSortedSet sortedSet = sortedSet(store, string(arg(args, 0)));
+        List<Map.Entry<String, Double>> members = sortedSet == null ? Collections.<Map.Entry<String, Double>>emptyList() : sortedSet.members(descending);
+        long start = parseLong(arg(args, 1)), stop = parseLong(arg(args, 2));
+        boolean withScores = args.size() > 3 && "WITHSCORES".equalsIgnoreCase(string(args.get(3)));
+        if (args.size() > (withScores ? 4 : 3)) {
+            throw syntaxError();
+        }
+
+        start = Math.max(0, start < 0 ? members.size() + start : start);
+        stop = Math.min(members.size() - 1, stop < 0 ? members.size() + stop : stop);
+        writeMembers(start > stop ? Collections.<Map.Entry<String, Double>>emptyList() : members.subList((int) start, (int) stop + 1), withScores, out);
+    }
+
+    /**
+     * ZRANGEBYSCORE key min max [WITHSCORES] [LIMIT offset count] and ZREVRANGEBYSCORE key max min [WITHSCORES]
+     * [LIMIT offset count]
+     * @param store Keyspace
+     * @param args Command arguments
+     * @param descending Whether members are ordered from the highest to the lowest score
+     * @param out Reply writer
+     */
+    private static void zrangebyscore(StandInDataStore store, List<byte[]> args, boolean descending, RespWriter out) {
+        StandInSortedSet sortedSet = sortedSet(store, string(arg(args, 0)));
+        ScoreBound min = ScoreBound.parse(arg(args, descending ? 2 : 1)), max = ScoreBound.parse(arg(args, descending ? 1 : 2));
+        boolean withScores = false;
+        long offset = 0, count = -1;
+        for (int i = 3; i < args.size(); i++) {
+            String option = string(args.get(i)).toUpperCase(Locale.ROOT);
+            if ("WITHSCORES".equals(option)) {
+                withScores = true;
+            } else if ("LIMIT".equals(option)) {
+                offset = parseLong(arg(args, ++i));
+                count = parseLong(arg(args, ++i));
+            } else {
+                throw syntaxError();
+            }
+        }
+
+        List<Map.Entry<String, Double>> page = new ArrayList<>();
+        long skipped = 0;
+        for (Map.Entry<String, Double> member : sortedSet == null ? Collections.<Map.Entry<String, Double>>emptyList() : sortedSet.members(descending)) {
+            if (offset < 0 || (count >= 0 && page.size() >= count)) {
+                break;
+            }
+            if (min.belowOrAt(member.getValue()) && max.aboveOrAt(member.getValue()) && skipped++ >= offset) {
+                page.add(member);
+            }
+        }
+        writeMembers(page, withScores, out);
+    }
+
+    /**
+     * @param members Members to write with their scores
+     * @param withScores Whether to write the score after each member
+     * @param out Reply writer
+     */
+    private static void writeMembers(List<Map.Entry<String, Double>> members, boolean withScores, RespWriter out) {
+        out.array(withScores ? members.size() * 2 : members.size());
+        for (Map.Entry<String, Double> member : members) {
+            out.bulk(member.getKey());
+            if (withScores) {
+                out.bulk(formatScore(member.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Deletes a sorted set that no longer has members, like Redis does
+     * @param store Keyspace
+     * @param key Key of the sorted set
+     * @param sortedSet Sorted set stored at the key, or null if the key doesn't exist
+     * @param removed Number of members removed by the command
+     * @param modified Collects the keys modified by the command
+     */
+    private static void removeIfEmpty(StandInDataStore store, String key, StandInSortedSet sortedSet, int removed, List<String> modified) {
+        if (sortedSet != null && sortedSet.size() == 0) {
+            store.remove(key);
+        }
+        if (removed > 0) {
+            modified.add(key);
+        }
+    }
+
+    /**
+     * @param value Score argument, a decimal number or an infinity such as 'inf', '-inf' or 'Infinity', as parsed by
+     *              strtod on Redis
+     * @return Returns the parsed score
+     */
+    private static double parseScore(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "inf":
+            case "+inf":
+            case "infinity":
+            case "+infinity":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+            case "-infinity":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    double score = Double.parseDouble(value);
+                    if (Double.isNaN(score) || Double.isInfinite(score)) {
+                        throw new NumberFormatException();
+                    }
+                    return score;
+                } catch (NumberFormatException e) {
+                    throw new StandInException("ERR value is not a valid float");
+                }
+        }
+    }
+
+    /**
+     * @param score Score to format
+     * @return Returns the score formatted like Redis replies with it
+     */
+    private static String formatScore(double score) {
+        if (Double.isInfinite(score)) {
+            return score > 0 ? "inf" : "-inf";
+        }
+        return score == Math.rint(score) && Math.abs(score) < 1e15 ? Long.toString((long) score) : Double.toString(score);
+    }
+
+    /**
+     * HSCAN key cursor [MATCH pattern] [COUNT count]. The cursor is the position in the insertion order of the
+     * hash fields
+     * @param store Keyspace
+     * @param args Command arguments
+     * @param out Reply writer
+     */
+    private static void hscan(StandInDataStore store, List<byte[]> args, RespWriter out) {
+        Map<String, byte[]> hash = hash(store, string(arg(args, 0)));
+        ScanOptions options = ScanOptions.parse(args, 2);
+        List<String> fields = hash == null ? Collections.<String>emptyList() : new ArrayList<>(hash.keySet());
+
+        int cursor = parseInt(arg(args, 1));
+        int end = Math.min(fields.size(), cursor + options.getCount());
+        List<String> page = new ArrayList<>();
+        for (int i = cursor; i < end; i++) {
+            if (options.matches(fields.get(i))) {
+                page.add(fields.get(i));
+            }
+        }
+
+        out.array(2).bulk(String.valueOf(end >= fields.size() ? 0 : end)).array(page.size() * 2);
+        for (String field : page) {
+            out.bulk(field).bulk(hash.get(field));
+        }
+    }
+
+    /**
+     * SCAN cursor [MATCH pattern] [COUNT count] [TYPE type]. Keys are scanned in the order of their hash codes and
+     * the cursor is derived from the hash code of the next key, so as with Redis, keys deleted during a scan don't
+     * cause other keys to be skipped
+     * @param store Keyspace
+     * @param args Command arguments
+     * @param out Reply writer
+     */
+    private static void scan(StandInDataStore store, List<byte[]> args, RespWriter out) {
+        ScanOptions options = ScanOptions.parse(args, 1);
+        List<String> keys = store.keys();
+        keys.sort(Comparator.comparingLong(StandInCommands::scanOrder).thenComparing(Comparator.naturalOrder()));
+
+        long cursor = parseLong(arg(args, 0));
+        int start = 0;
+        while (cursor > 0 && start < keys.size() && scanOrder(keys.get(start)) < cursor - 1) {
+            start++;
+        }
+
+        // Never split keys with the same hash code across pages, as the cursor can't tell them apart
+        int end = Math.min(keys.size(), start + options.getCount());
+        while (end > start && end < keys.size() && scanOrder(keys.get(end)) == scanOrder(keys.get(end - 1))) {
+            end++;
+        }
+
+        List<String> page = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            String key = keys.get(i);
+            StandInDataStore.Entry entry = store.get(key);
+            String type = entry == null ? null : entry.getType();
+            if (options.matches(key) && (options.getType() == null || options.getType().equalsIgnoreCase(type))) {
+                page.add(key);
+            }
+        }
+
+        long next = end >= keys.size() ? 0 : scanOrder(keys.get(end)) + 1;
+        out.array(2).bulk(String.valueOf(next)).array(page.size());
+        for (String key : page) {
+            out.bulk(key);
+        }
+    }
+
+    /**
+     * @param key Key to order
+     * @return Returns the position of the key in the scan order
+     */
+    private static long scanOrder(String key) {
+        return key.hashCode() & 0xffffffffL;
+    }
+
+    /**
+     * Inclusive or exclusive score bound of the range commands of sorted sets
+     */
+    private static class ScoreBound {
+
+        private final double _score;
+        private final boolean _exclusive;
+
+        private ScoreBound(double score, boolean exclusive) {
+            _score = score;
+            _exclusive = exclusive;
+        }
+
+        /**
+         * @param value Bound argument, a score prefixed with '(' when exclusive
+         * @return Returns the parsed bound
+         */
+        static ScoreBound parse(byte[] value) {
+            String bound = string(value);
+            boolean exclusive = bound.startsWith("(");
+            return new ScoreBound(parseScore(exclusive ? bound.substring(1) : bound), exclusive);
+        }
+
+        /**
+         * @param score Score to compare, used as a lower bound
+         * @return Returns whether the score is within the range starting at this bound
+         */
+        boolean belowOrAt(double score) {
+            return _exclusive ? _score < score : _score <= score;
+        }
+
+        /**
+         * @param score Score to compare, used as an upper bound
+         * @return Returns whether the score is within the range ending at this bound
+         */
+        boolean aboveOrAt(double score) {
+            return _exclusive ? _score > score : _score >= score;
+        }
+    }
+
+    /**
+     * MATCH, COUNT and TYPE options of the SCAN family of commands
+     */
+    private static class ScanOptions {
+
+        private Pattern _pattern;
+        private int _count = DEFAULT_SCAN_COUNT;
+        private String _type;
+
+        /**
+         * @param args Command arguments
+         * @param start Index of the first option
+         * @return Returns the parsed options
+         */
+        static ScanOptions parse(List<byte[]> args, int start) {
+            ScanOptions options = new ScanOptions();
+            for (int i = start; i < args.size(); i++) {
+                String option = string(args.get(i)).toUpperCase(Locale.ROOT);
+                switch (option) {
+                    case "MATCH":
+                        options._pattern = StandInCommandHandler.globToPattern(string(arg(args, ++i)));
+                        break;
+                    case "COUNT":
+                        options._count = Math.max(1, parseInt(arg(args, ++i)));
+                        break;
+                    case "TYPE":
+                        options._type = string(arg(args, ++i));
+                        break;
+                    default:
+                        throw syntaxError();
+                }
+            }
+            return options;
+        }
+
+        boolean matches(String value) {
+            return _pattern == null || _pattern.matcher(value).matches();
+        }
+
+        int getCount() {
+            return _count;
+        }
+
+        String getType() {
+            return _type;
+        }
+    }
+}
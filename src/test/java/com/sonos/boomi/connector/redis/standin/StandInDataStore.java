@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory keyspace of the stand-in server. Values are raw byte arrays for strings, insertion ordered
+ * maps for hashes and score ordered sets for sorted sets. Keys expire lazily when they are accessed after their
+ * expiration time. Callers must hold the store lock while accessing entries, so every command executes
+ * atomically like on Redis
+ */
+class StandInDataStore {
+
+    private final Object synch = new Object();
+    private final Map<String, Entry> _entries = new HashMap<>();
+
+    /**
+     * @return Returns the lock guarding the keyspace
+     */
+    Object getLock() {
+        return synch;
+    }
+
+    /**
+     * @param key Key to read
+     * @return Returns the live entry of the key, or null if the key doesn't exist or expired
+     */
+    Entry get(String key) {
+        Entry entry = _entries.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            _entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param key Key to write
+     * @param value String value or hash of the key
+     * @return Returns the new entry, without expiration
+     */
+    Entry put(String key, Object value) {
+        Entry entry = new Entry(value);
+        _entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * @param key Key to delete
+     * @return Returns whether a live key was deleted
+     */
+    boolean remove(String key) {
+        return get(key) != null && _entries.remove(key) != null;
+    }
+
+    /**
+     * @return Returns a snapshot of all live keys
+     */
+    List<String> keys() {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>(_entries.size());
+        Iterator<Map.Entry<String, Entry>> iterator = _entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getValue().isExpired(now)) {
+                iterator.remove();
+            } else {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Deletes every key
+     */
+    void clear() {
+        _entries.clear();
+    }
+
+    /**
+     * Value and expiration of a single key
+     */
+    static class Entry {
+
+        private final Object _value;
+        private long _expiresAt = 0;
+
+        /**
+         * @param value String value (byte[]), hash (Map of field to byte[]) or sorted set of the key
+         */
+        Entry(Object value) {
+            _value = value;
+        }
+
+        boolean isString() {
+            return _value instanceof byte[];
+        }
+
+        boolean isHash() {
+            return _value instanceof Map;
+        }
+
+        boolean isSortedSet() {
+            return _value instanceof StandInSortedSet;
+        }
+
+        /**
+         * @return Returns the type of the value as reported by the TYPE command
+         */
+        String getType() {
+            return isString() ? "string" : isHash() ? "hash" : "zset";
+        }
+
+        byte[] getString() {
+            return (byte[]) _value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, byte[]> getHash() {
+            return (Map<String, byte[]>) _value;
+        }
+
+        StandInSortedSet getSortedSet() {
+            return (StandInSortedSet) _value;
+        }
+
+        /**
+         * @param expiresAt Expiration time in epoch milliseconds, or 0 for none
+         */
+        void setExpiresAt(long expiresAt) {
+            _expiresAt = expiresAt;
+        }
+
+        long getExpiresAt() {
+            return _expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return _expiresAt != 0 && _expiresAt <= now;
+        }
+
+        /**
+         * @return Returns a new empty hash value
+         */
+        static Map<String, byte[]> newHash() {
+            return new LinkedHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.arg;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.parseInt;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.parseLong;
+import static com.sonos.boomi.connector.redis.standin.StandInCommandHandler.string;
+
+/**
+ * Native emulations of the connector's server-side Lua scripts, since the stand-in server can't run Lua.
+ *
+ * Scripts are identified by the SHA1 digest of the connector's script resources, so connector script changes
+ * that are not mirrored here are reported as unsupported instead of silently running outdated logic.
+ */
+class StandInScripts {
+
+    private final static String RUNTIME_EX = "Use getInstance() method to get the single instance of this class.";
+    private final static String RESOURCE_NAME_FORMAT = "redis-script-{name}.lua";
+    private final static Pattern MANIFEST_PATTERN = Pattern.compile("^([^:]+):(\\d+):");
+
+    private volatile static StandInScripts singleton;
+
+    private final Map<String, ScriptEmulation> _emulations = new HashMap<>();
+
+    /**
+     * Creates a singleton instance if one does not yet exist
+     * @throws RuntimeException Thrown if a singleton instance already exists
+     */
+    private StandInScripts() {
+        if (singleton != null) {
+            throw new RuntimeException(RUNTIME_EX);
+        }
+
+        register("hset-expire", StandInScripts::hsetExpire);
+        register("zadd-expire", StandInScripts::zaddExpire);
+        register("large-object-prepare", StandInScripts::largeObjectPrepare);
+        register("large-object-commit", StandInScripts::largeObjectCommit);
+        register("lease-release", StandInScripts::leaseRelease);
+    }
+
+    /**
+     * @return Returns a singleton instance of this class
+     */
+    static StandInScripts getInstance() {
+        if (singleton == null) {
+            synchronized (StandInScripts.class) {
+                if (singleton == null)
+                    singleton = new StandInScripts();
+            }
+        }
+
+        return singleton;
+    }
+
+    /**
+     * @param server Server executing the command
+     * @param store Keyspace to execute against
+     * @param name Upper case command name
+     * @param args Command arguments
+     * @param modified Collects the keys modified by the script
+     * @param out Reply writer
+     * @return Returns whether the command is a scripting command and was executed
+     */
+    boolean execute(RespStandInServer server, StandInDataStore store, String name, List<byte[]> args, List<String> modified, RespWriter out) {
+        if ("EVAL".equals(name)) {
+            throw new StandInException("ERR the stand-in server can't run Lua, load the script and use EVALSHA");
+        }
+        if (!"EVALSHA".equals(name)) {
+            return false;
+        }
+
+        String sha = string(arg(args, 0)).toLowerCase();
+        if (!server.isScriptLoaded(sha)) {
+            throw new StandInException("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        ScriptEmulation emulation = _emulations.get(sha);
+        if (emulation == null) {
+            throw new StandInException("ERR the stand-in server doesn't emulate script " + sha);
+        }
+
+        int keyCount = parseInt(arg(args, 1));
+        if (keyCount < 0 || args.size() < 2 + keyCount) {
+            throw new StandInException("ERR Number of keys can't be greater than number of args");
+        }
+        emulation.execute(store, args.subList(2, 2 + keyCount), args.subList(2 + keyCount, args.size()), modified, out);
+        return true;
+    }
+
+    /**
+     * @param body Script body
+     * @return Returns the hex encoded SHA1 digest identifying the script
+     */
+    static String sha1(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param name Name of the connector script
+     * @param emulation Native emulation of the script
+     */
+    private void register(String name, ScriptEmulation emulation) {
+        String resourceName = RESOURCE_NAME_FORMAT.replace("{name}", name);
+        try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            if (stream == null) {
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = stream.read(buffer)) != -1) {
+                body.write(buffer, 0, len);
+            }
+            _emulations.put(sha1(new String(body.toByteArray(), StandardCharsets.UTF_8)), emulation);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read script resource " + resourceName, e);
+        }
+    }
+
+    /**
+     * Emulates redis-script-hset-expire.lua
+     */
+    private static void hsetExpire(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(keys, 0));
+        long ttl = parseLong(arg(args, 0));
+        int written = StandInCommands.hset(store, key, args.subList(1, args.size()));
+        if (ttl > -1) {
+            store.get(key).setExpiresAt(System.currentTimeMillis() + ttl * 1000);
+        }
+        modified.add(key);
+        out.integer(written);
+    }
+
+    /**
+     * Emulates redis-script-zadd-expire.lua
+     */
+    private static void zaddExpire(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(keys, 0));
+        long ttl = parseLong(arg(args, 0));
+        int added = StandInCommands.zadd(store, key, args.subList(1, args.size()));
+        if (ttl > -1) {
+            store.get(key).setExpiresAt(System.currentTimeMillis() + ttl * 1000);
+        }
+        modified.add(key);
+        out.integer(added);
+    }
+
+    /**
+     * Emulates redis-script-large-object-prepare.lua
+     */
+    private static void largeObjectPrepare(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(keys, 0));
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry != null && !entry.isHash()) {
+            store.remove(key);
+            modified.add(key);
+            out.integer(1);
+            return;
+        }
+        out.integer(0);
+    }
+
+    /**
+     * Emulates redis-script-large-object-commit.lua
+     */
+    private static void largeObjectCommit(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(keys, 0));
+        long ttl = parseLong(arg(args, 0));
+        Map<String, byte[]> hash = StandInCommands.hash(store, key);
+
+        int deleted = 0;
+        byte[] previous = hash == null ? null : hash.get("manifest");
+        if (previous != null) {
+            Matcher matcher = MANIFEST_PATTERN.matcher(string(previous));
+            if (matcher.find()) {
+                for (int i = 0; i < Integer.parseInt(matcher.group(2)); i++) {
+                    deleted += hash.remove(matcher.group(1) + ":" + i) != null ? 1 : 0;
+                }
+            }
+        }
+
+        StandInCommands.hset(store, key, Arrays.asList("manifest".getBytes(StandardCharsets.UTF_8), arg(args, 1)));
+        store.get(key).setExpiresAt(ttl > -1 ? System.currentTimeMillis() + ttl * 1000 : 0);
+        modified.add(key);
+        out.integer(deleted);
+    }
+
+    /**
+     * Emulates redis-script-lease-release.lua
+     */
+    private static void leaseRelease(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out) {
+        String key = string(arg(keys, 0));
+        StandInDataStore.Entry entry = store.get(key);
+        if (entry != null && entry.isString() && Arrays.equals(entry.getString(), arg(args, 0))) {
+            store.remove(key);
+            modified.add(key);
+            out.integer(1);
+            return;
+        }
+        out.integer(0);
+    }
+
+    /**
+     * Native implementation of a connector script
+     */
+    private interface ScriptEmulation {
+
+        /**
+         * @param store Keyspace to execute against, locked by the caller
+         * @param keys KEYS of the script
+         * @param args ARGV of the script
+         * @param modified Collects the keys modified by the script
+         * @param out Reply writer
+         */
+        void execute(StandInDataStore store, List<byte[]> keys, List<byte[]> args, List<String> modified, RespWriter out);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.standin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Sorted set value of the stand-in server. Members are ordered by score, then lexicographically, like on Redis
+ */
+class StandInSortedSet {
+
+    private static final Comparator<Map.Entry<String, Double>> ORDER =
+            Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    private final Map<String, Double> _scores = new HashMap<>();
+    private final TreeSet<Map.Entry<String, Double>> _members = new TreeSet<>(ORDER);
+
+    /**
+     * @param member Member to add or update
+     * @param score Score of the member
+     * @return Returns whether the member was added rather than updated
+     */
+    boolean add(String member, double score) {
+        Double previous = _scores.put(member, score);
+        if (previous != null) {
+            _members.remove(new HashMap.SimpleImmutableEntry<>(member, previous));
+        }
+        _members.add(new HashMap.SimpleImmutableEntry<>(member, score));
+        return previous == null;
+    }
+
+    /**
+     * @param member Member to remove
+     * @return Returns whether the member existed
+     */
+    boolean remove(String member) {
+        Double previous = _scores.remove(member);
+        if (previous != null) {
+            _members.remove(new HashMap.SimpleImmutableEntry<>(member, previous));
+        }
+        return previous != null;
+    }
+
+    /**
+     * @param member Member to read
+     * @return Returns the score of the member, or null if it doesn't exist
+     */
+    Double score(String member) {
+        return _scores.get(member);
+    }
+
+    /**
+     * @param descending Whether to order members from the highest to the lowest score
+     * @return Returns a snapshot of the members with their scores in order
+     */
+    List<Map.Entry<String, Double>> members(boolean descending) {
+        return new ArrayList<>(descending ? _members.descendingSet() : _members);
+    }
+
+    int size() {
+        return _scores.size();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Sonos, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sonos.boomi.connector.redis.writebehind;
+
+import com.boomi.connector.api.OperationType;
+import com.sonos.boomi.connector.redis.StandInTestBase;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPool;
+import com.sonos.boomi.connector.redis.pool.RedisConnectionPoolConfig;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes acknowledged by the write-behind buffer and flushed to Redis in the background
+ */
+public class WriteBehindBufferTest extends StandInTestBase {
+
+    private RedisClient _client;
+    private File _journalFile;
+
+    @AfterEach
+    public void cleanUp() {
+        if (_client != null) {
+            _client.shutdown();
+        }
+        if (_journalFile != null && _journalFile.exists()) {
+            assertTrue(_journalFile.delete());
+        }
+    }
+
+    @Test
+    public void upsertedDocumentsAreFlushedInTheBackground() throws InterruptedException {
+        Map<String, Object> properties = operationProperties();
+        properties.put("writeBehind", true);
+        // The connector's buffer is never closed by the test, so it doesn't spill to a journal file
+        Map<String, Object> connectionProperties = connectionProperties(_server.getUri());
+        connectionProperties.put("writeBehindJournalMaxBytes", 0L);
+        assertSucceeded(createTester(OperationType.UPSERT, "String", connectionProperties, properties)
+                .executeUpsertOperationWithTrackedData(Collections.singletonList(document(0, "1", "value"))));
+
+        awaitCount(1, _server::getKeyCount);
+        assertEquals("value", payload(createTester(OperationType.GET, "String").executeGetOperation("1").get(0)));
+    }
+
+    @Test
+    public void spilledWritesAreReplayedByTheNextBuffer() throws IOException, InterruptedException {
+        _journalFile = File.createTempFile("redis-write-behind-test", ".journal");
+        assertTrue(_journalFile.delete());
+        RedisConnectionPool<StatefulConnection<String, String>> pool = createPool();
+
+        // A buffer that never flushes spills every write once its memory queue is full
+        WriteBehindBuffer spilling = new WriteBehindBuffer("test", pool, new WriteBehindConfig(1, 10, 1000, null, 1 << 20), _journalFile);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spilling.offer(new WriteBehindEntry(KEY_PREFIX + i, String.valueOf(i).getBytes(StandardCharsets.UTF_8), -1)));
+        }
+        assertEquals(5, spilling.getJournalCount());
+        spilling.close();
+        assertEquals(0, _server.getKeyCount());
+
+        WriteBehindBuffer replaying = new WriteBehindBuffer("test", pool, new WriteBehindConfig(1 << 20, 2, 1000, null, 1 << 20), _journalFile);
+        try {
+            replaying.start();
+            awaitCount(5, _server::getKeyCount);
+            awaitCount(0, replaying::getJournalCount);
+        } finally {
+            replaying.close();
+            pool.close();
+        }
+        assertEquals("4", payload(createTester(OperationType.GET, "String").executeGetOperation("4").get(0)));
+    }
+
+    /**
+     * @return Returns a pool of connections to the stand-in server
+     */
+    private RedisConnectionPool<StatefulConnection<String, String>> createPool() {
+        _client = RedisClient.create(_server.getUri());
+        return new RedisConnectionPool<>("test", _client::connect, new RedisConnectionPoolConfig(0, 1, 0, 0, 1, 1000));
+    }
+
+    /**
+     * Waits until the count reaches the expected value
+     * @param expected Expected count
+     * @param count Supplies the current count
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting
+     */
+    private static void awaitCount(int expected, IntSupplier count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, count.getAsInt());
+    }
+}